@@ -0,0 +1,62 @@
+package com.ganoderma.platform.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/** Writes BGZF files (as bgzip does) for the input benchmarks. */
+public final class BgzfWriter {
+
+    private static final int BLOCK_INPUT = 0xff00; // bgzip's uncompressed block size
+
+    private BgzfWriter() {
+    }
+
+    public static void compress(Path source, Path target) throws IOException {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        byte[] input = new byte[BLOCK_INPUT];
+        byte[] output = new byte[BLOCK_INPUT + 1024];
+        try (InputStream in = Files.newInputStream(source); OutputStream out = Files.newOutputStream(target)) {
+            int n;
+            while ((n = in.readNBytes(input, 0, input.length)) > 0) {
+                writeBlock(out, deflater, input, n, output);
+            }
+            writeBlock(out, deflater, input, 0, output); // EOF marker block
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void writeBlock(OutputStream out, Deflater deflater, byte[] input, int length, byte[] output)
+            throws IOException {
+        deflater.reset();
+        deflater.setInput(input, 0, length);
+        deflater.finish();
+        int compressed = 0;
+        while (!deflater.finished())
+            compressed += deflater.deflate(output, compressed, output.length - compressed);
+
+        CRC32 crc = new CRC32();
+        crc.update(input, 0, length);
+        int blockSize = 12 + 6 + compressed + 8;
+        byte[] header = {
+                0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff, 6, 0,
+                'B', 'C', 2, 0, (byte) ((blockSize - 1) & 0xff), (byte) ((blockSize - 1) >> 8)
+        };
+        out.write(header);
+        out.write(output, 0, compressed);
+        writeInt(out, (int) crc.getValue());
+        writeInt(out, length);
+    }
+
+    private static void writeInt(OutputStream out, int value) throws IOException {
+        out.write(value & 0xff);
+        out.write((value >> 8) & 0xff);
+        out.write((value >> 16) & 0xff);
+        out.write((value >> 24) & 0xff);
+    }
+}
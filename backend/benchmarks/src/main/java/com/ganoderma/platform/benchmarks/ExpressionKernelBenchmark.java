@@ -0,0 +1,85 @@
+package com.ganoderma.platform.benchmarks;
+
+import com.ganoderma.platform.service.ExpressionStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ExpressionStore kernels on a synthetic matrix (no database needed): the
+ * per-condition mean, top-k and threshold scans, with columns on heap and
+ * off heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgs = { "-Xms4g", "-Xmx4g" })
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ExpressionKernelBenchmark {
+
+    private static final int REPLICATES = 3;
+
+    @Param({ "20000", "1000000" })
+    public int genes;
+
+    @Param({ "48" })
+    public int samples;
+
+    @Param({ "false", "true" })
+    public boolean offHeap;
+
+    private ExpressionStore store;
+    private float[] means;
+
+    @Setup
+    public void setUp() {
+        String[] geneIds = new String[genes];
+        for (int i = 0; i < genes; i++) {
+            geneIds[i] = "GENE_" + i;
+        }
+        String[] sampleIds = new String[samples];
+        String[] conditions = new String[samples];
+        for (int s = 0; s < samples; s++) {
+            sampleIds[s] = "S" + s;
+            conditions[s] = "C" + (s / REPLICATES);
+        }
+        store = ExpressionStore.allocate(geneIds, sampleIds, conditions, offHeap);
+        SplittableRandom random = new SplittableRandom(42);
+        for (int s = 0; s < samples; s++) {
+            for (int g = 0; g < genes; g++) {
+                // Mostly low expression with a long tail, like real TPM columns
+                double tpm = random.nextInt(4) == 0 ? 0 : Math.exp(random.nextDouble() * 8);
+                store.set(g, s, (float) tpm);
+            }
+        }
+        means = store.computeConditionMean("C0");
+    }
+
+    @Benchmark
+    public float[] conditionMean() {
+        return store.computeConditionMean("C0");
+    }
+
+    @Benchmark
+    public List<ExpressionStore.Hit> topK() {
+        return ExpressionStore.topK(means, 50);
+    }
+
+    @Benchmark
+    public List<ExpressionStore.Hit> aboveThreshold() {
+        return ExpressionStore.above(means, 1000f, 10000);
+    }
+}
@@ -0,0 +1,145 @@
+package com.ganoderma.platform.benchmarks;
+
+import com.ganoderma.platform.service.ExpressionStore;
+import org.neo4j.driver.AuthTokens;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.GraphDatabase;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * "Highly expressed genes in a condition" answered by Cypher over
+ * EXPRESSED_IN versus the in-memory ExpressionStore, on the expression data
+ * of a running Neo4j (load some with POST /api/ingestion/expression first).
+ * Connection settings are parameters: {@code -p uri=bolt://... -p password=...}.
+ * Both sides count a sample without a value as 0, and setup checks that they
+ * agree on the top k before anything is timed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgs = { "-Xms2g", "-Xmx2g" })
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ExpressionQueryBenchmark {
+
+    // Divided by every sample of the condition, as ExpressionStore.conditionMean
+    private static final String CYPHER_TOP_K = """
+            MATCH (g:Gene)-[e:EXPRESSED_IN]->(:Sample)-[:BELONGS_TO_CONDITION]->(:Condition {name: $condition})
+            RETURN g.geneId AS geneId, sum(e.tpm) / $sampleCount AS mean
+            ORDER BY mean DESC
+            LIMIT $k
+            """;
+
+    // Same filter as GeneRepository.findHighlyExpressedInCondition
+    private static final String CYPHER_ABOVE = """
+            MATCH (g:Gene)-[e:EXPRESSED_IN]->(s:Sample)-[:BELONGS_TO_CONDITION]->(c:Condition {name: $condition})
+            WHERE e.tpm > $minTpm
+            RETURN g.geneId AS geneId, e.tpm AS tpm
+            """;
+
+    @Param({ "bolt://localhost:7687" })
+    public String uri;
+
+    @Param({ "neo4j" })
+    public String user;
+
+    @Param({ "password" })
+    public String password;
+
+    @Param({ "" })
+    public String condition; // Empty: the first condition found
+
+    @Param({ "50" })
+    public int k;
+
+    @Param({ "100" })
+    public float minTpm;
+
+    private Driver driver;
+    private Session session;
+    private ExpressionStore store;
+    private double sampleCount;
+
+    @Setup
+    public void setUp() {
+        driver = GraphDatabase.driver(uri, AuthTokens.basic(user, password));
+        session = driver.session();
+        store = ExpressionStore.load(session, false);
+        if (condition.isEmpty()) {
+            condition = store.conditions().keySet().stream().findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No Condition with expression data"));
+        }
+        sampleCount = store.conditions().get(condition).size();
+        checkTopKAgrees();
+    }
+
+    private void checkTopKAgrees() {
+        List<Record> cypher = cypherTopK();
+        List<ExpressionStore.Hit> hits = storeTopK();
+        // The store also ranks genes without a value in the condition, at 0
+        if (cypher.size() > hits.size() || hits.stream().skip(cypher.size()).anyMatch(hit -> hit.value() > 0))
+            throw new IllegalStateException("Top " + k + " sizes differ: Cypher " + cypher.size() + ", store "
+                    + hits.size());
+        float last = cypher.isEmpty() ? 0 : hits.get(cypher.size() - 1).value();
+        for (int i = 0; i < cypher.size(); i++) {
+            ExpressionStore.Hit hit = hits.get(i);
+            double mean = cypher.get(i).get("mean").asDouble();
+            if (Math.abs(mean - hit.value()) > 1e-3 * Math.max(1, Math.abs(mean)))
+                throw new IllegalStateException("Rank " + i + " differs: Cypher " + mean + ", store " + hit.value());
+            // Genes tied with the last one may be swapped for others of the same value
+            String geneId = store.geneId(hit.gene());
+            if (hit.value() - last > 1e-3 * Math.max(1, last)
+                    && cypher.stream().noneMatch(row -> row.get("geneId").asString().equals(geneId)))
+                throw new IllegalStateException(geneId + " is only in the store's top " + k);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        session.close();
+        driver.close();
+    }
+
+    @Benchmark
+    public List<Record> cypherTopK() {
+        return session.run(CYPHER_TOP_K, Map.of("condition", condition, "k", k, "sampleCount", sampleCount)).list();
+    }
+
+    @Benchmark
+    public List<ExpressionStore.Hit> storeTopK() {
+        return ExpressionStore.topK(store.conditionMean(condition), k);
+    }
+
+    /** Includes recomputing the condition mean, i.e. the first query after a reload. */
+    @Benchmark
+    public List<ExpressionStore.Hit> storeTopKUncached() {
+        return ExpressionStore.topK(store.computeConditionMean(condition), k);
+    }
+
+    @Benchmark
+    public List<Record> cypherAboveThreshold() {
+        return session.run(CYPHER_ABOVE, Map.of("condition", condition, "minTpm", minTpm)).list();
+    }
+
+    @Benchmark
+    public List<ExpressionStore.Hit> storeAboveThreshold() {
+        return ExpressionStore.above(store.conditionMean(condition), minTpm, Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,114 @@
+package com.ganoderma.platform.benchmarks;
+
+import com.ganoderma.platform.service.Gff3RecordReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the split/HashMap parsing of GffLoaderService.loadGff with
+ * {@link Gff3RecordReader}. Each operation parses the whole file and extracts
+ * the fields a gene row needs; run with {@code -prof gc} for allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgs = { "-Xms2g", "-Xmx2g" })
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+public class GffParserBenchmark {
+
+    @Param({ "10000", "1000000", "10000000" })
+    public long lines;
+
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = SyntheticGff.write(lines);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void splitParser(Blackhole bh) throws IOException {
+        // Mirrors the legacy loop: split on tabs, HashMap of split attributes
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("#") || line.trim().isEmpty())
+                    continue;
+                String[] parts = line.split("\t");
+                if (parts.length < 9 || !"gene".equalsIgnoreCase(parts[2]))
+                    continue;
+                bh.consume(Long.parseLong(parts[3]));
+                bh.consume(Long.parseLong(parts[4]));
+                bh.consume(parts[6]);
+                Map<String, String> attributes = new HashMap<>();
+                for (String pair : parts[8].split(";")) {
+                    String[] kv = pair.split("=");
+                    if (kv.length == 2)
+                        attributes.put(kv[0].trim(), kv[1].trim());
+                }
+                bh.consume(attributes.get("ID"));
+                bh.consume(attributes.get("Name"));
+                bh.consume(attributes.get("Note"));
+            }
+        }
+    }
+
+    @Benchmark
+    public void recordReader(Blackhole bh) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file));
+                Gff3RecordReader reader = new Gff3RecordReader(in)) {
+            while (reader.next()) {
+                if (!reader.isFeature() || !reader.columnEqualsIgnoreCase(Gff3RecordReader.TYPE, "gene"))
+                    continue;
+                bh.consume(reader.columnAsLong(Gff3RecordReader.START));
+                bh.consume(reader.columnAsLong(Gff3RecordReader.END));
+                bh.consume(reader.column(Gff3RecordReader.STRAND).charAt(0));
+                bh.consume(reader.attributeValue("ID"));
+                bh.consume(reader.attributeValue("Name"));
+                bh.consume(reader.attributeValue("Note"));
+            }
+        }
+    }
+
+    @Benchmark
+    public void recordReaderAllLines(Blackhole bh) throws IOException {
+        // Tokenizes every feature line without materialising values
+        try (InputStream in = Files.newInputStream(file);
+                Gff3RecordReader reader = new Gff3RecordReader(in)) {
+            while (reader.next()) {
+                if (!reader.isFeature())
+                    continue;
+                bh.consume(reader.column(Gff3RecordReader.TYPE));
+                bh.consume(reader.attribute("Parent"));
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.ganoderma.platform.benchmarks;
+
+import com.ganoderma.platform.dto.GraphDto;
+import com.ganoderma.platform.service.ColumnarGraphSink;
+import com.ganoderma.platform.service.GraphSink;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encode time of a Cypher-style subgraph as GraphDto JSON vs the columnar
+ * JSON and binary layouts of ColumnarGraphSink. Payload sizes (plain and
+ * gzipped) are printed once per parameter set during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgs = { "-Xms2g", "-Xmx2g" })
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class GraphEncodingBenchmark {
+
+    private static final String[] TYPES = { "Gene", "Isolate", "Orthogroup" };
+    private static final String[] DESCRIPTIONS = { "Putative effector protein", "Cell wall degrading enzyme",
+            "Transporter protein", "Cytochrome P450 monooxygenase" };
+
+    @Param({ "1000", "50000" })
+    public int nodes;
+
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(1 << 20);
+    private GraphDto graph;
+    private byte[] binary;
+
+    @Setup
+    public void setUp() throws IOException {
+        SplittableRandom random = new SplittableRandom(42);
+        List<GraphDto.NodeDto> nodeList = new ArrayList<>(nodes);
+        for (int i = 0; i < nodes; i++) {
+            String type = TYPES[i % 10 == 0 ? 1 + random.nextInt(2) : 0];
+            String id = "4:5f3c2a7e-9b1d-4c6e-8f0a-2d4b6c8e0f13:" + i;
+            // Properties stringified the way GraphController did: String.valueOf(Value)
+            Map<String, String> details = new HashMap<>();
+            details.put("geneId", "\"GANBO_" + i + "\"");
+            details.put("symbol", "\"gan" + i + "\"");
+            details.put("start", String.valueOf(random.nextInt(5_000_000)));
+            details.put("end", String.valueOf(random.nextInt(5_000_000)));
+            details.put("strand", random.nextBoolean() ? "\"+\"" : "\"-\"");
+            details.put("description", "\"" + DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)] + "\"");
+            details.put("logicalId", "GENE_GANBO_" + i);
+            nodeList.add(GraphDto.NodeDto.builder()
+                    .id(id)
+                    .name("gan" + i)
+                    .type(type)
+                    .val(type.equals("Gene") ? 15 : 25)
+                    .description(details.get("description"))
+                    .details(details)
+                    .build());
+        }
+        List<GraphDto.LinkDto> links = new ArrayList<>(nodes * 2);
+        for (int i = 0; i < nodes * 2; i++) {
+            links.add(GraphDto.LinkDto.builder()
+                    .source(nodeList.get(random.nextInt(nodes)).getId())
+                    .target(nodeList.get(random.nextInt(nodes)).getId())
+                    .label(i % 2 == 0 ? "FOUND_IN" : "BELONGS_TO_OG")
+                    .build());
+        }
+        graph = GraphDto.builder().nodes(nodeList).links(links).build();
+        binary = columnar(true);
+
+        System.out.printf("%nPayload for %d nodes: json=%d (gzip %d), columnar json=%d (gzip %d), binary=%d (gzip %d)%n",
+                nodes, json().length, gzip(json()).length, columnar(false).length, gzip(columnar(false)).length,
+                binary.length, gzip(binary).length);
+    }
+
+    @Benchmark
+    public byte[] json() {
+        buffer.reset();
+        jsonMapper.writeValue(buffer, graph);
+        return buffer.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] columnarJson() throws IOException {
+        return columnar(false);
+    }
+
+    @Benchmark
+    public byte[] columnarBinary() throws IOException {
+        return columnar(true);
+    }
+
+    @Benchmark
+    public GraphDto decodeBinary() throws IOException {
+        return ColumnarGraphSink.read(new ByteArrayInputStream(binary));
+    }
+
+    private byte[] columnar(boolean binary) throws IOException {
+        buffer.reset();
+        GraphSink.write(graph, new ColumnarGraphSink(jsonMapper, buffer, binary));
+        return buffer.toByteArray();
+    }
+
+    private static byte[] gzip(byte[] payload) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(payload);
+        }
+        return compressed.toByteArray();
+    }
+}
@@ -0,0 +1,117 @@
+package com.ganoderma.platform.benchmarks;
+
+import com.ganoderma.platform.service.BgzfParallelInputStream;
+import com.ganoderma.platform.service.Gff3RecordReader;
+import com.ganoderma.platform.service.MappedFileInputStream;
+import com.ganoderma.platform.service.PipelinedInputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Parses the same synthetic GFF through each input path of
+ * IngestionInputService: memory-mapped and buffered plain files, gzip inflated
+ * on the parsing thread or on a pipeline thread, and BGZF inflated in
+ * parallel. Each operation tokenizes the whole file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgs = { "-Xms2g", "-Xmx2g" })
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+public class InputSourceBenchmark {
+
+    @Param({ "1000000", "10000000" })
+    public long lines;
+
+    private Path plain;
+    private Path gzip;
+    private Path bgzf;
+    private ExecutorService inflaters;
+    private int readAhead;
+
+    @Setup
+    public void setUp() throws IOException {
+        plain = SyntheticGff.write(lines);
+        gzip = Files.createTempFile("synthetic-", ".gff3.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzip), 64 * 1024)) {
+            Files.copy(plain, out);
+        }
+        bgzf = Files.createTempFile("synthetic-", ".gff3.bgz");
+        BgzfWriter.compress(plain, bgzf);
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        inflaters = Executors.newFixedThreadPool(threads);
+        readAhead = threads * 4;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        inflaters.shutdownNow();
+        Files.deleteIfExists(plain);
+        Files.deleteIfExists(gzip);
+        Files.deleteIfExists(bgzf);
+    }
+
+    @Benchmark
+    public long mappedPlain() throws IOException {
+        return countFeatures(new MappedFileInputStream(plain, 0));
+    }
+
+    @Benchmark
+    public long bufferedPlain() throws IOException {
+        return countFeatures(new BufferedInputStream(Files.newInputStream(plain), 1024 * 1024));
+    }
+
+    @Benchmark
+    public long gzipSingleThread() throws IOException {
+        return countFeatures(new GZIPInputStream(new BufferedInputStream(Files.newInputStream(gzip), 1024 * 1024),
+                64 * 1024));
+    }
+
+    @Benchmark
+    public long gzipPipelined() throws IOException {
+        InputStream inflated = new GZIPInputStream(
+                new BufferedInputStream(Files.newInputStream(gzip), 1024 * 1024), 64 * 1024);
+        return countFeatures(new PipelinedInputStream(inflated, 256 * 1024, 8, "gzip-inflater"));
+    }
+
+    @Benchmark
+    public long bgzfParallel() throws IOException {
+        return countFeatures(new BgzfParallelInputStream(
+                new BufferedInputStream(Files.newInputStream(bgzf), 1024 * 1024), inflaters, readAhead));
+    }
+
+    private static long countFeatures(InputStream in) throws IOException {
+        long features = 0;
+        try (Gff3RecordReader reader = new Gff3RecordReader(in)) {
+            while (reader.next()) {
+                if (reader.isFeature())
+                    features++;
+            }
+        }
+        return features;
+    }
+}
@@ -0,0 +1,124 @@
+package com.ganoderma.platform.benchmarks;
+
+import com.ganoderma.platform.service.SearchService;
+import org.neo4j.driver.AuthTokens;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.GraphDatabase;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chat keyword retrieval: the five toLower(...) CONTAINS label scans the
+ * derived ContainingIgnoreCase queries ran versus the single full-text
+ * query of SearchService. Setup tops the database up to {@code genes}
+ * synthetic :Gene nodes (geneId BENCH_...) and removes them again in
+ * teardown, so point it at a scratch Neo4j: {@code -p uri=bolt://...}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgs = { "-Xms1g", "-Xmx1g" })
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class SearchBenchmark {
+
+    private static final List<String> SCANS = List.of(
+            "MATCH (n:Isolate) WHERE toLower(n.name) CONTAINS toLower($term) RETURN n",
+            "MATCH (n:Isolate) WHERE toLower(n.host) CONTAINS toLower($term) RETURN n",
+            "MATCH (n:Isolate) WHERE toLower(n.originCountry) CONTAINS toLower($term) RETURN n",
+            "MATCH (n:Gene) WHERE toLower(n.symbol) CONTAINS toLower($term) RETURN n",
+            "MATCH (n:Gene) WHERE toLower(n.description) CONTAINS toLower($term) RETURN n");
+
+    // Same statements as Neo4jSchemaInitializer
+    private static final List<String> INDEXES = List.of(
+            "CREATE FULLTEXT INDEX gene_search IF NOT EXISTS FOR (g:Gene) ON EACH [g.symbol, g.description]",
+            "CREATE FULLTEXT INDEX isolate_search IF NOT EXISTS FOR (i:Isolate) ON EACH [i.name, i.host, i.originCountry]");
+
+    private static final String SEED = """
+            UNWIND range($from, $to - 1) AS n
+            CREATE (:Gene {geneId: 'BENCH_' + n, symbol: 'bench' + n,
+                           description: ['Putative effector protein', 'Cell wall degrading enzyme',
+                                         'Transporter protein', 'Cytochrome P450 monooxygenase'][n % 4] + ' ' + n})
+            """;
+
+    @Param({ "bolt://localhost:7687" })
+    public String uri;
+
+    @Param({ "neo4j" })
+    public String user;
+
+    @Param({ "password" })
+    public String password;
+
+    @Param({ "1000000" })
+    public int genes;
+
+    @Param({ "cytochrome", "bench4242" })
+    public String term;
+
+    @Param({ "20" })
+    public int limit;
+
+    private Driver driver;
+    private Session session;
+    private boolean seeded;
+
+    @Setup
+    public void setUp() {
+        driver = GraphDatabase.driver(uri, AuthTokens.basic(user, password));
+        session = driver.session();
+        for (String statement : INDEXES) {
+            session.run(statement).consume();
+        }
+        long existing = session.run("MATCH (g:Gene) RETURN count(g) AS n").single().get("n").asLong();
+        for (long from = existing; from < genes; from += 50_000) {
+            session.run(SEED, Map.of("from", from, "to", Math.min(from + 50_000, genes))).consume();
+            seeded = true;
+        }
+        session.run("CALL db.awaitIndexes(600)").consume();
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (seeded) {
+            session.run("MATCH (g:Gene) WHERE g.geneId STARTS WITH 'BENCH_' CALL { WITH g DETACH DELETE g } "
+                    + "IN TRANSACTIONS OF 50000 ROWS").consume();
+        }
+        session.close();
+        driver.close();
+    }
+
+    /** What retrieveContext did: five scans, the first {@code limit} results kept. */
+    @Benchmark
+    public List<Record> containsScans() {
+        List<Record> records = new ArrayList<>();
+        for (String scan : SCANS) {
+            records.addAll(session.run(scan, Map.of("term", term)).list());
+        }
+        return records.subList(0, Math.min(limit, records.size()));
+    }
+
+    @Benchmark
+    public List<Record> fullText() {
+        return session.run(SearchService.cypher(EnumSet.allOf(SearchService.Kind.class)),
+                Map.of("query", SearchService.luceneQuery(term), "limit", limit)).list();
+    }
+}
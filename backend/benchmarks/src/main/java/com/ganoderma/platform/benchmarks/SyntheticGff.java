@@ -0,0 +1,68 @@
+package com.ganoderma.platform.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Generates GFF3 files shaped like a Ganoderma annotation: each gene is
+ * followed by one mRNA, two exons and two CDS lines, and some attributes carry
+ * percent-escaped characters.
+ */
+public final class SyntheticGff {
+
+    private static final String[] PREFIXES = { "Tox", "Eff", "Reg", "Met", "Tra", "Str" };
+    private static final String[] NOTES = {
+            "Involved in secondary metabolism",
+            "Putative effector protein%3B secreted",
+            "Transcription factor related to virulence",
+            "Cell wall degrading enzyme%2C GH28 family",
+            "Cytochrome P450 monooxygenase"
+    };
+
+    private SyntheticGff() {
+    }
+
+    /** Writes a file of roughly {@code lines} feature lines to a temp file. */
+    public static Path write(long lines) throws IOException {
+        Path file = Files.createTempFile("synthetic-" + lines + "-", ".gff3");
+        file.toFile().deleteOnExit();
+        Random random = new Random(42);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("##gff-version 3\n");
+            long written = 0;
+            int gene = 0;
+            while (written < lines) {
+                gene++;
+                String seqId = "scaffold_" + (gene / 2000 + 1);
+                long start = (gene % 2000) * 5000L + 1;
+                long end = start + 1500 + random.nextInt(2000);
+                char strand = random.nextBoolean() ? '+' : '-';
+                String geneId = String.format("Gbon_%07d", gene);
+                String symbol = PREFIXES[random.nextInt(PREFIXES.length)] + (1 + random.nextInt(100));
+
+                out.write(feature(seqId, "gene", start, end, strand, '.',
+                        "ID=" + geneId + ";Name=" + symbol + ";Note=" + NOTES[random.nextInt(NOTES.length)]));
+                out.write(feature(seqId, "mRNA", start, end, strand, '.',
+                        "ID=" + geneId + ".t1;Parent=" + geneId + ";protein_id=" + geneId + ".p1"));
+                long mid = (start + end) / 2;
+                out.write(feature(seqId, "exon", start, mid, strand, '.', "ID=" + geneId + ".e1;Parent=" + geneId + ".t1"));
+                out.write(feature(seqId, "exon", mid + 100, end, strand, '.', "ID=" + geneId + ".e2;Parent=" + geneId + ".t1"));
+                out.write(feature(seqId, "CDS", start, mid, strand, '0', "ID=" + geneId + ".cds;Parent=" + geneId + ".t1"));
+                out.write(feature(seqId, "CDS", mid + 100, end, strand, '0', "ID=" + geneId + ".cds;Parent=" + geneId + ".t1"));
+                out.write("###\n");
+                written += 6;
+            }
+        }
+        return file;
+    }
+
+    private static String feature(String seqId, String type, long start, long end, char strand, char phase,
+            String attributes) {
+        return seqId + "\tsynthetic\t" + type + "\t" + start + "\t" + end + "\t.\t" + strand + "\t" + phase + "\t"
+                + attributes + "\n";
+    }
+}
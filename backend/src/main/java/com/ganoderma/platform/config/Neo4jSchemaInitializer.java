@@ -0,0 +1,48 @@
+package com.ganoderma.platform.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Creates the constraints and indexes the batched loaders rely on. MERGE on an
+ * unindexed property is a label scan per row, which defeats batching.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class Neo4jSchemaInitializer {
+
+    private final Neo4jClient neo4jClient;
+
+    private static final List<String> SCHEMA_STATEMENTS = List.of(
+            "CREATE CONSTRAINT gene_id IF NOT EXISTS FOR (g:Gene) REQUIRE g.geneId IS UNIQUE",
+            "CREATE INDEX isolate_name IF NOT EXISTS FOR (i:Isolate) ON (i.name)",
+            "CREATE CONSTRAINT sequence_id IF NOT EXISTS FOR (s:Sequence) REQUIRE s.seqId IS UNIQUE",
+            "CREATE INDEX protein_id IF NOT EXISTS FOR (p:Protein) ON (p.proteinId)",
+            "CREATE CONSTRAINT orthogroup_id IF NOT EXISTS FOR (og:Orthogroup) REQUIRE og.groupId IS UNIQUE",
+            "CREATE INDEX pending_og_member IF NOT EXISTS FOR (m:PendingOgMembership) ON (m.memberId)",
+            "CREATE INDEX pending_og_group IF NOT EXISTS FOR (m:PendingOgMembership) ON (m.groupId)",
+            "CREATE CONSTRAINT sample_id IF NOT EXISTS FOR (s:Sample) REQUIRE s.sampleId IS UNIQUE",
+            "CREATE INDEX condition_name IF NOT EXISTS FOR (c:Condition) ON (c.name)",
+            // Full-text indexes behind SearchService
+            "CREATE FULLTEXT INDEX gene_search IF NOT EXISTS FOR (g:Gene) ON EACH [g.symbol, g.description]",
+            "CREATE FULLTEXT INDEX isolate_search IF NOT EXISTS FOR (i:Isolate) ON EACH [i.name, i.host, i.originCountry]");
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createSchema() {
+        for (String statement : SCHEMA_STATEMENTS) {
+            try {
+                neo4jClient.query(statement).run();
+            } catch (Exception e) {
+                // Do not prevent startup if the database is not reachable yet
+                log.warn("Could not apply schema statement '{}': {}", statement, e.getMessage());
+            }
+        }
+    }
+}
@@ -2,7 +2,9 @@ package com.ganoderma.platform.controller;
 
 import com.ganoderma.platform.service.GraphRagService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Map;
 
@@ -21,6 +23,9 @@ public class AiController {
             throw new IllegalArgumentException("Prompt cannot be empty");
         }
         String cypher = graphRagService.generateCypher(prompt, null);
+        if (cypher == null) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_CONTENT, "No valid read-only query for this prompt");
+        }
         return Map.of("cypher", cypher);
     }
 }
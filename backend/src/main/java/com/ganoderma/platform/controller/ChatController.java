@@ -1,9 +1,20 @@
 package com.ganoderma.platform.controller;
 
 import com.ganoderma.platform.dto.ChatDto;
+import com.ganoderma.platform.service.CypherQueryService;
 import com.ganoderma.platform.service.GraphRagService;
+import com.ganoderma.platform.service.IntentClassifier;
+import com.ganoderma.platform.service.LlmCacheService;
+import com.ganoderma.platform.service.SseChatSink;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/chat")
@@ -12,9 +23,53 @@ import org.springframework.web.bind.annotation.*;
 public class ChatController {
 
     private final GraphRagService graphRagService;
+    private final LlmCacheService llmCacheService;
+    private final IntentClassifier intentClassifier;
+    private final CypherQueryService cypherQueryService;
+    private final JsonMapper jsonMapper;
 
     @PostMapping
     public ChatDto.Response chat(@RequestBody ChatDto.Request request) {
         return graphRagService.ask(request);
     }
+
+    /**
+     * Same request as POST /api/chat, answered as Server-Sent Events:
+     * "cypher" (when a graph query was generated), "token"s while the
+     * answer is generated, "references" (as contextUsed), then "end" with
+     * the stage timings (or "error").
+     */
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> chatStream(@RequestBody ChatDto.Request request) {
+        StreamingResponseBody body = out -> {
+            SseChatSink sink = new SseChatSink(jsonMapper, out);
+            try {
+                graphRagService.askStream(request, sink);
+            } catch (RuntimeException e) {
+                sink.error(e.getMessage());
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .cacheControl(CacheControl.noCache())
+                .body(body);
+    }
+
+    /** Hit rates of the LLM reply caches (keywords, intent, cypher, answer). */
+    @GetMapping("/cache")
+    public List<ChatDto.CacheStats> cacheStats() {
+        return llmCacheService.stats();
+    }
+
+    /** How often the local intent classifier answered and how well it scores on its test corpus. */
+    @GetMapping("/intent")
+    public ChatDto.IntentStats intentStats() {
+        return intentClassifier.stats();
+    }
+
+    /** How many graph queries came from templates, and hit rate of the EXPLAIN check cache. */
+    @GetMapping("/cypher")
+    public ChatDto.CypherStats cypherStats() {
+        return cypherQueryService.stats();
+    }
 }
@@ -3,6 +3,7 @@ package com.ganoderma.platform.controller;
 import com.ganoderma.platform.dto.DashboardStatsDto;
 import com.ganoderma.platform.repository.GeneRepository;
 import com.ganoderma.platform.repository.IsolateRepository;
+import com.ganoderma.platform.repository.SampleRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -17,13 +18,14 @@ public class DashboardController {
 
     private final GeneRepository geneRepository;
     private final IsolateRepository isolateRepository;
+    private final SampleRepository sampleRepository;
 
     @GetMapping("/stats")
     public DashboardStatsDto getStats() {
         return DashboardStatsDto.builder()
                 .genesCount(geneRepository.count())
                 .isolatesCount(isolateRepository.count())
-                .samplesCount(0) // Placeholder as we don't have sample repo yet
+                .samplesCount(sampleRepository.count())
                 .build();
     }
 }
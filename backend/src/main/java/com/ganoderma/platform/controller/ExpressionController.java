@@ -0,0 +1,59 @@
+package com.ganoderma.platform.controller;
+
+import com.ganoderma.platform.dto.ExpressionDto;
+import com.ganoderma.platform.service.ExpressionStoreService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Expression queries answered from the in-memory {@code ExpressionStore}
+ * instead of scanning EXPRESSED_IN relationships.
+ */
+@RestController
+@RequestMapping("/api/expression")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class ExpressionController {
+
+    private static final int MAX_RESULTS = 10000;
+
+    private final ExpressionStoreService expressionStoreService;
+
+    @GetMapping("/status")
+    public ExpressionDto.Status status() {
+        return expressionStoreService.status();
+    }
+
+    /** Top genes by mean TPM across the condition's replicates; with minTpm, genes above it. */
+    @GetMapping("/conditions/{condition}/genes")
+    public ResponseEntity<ExpressionDto.Ranking> conditionGenes(@PathVariable String condition,
+            @RequestParam(value = "minTpm", required = false) Float minTpm,
+            @RequestParam(value = "k", defaultValue = "50") int k) {
+        return expressionStoreService.rankByCondition(condition, minTpm, Math.min(k, MAX_RESULTS))
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/samples/{sampleId}/genes")
+    public ResponseEntity<ExpressionDto.Ranking> sampleGenes(@PathVariable String sampleId,
+            @RequestParam(value = "minTpm", required = false) Float minTpm,
+            @RequestParam(value = "k", defaultValue = "50") int k) {
+        return expressionStoreService.rankBySample(sampleId, minTpm, Math.min(k, MAX_RESULTS))
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/genes/{geneId}")
+    public ResponseEntity<ExpressionDto.Profile> geneProfile(@PathVariable String geneId) {
+        return expressionStoreService.profile(geneId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/reload")
+    public ResponseEntity<ExpressionDto.Status> reload() {
+        expressionStoreService.requestRebuild();
+        return ResponseEntity.accepted().body(expressionStoreService.status());
+    }
+}
@@ -28,7 +28,7 @@ public class GeneController {
     }
 
     @GetMapping("/search")
-    public List<Gene> searchGenes(@RequestParam String symbol) {
-        return geneService.searchBySymbol(symbol);
+    public List<Gene> searchGenes(@RequestParam String symbol, @RequestParam(required = false) Integer limit) {
+        return geneService.searchBySymbol(symbol, limit);
     }
 }
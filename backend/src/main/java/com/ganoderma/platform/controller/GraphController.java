@@ -1,22 +1,42 @@
 package com.ganoderma.platform.controller;
 
 import com.ganoderma.platform.dto.GraphDto;
-import com.ganoderma.platform.model.Gene;
-import com.ganoderma.platform.model.Isolate;
-import com.ganoderma.platform.model.Orthogroup;
-import com.ganoderma.platform.repository.GeneRepository;
-import com.ganoderma.platform.repository.IsolateRepository;
-import com.ganoderma.platform.repository.OrthogroupRepository;
+import com.ganoderma.platform.service.CypherGraphService;
+import com.ganoderma.platform.service.DatasetVersionService;
+import com.ganoderma.platform.service.GraphAggregateService;
+import com.ganoderma.platform.service.GraphDtoSink;
+import com.ganoderma.platform.service.GraphFormat;
+import com.ganoderma.platform.service.GraphSink;
+import com.ganoderma.platform.service.GraphSnapshotCache;
+import com.ganoderma.platform.service.GraphStreamService;
+import com.ganoderma.platform.service.SseGraphSink;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.json.JsonMapper;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/graph")
@@ -24,195 +44,198 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class GraphController {
 
-    private final GeneRepository geneRepository;
-    private final IsolateRepository isolateRepository;
-    private final OrthogroupRepository orthogroupRepository;
-    private final org.springframework.data.neo4j.core.Neo4jClient neo4jClient;
-
-    @org.springframework.web.bind.annotation.PostMapping("/cypher")
-    public GraphDto executeCypher(@org.springframework.web.bind.annotation.RequestBody Map<String, String> payload) {
+    private final CypherGraphService cypherGraphService;
+    private final GraphStreamService graphStreamService;
+    private final GraphAggregateService graphAggregateService;
+    private final GraphSnapshotCache graphSnapshotCache;
+    private final DatasetVersionService datasetVersionService;
+    private final JsonMapper jsonMapper;
+
+    @Value("${ganoderma.cypher.stream-batch-size:200}")
+    private int streamBatchSize;
+
+    /**
+     * Runs a Cypher query and returns the nodes and relationships it yields,
+     * read from the cursor within the configured timeout and node/link
+     * budgets; "truncated" is set when a limit cut the result short. The
+     * Accept header can select the NDJSON or columnar encodings.
+     */
+    @PostMapping("/cypher")
+    public ResponseEntity<?> executeCypher(@RequestBody Map<String, String> payload,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) throws IOException {
         String query = payload.get("query");
         if (query == null || query.trim().isEmpty()) {
-            return GraphDto.builder().nodes(new ArrayList<>()).links(new ArrayList<>()).build();
+            return ResponseEntity.ok(GraphDto.builder().nodes(new ArrayList<>()).links(new ArrayList<>()).build());
         }
-
-        java.util.Collection<Map<String, Object>> results = neo4jClient.query(query).fetch().all();
-
-        // Use Sets to avoid duplicates when multiple rows return same node/rel
-        java.util.Map<String, GraphDto.NodeDto> nodeMap = new HashMap<>(); // Key: ID
-        java.util.Map<String, GraphDto.LinkDto> linkMap = new HashMap<>(); // Key: ID (if available) or complex key
-
-        for (Map<String, Object> row : results) {
-            for (Object val : row.values()) {
-                processResultItem(val, nodeMap, linkMap);
-            }
+        GraphFormat format = GraphFormat.fromAccept(accept);
+        if (format == GraphFormat.JSON) {
+            GraphDtoSink sink = new GraphDtoSink();
+            cypherGraphService.execute(query, sink);
+            return ResponseEntity.ok(sink.graph());
         }
-
-        return GraphDto.builder()
-                .nodes(new ArrayList<>(nodeMap.values()))
-                .links(new ArrayList<>(linkMap.values()))
-                .build();
+        // Bounded by the node/link budgets
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        cypherGraphService.execute(query, format.sink(jsonMapper, body));
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.mediaType()))
+                .body(body.toByteArray());
     }
 
-    private void processResultItem(Object val, Map<String, GraphDto.NodeDto> nodes,
-            Map<String, GraphDto.LinkDto> links) {
-        if (val instanceof org.neo4j.driver.types.Node) {
-            org.neo4j.driver.types.Node n = (org.neo4j.driver.types.Node) val;
-
-            // Determine Type (First label)
-            String rawType = n.labels().iterator().hasNext() ? n.labels().iterator().next() : "Unknown";
-            String type = rawType;
-            // if ("Orthogroup".equals(rawType)) {
-            // type = "Pathway"; // Visual proxy for Orthogroup
-            // }
-
-            // ID Strategy: Use elementId (Internal Neo4j ID) to ensure consistency with
-            // Relationships
-            // D3/Vis requires source/target to match node ID exactly.
-            String id = n.elementId();
-            String name = id; // Default name
-
-            // Determine Name based on properties (but keep ID as technical ID)
-            if (n.hasLabel("Isolate") && n.containsKey("name")) {
-                name = n.get("name").asString();
-            } else if (n.hasLabel("Gene")) {
-                name = n.containsKey("symbol") ? n.get("symbol").asString()
-                        : (n.containsKey("geneId") ? n.get("geneId").asString() : id);
-            } else if (n.hasLabel("Orthogroup") && n.containsKey("groupId")) {
-                name = n.get("groupId").asString();
-            } else {
-                name = n.containsKey("name") ? n.get("name").asString() : id;
-            }
+    /**
+     * As {@link #executeCypher}, sent as Server-Sent Events: "graph" events
+     * with partial graphs as rows arrive, then "end" (or "error"). GET takes
+     * the query as a parameter so EventSource can be used.
+     */
+    @PostMapping(value = "/cypher/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamCypher(@RequestBody Map<String, String> payload) {
+        return streamCypher(payload.get("query"));
+    }
 
-            // Details
-            Map<String, String> details = new HashMap<>();
-            n.keys().forEach(k -> details.put(k, String.valueOf(n.get(k))));
-
-            // CRITICAL: Inject Logical ID for GraphRagService context Retrieval
-            String logicalId = id;
-            if (n.hasLabel("Isolate") && n.containsKey("name")) {
-                logicalId = "ISOLATE_" + n.get("name").asString();
-            } else if (n.hasLabel("Gene") && n.containsKey("geneId")) {
-                logicalId = "GENE_" + n.get("geneId").asString();
-            } else if (n.hasLabel("Orthogroup") && n.containsKey("groupId")) {
-                logicalId = "OG_" + n.get("groupId").asString();
-            }
-            details.put("logicalId", logicalId);
-
-            // Visual Tweaks
-            int valSize = type.equals("Isolate") ? 25 : type.equals("Gene") ? 15 : 20;
-
-            GraphDto.NodeDto nodeDto = GraphDto.NodeDto.builder()
-                    .id(id) // MUST be elementId to match Relationship source/target
-                    .name(name)
-                    .type(type)
-                    .val(valSize)
-                    .description(details.get("description"))
-                    .details(details)
-                    .build();
-
-            nodes.put(id, nodeDto);
-
-        } else if (val instanceof org.neo4j.driver.types.Relationship) {
-            org.neo4j.driver.types.Relationship r = (org.neo4j.driver.types.Relationship) val;
-            String sourceId = r.startNodeElementId();
-            String targetId = r.endNodeElementId();
-            String id = r.elementId();
-
-            GraphDto.LinkDto linkDto = GraphDto.LinkDto.builder()
-                    .source(sourceId)
-                    .target(targetId)
-                    .label(r.type())
-                    .build();
-
-            links.put(id, linkDto);
-
-        } else if (val instanceof List) {
-            ((List<?>) val).forEach(item -> processResultItem(item, nodes, links));
-        } else if (val instanceof org.neo4j.driver.types.Path) {
-            org.neo4j.driver.types.Path p = (org.neo4j.driver.types.Path) val;
-            p.nodes().forEach(n -> processResultItem(n, nodes, links));
-            p.relationships().forEach(r -> processResultItem(r, nodes, links));
+    @GetMapping(value = "/cypher/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamCypher(@RequestParam("query") String query) {
+        if (query == null || query.trim().isEmpty()) {
+            return ResponseEntity.badRequest().build();
         }
+        StreamingResponseBody body = out -> {
+            SseGraphSink sink = new SseGraphSink(jsonMapper, out, streamBatchSize);
+            try {
+                cypherGraphService.execute(query, sink);
+            } catch (RuntimeException e) {
+                sink.error(e.getMessage());
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .cacheControl(CacheControl.noCache())
+                .body(body);
     }
 
+    /**
+     * Streams one page of the Gene / Isolate / Orthogroup graph from a
+     * database cursor. With {@code Accept: application/x-ndjson} each node
+     * and link is one line; otherwise a GraphDto document with a "next"
+     * continuation token (null on the last page) is written incrementally;
+     * the columnar media types give the dictionary-encoded layout of
+     * {@code ColumnarGraphSink}. Pages are not cached, so the first rows go
+     * out as soon as the cursor yields them; they are revalidated by an ETag
+     * derived from the dataset version.
+     */
     @GetMapping
-    public GraphDto getGraph() {
-        List<GraphDto.NodeDto> nodes = new ArrayList<>();
-        List<GraphDto.LinkDto> links = new ArrayList<>();
-
-        // 1. Fetch all Isolates
-        List<Isolate> isolates = isolateRepository.findAll();
-        for (Isolate iso : isolates) {
-            String isoId = "ISOLATE_" + iso.getName();
-            Map<String, String> details = new HashMap<>();
-            details.put("Host", iso.getHost());
-            details.put("Country", iso.getOriginCountry());
-            details.put("Date", iso.getCollectionDate());
-
-            nodes.add(GraphDto.NodeDto.builder()
-                    .id(isoId)
-                    .name(iso.getName())
-                    .type("Isolate")
-                    .val(25)
-                    .description("Isolate from " + iso.getOriginCountry())
-                    .details(details)
-                    .build());
+    public ResponseEntity<StreamingResponseBody> getGraph(
+            @RequestParam(value = "isolate", required = false) String isolate,
+            @RequestParam(value = "country", required = false) String country,
+            @RequestParam(value = "ogPrefix", required = false) String ogPrefix,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            WebRequest request) throws IOException {
+        GraphStreamService.Filter filter = new GraphStreamService.Filter(isolate, country, ogPrefix);
+        int pageSize = graphStreamService.pageSize(limit);
+        GraphFormat format = GraphFormat.fromAccept(accept);
+        if (after != null && !graphStreamService.isValidToken(after)) {
+            return ResponseEntity.badRequest().build();
         }
 
-        // 2. Fetch all Orthogroups
-        List<Orthogroup> orthogroups = orthogroupRepository.findAll();
-        for (Orthogroup og : orthogroups) {
-            String ogId = "OG_" + og.getGroupId();
-            Map<String, String> details = new HashMap<>();
-            details.put("Gene Count", String.valueOf(og.getGeneCount()));
-
-            nodes.add(GraphDto.NodeDto.builder()
-                    .id(ogId)
-                    .name(og.getGroupId())
-                    .type("Orthogroup") // Visual proxy for Orthogroup
-                    .val(20)
-                    .description("Orthologous Group with " + og.getGeneCount() + " genes")
-                    .details(details)
-                    .build());
+        String key = "graph " + Arrays.asList(isolate, country, ogPrefix, after, pageSize, format);
+        String etag = graphSnapshotCache.etag(key, datasetVersionService.current());
+        if (notModified(request, etag))
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT)
+                .contentType(MediaType.parseMediaType(format.mediaType()))
+                .body(out -> graphStreamService.streamPage(filter, after, pageSize, format.sink(jsonMapper, out)));
+    }
+
+    /**
+     * Collapsed view of the graph from precomputed aggregates: level=isolates
+     * gives isolate super-nodes linked by shared orthogroups, level=orthogroups
+     * the largest orthogroup super-nodes linked to isolates by gene count.
+     */
+    @GetMapping("/overview")
+    public ResponseEntity<StreamingResponseBody> getOverview(
+            @RequestParam(value = "level", defaultValue = "orthogroups") String level,
+            @RequestParam(value = "isolate", required = false) String isolate,
+            @RequestParam(value = "minGenes", defaultValue = "0") int minGenes,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            WebRequest request) throws IOException {
+        GraphAggregateService.Level lod;
+        try {
+            lod = GraphAggregateService.Level.valueOf(level.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         }
+        int max = graphAggregateService.limit(limit);
+        GraphFormat format = GraphFormat.fromAccept(accept);
+        String key = "overview " + Arrays.asList(lod, isolate, minGenes, max, format);
+        return cached(request, key, graphAggregateService.version(), format,
+                out -> write(graphAggregateService.overview(lod, isolate, minGenes, max), format, out));
+    }
 
-        // 3. Fetch all Genes
-        List<Gene> genes = geneRepository.findAll();
-        for (Gene gene : genes) {
-            String geneId = "GENE_" + gene.getGeneId();
-            Map<String, String> details = new HashMap<>();
-            details.put("Symbol", gene.getSymbol());
-            // details.put("Biotype", gene.getBiotype());
-
-            nodes.add(GraphDto.NodeDto.builder()
-                    .id(geneId)
-                    .name(gene.getSymbol() != null ? gene.getSymbol() : gene.getGeneId())
-                    .type("Gene")
-                    .val(15)
-                    .description(gene.getDescription())
-                    .details(details)
-                    .build());
-
-            // Link to Isolate
-            if (gene.getIsolate() != null) {
-                links.add(GraphDto.LinkDto.builder()
-                        .source(geneId)
-                        .target("ISOLATE_" + gene.getIsolate().getName())
-                        .label("FOUND_IN")
-                        .build());
-            }
+    /** Members of a super-node (ISOLATE_... or OG_...), to merge into the current view. */
+    @GetMapping("/expand/{nodeId}")
+    public ResponseEntity<StreamingResponseBody> expand(@PathVariable String nodeId,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            WebRequest request) throws IOException {
+        int max = graphAggregateService.limit(limit);
+        GraphFormat format = GraphFormat.fromAccept(accept);
+        String key = "expand " + Arrays.asList(nodeId, max, format);
+        return cached(request, key, graphAggregateService.version(), format,
+                out -> write(graphAggregateService.expand(nodeId, max), format, out));
+    }
 
-            // Link to Orthogroup
-            if (gene.getOrthogroup() != null) {
-                links.add(GraphDto.LinkDto.builder()
-                        .source(geneId)
-                        .target("OG_" + gene.getOrthogroup().getGroupId())
-                        .label("BELONGS_TO")
-                        .build());
-            }
-        }
+    /**
+     * Announces data written outside the application (e.g. by init_db.sh):
+     * bumps the dataset version so cached views and aggregates are rebuilt.
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<Map<String, Long>> refresh() {
+        datasetVersionService.bump("refresh");
+        return ResponseEntity.accepted().body(Map.of("version", datasetVersionService.current()));
+    }
+
+    // 304 when the client's ETag is current, else the cached (or freshly rendered) view,
+    // sent gzip-encoded as stored when the client accepts it
+    private ResponseEntity<StreamingResponseBody> cached(WebRequest request, String key, long version,
+            GraphFormat format, GraphSnapshotCache.Renderer renderer) throws IOException {
+        MediaType contentType = MediaType.parseMediaType(format.mediaType());
+        String etag = graphSnapshotCache.etag(key, version);
+        if (notModified(request, etag))
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        Optional<GraphSnapshotCache.Snapshot> cached = graphSnapshotCache.get(key, version, contentType.toString(),
+                renderer);
+        if (cached.isEmpty())
+            return ResponseEntity.notFound().build();
+
+        GraphSnapshotCache.Snapshot snapshot = cached.get();
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(snapshot.etag())
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING)
+                .contentType(contentType)
+                .contentLength(gzip ? snapshot.gzip().length : snapshot.size());
+        if (gzip)
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        return response.body(out -> snapshot.writeTo(out, gzip));
+    }
+
+    private static boolean notModified(WebRequest request, String etag) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        return ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"));
+    }
 
-        return GraphDto.builder().nodes(nodes).links(links).build();
+    private boolean write(Optional<GraphDto> graph, GraphFormat format, OutputStream out) throws IOException {
+        if (graph.isEmpty())
+            return false;
+        if (format == GraphFormat.JSON)
+            jsonMapper.writeValue(out, graph.get());
+        else
+            GraphSink.write(graph.get(), format.sink(jsonMapper, out));
+        return true;
     }
 }
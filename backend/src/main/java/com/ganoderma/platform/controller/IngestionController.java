@@ -1,26 +1,174 @@
 package com.ganoderma.platform.controller;
 
+import com.ganoderma.platform.dto.IngestionJobDto;
+import com.ganoderma.platform.dto.IngestionReportDto;
+import com.ganoderma.platform.service.ExpressionLoaderService;
 import com.ganoderma.platform.service.GffLoaderService;
+import com.ganoderma.platform.service.IngestionInputService;
+import com.ganoderma.platform.service.IngestionJobService;
+import com.ganoderma.platform.service.OrthogroupLoaderService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/ingestion")
 @RequiredArgsConstructor
 public class IngestionController {
 
     private final GffLoaderService gffLoaderService;
+    private final IngestionJobService ingestionJobService;
+    private final IngestionInputService ingestionInputService;
+    private final OrthogroupLoaderService orthogroupLoaderService;
+    private final ExpressionLoaderService expressionLoaderService;
 
     @PostMapping("/gff/{isolateName}")
-    public ResponseEntity<String> uploadGff(@PathVariable String isolateName,
-            @RequestParam("file") MultipartFile file) {
+    public ResponseEntity<?> uploadGff(@PathVariable String isolateName,
+            @RequestParam(value = "file", required = false) MultipartFile file,
+            @RequestParam(value = "path", required = false) String path,
+            @RequestParam(value = "mode", defaultValue = "streaming") String mode) {
+        if ((file == null) == (path == null)) {
+            return ResponseEntity.badRequest().body("Provide either a 'file' upload or a server-side 'path'");
+        }
         try {
-            gffLoaderService.loadGff(isolateName, file.getInputStream());
-            return ResponseEntity.ok("GFF ingestion successful for isolate: " + isolateName);
+            // "legacy" keeps the single-transaction saveAll path for comparison,
+            // "incremental" only writes the genes that changed since the last load
+            boolean incremental = "incremental".equalsIgnoreCase(mode);
+            IngestionReportDto report;
+            if (path != null) {
+                report = gffLoaderService.loadGffFile(isolateName, ingestionInputService.resolveServerPath(path),
+                        incremental);
+            } else if ("legacy".equalsIgnoreCase(mode)) {
+                report = gffLoaderService.loadGff(isolateName, file.getInputStream());
+            } else {
+                report = gffLoaderService.loadGffStreaming(isolateName, file.getInputStream(), incremental);
+            }
+            return ResponseEntity.ok(report);
         } catch (Exception e) {
             return ResponseEntity.internalServerError().body("Error parsing GFF: " + e.getMessage());
         }
     }
+
+    /**
+     * Loads OrthoFinder's Orthogroups.tsv, optionally with
+     * Orthogroups.GeneCount.tsv to cross-check the computed gene counts.
+     */
+    @PostMapping("/orthogroups")
+    public ResponseEntity<?> uploadOrthogroups(
+            @RequestParam(value = "file", required = false) MultipartFile file,
+            @RequestParam(value = "path", required = false) String path,
+            @RequestParam(value = "geneCounts", required = false) MultipartFile geneCounts,
+            @RequestParam(value = "geneCountsPath", required = false) String geneCountsPath) {
+        if ((file == null) == (path == null) || (geneCounts != null && geneCountsPath != null)) {
+            return ResponseEntity.badRequest().body("Provide either a 'file' upload or a server-side 'path'");
+        }
+        try (InputStream orthogroups = path != null
+                ? Files.newInputStream(ingestionInputService.resolveServerPath(path))
+                : file.getInputStream();
+                InputStream counts = geneCountsPath != null
+                        ? Files.newInputStream(ingestionInputService.resolveServerPath(geneCountsPath))
+                        : geneCounts != null ? geneCounts.getInputStream() : null) {
+            return ResponseEntity.ok(orthogroupLoaderService.load(orthogroups, counts));
+        } catch (IllegalArgumentException | FileNotFoundException e) {
+            return ResponseEntity.badRequest().body("Invalid orthogroup input: " + e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body("Error loading orthogroups: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Loads a TPM and/or counts matrix (genes x samples) and an optional
+     * sample sheet. Each input is either an upload or a server-side path.
+     */
+    @PostMapping("/expression")
+    public ResponseEntity<?> uploadExpression(
+            @RequestParam(value = "sampleSheet", required = false) MultipartFile sampleSheet,
+            @RequestParam(value = "sampleSheetPath", required = false) String sampleSheetPath,
+            @RequestParam(value = "tpm", required = false) MultipartFile tpm,
+            @RequestParam(value = "tpmPath", required = false) String tpmPath,
+            @RequestParam(value = "counts", required = false) MultipartFile counts,
+            @RequestParam(value = "countsPath", required = false) String countsPath,
+            @RequestParam(value = "minTpm", required = false) Double minTpm) {
+        List<Path> staged = new ArrayList<>();
+        try {
+            return ResponseEntity.ok(expressionLoaderService.load(
+                    input(sampleSheet, sampleSheetPath, staged),
+                    input(tpm, tpmPath, staged),
+                    input(counts, countsPath, staged),
+                    minTpm));
+        } catch (IllegalArgumentException | FileNotFoundException e) {
+            return ResponseEntity.badRequest().body("Invalid expression input: " + e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body("Error loading expression data: " + e.getMessage());
+        } finally {
+            for (Path file : staged) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException ignored) {
+                    // Left in the work directory
+                }
+            }
+        }
+    }
+
+    private Path input(MultipartFile upload, String path, List<Path> staged) throws IOException {
+        if (upload != null && path != null)
+            throw new IllegalArgumentException("Provide either an upload or a path, not both");
+        if (path != null)
+            return ingestionInputService.resolveServerPath(path);
+        if (upload == null)
+            return null;
+        Path file = ingestionInputService.stage(upload);
+        staged.add(file);
+        return file;
+    }
+
+    @PostMapping("/jobs")
+    public ResponseEntity<?> submitJob(@RequestParam("isolateName") String isolateName,
+            @RequestParam(value = "file", required = false) MultipartFile file,
+            @RequestParam(value = "path", required = false) String path,
+            @RequestParam(value = "mode", defaultValue = "streaming") String mode) {
+        if ((file == null) == (path == null)) {
+            return ResponseEntity.badRequest().body("Provide either a 'file' upload or a server-side 'path'");
+        }
+        try {
+            boolean incremental = "incremental".equalsIgnoreCase(mode);
+            IngestionJobDto job = path != null
+                    ? ingestionJobService.submitPath(isolateName, path, incremental)
+                    : ingestionJobService.submit(isolateName, file, incremental);
+            return ResponseEntity.accepted().body(job);
+        } catch (IllegalArgumentException | FileNotFoundException e) {
+            return ResponseEntity.badRequest().body("Invalid input path: " + e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body("Error storing GFF upload: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/jobs")
+    public List<IngestionJobDto> listJobs() {
+        return ingestionJobService.list();
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<IngestionJobDto> getJob(@PathVariable String jobId) {
+        return ingestionJobService.status(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/jobs/{jobId}/resume")
+    public ResponseEntity<IngestionJobDto> resumeJob(@PathVariable String jobId) {
+        return ingestionJobService.resume(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
 }
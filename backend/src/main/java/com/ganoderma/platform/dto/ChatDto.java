@@ -1,10 +1,12 @@
 package com.ganoderma.platform.dto;
 
 import lombok.AllArgsConstructor;
+import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.util.List;
+import java.util.Map;
 
 public class ChatDto {
 
@@ -33,8 +35,56 @@ public class ChatDto {
     @AllArgsConstructor
     public static class Response {
         private String answer;
-        private Object contextUsed; // Returns IDs or sub-graph for verification
+        private List<EntityReference> contextUsed; // The answer's <<name>> references, resolved to graph ids
         private String cypherQuery; // Optional: Cypher query to update the graph view
+        private Map<String, Long> timings; // Latency per pipeline stage and "total", in ms
     }
 
+    @Data
+    @Builder
+    public static class EntityReference {
+        private String name; // As written between << and >>
+        private int start; // Span of "<<name>>" in the answer
+        private int end;
+        private String type; // GENE, ISOLATE, ORTHOGROUP, HOST or COUNTRY; null when unresolved
+        private List<String> ids; // Logical ids (GENE_, ISOLATE_, OG_) of the nodes it names
+        private boolean resolved; // false: not in the dataset, likely made up by the model
+    }
+
+    @Data
+    @Builder
+    public static class CacheStats {
+        private String name; // keywords, intent, cypher or answer
+        private int entries;
+        private long hits; // Exact prompt matches
+        private long similarHits; // Paraphrases found by embedding similarity
+        private long misses;
+        private long evictions;
+        private double hitRate;
+    }
+
+    @Data
+    @Builder
+    public static class IntentStats {
+        private boolean enabled;
+        private double threshold; // Local predictions below this confidence go to the LLM
+        private long local; // Intents decided without an LLM call
+        private long fallback;
+        private double fallbackRate;
+        private double testAccuracy; // On the held-out rows of the labelled corpus
+        private double testCoverage; // Share of those rows decided locally
+    }
+
+    @Data
+    @Builder
+    public static class CypherStats {
+        private long templated; // Graph queries filled in from a template, without an LLM call
+        private long generated;
+        private double templateRate;
+        private int planEntries; // Query shapes whose EXPLAIN outcome is cached
+        private long planHits;
+        private long planMisses;
+        private double planHitRate;
+        private long rejected; // Queries that failed EXPLAIN or would write
+    }
 }
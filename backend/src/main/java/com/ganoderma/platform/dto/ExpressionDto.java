@@ -0,0 +1,47 @@
+package com.ganoderma.platform.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+public class ExpressionDto {
+
+    @Data
+    @Builder
+    public static class Status {
+        private boolean enabled;
+        private int genes;
+        private int samples;
+        private Map<String, List<String>> conditions; // Condition -> replicate samples
+        private boolean offHeap;
+        private long columnBytes;
+        private long loadedAt; // Epoch millis of the snapshot
+    }
+
+    @Data
+    @Builder
+    public static class GeneValue {
+        private String geneId;
+        private float tpm;
+    }
+
+    @Data
+    @Builder
+    public static class Ranking {
+        private String condition; // Set for condition queries
+        private String sampleId; // Set for sample queries
+        private String statistic; // "mean" across replicates or "tpm"
+        private Float minTpm;
+        private List<GeneValue> genes;
+    }
+
+    @Data
+    @Builder
+    public static class Profile {
+        private String geneId;
+        private Map<String, Float> samples; // Sample -> TPM
+        private Map<String, Float> conditionMeans;
+    }
+}
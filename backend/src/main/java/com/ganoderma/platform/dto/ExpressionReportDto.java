@@ -0,0 +1,20 @@
+package com.ganoderma.platform.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class ExpressionReportDto {
+    private long samples; // Sample columns in the matrix
+    private long sampleSheetRows;
+    private long genes; // Matrix rows
+    private long edgesWritten;
+    private long edgesBelowThreshold; // Skipped by minTpm
+    private long edgesUnmatched; // Gene not in the graph
+    private Double minTpm;
+    private int columnBlocks;
+    private long batches;
+    private long elapsedMillis;
+    private double edgesPerSecond;
+}
@@ -1,5 +1,6 @@
 package com.ganoderma.platform.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Builder;
 import lombok.Data;
 import java.util.List;
@@ -10,6 +11,10 @@ import java.util.Map;
 public class GraphDto {
     private List<NodeDto> nodes;
     private List<LinkDto> links;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean truncated; // Set when a budget or timeout cut the result short
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String truncatedBy; // "max-nodes", "max-links" or "timeout"
 
     @Data
     @Builder
@@ -20,6 +25,8 @@ public class GraphDto {
         private int val; // size
         private String description;
         private Map<String, String> details;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private Integer count; // Genes collapsed into a super-node, null for single nodes
     }
 
     @Data
@@ -28,5 +35,7 @@ public class GraphDto {
         private String source;
         private String target;
         private String label;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private Integer weight; // Genes or orthogroups behind an aggregated link
     }
 }
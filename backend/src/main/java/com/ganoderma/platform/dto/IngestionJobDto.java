@@ -0,0 +1,22 @@
+package com.ganoderma.platform.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class IngestionJobDto {
+    private String jobId;
+    private String isolateName;
+    private String status; // QUEUED, RUNNING, COMPLETED, FAILED
+    private boolean incremental;
+    private long linesParsed;
+    private long genesWritten;
+    private long bytesProcessed;
+    private long totalBytes;
+    private long committedOffset;
+    private double genesPerSecond; // Current run only
+    private Long etaSeconds; // Null when unknown
+    private String error;
+    private IngestionReportDto report; // Set once the job has completed in this process
+}
@@ -0,0 +1,31 @@
+package com.ganoderma.platform.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestionReportDto {
+    private String isolateName;
+    private String mode; // "streaming", "incremental" or "legacy"
+    private long linesRead;
+    private long genesWritten;
+    private long batches;
+    private long proteinsWritten;
+    private long sequencesWritten;
+    private long spilledFeatures; // Children seen before their parent
+    private long orphanFeatures; // Children whose parent never appeared
+    // Incremental mode only: diff against the genes already stored for the isolate
+    private long genesInserted;
+    private long genesUpdated;
+    private long genesUnchanged;
+    private long genesDeleted;
+    private long proteinsDeleted; // No longer encoded by any gene
+    private long elapsedMillis;
+    private double genesPerSecond;
+    private long peakHeapBytes; // Largest heap use sampled during the run
+}
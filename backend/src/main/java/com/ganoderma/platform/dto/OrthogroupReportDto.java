@@ -0,0 +1,17 @@
+package com.ganoderma.platform.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class OrthogroupReportDto {
+    private long orthogroups;
+    private long memberships; // Gene IDs listed in Orthogroups.tsv
+    private long linked; // Memberships written as BELONGS_TO_OG
+    private long deferred; // Members not loaded yet, linked when their gene is ingested
+    private long geneCountMismatches; // Groups whose Orthogroups.GeneCount.tsv total differs, when provided
+    private long batches;
+    private long elapsedMillis;
+    private double membershipsPerSecond;
+}
@@ -1,5 +1,6 @@
 package com.ganoderma.platform.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.springframework.data.neo4j.core.schema.Id;
 import org.springframework.data.neo4j.core.schema.Node;
 import org.springframework.data.neo4j.core.schema.Relationship;
@@ -25,10 +26,18 @@ public class Gene {
     private Long end;
     private String strand;
 
+    // Hash of the source GFF record, compared by incremental re-ingestion
+    private String contentHash;
+
     // AI Embedding for Semantic Search
     // Stored as a generic List<Float> to be compatible with Neo4j Vector Index
+    // Written by GeneEmbeddingService; not sent in API responses
+    @JsonIgnore
     private List<Float> embedding;
 
+    // Hash of the embedded text and model, compared by the embedding backfill
+    private String embeddingHash;
+
     // @Relationship(type = "ENCODES", direction = Relationship.Direction.OUTGOING)
     // private Protein protein;
 
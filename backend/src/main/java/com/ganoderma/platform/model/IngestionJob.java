@@ -0,0 +1,36 @@
+package com.ganoderma.platform.model;
+
+import org.springframework.data.neo4j.core.schema.Id;
+import org.springframework.data.neo4j.core.schema.Node;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Node
+@Data
+@NoArgsConstructor
+public class IngestionJob {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    @Id
+    private String jobId; // UUID
+
+    private String isolateName;
+    private String filePath; // Server-side copy of the upload, or the server-side input file
+    private Boolean uploaded; // Uploaded copies are deleted once the job completes
+    private Long fileSize;
+    private Boolean incremental; // Write only changed genes and delete missing ones
+    private Status status;
+
+    // Last checkpoint: everything before this byte offset is committed
+    private Long committedOffset;
+    private Long linesParsed;
+    private Long genesWritten;
+
+    private String createdAt;
+    private String finishedAt;
+    private String error;
+    private String report; // IngestionReportDto as JSON, once completed
+}
@@ -0,0 +1,14 @@
+package com.ganoderma.platform.repository;
+
+import com.ganoderma.platform.model.IngestionJob;
+import org.springframework.data.neo4j.repository.Neo4jRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface IngestionJobRepository extends Neo4jRepository<IngestionJob, String> {
+
+    List<IngestionJob> findByStatusIn(Collection<IngestionJob.Status> statuses);
+}
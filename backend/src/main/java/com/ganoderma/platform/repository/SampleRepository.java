@@ -0,0 +1,9 @@
+package com.ganoderma.platform.repository;
+
+import com.ganoderma.platform.model.Sample;
+import org.springframework.data.neo4j.repository.Neo4jRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SampleRepository extends Neo4jRepository<Sample, String> {
+}
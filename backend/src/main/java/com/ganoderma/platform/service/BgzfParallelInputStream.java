@@ -0,0 +1,176 @@
+package com.ganoderma.platform.service;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decompresses BGZF (blocked gzip, as written by bgzip) with several blocks
+ * inflated in parallel. Compressed blocks are read sequentially, each one is
+ * submitted to {@code inflaters}, and the results are handed out in order, up
+ * to {@code readAhead} blocks ahead of the consumer.
+ */
+public class BgzfParallelInputStream extends InputStream {
+
+    private static final int HEADER_LENGTH = 12;
+
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    private final InputStream compressed;
+    private final ExecutorService inflaters;
+    private final int readAhead;
+    private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+    private boolean sourceExhausted;
+
+    private byte[] current = new byte[0];
+    private int position;
+
+    public BgzfParallelInputStream(InputStream compressed, ExecutorService inflaters, int readAhead) {
+        this.compressed = compressed;
+        this.inflaters = inflaters;
+        this.readAhead = Math.max(1, readAhead);
+    }
+
+    /** True if {@code header} starts with a gzip member carrying the BGZF "BC" extra field. */
+    public static boolean isBgzf(byte[] header, int length) {
+        return length >= 14 && (header[0] & 0xff) == 0x1f && (header[1] & 0xff) == 0x8b
+                && (header[3] & 0x04) != 0 && header[12] == 'B' && header[13] == 'C';
+    }
+
+    private boolean ensureAvailable() throws IOException {
+        while (position >= current.length) {
+            fillPipeline();
+            Future<byte[]> next = pending.poll();
+            if (next == null)
+                return false;
+            try {
+                current = next.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while inflating BGZF block");
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+            }
+            position = 0;
+        }
+        return true;
+    }
+
+    private void fillPipeline() throws IOException {
+        while (!sourceExhausted && pending.size() < readAhead) {
+            byte[] block = readCompressedBlock();
+            if (block == null) {
+                sourceExhausted = true;
+            } else {
+                pending.add(inflaters.submit(() -> inflate(block)));
+            }
+        }
+    }
+
+    /** Reads one block past its header: compressed data followed by CRC32 and ISIZE. */
+    private byte[] readCompressedBlock() throws IOException {
+        byte[] header = new byte[HEADER_LENGTH];
+        int read = compressed.readNBytes(header, 0, HEADER_LENGTH);
+        if (read == 0)
+            return null;
+        if (read < HEADER_LENGTH || (header[0] & 0xff) != 0x1f || (header[1] & 0xff) != 0x8b
+                || (header[3] & 0x04) == 0)
+            throw new IOException("Not a BGZF block");
+
+        int extraLength = (header[10] & 0xff) | (header[11] & 0xff) << 8;
+        byte[] extra = compressed.readNBytes(extraLength);
+        if (extra.length < extraLength)
+            throw new EOFException("Truncated BGZF header");
+        int blockSize = -1;
+        for (int i = 0; i + 4 <= extraLength;) {
+            int subfieldLength = (extra[i + 2] & 0xff) | (extra[i + 3] & 0xff) << 8;
+            if (extra[i] == 'B' && extra[i + 1] == 'C' && subfieldLength == 2)
+                blockSize = ((extra[i + 4] & 0xff) | (extra[i + 5] & 0xff) << 8) + 1;
+            i += 4 + subfieldLength;
+        }
+        if (blockSize < 0)
+            throw new IOException("BGZF block without BC field");
+
+        int remaining = blockSize - HEADER_LENGTH - extraLength;
+        byte[] block = compressed.readNBytes(remaining);
+        if (block.length < remaining)
+            throw new EOFException("Truncated BGZF block");
+        return block;
+    }
+
+    private static byte[] inflate(byte[] block) throws IOException {
+        int dataLength = block.length - 8;
+        int expectedCrc = readInt(block, dataLength);
+        int size = readInt(block, dataLength + 4);
+        byte[] out = new byte[size];
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        inflater.setInput(block, 0, dataLength);
+        try {
+            int n = 0;
+            while (n < size && !inflater.finished()) {
+                int inflated = inflater.inflate(out, n, size - n);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    break;
+                n += inflated;
+            }
+            if (n != size)
+                throw new IOException("BGZF block inflated to " + n + " bytes, expected " + size);
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt BGZF block", e);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(out, 0, size);
+        if ((int) crc.getValue() != expectedCrc)
+            throw new IOException("BGZF block CRC mismatch");
+        return out;
+    }
+
+    private static int readInt(byte[] b, int offset) {
+        return (b[offset] & 0xff) | (b[offset + 1] & 0xff) << 8 | (b[offset + 2] & 0xff) << 16
+                | (b[offset + 3] & 0xff) << 24;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return ensureAvailable() ? current[position++] & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0)
+            return 0;
+        if (!ensureAvailable())
+            return -1;
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && ensureAvailable()) {
+            int step = (int) Math.min(n - skipped, current.length - position);
+            position += step;
+            skipped += step;
+        }
+        return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        pending.forEach(future -> future.cancel(true));
+        pending.clear();
+        compressed.close();
+    }
+}
@@ -0,0 +1,551 @@
+package com.ganoderma.platform.service;
+
+import com.ganoderma.platform.dto.GraphDto;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes a graph column by column instead of one JSON object per node.
+ *
+ * Every string (ids, names, descriptions, string property values) is stored
+ * once in a dictionary and referenced by index; node types and link labels
+ * are small enum tables; link endpoints are node indexes rather than
+ * repeated elementId strings (endpoints outside the graph go to a "refs"
+ * table and are referenced as {@code -(i + 1)}). Node details become sparse
+ * property columns whose type (string, long, double, boolean) is inferred
+ * from the values when they convert back to the same text, so decoding is
+ * lossless; null details are left out.
+ *
+ * The binary variant ({@link #BINARY_TYPE}) uses unsigned LEB128 varints
+ * (zigzag for signed values) and delta-coded node indexes; the compact JSON
+ * variant ({@link #JSON_TYPE}) holds the same columns as arrays. Elements are
+ * buffered and written by {@link #end}, so use it for bounded graphs (one page).
+ */
+public class ColumnarGraphSink implements GraphSink {
+
+    public static final String BINARY_TYPE = "application/vnd.ganoderma.graph";
+    public static final String JSON_TYPE = "application/vnd.ganoderma.graph+json";
+
+    static final int MAGIC = 0x47475246; // "GGRF"
+    static final int VERSION = 1;
+
+    static final byte STRING = 0;
+    static final byte LONG = 1;
+    static final byte DOUBLE = 2;
+    static final byte BOOLEAN = 3;
+    private static final String[] TYPE_NAMES = { "string", "long", "double", "boolean" };
+
+    private final JsonMapper jsonMapper;
+    private final OutputStream out;
+    private final boolean binary;
+
+    private final Dictionary strings = new Dictionary();
+    private final Dictionary types = new Dictionary();
+    private final Dictionary labels = new Dictionary();
+    private final Map<String, Integer> nodeIndex = new HashMap<>();
+
+    private final IntList ids = new IntList();
+    private final IntList nodeTypes = new IntList();
+    private final IntList names = new IntList();
+    private final IntList vals = new IntList();
+    private final IntList descriptions = new IntList(); // -1 for null
+    private final IntList counts = new IntList(); // -1 for null
+    private final Map<String, PropertyColumn> properties = new LinkedHashMap<>();
+
+    private final List<String> sources = new ArrayList<>();
+    private final List<String> targets = new ArrayList<>();
+    private final IntList linkLabels = new IntList();
+    private final IntList weights = new IntList(); // -1 for null
+    private String truncatedBy;
+
+    public ColumnarGraphSink(JsonMapper jsonMapper, OutputStream out, boolean binary) {
+        this.jsonMapper = jsonMapper;
+        this.out = out;
+        this.binary = binary;
+    }
+
+    @Override
+    public void node(GraphDto.NodeDto node) {
+        if (nodeIndex.putIfAbsent(node.getId(), ids.size) != null)
+            return;
+        int n = ids.size;
+        ids.add(strings.index(node.getId()));
+        nodeTypes.add(types.index(node.getType()));
+        names.add(strings.index(node.getName()));
+        vals.add(node.getVal());
+        descriptions.add(node.getDescription() != null ? strings.index(node.getDescription()) : -1);
+        counts.add(node.getCount() != null ? node.getCount() : -1);
+        if (node.getDetails() != null) {
+            node.getDetails().forEach((key, value) -> {
+                if (value != null)
+                    properties.computeIfAbsent(key, PropertyColumn::new).add(n, value);
+            });
+        }
+    }
+
+    @Override
+    public void link(GraphDto.LinkDto link) {
+        sources.add(link.getSource());
+        targets.add(link.getTarget());
+        linkLabels.add(labels.index(link.getLabel()));
+        weights.add(link.getWeight() != null ? link.getWeight() : -1);
+    }
+
+    @Override
+    public void truncated(String reason) {
+        truncatedBy = reason;
+    }
+
+    @Override
+    public void end(String next) throws IOException {
+        // Endpoints are resolved last: a link may arrive before its nodes
+        Dictionary refs = new Dictionary();
+        int[] source = new int[sources.size()];
+        int[] target = new int[targets.size()];
+        for (int i = 0; i < source.length; i++) {
+            source[i] = endpoint(sources.get(i), refs);
+            target[i] = endpoint(targets.get(i), refs);
+        }
+        List<PropertyColumn> columns = new ArrayList<>(properties.values());
+        for (PropertyColumn column : columns) {
+            column.encode(strings);
+        }
+        if (binary)
+            writeBinary(source, target, refs, columns, next);
+        else
+            writeJson(source, target, refs, columns, next);
+    }
+
+    private int endpoint(String id, Dictionary refs) {
+        Integer node = nodeIndex.get(id);
+        return node != null ? node : -(refs.index(id) + 1);
+    }
+
+    private void writeBinary(int[] source, int[] target, Dictionary refs, List<PropertyColumn> columns, String next)
+            throws IOException {
+        int nextIndex = next != null ? strings.index(next) : -1;
+        int truncatedIndex = truncatedBy != null ? strings.index(truncatedBy) : -1;
+
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        writeStrings(data, strings.values);
+        writeStrings(data, types.values);
+        writeStrings(data, labels.values);
+        writeStrings(data, refs.values);
+        writeVarInt(data, nextIndex + 1);
+        writeVarInt(data, truncatedIndex + 1);
+
+        int nodes = ids.size;
+        writeVarInt(data, nodes);
+        for (int i = 0; i < nodes; i++) {
+            writeVarInt(data, ids.values[i]);
+        }
+        for (int i = 0; i < nodes; i++) {
+            writeVarInt(data, nodeTypes.values[i]);
+        }
+        for (int i = 0; i < nodes; i++) {
+            writeVarInt(data, names.values[i]);
+        }
+        for (int i = 0; i < nodes; i++) {
+            writeVarInt(data, zigzag(vals.values[i]));
+        }
+        for (int i = 0; i < nodes; i++) {
+            writeVarInt(data, descriptions.values[i] + 1);
+        }
+        for (int i = 0; i < nodes; i++) {
+            writeVarInt(data, counts.values[i] + 1);
+        }
+
+        writeVarInt(data, columns.size());
+        for (PropertyColumn column : columns) {
+            writeString(data, column.key);
+            data.writeByte(column.type);
+            writeVarInt(data, column.nodes.size);
+            int previous = 0;
+            for (int i = 0; i < column.nodes.size; i++) {
+                writeVarInt(data, column.nodes.values[i] - previous);
+                previous = column.nodes.values[i];
+            }
+            for (int i = 0; i < column.nodes.size; i++) {
+                switch (column.type) {
+                    case LONG -> writeVarLong(data, zigzag(column.longs[i]));
+                    case DOUBLE -> data.writeDouble(column.doubles[i]);
+                    case BOOLEAN -> data.writeBoolean(column.longs[i] != 0);
+                    default -> writeVarInt(data, (int) column.longs[i]);
+                }
+            }
+        }
+
+        writeVarInt(data, source.length);
+        for (int value : source) {
+            writeVarInt(data, zigzag(value));
+        }
+        for (int value : target) {
+            writeVarInt(data, zigzag(value));
+        }
+        for (int i = 0; i < linkLabels.size; i++) {
+            writeVarInt(data, linkLabels.values[i]);
+        }
+        for (int i = 0; i < weights.size; i++) {
+            writeVarInt(data, weights.values[i] + 1);
+        }
+        data.flush();
+    }
+
+    private void writeJson(int[] source, int[] target, Dictionary refs, List<PropertyColumn> columns, String next) {
+        JsonGenerator generator = jsonMapper.createGenerator(out);
+        generator.writeStartObject();
+        generator.writeNumberProperty("version", VERSION);
+        writeArray(generator, "strings", strings.values);
+        writeArray(generator, "types", types.values);
+        writeArray(generator, "labels", labels.values);
+        writeArray(generator, "refs", refs.values);
+
+        generator.writeName("nodes");
+        generator.writeStartObject();
+        writeArray(generator, "id", ids);
+        writeArray(generator, "type", nodeTypes);
+        writeArray(generator, "name", names);
+        writeArray(generator, "val", vals);
+        writeArray(generator, "description", descriptions);
+        writeArray(generator, "count", counts);
+        generator.writeEndObject();
+
+        generator.writeName("properties");
+        generator.writeStartArray();
+        for (PropertyColumn column : columns) {
+            generator.writeStartObject();
+            generator.writeStringProperty("key", column.key);
+            generator.writeStringProperty("type", TYPE_NAMES[column.type]);
+            writeArray(generator, "nodes", column.nodes);
+            generator.writeName("values");
+            generator.writeStartArray();
+            for (int i = 0; i < column.nodes.size; i++) {
+                switch (column.type) {
+                    case DOUBLE -> generator.writeNumber(column.doubles[i]);
+                    case BOOLEAN -> generator.writeBoolean(column.longs[i] != 0);
+                    default -> generator.writeNumber(column.longs[i]);
+                }
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+
+        generator.writeName("links");
+        generator.writeStartObject();
+        writeArray(generator, "source", new IntList(source));
+        writeArray(generator, "target", new IntList(target));
+        writeArray(generator, "label", linkLabels);
+        writeArray(generator, "weight", weights);
+        generator.writeEndObject();
+
+        generator.writeName("next");
+        if (next != null)
+            generator.writeString(next);
+        else
+            generator.writeNull();
+        if (truncatedBy != null)
+            generator.writeStringProperty("truncatedBy", truncatedBy);
+        generator.writeEndObject();
+        generator.close();
+    }
+
+    /** Decodes the binary variant. */
+    public static GraphDto read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in, 64 * 1024));
+        if (data.readInt() != MAGIC)
+            throw new IOException("Not a columnar graph");
+        int version = data.readUnsignedByte();
+        if (version != VERSION)
+            throw new IOException("Unsupported columnar graph version " + version);
+        String[] strings = readStrings(data);
+        String[] types = readStrings(data);
+        String[] labels = readStrings(data);
+        String[] refs = readStrings(data);
+        readVarInt(data); // next
+        int truncatedIndex = readVarInt(data) - 1;
+
+        int count = readVarInt(data);
+        List<GraphDto.NodeDto> nodes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            nodes.add(GraphDto.NodeDto.builder().id(strings[readVarInt(data)]).build());
+        }
+        for (GraphDto.NodeDto node : nodes) {
+            node.setType(types[readVarInt(data)]);
+        }
+        for (GraphDto.NodeDto node : nodes) {
+            node.setName(strings[readVarInt(data)]);
+        }
+        for (GraphDto.NodeDto node : nodes) {
+            node.setVal(unzigzag(readVarInt(data)));
+        }
+        for (GraphDto.NodeDto node : nodes) {
+            int description = readVarInt(data) - 1;
+            node.setDescription(description >= 0 ? strings[description] : null);
+        }
+        for (GraphDto.NodeDto node : nodes) {
+            int members = readVarInt(data) - 1;
+            node.setCount(members >= 0 ? members : null);
+            node.setDetails(new HashMap<>());
+        }
+
+        int columns = readVarInt(data);
+        for (int c = 0; c < columns; c++) {
+            String key = readString(data);
+            byte type = data.readByte();
+            int[] present = new int[readVarInt(data)];
+            int previous = 0;
+            for (int i = 0; i < present.length; i++) {
+                previous += readVarInt(data);
+                present[i] = previous;
+            }
+            for (int node : present) {
+                String value = switch (type) {
+                    case LONG -> Long.toString(unzigzag(readVarLong(data)));
+                    case DOUBLE -> Double.toString(data.readDouble());
+                    case BOOLEAN -> Boolean.toString(data.readBoolean());
+                    default -> strings[readVarInt(data)];
+                };
+                nodes.get(node).getDetails().put(key, value);
+            }
+        }
+
+        int linkCount = readVarInt(data);
+        List<GraphDto.LinkDto> links = new ArrayList<>(linkCount);
+        for (int i = 0; i < linkCount; i++) {
+            links.add(GraphDto.LinkDto.builder().source(endpoint(unzigzag(readVarInt(data)), nodes, refs)).build());
+        }
+        for (GraphDto.LinkDto link : links) {
+            link.setTarget(endpoint(unzigzag(readVarInt(data)), nodes, refs));
+        }
+        for (GraphDto.LinkDto link : links) {
+            link.setLabel(labels[readVarInt(data)]);
+        }
+        for (GraphDto.LinkDto link : links) {
+            int weight = readVarInt(data) - 1;
+            link.setWeight(weight >= 0 ? weight : null);
+        }
+        return GraphDto.builder()
+                .nodes(nodes)
+                .links(links)
+                .truncated(truncatedIndex >= 0 ? Boolean.TRUE : null)
+                .truncatedBy(truncatedIndex >= 0 ? strings[truncatedIndex] : null)
+                .build();
+    }
+
+    private static String endpoint(int index, List<GraphDto.NodeDto> nodes, String[] refs) {
+        return index >= 0 ? nodes.get(index).getId() : refs[-index - 1];
+    }
+
+    /** Values of one details key, with the nodes that have it. */
+    private static final class PropertyColumn {
+        final String key;
+        final IntList nodes = new IntList();
+        final List<String> values = new ArrayList<>();
+        byte type;
+        long[] longs; // Also string indexes and booleans
+        double[] doubles;
+
+        PropertyColumn(String key) {
+            this.key = key;
+        }
+
+        void add(int node, String value) {
+            nodes.add(node);
+            values.add(value);
+        }
+
+        void encode(Dictionary strings) {
+            type = inferType(values);
+            longs = new long[values.size()];
+            if (type == DOUBLE)
+                doubles = new double[values.size()];
+            for (int i = 0; i < values.size(); i++) {
+                String value = values.get(i);
+                switch (type) {
+                    case LONG -> longs[i] = Long.parseLong(value);
+                    case DOUBLE -> doubles[i] = Double.parseDouble(value);
+                    case BOOLEAN -> longs[i] = Boolean.parseBoolean(value) ? 1 : 0;
+                    default -> longs[i] = strings.index(value);
+                }
+            }
+        }
+    }
+
+    // The narrowest type every value converts back from without changing its text
+    static byte inferType(List<String> values) {
+        boolean isLong = true;
+        boolean isDouble = true;
+        boolean isBoolean = true;
+        for (String value : values) {
+            if (isLong) {
+                try {
+                    isLong = Long.toString(Long.parseLong(value)).equals(value);
+                } catch (NumberFormatException e) {
+                    isLong = false;
+                }
+            }
+            if (isDouble) {
+                try {
+                    isDouble = Double.toString(Double.parseDouble(value)).equals(value);
+                } catch (NumberFormatException e) {
+                    isDouble = false;
+                }
+            }
+            isBoolean &= value.equals("true") || value.equals("false");
+            if (!isLong && !isDouble && !isBoolean)
+                return STRING;
+        }
+        if (values.isEmpty())
+            return STRING;
+        return isLong ? LONG : isDouble ? DOUBLE : isBoolean ? BOOLEAN : STRING;
+    }
+
+    private static final class Dictionary {
+        final Map<String, Integer> indexes = new HashMap<>();
+        final List<String> values = new ArrayList<>();
+
+        int index(String value) {
+            Integer index = indexes.get(value);
+            if (index == null) {
+                index = values.size();
+                indexes.put(value, index);
+                values.add(value);
+            }
+            return index;
+        }
+    }
+
+    private static final class IntList {
+        int[] values;
+        int size;
+
+        IntList() {
+            values = new int[64];
+        }
+
+        IntList(int[] values) {
+            this.values = values;
+            this.size = values.length;
+        }
+
+        void add(int value) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+    }
+
+    private static void writeArray(JsonGenerator generator, String name, List<String> values) {
+        generator.writeName(name);
+        generator.writeStartArray();
+        for (String value : values) {
+            generator.writeString(value);
+        }
+        generator.writeEndArray();
+    }
+
+    private static void writeArray(JsonGenerator generator, String name, IntList values) {
+        generator.writeName(name);
+        generator.writeArray(values.values, 0, values.size);
+    }
+
+    private static void writeStrings(DataOutputStream data, List<String> values) throws IOException {
+        writeVarInt(data, values.size());
+        for (String value : values) {
+            writeString(data, value);
+        }
+    }
+
+    private static String[] readStrings(DataInputStream data) throws IOException {
+        String[] values = new String[readVarInt(data)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readString(data);
+        }
+        return values;
+    }
+
+    // Length + 1, so that 0 stands for null (e.g. a node without a name)
+    private static void writeString(DataOutputStream data, String value) throws IOException {
+        if (value == null) {
+            writeVarInt(data, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(data, bytes.length + 1);
+        data.write(bytes);
+    }
+
+    private static String readString(DataInputStream data) throws IOException {
+        int length = readVarInt(data) - 1;
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        data.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarInt(DataOutputStream data, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            data.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        data.writeByte(value);
+    }
+
+    private static void writeVarLong(DataOutputStream data, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            data.writeByte((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        data.writeByte((int) value);
+    }
+
+    private static int readVarInt(DataInputStream data) throws IOException {
+        return (int) readVarLong(data);
+    }
+
+    private static long readVarLong(DataInputStream data) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = data.readUnsignedByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,179 @@
+package com.ganoderma.platform.service;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * Fits the chat context into a token budget. Context comes in sections
+ * (search results, visible graph, focused entity...) made of whole snippets;
+ * snippets are ranked by relevance to the question and added best first
+ * while they fit, so the prompt never carries half an element and the
+ * least relevant entities are the ones left out.
+ *
+ * Tokens are counted with a local BPE tokenizer. The budget is the model
+ * window minus the room reserved for the answer and the rest of the prompt,
+ * capped by {@code max-tokens}.
+ */
+@Service
+@Slf4j
+public class ContextPacker {
+
+    // Weight of the retrieval score against the overlap with the question's words
+    private static final double SCORE_WEIGHT = 0.6;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "the", "and", "for", "with", "what", "which", "are", "from", "show", "tell", "about", "how", "many",
+            "des", "les", "une", "est", "quoi", "dans", "pour", "avec", "sur", "moi", "qui", "que");
+
+    /** A piece of context that is kept or dropped as a whole; {@code score} in [0, 1]. */
+    public record Snippet(String text, double score) {
+    }
+
+    /**
+     * A header, snippets and a footer given the number of snippets left out
+     * (which may add a note). A section without snippets is fixed text that
+     * is always kept; one whose snippets were all dropped is left out.
+     */
+    public record Section(String header, List<Snippet> snippets, IntFunction<String> footer) {
+
+        public static Section fixed(String text) {
+            return new Section(text, List.of(), omitted -> "");
+        }
+    }
+
+    public record Packed(String text, int tokens, int budget, int kept, int dropped) {
+    }
+
+    @Value("${ganoderma.chat.context.encoding:cl100k_base}")
+    private String encodingName;
+
+    @Value("${ganoderma.chat.context.model-tokens:32768}")
+    private int modelTokens;
+
+    @Value("${ganoderma.chat.context.answer-tokens:2048}")
+    private int answerTokens;
+
+    @Value("${ganoderma.chat.context.max-tokens:6000}")
+    private int maxTokens;
+
+    private Encoding encoding;
+
+    @PostConstruct
+    void init() {
+        encoding = Encodings.newDefaultEncodingRegistry().getEncoding(encodingName)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown tokenizer encoding: " + encodingName));
+    }
+
+    public int count(String text) {
+        return text == null || text.isEmpty() ? 0 : encoding.countTokens(text);
+    }
+
+    /**
+     * Packs {@code sections} for a prompt whose other parts (system
+     * instructions, history, question) take {@code reservedTokens}.
+     */
+    public Packed pack(List<Section> sections, String query, int reservedTokens) {
+        int budget = Math.min(maxTokens, modelTokens - answerTokens - reservedTokens);
+        Set<String> terms = terms(query);
+
+        record Candidate(int section, int index, double relevance, int tokens) {
+        }
+        int used = 0;
+        int total = 0;
+        int[] sectionCost = new int[sections.size()];
+        List<Candidate> candidates = new ArrayList<>();
+        for (int s = 0; s < sections.size(); s++) {
+            Section section = sections.get(s);
+            List<Snippet> snippets = section.snippets();
+            total += snippets.size();
+            if (snippets.isEmpty()) {
+                used += count(section.header());
+                continue;
+            }
+            // Charged with the first snippet kept; the footer is costed with a note
+            sectionCost[s] = count(section.header()) + count(section.footer().apply(snippets.size()));
+            for (int i = 0; i < snippets.size(); i++) {
+                Snippet snippet = snippets.get(i);
+                double relevance = SCORE_WEIGHT * snippet.score() + (1 - SCORE_WEIGHT) * overlap(snippet.text(), terms);
+                candidates.add(new Candidate(s, i, relevance, count(snippet.text())));
+            }
+        }
+        candidates.sort(Comparator.comparingDouble(Candidate::relevance).reversed());
+
+        boolean[][] kept = new boolean[sections.size()][];
+        for (int s = 0; s < sections.size(); s++)
+            kept[s] = new boolean[sections.get(s).snippets().size()];
+        boolean[] opened = new boolean[sections.size()];
+        int keptCount = 0;
+        for (Candidate candidate : candidates) {
+            int cost = candidate.tokens() + (opened[candidate.section()] ? 0 : sectionCost[candidate.section()]);
+            if (used + cost > budget)
+                continue; // A smaller, less relevant snippet may still fit
+            used += cost;
+            opened[candidate.section()] = true;
+            kept[candidate.section()][candidate.index()] = true;
+            keptCount++;
+        }
+
+        // Kept snippets stay in their section's order
+        StringBuilder text = new StringBuilder();
+        for (int s = 0; s < sections.size(); s++) {
+            Section section = sections.get(s);
+            if (section.snippets().isEmpty()) {
+                text.append(section.header());
+                continue;
+            }
+            if (!opened[s])
+                continue;
+            text.append(section.header());
+            int omitted = 0;
+            for (int i = 0; i < section.snippets().size(); i++) {
+                if (kept[s][i])
+                    text.append(section.snippets().get(i).text());
+                else
+                    omitted++;
+            }
+            text.append(section.footer().apply(omitted));
+        }
+        Packed packed = new Packed(text.toString(), used, budget, keptCount, total - keptCount);
+        log.debug("Context packed: {} of {} snippets, {} tokens (budget {})", keptCount, total, used, budget);
+        return packed;
+    }
+
+    /** The words of {@code query} worth matching: lower case, 3+ characters, no stop words. */
+    private static Set<String> terms(String query) {
+        Set<String> terms = new HashSet<>();
+        if (query == null)
+            return terms;
+        for (String word : query.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.length() >= 3 && !STOP_WORDS.contains(word))
+                terms.add(word);
+        }
+        return terms;
+    }
+
+    /** Share of {@code terms} found in {@code text}. */
+    private static double overlap(String text, Set<String> terms) {
+        if (terms.isEmpty())
+            return 0;
+        String lower = text.toLowerCase(Locale.ROOT);
+        int found = 0;
+        for (String term : terms) {
+            if (lower.contains(term))
+                found++;
+        }
+        return (double) found / terms.size();
+    }
+}
@@ -0,0 +1,194 @@
+package com.ganoderma.platform.service;
+
+import com.ganoderma.platform.dto.GraphDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.SessionConfig;
+import org.neo4j.driver.TransactionConfig;
+import org.neo4j.driver.exceptions.ClientException;
+import org.neo4j.driver.types.Node;
+import org.neo4j.driver.types.Path;
+import org.neo4j.driver.types.Relationship;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Runs free-form Cypher (typed by users or generated by the LLM) and turns
+ * the nodes, relationships and paths it returns into graph elements.
+ *
+ * Records are pulled from the driver cursor {@code fetch-size} at a time and
+ * converted as they arrive. The transaction has a server-side timeout, and
+ * reading stops once the node or link budget is spent; the sink is then told
+ * the result was truncated and the rest of the result is discarded.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CypherGraphService {
+
+    public static final String MAX_NODES = "max-nodes";
+    public static final String MAX_LINKS = "max-links";
+    public static final String TIMEOUT = "timeout";
+
+    private final Driver driver;
+
+    @Value("${ganoderma.cypher.timeout-seconds:30}")
+    private long timeoutSeconds;
+
+    @Value("${ganoderma.cypher.max-nodes:5000}")
+    private int maxNodes;
+
+    @Value("${ganoderma.cypher.max-links:20000}")
+    private int maxLinks;
+
+    @Value("${ganoderma.cypher.fetch-size:500}")
+    private int fetchSize;
+
+    // Internal properties, not meant for display: the gene vector (384 floats) and the change-detection hashes
+    private static final Set<String> HIDDEN_PROPERTIES = Set.of("embedding", "embeddingHash", "contentHash");
+
+    /** Elements written so far; ids dedupe elements returned by several rows. */
+    private static final class Budget {
+        final Set<String> nodes = new HashSet<>();
+        final Set<String> links = new HashSet<>();
+        String exhausted;
+    }
+
+    /** Streams the graph returned by {@code query} into {@code sink}; returns whether it was truncated. */
+    public boolean execute(String query, GraphSink sink) throws IOException {
+        long start = System.nanoTime();
+        Budget budget = new Budget();
+        long records = 0;
+        try (Session session = driver.session(SessionConfig.builder().withFetchSize(fetchSize).build())) {
+            Result result = session.run(query, Map.of(), TransactionConfig.builder()
+                    .withTimeout(Duration.ofSeconds(timeoutSeconds))
+                    .build());
+            while (budget.exhausted == null && result.hasNext()) {
+                Record record = result.next();
+                records++;
+                for (org.neo4j.driver.Value value : record.values()) {
+                    convert(value.asObject(), budget, sink);
+                }
+            }
+        } catch (ClientException e) {
+            // A server-side timeout after some output still yields a (partial) graph
+            if (e.code() == null || !e.code().contains("TransactionTimedOut") || records == 0)
+                throw e;
+            budget.exhausted = TIMEOUT;
+        }
+
+        if (budget.exhausted != null) {
+            log.info("Cypher result truncated by {} after {} records in {} ms", budget.exhausted, records,
+                    (System.nanoTime() - start) / 1_000_000);
+            sink.truncated(budget.exhausted);
+        }
+        sink.end(null);
+        return budget.exhausted != null;
+    }
+
+    private void convert(Object val, Budget budget, GraphSink sink) throws IOException {
+        if (budget.exhausted != null)
+            return;
+        if (val instanceof Node n) {
+            String id = n.elementId();
+            if (budget.nodes.contains(id))
+                return;
+            if (budget.nodes.size() >= maxNodes) {
+                budget.exhausted = MAX_NODES;
+                return;
+            }
+            budget.nodes.add(id);
+            sink.node(toNode(n));
+        } else if (val instanceof Relationship r) {
+            String id = r.elementId();
+            if (budget.links.contains(id))
+                return;
+            if (budget.links.size() >= maxLinks) {
+                budget.exhausted = MAX_LINKS;
+                return;
+            }
+            budget.links.add(id);
+            sink.link(GraphDto.LinkDto.builder()
+                    .source(r.startNodeElementId())
+                    .target(r.endNodeElementId())
+                    .label(r.type())
+                    .build());
+        } else if (val instanceof List<?> list) {
+            for (Object item : list) {
+                convert(item, budget, sink);
+            }
+        } else if (val instanceof Path p) {
+            for (Node n : p.nodes()) {
+                convert(n, budget, sink);
+            }
+            for (Relationship r : p.relationships()) {
+                convert(r, budget, sink);
+            }
+        }
+    }
+
+    private static GraphDto.NodeDto toNode(Node n) {
+        // Determine Type (First label)
+        String type = n.labels().iterator().hasNext() ? n.labels().iterator().next() : "Unknown";
+
+        // ID Strategy: Use elementId (Internal Neo4j ID) to ensure consistency with
+        // Relationships
+        // D3/Vis requires source/target to match node ID exactly.
+        String id = n.elementId();
+        String name;
+
+        // Determine Name based on properties (but keep ID as technical ID)
+        if (n.hasLabel("Isolate") && n.containsKey("name")) {
+            name = n.get("name").asString();
+        } else if (n.hasLabel("Gene")) {
+            name = n.containsKey("symbol") ? n.get("symbol").asString()
+                    : (n.containsKey("geneId") ? n.get("geneId").asString() : id);
+        } else if (n.hasLabel("Orthogroup") && n.containsKey("groupId")) {
+            name = n.get("groupId").asString();
+        } else {
+            name = n.containsKey("name") ? n.get("name").asString() : id;
+        }
+
+        // Details
+        Map<String, String> details = new HashMap<>();
+        for (String key : n.keys()) {
+            if (!HIDDEN_PROPERTIES.contains(key))
+                details.put(key, String.valueOf(n.get(key)));
+        }
+
+        // CRITICAL: Inject Logical ID for GraphRagService context Retrieval
+        String logicalId = id;
+        if (n.hasLabel("Isolate") && n.containsKey("name")) {
+            logicalId = "ISOLATE_" + n.get("name").asString();
+        } else if (n.hasLabel("Gene") && n.containsKey("geneId")) {
+            logicalId = "GENE_" + n.get("geneId").asString();
+        } else if (n.hasLabel("Orthogroup") && n.containsKey("groupId")) {
+            logicalId = "OG_" + n.get("groupId").asString();
+        }
+        details.put("logicalId", logicalId);
+
+        // Visual Tweaks
+        int valSize = type.equals("Isolate") ? 25 : type.equals("Gene") ? 15 : 20;
+
+        return GraphDto.NodeDto.builder()
+                .id(id) // MUST be elementId to match Relationship source/target
+                .name(name)
+                .type(type)
+                .val(valSize)
+                .description(details.get("description"))
+                .details(details)
+                .build();
+    }
+}
@@ -0,0 +1,141 @@
+package com.ganoderma.platform.service;
+
+import com.ganoderma.platform.dto.ChatDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.TransactionConfig;
+import org.neo4j.driver.exceptions.ClientException;
+import org.neo4j.driver.summary.QueryType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Graph queries for the chat: {@link CypherTemplates} first, and a check of
+ * every query (templated or generated) with {@code EXPLAIN} before it is
+ * handed to the client, which must plan as a read-only query.
+ *
+ * Outcomes are cached by query shape - the query with its string and number
+ * literals taken out and whitespace collapsed - so a query differing only in
+ * its values (another country, another symbol) skips the planner round trip.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CypherQueryService {
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^'\\\\]|\\\\.)*'|\"(?:[^\"\\\\]|\\\\.)*\"");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w$.])\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final Driver driver;
+
+    @Value("${ganoderma.chat.cypher.templates:true}")
+    private boolean templatesEnabled;
+
+    @Value("${ganoderma.chat.cypher.plan-cache-size:1000}")
+    private int planCacheSize;
+
+    @Value("${ganoderma.chat.cypher.explain-timeout-seconds:5}")
+    private long explainTimeoutSeconds;
+
+    // Shape -> read-only plan; access order, so the eldest entry is the least recently used
+    private final LinkedHashMap<String, Boolean> plans = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LongAdder templated = new LongAdder();
+    private final LongAdder generated = new LongAdder();
+    private final LongAdder planHits = new LongAdder();
+    private final LongAdder planMisses = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * The templated query for {@code request}, or null when it needs the LLM
+     * (counted either way). A {@code followUp} always needs it: "and from
+     * Malaysia?" refines the previous query rather than starting a new one.
+     */
+    public String template(String request, List<EntityDictionary.Match> entities, boolean followUp) {
+        String query = templatesEnabled && !followUp ? CypherTemplates.match(request, entities) : null;
+        (query != null ? templated : generated).increment();
+        return query;
+    }
+
+    /** Whether {@code query} plans as a read-only query, from the shape cache or EXPLAIN. */
+    public boolean validate(String query) {
+        String shape = shape(query);
+        Boolean valid;
+        synchronized (plans) {
+            valid = plans.get(shape);
+        }
+        if (valid != null) {
+            planHits.increment();
+        } else {
+            planMisses.increment();
+            valid = explain(query);
+            if (valid == null)
+                return false;
+            synchronized (plans) {
+                plans.put(shape, valid);
+                if (plans.size() > planCacheSize)
+                    plans.remove(plans.keySet().iterator().next());
+            }
+        }
+        if (!valid)
+            rejected.increment();
+        return valid;
+    }
+
+    public ChatDto.CypherStats stats() {
+        long templates = templated.sum();
+        long llm = generated.sum();
+        long hits = planHits.sum();
+        long misses = planMisses.sum();
+        int entries;
+        synchronized (plans) {
+            entries = plans.size();
+        }
+        return ChatDto.CypherStats.builder()
+                .templated(templates)
+                .generated(llm)
+                .templateRate(templates + llm > 0 ? (double) templates / (templates + llm) : 0)
+                .planEntries(entries)
+                .planHits(hits)
+                .planMisses(misses)
+                .planHitRate(hits + misses > 0 ? (double) hits / (hits + misses) : 0)
+                .rejected(rejected.sum())
+                .build();
+    }
+
+    static String shape(String query) {
+        String shape = STRING_LITERAL.matcher(query).replaceAll("?s");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?n");
+        return WHITESPACE.matcher(shape.trim()).replaceAll(" ");
+    }
+
+    // true: plans read-only; false: invalid or writes; null: could not tell (not cached)
+    private Boolean explain(String query) {
+        try (Session session = driver.session()) {
+            QueryType type = session.run("EXPLAIN " + query, Map.of(), TransactionConfig.builder()
+                    .withTimeout(Duration.ofSeconds(explainTimeoutSeconds))
+                    .build())
+                    .consume()
+                    .queryType();
+            if (type != QueryType.READ_ONLY)
+                log.warn("Rejected {} graph query: {}", type, query);
+            return type == QueryType.READ_ONLY;
+        } catch (ClientException e) {
+            log.warn("Rejected graph query ({}): {}", e.getMessage(), query);
+            return false;
+        } catch (RuntimeException e) {
+            log.warn("Could not validate graph query: {}", e.getMessage());
+            return null;
+        }
+    }
+}
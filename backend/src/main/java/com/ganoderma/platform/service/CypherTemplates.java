@@ -0,0 +1,136 @@
+package com.ganoderma.platform.service;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The visualisation requests CYPHER_GEN_SYSTEM_PROMPT spells out, answered
+ * without the LLM: the Isolate - Gene - Orthogroup path filtered by the
+ * entities named in the request (gene symbol or id, isolate, host, country,
+ * orthogroup)
+ * and by gene categories (toxins as {@code symbol STARTS WITH 'Tox'}, ...),
+ * or a sample of it for an overview.
+ *
+ * A template is only used when every other word of the request is filler
+ * ("show me the ... from ..."); anything else is left to the LLM, and so
+ * is any follow-up message, which may refine the previous query.
+ */
+public final class CypherTemplates {
+
+    private static final String PATH = "MATCH p = (i:Isolate)<-[:FOUND_IN]-(g:Gene)-[:BELONGS_TO_OG]->(og:Orthogroup)";
+    private static final int LIMIT = 500;
+    private static final int SAMPLE_LIMIT = 50;
+
+    // Word stem (accents removed) -> gene symbol prefix, as in the DATA CONTEXT of the prompt
+    private static final Map<String, String> CATEGORIES = Map.of(
+            "tox", "Tox",
+            "effect", "Eff",
+            "regul", "Reg");
+
+    private static final Set<String> FILLER = Set.of(
+            // English
+            "show", "me", "display", "plot", "visualize", "visualise", "focus", "on", "draw", "highlight", "zoom",
+            "render", "map", "see", "view", "let", "i", "want", "to", "can", "could", "you", "please", "give", "the",
+            "a", "an", "all", "of", "from", "in", "and", "or", "with", "for", "their", "its", "gene", "genes",
+            "isolate", "isolates", "orthogroup", "orthogroups", "pathway", "pathways", "family", "families",
+            "graph", "network", "related", "found", "database",
+            // French
+            "affiche", "afficher", "montre", "montrer", "moi", "visualiser", "dessine", "trace",
+            "zoome", "voir", "fais", "je", "veux", "voudrais", "peux", "tu", "donne", "les", "le", "la", "l", "des",
+            "du", "de", "d", "un", "une", "tous", "toutes", "et", "ou", "avec", "pour", "en", "sur",
+            "leurs", "isolat", "isolats", "orthogroupe", "orthogroupes", "voie", "voies", "metabolique",
+            "metaboliques", "famille", "familles", "graphe", "reseau", "lies", "trouves", "vue", "base",
+            "donnees", "s", "il", "te", "plait", "stp");
+
+    private static final Set<String> OVERVIEW = Set.of("overview", "general", "sample", "everything", "apercu",
+            "generale", "echantillon", "tout");
+
+    private CypherTemplates() {
+    }
+
+    /** The templated query for {@code request}, or null when it needs the LLM. */
+    public static String match(String request, List<EntityDictionary.Match> entities) {
+        char[] folded = EntityAutomaton.fold(request);
+        // Entity mentions are accounted for by their filters
+        for (EntityDictionary.Match entity : entities) {
+            for (int i = entity.start(); i < entity.end(); i++)
+                folded[i] = ' ';
+        }
+        Set<String> prefixes = new LinkedHashSet<>();
+        boolean overview = false;
+        for (String word : new String(folded).trim().split(" +")) {
+            if (word.isEmpty())
+                continue;
+            String prefix = category(word);
+            if (prefix != null)
+                prefixes.add(prefix);
+            else if (OVERVIEW.contains(word))
+                overview = true;
+            else if (!FILLER.contains(word))
+                return null;
+        }
+
+        Map<EntityDictionary.Kind, Set<String>> values = new EnumMap<>(EntityDictionary.Kind.class);
+        Set<String> symbols = new LinkedHashSet<>();
+        Set<String> geneIds = new LinkedHashSet<>();
+        for (EntityDictionary.Match entity : entities) {
+            if (entity.kind() != EntityDictionary.Kind.GENE)
+                values.computeIfAbsent(entity.kind(), k -> new LinkedHashSet<>()).add(entity.value());
+            // A symbol names every gene that has it, not only the ids the dictionary reports for it
+            else if (entity.name().equals(entity.value()))
+                geneIds.add(entity.value());
+            else
+                symbols.add(entity.name());
+        }
+        List<String> conditions = new ArrayList<>();
+        List<String> genes = new ArrayList<>();
+        in(genes, "g.symbol", symbols.isEmpty() ? null : symbols);
+        in(genes, "g.geneId", geneIds.isEmpty() ? null : geneIds);
+        if (!genes.isEmpty())
+            conditions.add(genes.size() == 1 ? genes.get(0) : "(" + String.join(" OR ", genes) + ")");
+        in(conditions, "i.name", values.get(EntityDictionary.Kind.ISOLATE));
+        in(conditions, "i.host", values.get(EntityDictionary.Kind.HOST));
+        in(conditions, "i.originCountry", values.get(EntityDictionary.Kind.COUNTRY));
+        in(conditions, "og.groupId", values.get(EntityDictionary.Kind.ORTHOGROUP));
+        if (!prefixes.isEmpty()) {
+            List<String> startsWith = new ArrayList<>();
+            for (String prefix : prefixes)
+                startsWith.add("g.symbol STARTS WITH " + literal(prefix));
+            conditions.add(startsWith.size() == 1 ? startsWith.get(0) : "(" + String.join(" OR ", startsWith) + ")");
+        }
+
+        if (conditions.isEmpty())
+            return overview ? PATH + " RETURN p LIMIT " + SAMPLE_LIMIT : null;
+        return PATH + " WHERE " + String.join(" AND ", conditions) + " RETURN p LIMIT " + LIMIT;
+    }
+
+    private static String category(String word) {
+        for (Map.Entry<String, String> category : CATEGORIES.entrySet()) {
+            if (word.startsWith(category.getKey()))
+                return category.getValue();
+        }
+        return null;
+    }
+
+    private static void in(List<String> conditions, String property, Set<String> values) {
+        if (values == null)
+            return;
+        if (values.size() == 1) {
+            conditions.add(property + " = " + literal(values.iterator().next()));
+            return;
+        }
+        List<String> literals = new ArrayList<>();
+        for (String value : values)
+            literals.add(literal(value));
+        conditions.add(property + " IN [" + String.join(", ", literals) + "]");
+    }
+
+    // Values are inlined: the query goes back to the client, which runs it as text
+    static String literal(String value) {
+        return "'" + value.replace("\\", "\\\\").replace("'", "\\'") + "'";
+    }
+}
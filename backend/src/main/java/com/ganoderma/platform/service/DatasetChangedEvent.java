@@ -0,0 +1,13 @@
+package com.ganoderma.platform.service;
+
+/**
+ * Published by the loaders once a load has been committed, or has failed
+ * after committing some of its batches, so read-side caches built from the
+ * graph can refresh.
+ */
+public record DatasetChangedEvent(Kind kind, String source) {
+
+    public enum Kind {
+        GENES, ORTHOGROUPS, EXPRESSION
+    }
+}
@@ -0,0 +1,38 @@
+package com.ganoderma.platform.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts dataset changes so cached views can tell whether they are current.
+ * Every committed load bumps the version; data written outside the
+ * application (e.g. init_db.sh) is announced with {@link #bump}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DatasetVersionService {
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final AtomicLong version = new AtomicLong();
+
+    public long current() {
+        return version.get();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDatasetChanged(DatasetChangedEvent event) {
+        log.debug("Dataset version {} after {} change from {}", version.incrementAndGet(), event.kind(),
+                event.source());
+    }
+
+    /** Marks the whole dataset as changed, refreshing every cache built from it. */
+    public void bump(String source) {
+        eventPublisher.publishEvent(new DatasetChangedEvent(DatasetChangedEvent.Kind.GENES, source));
+    }
+}
@@ -0,0 +1,272 @@
+package com.ganoderma.platform.service;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+
+/**
+ * Aho-Corasick automaton over entity names: finds every occurrence of every
+ * pattern in a text in one pass, whatever the number of patterns.
+ *
+ * Patterns and texts are compared after {@link #fold}: lower case, accents
+ * removed and anything but letters and digits turned into a space, one char
+ * for one char so match offsets point into the original text. Only matches
+ * on word boundaries are reported.
+ *
+ * The trie is stored in flat arrays rather than node objects: nodes are
+ * numbered breadth-first so the children of a node are contiguous and
+ * sorted by label (found by binary search from one offset per node), and
+ * entry values share one string, empty when the value is the pattern as
+ * written. Millions of patterns thus cost a few tens of bytes each.
+ */
+public final class EntityAutomaton {
+
+    public interface Visitor {
+        /** {@code value} is null for patterns added without one. */
+        void match(int start, int end, int kind, String value);
+    }
+
+    private static final char[] FOLD = new char[0x250];
+
+    static {
+        for (char c = 0; c < FOLD.length; c++) {
+            String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+            char base = Character.toLowerCase(decomposed.charAt(0));
+            FOLD[c] = Character.isLetterOrDigit(base) ? base : ' ';
+        }
+    }
+
+    // Trie nodes in breadth-first order; node 0 is the root and the children of
+    // node n are childStart[n] .. childStart[n + 1] - 1
+    private final char[] label;
+    private final int[] childStart;
+    private final int[] fail;
+    private final int[] entryHead;
+    // Nearest node on the fail chain that ends a pattern (0 = none)
+    private final int[] outLink;
+    private final int nodes;
+
+    // Entries (pattern -> kind, value), chained per node
+    private final int[] entryNext;
+    private final byte[] entryKind;
+    private final int[] entryLength;
+    private final int[] valueEnd;
+    private final String values;
+    private final int entries;
+
+    private EntityAutomaton(Builder builder) {
+        nodes = builder.nodes;
+        label = new char[nodes];
+        childStart = new int[nodes + 1];
+        entryHead = new int[nodes];
+        // Renumber breadth-first, children sorted by label
+        int[] order = new int[nodes];
+        int tail = 1;
+        for (int n = 0; n < nodes; n++) {
+            int old = order[n];
+            label[n] = builder.label[old];
+            entryHead[n] = builder.entryHead[old];
+            childStart[n] = tail;
+            int first = tail;
+            for (int child = builder.firstChild[old]; child >= 0; child = builder.nextSibling[child])
+                order[tail++] = child;
+            sortByLabel(order, first, tail, builder.label);
+        }
+        childStart[nodes] = tail;
+        entries = builder.entries;
+        entryNext = Arrays.copyOf(builder.entryNext, entries);
+        entryKind = Arrays.copyOf(builder.entryKind, entries);
+        entryLength = Arrays.copyOf(builder.entryLength, entries);
+        valueEnd = Arrays.copyOf(builder.valueEnd, entries);
+        values = builder.values.toString();
+        fail = new int[nodes];
+        outLink = new int[nodes];
+        linkFailures();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int size() {
+        return entries;
+    }
+
+    /** Approximate heap taken by the arrays, in bytes. */
+    public long bytes() {
+        return (long) nodes * 18 + (long) entries * 13 + (long) values.length() * 2;
+    }
+
+    /** Calls {@code visitor} for every pattern occurring on word boundaries in a {@link #fold}ed text. */
+    public void find(char[] folded, Visitor visitor) {
+        int state = 0;
+        for (int i = 0; i < folded.length; i++) {
+            char c = folded[i];
+            int next;
+            while ((next = child(state, c)) < 0 && state != 0)
+                state = fail[state];
+            state = Math.max(next, 0);
+            int node = entryHead[state] >= 0 ? state : outLink[state];
+            for (; node > 0; node = outLink[node]) {
+                for (int e = entryHead[node]; e >= 0; e = entryNext[e]) {
+                    int start = i + 1 - entryLength[e];
+                    if ((start == 0 || folded[start - 1] == ' ') && (i + 1 == folded.length || folded[i + 1] == ' '))
+                        visitor.match(start, i + 1, entryKind[e], value(e));
+                }
+            }
+        }
+    }
+
+    public static char[] fold(String text) {
+        char[] folded = new char[text.length()];
+        for (int i = 0; i < folded.length; i++)
+            folded[i] = fold(text.charAt(i));
+        return folded;
+    }
+
+    private static char fold(char c) {
+        if (c < FOLD.length)
+            return FOLD[c];
+        return Character.isLetterOrDigit(c) ? Character.toLowerCase(c) : ' ';
+    }
+
+    private String value(int entry) {
+        int start = entry == 0 ? 0 : valueEnd[entry - 1];
+        return start == valueEnd[entry] ? null : values.substring(start, valueEnd[entry]);
+    }
+
+    private int child(int node, char c) {
+        int low = childStart[node];
+        int high = childStart[node + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (label[mid] < c)
+                low = mid + 1;
+            else if (label[mid] > c)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    // Insertion sort: nodes rarely have more than a few dozen children
+    private static void sortByLabel(int[] nodes, int from, int to, char[] labels) {
+        for (int i = from + 1; i < to; i++) {
+            int node = nodes[i];
+            int j = i - 1;
+            while (j >= from && labels[nodes[j]] > labels[node]) {
+                nodes[j + 1] = nodes[j];
+                j--;
+            }
+            nodes[j + 1] = node;
+        }
+    }
+
+    // Nodes are numbered breadth-first, so the fail links of shallower nodes are known when needed
+    private void linkFailures() {
+        // Children of the root fail to the root
+        for (int node = 1; node < nodes; node++) {
+            for (int child = childStart[node]; child < childStart[node + 1]; child++) {
+                int f = fail[node];
+                int target;
+                while ((target = child(f, label[child])) < 0 && f != 0)
+                    f = fail[f];
+                fail[child] = Math.max(target, 0);
+                outLink[child] = entryHead[fail[child]] >= 0 ? fail[child] : outLink[fail[child]];
+            }
+        }
+    }
+
+    public static final class Builder {
+
+        private char[] label = new char[1024];
+        private int[] firstChild = new int[1024];
+        private int[] nextSibling = new int[1024];
+        private int[] entryHead = new int[1024];
+        private int nodes;
+
+        private int[] entryNext = new int[256];
+        private byte[] entryKind = new byte[256];
+        private int[] entryLength = new int[256];
+        private int[] valueEnd = new int[256];
+        private final StringBuilder values = new StringBuilder();
+        private int entries;
+
+        private Builder() {
+            newNode('\0');
+        }
+
+        /** Adds {@code pattern}, reported as matched in the text. */
+        public Builder add(String pattern, int kind) {
+            return add(pattern, kind, "");
+        }
+
+        /**
+         * Adds {@code pattern}; blank patterns are ignored, and so is a
+         * repeat of the last entry added for the same pattern.
+         */
+        public Builder add(String pattern, int kind, String value) {
+            char[] folded = fold(pattern.strip());
+            if (folded.length == 0)
+                return this;
+            int node = 0;
+            for (char c : folded) {
+                int child = -1;
+                for (int n = firstChild[node]; n >= 0; n = nextSibling[n]) {
+                    if (label[n] == c) {
+                        child = n;
+                        break;
+                    }
+                }
+                if (child < 0) {
+                    child = newNode(c);
+                    nextSibling[child] = firstChild[node];
+                    firstChild[node] = child;
+                }
+                node = child;
+            }
+            int last = entryHead[node];
+            if (last >= 0 && entryKind[last] == kind) {
+                int start = last == 0 ? 0 : valueEnd[last - 1];
+                boolean same = valueEnd[last] - start == value.length();
+                for (int i = 0; same && i < value.length(); i++)
+                    same = values.charAt(start + i) == value.charAt(i);
+                if (same)
+                    return this;
+            }
+            if (entries == entryNext.length) {
+                int capacity = entries * 2;
+                entryNext = Arrays.copyOf(entryNext, capacity);
+                entryKind = Arrays.copyOf(entryKind, capacity);
+                entryLength = Arrays.copyOf(entryLength, capacity);
+                valueEnd = Arrays.copyOf(valueEnd, capacity);
+            }
+            values.append(value);
+            entryNext[entries] = entryHead[node];
+            entryKind[entries] = (byte) kind;
+            entryLength[entries] = folded.length;
+            valueEnd[entries] = values.length();
+            entryHead[node] = entries++;
+            return this;
+        }
+
+        public EntityAutomaton build() {
+            return new EntityAutomaton(this);
+        }
+
+        private int newNode(char c) {
+            if (nodes == label.length) {
+                int capacity = nodes * 2;
+                label = Arrays.copyOf(label, capacity);
+                firstChild = Arrays.copyOf(firstChild, capacity);
+                nextSibling = Arrays.copyOf(nextSibling, capacity);
+                entryHead = Arrays.copyOf(entryHead, capacity);
+            }
+            label[nodes] = c;
+            firstChild[nodes] = -1;
+            nextSibling[nodes] = -1;
+            entryHead[nodes] = -1;
+            return nodes++;
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.ganoderma.platform.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Finds the entities a chat message names - gene symbols and ids, isolate
+ * names, hosts, countries, orthogroup ids and their French/English aliases -
+ * with one {@link EntityAutomaton} per source, so no LLM call is needed to
+ * pick the search terms out of a question, and resolves the names the model
+ * wraps in {@code <<...>>} to graph ids.
+ *
+ * The automata are built on a background thread at startup. After a load
+ * only the sources it touched are rebuilt (gene loads: genes and isolates;
+ * orthogroup loads: orthogroups), each swapped in when complete while the
+ * previous one keeps answering; requests during a rebuild are coalesced.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EntityDictionary {
+
+    public enum Kind {
+        GENE, ISOLATE, ORTHOGROUP, HOST, COUNTRY
+    }
+
+    /**
+     * {@code name} as written at [start, end) of the message, naming
+     * {@code value}: the gene id, isolate name, orthogroup id, or the stored
+     * host or country.
+     */
+    public record Match(Kind kind, String name, String value, int start, int end) {
+
+        /** Logical id of the graph node, null for hosts and countries. */
+        public String contextId() {
+            return switch (kind) {
+                case GENE -> "GENE_" + value;
+                case ISOLATE -> "ISOLATE_" + value;
+                case ORTHOGROUP -> "OG_" + value;
+                default -> null;
+            };
+        }
+    }
+
+    private enum Source {
+        GENES, ISOLATES, ORTHOGROUPS, ALIASES
+    }
+
+    // Genes sharing a symbol reported per mention
+    private static final int MAX_PER_NAME = 25;
+
+    private static final Map<String, Kind> ID_PREFIXES = Map.of("GENE_", Kind.GENE, "ISOLATE_", Kind.ISOLATE,
+            "OG_", Kind.ORTHOGROUP);
+
+    private static final String GENE_PAGE = """
+            MATCH (g:Gene) WHERE g.geneId > $after
+            RETURN g.geneId AS id, g.symbol AS symbol
+            ORDER BY g.geneId
+            LIMIT $limit
+            """;
+
+    private static final String ORTHOGROUP_PAGE = """
+            MATCH (og:Orthogroup) WHERE og.groupId > $after
+            RETURN og.groupId AS id
+            ORDER BY og.groupId
+            LIMIT $limit
+            """;
+
+    private static final String ISOLATES = """
+            MATCH (i:Isolate)
+            RETURN i.name AS name, i.host AS host, i.originCountry AS country
+            """;
+
+    private final Neo4jClient neo4jClient;
+
+    @Value("${ganoderma.entities.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ganoderma.entities.aliases:classpath:dictionary/entity-aliases.tsv}")
+    private Resource aliases;
+
+    // Shorter symbols and ids are skipped, they would match ordinary words
+    @Value("${ganoderma.entities.min-length:3}")
+    private int minLength;
+
+    @Value("${ganoderma.entities.page-size:50000}")
+    private int pageSize;
+
+    private final Map<Source, EntityAutomaton> automata = new ConcurrentHashMap<>();
+    private final Set<Source> pending = EnumSet.noneOf(Source.class);
+    private ExecutorService builder;
+
+    @PostConstruct
+    void init() {
+        builder = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "entity-dictionary");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        builder.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildAtStartup() {
+        requestRebuild(EnumSet.allOf(Source.class));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDatasetChanged(DatasetChangedEvent event) {
+        switch (event.kind()) {
+            case GENES -> requestRebuild(EnumSet.of(Source.GENES, Source.ISOLATES));
+            case ORTHOGROUPS -> requestRebuild(EnumSet.of(Source.ORTHOGROUPS));
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Entities named in {@code message}: the longest mention wins where
+     * mentions overlap, and each entity is listed once, in message order.
+     */
+    public List<Match> find(String message) {
+        if (!enabled || message == null || automata.isEmpty())
+            return List.of();
+        List<Match> mentions = mentions(message);
+        mentions.sort(Comparator.comparingInt(Match::start)
+                .thenComparing(Comparator.comparingInt((Match m) -> m.end() - m.start()).reversed()));
+
+        List<Match> found = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        Match kept = null;
+        for (Match match : mentions) {
+            // A name that is two entities (e.g. a symbol and a host) keeps both
+            boolean sameSpan = kept != null && match.start() == kept.start() && match.end() == kept.end();
+            if (kept != null && match.start() < kept.end() && !sameSpan)
+                continue;
+            if (seen.add(match.kind() + " " + match.value().toLowerCase()))
+                found.add(match);
+            kept = match;
+        }
+        return found;
+    }
+
+    /**
+     * The entities {@code name} stands for as a whole, e.g. "Tox42" (every
+     * gene with that symbol), "G. boninense MAL5" or "OG_OG00013"; empty
+     * when the dataset has no such entity.
+     */
+    public List<Match> resolve(String name) {
+        if (!enabled || name == null)
+            return List.of();
+        String stripped = name.strip();
+        Kind only = null;
+        for (Map.Entry<String, Kind> prefix : ID_PREFIXES.entrySet()) {
+            if (stripped.startsWith(prefix.getKey())) {
+                only = prefix.getValue();
+                stripped = stripped.substring(prefix.getKey().length());
+                break;
+            }
+        }
+        int length = stripped.length();
+        Kind kind = only;
+        return mentions(stripped).stream()
+                .filter(m -> m.start() == 0 && m.end() == length && (kind == null || m.kind() == kind))
+                .toList();
+    }
+
+    // Every mention from every source, at most MAX_PER_NAME per span
+    private List<Match> mentions(String text) {
+        char[] folded = EntityAutomaton.fold(text);
+        List<Match> mentions = new ArrayList<>();
+        Map<Long, Integer> perSpan = new HashMap<>();
+        for (EntityAutomaton automaton : automata.values()) {
+            automaton.find(folded, (start, end, kind, value) -> {
+                if (perSpan.merge(((long) start << 32) | end, 1, Integer::sum) > MAX_PER_NAME)
+                    return;
+                String name = text.substring(start, end);
+                mentions.add(new Match(Kind.values()[kind], name, value != null ? value : name, start, end));
+            });
+        }
+        return mentions;
+    }
+
+    private void requestRebuild(Set<Source> sources) {
+        if (!enabled)
+            return;
+        synchronized (pending) {
+            boolean idle = pending.isEmpty();
+            pending.addAll(sources);
+            if (idle)
+                builder.execute(this::rebuild);
+        }
+    }
+
+    private void rebuild() {
+        Set<Source> sources;
+        synchronized (pending) {
+            sources = EnumSet.copyOf(pending);
+            pending.clear();
+        }
+        for (Source source : sources) {
+            long start = System.nanoTime();
+            try {
+                EntityAutomaton automaton = build(source);
+                automata.put(source, automaton);
+                log.info("Entity dictionary ({}): {} names, ~{} KB, built in {} ms", source.name().toLowerCase(),
+                        automaton.size(), automaton.bytes() / 1024, (System.nanoTime() - start) / 1_000_000);
+            } catch (Exception e) {
+                log.warn("Could not build the {} entity dictionary: {}", source.name().toLowerCase(), e.getMessage());
+            }
+        }
+    }
+
+    private EntityAutomaton build(Source source) throws IOException {
+        EntityAutomaton.Builder automaton = EntityAutomaton.builder();
+        switch (source) {
+            case GENES -> page(GENE_PAGE, row -> {
+                String geneId = (String) row.get("id");
+                add(automaton, (String) row.get("symbol"), Kind.GENE, geneId);
+                // Gene ids stand for themselves as written
+                add(automaton, geneId, Kind.GENE, null);
+            });
+            // Ids are case sensitive in the graph context, so they are kept as stored
+            case ORTHOGROUPS -> page(ORTHOGROUP_PAGE,
+                    row -> add(automaton, (String) row.get("id"), Kind.ORTHOGROUP, (String) row.get("id")));
+            case ISOLATES -> {
+                for (Map<String, Object> row : neo4jClient.query(ISOLATES).fetch().all()) {
+                    String name = (String) row.get("name");
+                    add(automaton, name, Kind.ISOLATE, name);
+                    // "G. boninense MAL5" is usually called "MAL5"
+                    if (name != null && name.contains(" "))
+                        add(automaton, name.substring(name.lastIndexOf(' ') + 1), Kind.ISOLATE, name);
+                    add(automaton, (String) row.get("host"), Kind.HOST, (String) row.get("host"));
+                    add(automaton, (String) row.get("country"), Kind.COUNTRY, (String) row.get("country"));
+                }
+            }
+            case ALIASES -> loadAliases(automaton);
+        }
+        return automaton.build();
+    }
+
+    // A null value stands for the name as written in the message, which costs no storage
+    private void add(EntityAutomaton.Builder automaton, String name, Kind kind, String value) {
+        if (name == null || name.strip().length() < minLength)
+            return;
+        if (value == null)
+            automaton.add(name, kind.ordinal());
+        else
+            automaton.add(name, kind.ordinal(), value);
+    }
+
+    private void page(String query, Consumer<Map<String, Object>> consumer) {
+        String after = "";
+        while (true) {
+            List<Map<String, Object>> page = new ArrayList<>(neo4jClient.query(query)
+                    .bindAll(Map.of("after", after, "limit", pageSize))
+                    .fetch().all());
+            if (page.isEmpty())
+                return;
+            page.forEach(consumer);
+            after = (String) page.get(page.size() - 1).get("id");
+        }
+    }
+
+    // kind <TAB> stored value <TAB> alias, '#' starts a comment
+    private void loadAliases(EntityAutomaton.Builder automaton) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(aliases.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#"))
+                    continue;
+                String[] columns = line.split("\t");
+                if (columns.length < 3)
+                    continue;
+                automaton.add(columns[2], Kind.valueOf(columns[0].trim()).ordinal(), columns[1].trim());
+                // The stored value itself, in case no loaded entity has it yet
+                automaton.add(columns[1], Kind.valueOf(columns[0].trim()).ordinal(), columns[1].trim());
+            }
+        }
+    }
+}
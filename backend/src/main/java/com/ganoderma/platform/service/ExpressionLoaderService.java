@@ -0,0 +1,340 @@
+package com.ganoderma.platform.service;
+
+import com.ganoderma.platform.dto.ExpressionReportDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads gene x sample expression matrices (salmon quantmerge, featureCounts
+ * or any TSV with gene IDs in the first column and one column per sample)
+ * together with a sample sheet mapping samples to Condition and Isolate.
+ *
+ * The matrix is streamed once per block of {@code column-block} sample
+ * columns, so each batch of EXPRESSED_IN edges only touches the samples of
+ * one block and memory does not depend on the number of samples. When both a
+ * TPM and a counts matrix are given they are read side by side and must list
+ * genes in the same order. Edges whose TPM is at or below {@code minTpm} are
+ * not written.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExpressionLoaderService {
+
+    // featureCounts annotation columns between the gene ID and the samples
+    private static final Set<String> ANNOTATION_COLUMNS = Set.of("chr", "start", "end", "strand", "length");
+
+    private final GraphBatchWriter graphBatchWriter;
+    private final IngestionInputService ingestionInputService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${ganoderma.ingestion.expression.batch-size:20000}")
+    private int batchSize;
+
+    @Value("${ganoderma.ingestion.expression.column-block:32}")
+    private int columnBlock;
+
+    @Value("${ganoderma.ingestion.expression.min-tpm:#{null}}")
+    private Double defaultMinTpm;
+
+    /** Sample columns of a matrix and their positions in each row. */
+    private record MatrixHeader(List<String> sampleIds, Map<String, Integer> columnOf, int columnCount) {
+    }
+
+    /**
+     * @param sampleSheet  optional sample sheet (sample, condition, isolate, replicate, factor, description)
+     * @param tpmMatrix    TPM matrix, may be null when counts are given
+     * @param countsMatrix counts matrix, may be null when TPM is given
+     * @param minTpm       overrides {@code ganoderma.ingestion.expression.min-tpm}; null keeps the default
+     */
+    public ExpressionReportDto load(Path sampleSheet, Path tpmMatrix, Path countsMatrix, Double minTpm)
+            throws IOException {
+        if (tpmMatrix == null && countsMatrix == null)
+            throw new IllegalArgumentException("A TPM or counts matrix is required");
+        long startNanos = System.nanoTime();
+        Double threshold = minTpm != null ? minTpm : defaultMinTpm;
+        if (tpmMatrix == null && threshold != null)
+            log.warn("minTpm is ignored without a TPM matrix");
+
+        long sheetRows = sampleSheet != null ? loadSampleSheet(sampleSheet) : 0;
+
+        MatrixHeader tpmHeader = tpmMatrix != null ? readHeader(tpmMatrix) : null;
+        MatrixHeader countsHeader = countsMatrix != null ? readHeader(countsMatrix) : null;
+        List<String> samples = (tpmHeader != null ? tpmHeader : countsHeader).sampleIds();
+        if (tpmHeader != null && countsHeader != null && !countsHeader.columnOf().keySet().containsAll(samples))
+            throw new IllegalArgumentException("TPM and counts matrices do not have the same samples");
+        // Samples missing from the sheet still get a node, so their edges are kept
+        graphBatchWriter.mergeSampleIds(samples);
+
+        long[] totals = new long[5]; // genes, written, below threshold, attempted, batches
+        int blocks = 0;
+        String source = (tpmMatrix != null ? tpmMatrix : countsMatrix).getFileName().toString();
+        try {
+            for (int from = 0; from < samples.size(); from += columnBlock) {
+                List<String> block = samples.subList(from, Math.min(samples.size(), from + columnBlock));
+                loadBlock(block, tpmMatrix, tpmHeader, countsMatrix, countsHeader, threshold, totals);
+                blocks++;
+                log.info("Expression column block {} loaded ({} of {} samples)", blocks, from + block.size(),
+                        samples.size());
+            }
+        } catch (IOException | RuntimeException e) {
+            // Batches commit one by one, so a load failing partway has changed the graph too
+            if (totals[4] > 0 || sheetRows > 0)
+                eventPublisher.publishEvent(new DatasetChangedEvent(DatasetChangedEvent.Kind.EXPRESSION,
+                        source + " (failed)"));
+            throw e;
+        }
+
+        long elapsedNanos = Math.max(1, System.nanoTime() - startNanos);
+        ExpressionReportDto report = ExpressionReportDto.builder()
+                .samples(samples.size())
+                .sampleSheetRows(sheetRows)
+                .genes(blocks > 0 ? totals[0] / blocks : 0)
+                .edgesWritten(totals[1])
+                .edgesBelowThreshold(totals[2])
+                .edgesUnmatched(totals[3] - totals[1])
+                .minTpm(threshold)
+                .columnBlocks(blocks)
+                .batches(totals[4])
+                .elapsedMillis(elapsedNanos / 1_000_000)
+                .edgesPerSecond(totals[1] * 1_000_000_000.0 / elapsedNanos)
+                .build();
+        log.info("Loaded {} expression edges for {} samples in {} ms ({} below threshold, {} unmatched)",
+                report.getEdgesWritten(), report.getSamples(), report.getElapsedMillis(),
+                report.getEdgesBelowThreshold(), report.getEdgesUnmatched());
+        eventPublisher.publishEvent(new DatasetChangedEvent(DatasetChangedEvent.Kind.EXPRESSION, source));
+        return report;
+    }
+
+    private void loadBlock(List<String> block, Path tpmMatrix, MatrixHeader tpmHeader, Path countsMatrix,
+            MatrixHeader countsHeader, Double threshold, long[] totals) throws IOException {
+        int[] tpmColumns = columns(block, tpmHeader);
+        int[] countColumns = columns(block, countsHeader);
+        int[] tpmStarts = tpmHeader != null ? new int[tpmHeader.columnCount() + 1] : null;
+        int[] countStarts = countsHeader != null ? new int[countsHeader.columnCount() + 1] : null;
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        int edges = 0;
+        try (BufferedReader tpm = open(tpmMatrix); BufferedReader counts = open(countsMatrix)) {
+            skipHeader(tpm);
+            skipHeader(counts);
+            while (true) {
+                String tpmLine = nextRow(tpm);
+                String countLine = nextRow(counts);
+                String line = tpmLine != null ? tpmLine : countLine;
+                if (line == null)
+                    break;
+                if (tpmLine != null)
+                    split(tpmLine, tpmStarts);
+                if (countLine != null)
+                    split(countLine, countStarts);
+                String geneId = field(line, tpmLine != null ? tpmStarts : countStarts, 0);
+                if (tpm != null && counts != null
+                        && (tpmLine == null || countLine == null || !geneId.equals(field(countLine, countStarts, 0))))
+                    throw new IllegalArgumentException("TPM and counts matrices list genes in a different order at "
+                            + geneId);
+                totals[0]++;
+
+                List<String> sampleIds = new ArrayList<>(block.size());
+                List<Double> tpmValues = new ArrayList<>(block.size());
+                List<Double> countValues = new ArrayList<>(block.size());
+                for (int k = 0; k < block.size(); k++) {
+                    Double tpmValue = tpmLine != null ? number(tpmLine, tpmStarts, tpmColumns[k]) : null;
+                    if (threshold != null && tpmValue != null && tpmValue <= threshold) {
+                        totals[2]++;
+                        continue;
+                    }
+                    sampleIds.add(block.get(k));
+                    tpmValues.add(tpmValue);
+                    countValues.add(countLine != null ? number(countLine, countStarts, countColumns[k]) : null);
+                }
+                if (sampleIds.isEmpty())
+                    continue;
+
+                Map<String, Object> row = new HashMap<>();
+                row.put("geneId", geneId);
+                row.put("samples", sampleIds);
+                row.put("tpm", tpmValues);
+                row.put("counts", countValues);
+                rows.add(row);
+                edges += sampleIds.size();
+                if (edges >= batchSize) {
+                    flush(rows, edges, totals);
+                    edges = 0;
+                }
+            }
+        }
+        flush(rows, edges, totals);
+    }
+
+    private void flush(List<Map<String, Object>> rows, int edges, long[] totals) {
+        if (rows.isEmpty())
+            return;
+        totals[1] += graphBatchWriter.mergeExpression(rows);
+        totals[3] += edges;
+        totals[4]++;
+        rows.clear();
+    }
+
+    /**
+     * Reads a sample sheet (tab or comma separated, with a header naming the
+     * sample and condition columns; isolate, replicate, factor and description
+     * are optional) and upserts the Sample, Condition and Isolate nodes.
+     */
+    private long loadSampleSheet(Path sampleSheet) throws IOException {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        try (BufferedReader reader = open(sampleSheet)) {
+            String header = reader.readLine();
+            if (header == null)
+                return 0;
+            String separator = header.contains("\t") ? "\t" : ",";
+            Map<String, Integer> column = new HashMap<>();
+            String[] names = header.split(separator, -1);
+            for (int i = 0; i < names.length; i++) {
+                // "sample", "sample_id" and "sampleId" all name the sample column
+                String name = names[i].trim().toLowerCase(Locale.ROOT).replace("_", "");
+                column.put(name.length() > 2 && name.endsWith("id") ? name.substring(0, name.length() - 2) : name, i);
+            }
+            Integer sample = column.get("sample");
+            Integer condition = column.get("condition");
+            if (sample == null || condition == null)
+                throw new IllegalArgumentException("Sample sheet needs 'sample' and 'condition' columns");
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#"))
+                    continue;
+                String[] parts = line.split(separator, -1);
+                Map<String, Object> row = new HashMap<>();
+                row.put("sampleId", value(parts, sample));
+                row.put("condition", value(parts, condition));
+                row.put("isolate", value(parts, column.get("isolate")));
+                row.put("factor", value(parts, column.get("factor")));
+                row.put("description", value(parts, column.get("description")));
+                String replicate = value(parts, column.get("replicate"));
+                try {
+                    row.put("replicate", replicate != null ? Integer.valueOf(replicate) : null);
+                } catch (NumberFormatException e) {
+                    row.put("replicate", null);
+                }
+                if (row.get("sampleId") != null && row.get("condition") != null)
+                    rows.add(row);
+            }
+        }
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            graphBatchWriter.mergeSamples(rows.subList(from, Math.min(rows.size(), from + batchSize)));
+        }
+        return rows.size();
+    }
+
+    private MatrixHeader readHeader(Path matrix) throws IOException {
+        try (BufferedReader reader = open(matrix)) {
+            String header = nextRow(reader);
+            if (header == null)
+                throw new IllegalArgumentException("Empty expression matrix: " + matrix.getFileName());
+            String[] names = header.split("\t", -1);
+            List<String> sampleIds = new ArrayList<>();
+            Map<String, Integer> columnOf = new HashMap<>();
+            for (int i = 1; i < names.length; i++) {
+                String name = names[i].trim();
+                if (name.isEmpty() || ANNOTATION_COLUMNS.contains(name.toLowerCase(Locale.ROOT)))
+                    continue;
+                String sampleId = sampleId(name);
+                sampleIds.add(sampleId);
+                columnOf.put(sampleId, i);
+            }
+            return new MatrixHeader(sampleIds, columnOf, names.length);
+        }
+    }
+
+    /** featureCounts names columns after the BAM path; keep the file name without extension. */
+    private static String sampleId(String column) {
+        String name = column.substring(column.lastIndexOf('/') + 1);
+        return name.endsWith(".bam") ? name.substring(0, name.length() - 4) : name;
+    }
+
+    private static int[] columns(List<String> block, MatrixHeader header) {
+        if (header == null)
+            return null;
+        int[] columns = new int[block.size()];
+        for (int k = 0; k < block.size(); k++) {
+            columns[k] = header.columnOf().get(block.get(k));
+        }
+        return columns;
+    }
+
+    private BufferedReader open(Path file) throws IOException {
+        if (file == null)
+            return null;
+        return new BufferedReader(new InputStreamReader(ingestionInputService.open(file, 0L), StandardCharsets.UTF_8),
+                1024 * 1024);
+    }
+
+    private static void skipHeader(BufferedReader reader) throws IOException {
+        if (reader != null)
+            nextRow(reader);
+    }
+
+    /** Next non-empty line that is not a comment (featureCounts writes a '#' command line). */
+    private static String nextRow(BufferedReader reader) throws IOException {
+        if (reader == null)
+            return null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.isEmpty() && line.charAt(0) != '#')
+                return line;
+        }
+        return null;
+    }
+
+    /** Records where each tab separated field starts; starts[i + 1] - 1 is where field i ends. */
+    private static void split(String line, int[] starts) {
+        int field = 0;
+        starts[0] = 0;
+        for (int i = 0; i < line.length() && field + 1 < starts.length; i++) {
+            if (line.charAt(i) == '\t')
+                starts[++field] = i + 1;
+        }
+        while (field + 1 < starts.length)
+            starts[++field] = line.length() + 1;
+    }
+
+    private static String field(String line, int[] starts, int index) {
+        int from = Math.min(starts[index], line.length());
+        int to = Math.max(from, starts[index + 1] - 1);
+        return line.substring(from, to);
+    }
+
+    private static Double number(String line, int[] starts, int index) {
+        String value = field(line, starts, index).trim();
+        if (value.isEmpty() || value.equalsIgnoreCase("NA") || value.equalsIgnoreCase("NaN"))
+            return null;
+        try {
+            return Double.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String value(String[] parts, Integer index) {
+        if (index == null || index >= parts.length)
+            return null;
+        String value = parts[index].trim();
+        return value.isEmpty() ? null : value;
+    }
+}
@@ -0,0 +1,345 @@
+package com.ganoderma.platform.service;
+
+import org.neo4j.driver.QueryRunner;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable columnar snapshot of the EXPRESSED_IN TPM values.
+ *
+ * Genes that have any expression get a dense ordinal (in geneId order) and
+ * each Sample is one float column indexed by it, either a float[] on heap or
+ * a direct buffer off heap. Missing edges (e.g. skipped by the loader's TPM
+ * threshold) read as 0.
+ *
+ * Queries run plain counted loops over whole columns, which C2 compiles to
+ * SIMD instructions; off-heap columns are copied chunk by chunk into a
+ * scratch array first so they go through the same loops. Condition means are
+ * computed once per snapshot and cached.
+ */
+public final class ExpressionStore {
+
+    private static final int CHUNK = 8192;
+    private static final ThreadLocal<float[]> SCRATCH = ThreadLocal.withInitial(() -> new float[CHUNK]);
+
+    private static final String GENES = """
+            MATCH (g:Gene)
+            WHERE EXISTS { (g)-[:EXPRESSED_IN]->(:Sample) }
+            RETURN g.geneId AS geneId
+            ORDER BY geneId
+            """;
+
+    private static final String SAMPLES = """
+            MATCH (s:Sample)
+            OPTIONAL MATCH (s)-[:BELONGS_TO_CONDITION]->(c:Condition)
+            RETURN s.sampleId AS sampleId, head(collect(c.name)) AS condition
+            ORDER BY sampleId
+            """;
+
+    private static final String EDGES = """
+            MATCH (g:Gene)-[e:EXPRESSED_IN]->(s:Sample)
+            WHERE e.tpm IS NOT NULL
+            RETURN g.geneId AS geneId, s.sampleId AS sampleId, e.tpm AS tpm
+            """;
+
+    /** Gene ordinal and value, as returned by the threshold and top-k queries. */
+    public record Hit(int gene, float value) {
+    }
+
+    /** Reads values from a column in chunks: array, first gene ordinal, length. */
+    @FunctionalInterface
+    private interface ChunkConsumer {
+        void accept(float[] values, int firstGene, int length);
+    }
+
+    private final String[] geneIds;
+    private final Map<String, Integer> geneOrdinals;
+    private final String[] sampleIds;
+    private final Map<String, Integer> sampleOrdinals;
+    private final String[] sampleConditions;
+    private final Map<String, int[]> conditionSamples;
+    private final float[][] heapColumns;
+    private final FloatBuffer[] directColumns;
+    private final long loadedAt;
+    private final Map<String, float[]> conditionMeans = new ConcurrentHashMap<>();
+
+    private ExpressionStore(String[] geneIds, String[] sampleIds, String[] sampleConditions, boolean offHeap) {
+        this.geneIds = geneIds;
+        this.sampleIds = sampleIds;
+        this.sampleConditions = sampleConditions;
+        this.geneOrdinals = ordinals(geneIds);
+        this.sampleOrdinals = ordinals(sampleIds);
+
+        Map<String, List<Integer>> byCondition = new LinkedHashMap<>();
+        for (int s = 0; s < sampleIds.length; s++) {
+            if (sampleConditions[s] != null)
+                byCondition.computeIfAbsent(sampleConditions[s], c -> new ArrayList<>()).add(s);
+        }
+        this.conditionSamples = new LinkedHashMap<>();
+        byCondition.forEach((condition, samples) -> conditionSamples.put(condition,
+                samples.stream().mapToInt(Integer::intValue).toArray()));
+
+        if (offHeap) {
+            this.heapColumns = null;
+            this.directColumns = new FloatBuffer[sampleIds.length];
+            for (int s = 0; s < sampleIds.length; s++) {
+                directColumns[s] = ByteBuffer.allocateDirect(geneIds.length * Float.BYTES)
+                        .order(ByteOrder.nativeOrder()).asFloatBuffer();
+            }
+        } else {
+            this.heapColumns = new float[sampleIds.length][geneIds.length];
+            this.directColumns = null;
+        }
+        this.loadedAt = System.currentTimeMillis();
+    }
+
+    public static ExpressionStore empty() {
+        return new ExpressionStore(new String[0], new String[0], new String[0], false);
+    }
+
+    /** Builds a store from raw arrays, e.g. for benchmarks; {@code set} fills it. */
+    public static ExpressionStore allocate(String[] geneIds, String[] sampleIds, String[] sampleConditions,
+            boolean offHeap) {
+        return new ExpressionStore(geneIds, sampleIds, sampleConditions, offHeap);
+    }
+
+    /** Streams genes, samples and TPM values from the graph into a new store. */
+    public static ExpressionStore load(QueryRunner runner, boolean offHeap) {
+        List<String> genes = new ArrayList<>();
+        Result geneResult = runner.run(GENES);
+        while (geneResult.hasNext()) {
+            genes.add(geneResult.next().get("geneId").asString());
+        }
+        List<String> samples = new ArrayList<>();
+        List<String> conditions = new ArrayList<>();
+        Result sampleResult = runner.run(SAMPLES);
+        while (sampleResult.hasNext()) {
+            Record record = sampleResult.next();
+            samples.add(record.get("sampleId").asString());
+            conditions.add(record.get("condition").isNull() ? null : record.get("condition").asString());
+        }
+
+        ExpressionStore store = new ExpressionStore(genes.toArray(String[]::new), samples.toArray(String[]::new),
+                conditions.toArray(String[]::new), offHeap);
+        Result edges = runner.run(EDGES);
+        while (edges.hasNext()) {
+            Record record = edges.next();
+            Integer gene = store.geneOrdinals.get(record.get("geneId").asString());
+            Integer sample = store.sampleOrdinals.get(record.get("sampleId").asString());
+            if (gene != null && sample != null)
+                store.set(gene, sample, (float) record.get("tpm").asDouble());
+        }
+        return store;
+    }
+
+    /** Only used while the store is being filled, before it is published. */
+    public void set(int gene, int sample, float value) {
+        if (heapColumns != null)
+            heapColumns[sample][gene] = value;
+        else
+            directColumns[sample].put(gene, value);
+    }
+
+    public int geneCount() {
+        return geneIds.length;
+    }
+
+    public int sampleCount() {
+        return sampleIds.length;
+    }
+
+    public boolean isOffHeap() {
+        return directColumns != null;
+    }
+
+    public long loadedAt() {
+        return loadedAt;
+    }
+
+    public long columnBytes() {
+        return (long) geneIds.length * sampleIds.length * Float.BYTES;
+    }
+
+    public String geneId(int gene) {
+        return geneIds[gene];
+    }
+
+    public Integer geneOrdinal(String geneId) {
+        return geneOrdinals.get(geneId);
+    }
+
+    public boolean hasSample(String sampleId) {
+        return sampleOrdinals.containsKey(sampleId);
+    }
+
+    public boolean hasCondition(String condition) {
+        return conditionSamples.containsKey(condition);
+    }
+
+    public List<String> sampleIds() {
+        return List.of(sampleIds);
+    }
+
+    /** Conditions with the samples (replicates) of each. */
+    public Map<String, List<String>> conditions() {
+        Map<String, List<String>> conditions = new LinkedHashMap<>();
+        conditionSamples.forEach((condition, samples) -> conditions.put(condition,
+                Arrays.stream(samples).mapToObj(s -> sampleIds[s]).toList()));
+        return conditions;
+    }
+
+    public String sampleCondition(String sampleId) {
+        Integer sample = sampleOrdinals.get(sampleId);
+        return sample != null ? sampleConditions[sample] : null;
+    }
+
+    public float value(int gene, String sampleId) {
+        int sample = sampleOrdinals.get(sampleId);
+        return heapColumns != null ? heapColumns[sample][gene] : directColumns[sample].get(gene);
+    }
+
+    /** Copy of a sample column. */
+    public float[] sampleValues(String sampleId) {
+        float[] values = new float[geneIds.length];
+        chunks(sampleOrdinals.get(sampleId), (chunk, first, length) -> System.arraycopy(chunk, 0, values, first,
+                length));
+        return values;
+    }
+
+    /** Mean TPM of each gene across the replicates of a condition; cached, do not modify. */
+    public float[] conditionMean(String condition) {
+        return conditionMeans.computeIfAbsent(condition, this::computeConditionMean);
+    }
+
+    /** Uncached {@link #conditionMean}. */
+    public float[] computeConditionMean(String condition) {
+        int[] samples = conditionSamples.get(condition);
+        float[] mean = new float[geneIds.length];
+        if (samples == null || samples.length == 0)
+            return mean;
+        for (int sample : samples) {
+            chunks(sample, (chunk, first, length) -> {
+                for (int i = 0; i < length; i++) {
+                    mean[first + i] += chunk[i];
+                }
+            });
+        }
+        float scale = 1f / samples.length;
+        for (int i = 0; i < mean.length; i++) {
+            mean[i] *= scale;
+        }
+        return mean;
+    }
+
+    /** Genes whose value is above {@code min}, highest first, at most {@code limit}. */
+    public static List<Hit> above(float[] values, float min, int limit) {
+        // Branch-free compaction of the matching ordinals
+        int[] matches = new int[values.length];
+        int count = 0;
+        for (int i = 0; i < values.length; i++) {
+            matches[count] = i;
+            count += values[i] > min ? 1 : 0;
+        }
+        if (count > limit)
+            return topK(values, limit, matches, count);
+        List<Hit> hits = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            hits.add(new Hit(matches[i], values[matches[i]]));
+        }
+        hits.sort((a, b) -> Float.compare(b.value(), a.value()));
+        return hits;
+    }
+
+    /** The {@code k} highest values, highest first. */
+    public static List<Hit> topK(float[] values, int k) {
+        return topK(values, k, null, values.length);
+    }
+
+    private static List<Hit> topK(float[] values, int k, int[] candidates, int count) {
+        k = Math.min(k, count);
+        if (k <= 0)
+            return List.of();
+        // Min-heap of gene ordinals keyed by value; most genes fail the root comparison
+        int[] heap = new int[k];
+        int size = 0;
+        for (int c = 0; c < count; c++) {
+            int gene = candidates != null ? candidates[c] : c;
+            float value = values[gene];
+            if (size < k) {
+                heap[size] = gene;
+                siftUp(heap, size++, values);
+            } else if (value > values[heap[0]]) {
+                heap[0] = gene;
+                siftDown(heap, size, values);
+            }
+        }
+        List<Hit> hits = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            hits.add(new Hit(heap[i], values[heap[i]]));
+        }
+        hits.sort((a, b) -> Float.compare(b.value(), a.value()));
+        return hits;
+    }
+
+    private static void siftUp(int[] heap, int index, float[] values) {
+        int gene = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (values[heap[parent]] <= values[gene])
+                break;
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = gene;
+    }
+
+    private static void siftDown(int[] heap, int size, float[] values) {
+        int gene = heap[0];
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size)
+                break;
+            if (child + 1 < size && values[heap[child + 1]] < values[heap[child]])
+                child++;
+            if (values[gene] <= values[heap[child]])
+                break;
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = gene;
+    }
+
+    private void chunks(int sample, ChunkConsumer consumer) {
+        if (heapColumns != null) {
+            consumer.accept(heapColumns[sample], 0, geneIds.length);
+            return;
+        }
+        float[] scratch = SCRATCH.get();
+        FloatBuffer column = directColumns[sample];
+        for (int from = 0; from < geneIds.length; from += CHUNK) {
+            int length = Math.min(CHUNK, geneIds.length - from);
+            column.get(from, scratch, 0, length);
+            consumer.accept(scratch, from, length);
+        }
+    }
+
+    private static Map<String, Integer> ordinals(String[] ids) {
+        Map<String, Integer> ordinals = new HashMap<>(ids.length * 2);
+        for (int i = 0; i < ids.length; i++) {
+            ordinals.put(ids[i], i);
+        }
+        return ordinals;
+    }
+}
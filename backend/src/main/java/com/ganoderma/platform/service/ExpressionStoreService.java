@@ -0,0 +1,175 @@
+package com.ganoderma.platform.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import com.ganoderma.platform.dto.ExpressionDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Holds the current {@link ExpressionStore} and rebuilds it from the graph at
+ * startup and after genes or expression data change. Rebuilds run on a
+ * single background thread and requests arriving during one are coalesced
+ * into a single follow-up rebuild; readers keep using the previous snapshot
+ * until the new one is complete.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExpressionStoreService {
+
+    private final Neo4jClient neo4jClient;
+
+    @Value("${ganoderma.expression.store.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ganoderma.expression.store.off-heap:false}")
+    private boolean offHeap;
+
+    private volatile ExpressionStore store = ExpressionStore.empty();
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private ExecutorService rebuilder;
+
+    @PostConstruct
+    void init() {
+        rebuilder = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "expression-store");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    public ExpressionStore store() {
+        return store;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadAtStartup() {
+        requestRebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDatasetChanged(DatasetChangedEvent event) {
+        if (event.kind() != DatasetChangedEvent.Kind.ORTHOGROUPS)
+            requestRebuild();
+    }
+
+    public void requestRebuild() {
+        if (enabled && rebuildPending.compareAndSet(false, true))
+            rebuilder.execute(this::rebuild);
+    }
+
+    public ExpressionDto.Status status() {
+        ExpressionStore current = store;
+        return ExpressionDto.Status.builder()
+                .enabled(enabled)
+                .genes(current.geneCount())
+                .samples(current.sampleCount())
+                .conditions(current.conditions())
+                .offHeap(current.isOffHeap())
+                .columnBytes(current.columnBytes())
+                .loadedAt(current.loadedAt())
+                .build();
+    }
+
+    /**
+     * Genes ranked by their mean TPM across the replicates of a condition:
+     * the {@code k} highest, or with {@code minTpm} all genes above it (up to k).
+     */
+    public Optional<ExpressionDto.Ranking> rankByCondition(String condition, Float minTpm, int k) {
+        ExpressionStore current = store;
+        if (!current.hasCondition(condition))
+            return Optional.empty();
+        float[] means = current.conditionMean(condition);
+        return Optional.of(ExpressionDto.Ranking.builder()
+                .condition(condition)
+                .statistic("mean")
+                .minTpm(minTpm)
+                .genes(rank(current, means, minTpm, k))
+                .build());
+    }
+
+    public Optional<ExpressionDto.Ranking> rankBySample(String sampleId, Float minTpm, int k) {
+        ExpressionStore current = store;
+        if (!current.hasSample(sampleId))
+            return Optional.empty();
+        return Optional.of(ExpressionDto.Ranking.builder()
+                .sampleId(sampleId)
+                .statistic("tpm")
+                .minTpm(minTpm)
+                .genes(rank(current, current.sampleValues(sampleId), minTpm, k))
+                .build());
+    }
+
+    public Optional<ExpressionDto.Profile> profile(String geneId) {
+        ExpressionStore current = store;
+        Integer gene = current.geneOrdinal(geneId);
+        if (gene == null)
+            return Optional.empty();
+        Map<String, Float> samples = new LinkedHashMap<>();
+        for (String sampleId : current.sampleIds()) {
+            samples.put(sampleId, current.value(gene, sampleId));
+        }
+        Map<String, Float> means = new LinkedHashMap<>();
+        for (String condition : current.conditions().keySet()) {
+            means.put(condition, current.conditionMean(condition)[gene]);
+        }
+        return Optional.of(ExpressionDto.Profile.builder()
+                .geneId(geneId)
+                .samples(samples)
+                .conditionMeans(means)
+                .build());
+    }
+
+    private static List<ExpressionDto.GeneValue> rank(ExpressionStore store, float[] values, Float minTpm, int k) {
+        List<ExpressionStore.Hit> hits = minTpm != null
+                ? ExpressionStore.above(values, minTpm, k)
+                : ExpressionStore.topK(values, k);
+        return hits.stream()
+                .map(hit -> ExpressionDto.GeneValue.builder()
+                        .geneId(store.geneId(hit.gene()))
+                        .tpm(hit.value())
+                        .build())
+                .toList();
+    }
+
+    private void rebuild() {
+        rebuildPending.set(false);
+        long start = System.nanoTime();
+        try {
+            ExpressionStore loaded = neo4jClient
+                    .delegateTo(runner -> Optional.of(ExpressionStore.load(runner, offHeap)))
+                    .run()
+                    .orElseThrow();
+            store = loaded;
+            log.info("Expression store loaded: {} genes x {} samples ({} MB {}) in {} ms", loaded.geneCount(),
+                    loaded.sampleCount(), loaded.columnBytes() / (1024 * 1024), offHeap ? "off-heap" : "on heap",
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            log.warn("Could not load the expression store: {}", e.getMessage());
+        }
+    }
+}
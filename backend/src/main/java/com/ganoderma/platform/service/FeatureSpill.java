@@ -0,0 +1,79 @@
+package com.ganoderma.platform.service;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded holding area for GFF lines whose parent has not been seen yet.
+ * The first {@code memoryLimit} lines are kept on heap; any further lines are
+ * appended to a temporary file, so an unsorted annotation cannot grow the
+ * heap beyond the limit.
+ */
+public class FeatureSpill implements Closeable {
+
+    private final int memoryLimit;
+    private final List<String> lines = new ArrayList<>();
+    private Path overflowFile;
+    private BufferedWriter overflow;
+    private long size;
+
+    public FeatureSpill(int memoryLimit) {
+        this.memoryLimit = memoryLimit;
+    }
+
+    public void add(String line) throws IOException {
+        if (lines.size() < memoryLimit) {
+            lines.add(line);
+        } else {
+            if (overflow == null) {
+                overflowFile = Files.createTempFile("gff-spill-", ".gff3");
+                overflow = Files.newBufferedWriter(overflowFile, StandardCharsets.UTF_8);
+            }
+            overflow.write(line);
+            overflow.write('\n');
+        }
+        size++;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Stream of all spilled lines, in-memory lines first. */
+    public InputStream open() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (String line : lines) {
+            sb.append(line).append('\n');
+        }
+        InputStream memory = new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8));
+        if (overflow == null)
+            return memory;
+        overflow.flush();
+        return new SequenceInputStream(memory, Files.newInputStream(overflowFile));
+    }
+
+    @Override
+    public void close() throws IOException {
+        lines.clear();
+        size = 0;
+        if (overflow != null) {
+            overflow.close();
+            Files.deleteIfExists(overflowFile);
+            overflow = null;
+            overflowFile = null;
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.ganoderma.platform.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Embeds "symbol: description" of every gene into {@code Gene.embedding},
+ * indexed by the {@code gene_embedding} vector index, and answers
+ * nearest-neighbour queries over it.
+ *
+ * The backfill walks genes in geneId order and only embeds those whose text
+ * (or the model) changed since the last run, tracked by a hash stored in
+ * {@code embeddingHash}; genes whose text became empty lose their embedding.
+ * Texts go to the model {@code batch-size} at a time
+ * and vectors are written as float32 arrays with
+ * {@code db.create.setNodeVectorProperty}. Backfills run on one background
+ * thread at startup and after gene loads; requests arriving during one are
+ * coalesced into a single follow-up run.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GeneEmbeddingService {
+
+    private static final String INDEX = "gene_embedding";
+
+    private static final String INDEX_DIMENSIONS = """
+            SHOW INDEXES YIELD name, options
+            WHERE name = $name
+            RETURN options.indexConfig['vector.dimensions'] AS dimensions
+            """;
+
+    private static final String CREATE_INDEX = """
+            CREATE VECTOR INDEX gene_embedding IF NOT EXISTS FOR (g:Gene) ON (g.embedding)
+            OPTIONS {indexConfig: {`vector.dimensions`: %d, `vector.similarity_function`: 'cosine'}}
+            """;
+
+    private static final String GENE_PAGE = """
+            MATCH (g:Gene) WHERE g.geneId > $after
+            RETURN g.geneId AS geneId, g.symbol AS symbol, g.description AS description,
+                   g.embeddingHash AS embeddingHash
+            ORDER BY g.geneId
+            LIMIT $limit
+            """;
+
+    private static final String WRITE_EMBEDDINGS = """
+            UNWIND $rows AS row
+            MATCH (g:Gene {geneId: row.geneId})
+            CALL db.create.setNodeVectorProperty(g, 'embedding', row.vector)
+            SET g.embeddingHash = row.hash
+            """;
+
+    private static final String CLEAR_EMBEDDINGS = """
+            UNWIND $ids AS id
+            MATCH (g:Gene {geneId: id})
+            REMOVE g.embedding, g.embeddingHash
+            """;
+
+    private static final String SIMILAR_GENES = """
+            CALL db.index.vector.queryNodes('gene_embedding', $k, $vector) YIELD node, score
+            WHERE score >= $minScore
+            WITH node, score, head([(node)-[:FOUND_IN]->(i:Isolate) | i]) AS i
+            RETURN node.geneId AS geneId, node.symbol AS symbol, node.description AS description,
+                   i.name AS isolate, i.originCountry AS country,
+                   head([(node)-[:BELONGS_TO_OG]->(og:Orthogroup) | og.groupId]) AS orthogroup, score
+            ORDER BY score DESC
+            """;
+
+    private final Neo4jClient neo4jClient;
+    private final ObjectProvider<EmbeddingModel> embeddingModels;
+
+    @Value("${ganoderma.embedding.enabled:true}")
+    private boolean enabled;
+
+    // "local" (HashingEmbeddingModel) or "spring" (the Spring AI EmbeddingModel bean)
+    @Value("${ganoderma.embedding.provider:local}")
+    private String provider;
+
+    @Value("${ganoderma.embedding.dimensions:384}")
+    private int localDimensions;
+
+    // Cosine scores are scaled to [0, 1]; 0.5 means unrelated
+    @Value("${ganoderma.embedding.min-score:0.7}")
+    private double minScore;
+
+    @Value("${ganoderma.embedding.batch-size:256}")
+    private int batchSize;
+
+    @Value("${ganoderma.embedding.page-size:10000}")
+    private int pageSize;
+
+    private EmbeddingModel model;
+    private String modelId;
+    private final AtomicBoolean backfillPending = new AtomicBoolean();
+    private ExecutorService backfiller;
+
+    @PostConstruct
+    void init() {
+        if ("spring".equals(provider)) {
+            model = embeddingModels.getObject();
+            modelId = model.getClass().getSimpleName();
+        } else {
+            model = new HashingEmbeddingModel(localDimensions);
+            modelId = "hashing-" + localDimensions;
+        }
+        backfiller = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "gene-embeddings");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        backfiller.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillAtStartup() {
+        requestBackfill();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDatasetChanged(DatasetChangedEvent event) {
+        if (event.kind() == DatasetChangedEvent.Kind.GENES)
+            requestBackfill();
+    }
+
+    public void requestBackfill() {
+        if (enabled && backfillPending.compareAndSet(false, true))
+            backfiller.execute(this::backfill);
+    }
+
+    public float[] embed(String text) {
+        return model.embed(text);
+    }
+
+    /** Up to {@code k} genes whose embedding is closest (cosine) to {@code vector}, above min-score. */
+    public List<SearchService.Hit> findSimilarGenes(float[] vector, int k) {
+        List<Float> values = new ArrayList<>(vector.length);
+        for (float v : vector)
+            values.add(v);
+        List<SearchService.Hit> hits = new ArrayList<>();
+        for (Map<String, Object> row : neo4jClient.query(SIMILAR_GENES)
+                .bindAll(Map.of("k", k, "vector", values, "minScore", minScore))
+                .fetch().all()) {
+            hits.add(new SearchService.Hit(
+                    SearchService.Kind.GENE,
+                    (String) row.get("geneId"),
+                    (String) row.get("symbol"),
+                    (String) row.get("description"),
+                    null,
+                    (String) row.get("country"),
+                    (String) row.get("isolate"),
+                    (String) row.get("orthogroup"),
+                    ((Number) row.get("score")).doubleValue()));
+        }
+        return hits;
+    }
+
+    private void backfill() {
+        backfillPending.set(false);
+        long start = System.nanoTime();
+        try {
+            ensureIndex();
+            long scanned = 0;
+            long embedded = 0;
+            long cleared = 0;
+            List<Map<String, Object>> pending = new ArrayList<>(batchSize);
+            List<String> emptied = new ArrayList<>();
+            String after = "";
+            while (true) {
+                List<Map<String, Object>> page = new ArrayList<>(neo4jClient.query(GENE_PAGE)
+                        .bindAll(Map.of("after", after, "limit", pageSize))
+                        .fetch().all());
+                if (page.isEmpty())
+                    break;
+                for (Map<String, Object> gene : page) {
+                    String text = text((String) gene.get("symbol"), (String) gene.get("description"));
+                    if (text.isEmpty()) {
+                        if (gene.get("embeddingHash") != null)
+                            emptied.add((String) gene.get("geneId"));
+                        if (emptied.size() >= batchSize)
+                            cleared += clear(emptied);
+                        continue;
+                    }
+                    String hash = hash(text);
+                    if (hash.equals(gene.get("embeddingHash")))
+                        continue;
+                    Map<String, Object> row = new HashMap<>();
+                    row.put("geneId", gene.get("geneId"));
+                    row.put("text", text);
+                    row.put("hash", hash);
+                    pending.add(row);
+                    if (pending.size() >= batchSize)
+                        embedded += write(pending);
+                }
+                scanned += page.size();
+                after = (String) page.get(page.size() - 1).get("geneId");
+            }
+            embedded += write(pending);
+            cleared += clear(emptied);
+            log.info("Gene embeddings ({}): {} of {} genes embedded, {} cleared, in {} ms", modelId, embedded,
+                    scanned, cleared, (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            log.warn("Could not backfill gene embeddings: {}", e.getMessage());
+        }
+    }
+
+    private int write(List<Map<String, Object>> rows) {
+        if (rows.isEmpty())
+            return 0;
+        List<String> texts = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows)
+            texts.add((String) row.remove("text"));
+        List<float[]> vectors = model.embed(texts);
+        for (int i = 0; i < rows.size(); i++) {
+            float[] vector = vectors.get(i);
+            List<Float> values = new ArrayList<>(vector.length);
+            for (float v : vector)
+                values.add(v);
+            rows.get(i).put("vector", values);
+        }
+        neo4jClient.query(WRITE_EMBEDDINGS).bind(rows).to("rows").run();
+        int written = rows.size();
+        rows.clear();
+        return written;
+    }
+
+    private int clear(List<String> geneIds) {
+        if (geneIds.isEmpty())
+            return 0;
+        neo4jClient.query(CLEAR_EMBEDDINGS).bind(geneIds).to("ids").run();
+        int cleared = geneIds.size();
+        geneIds.clear();
+        return cleared;
+    }
+
+    // Recreates the index when the model's dimensions changed; the new model id
+    // in the hashes then re-embeds every gene
+    private void ensureIndex() {
+        int dimensions = model.dimensions();
+        Object existing = neo4jClient.query(INDEX_DIMENSIONS).bind(INDEX).to("name")
+                .fetch().one()
+                .map(row -> row.get("dimensions"))
+                .orElse(null);
+        if (existing instanceof Number n && n.intValue() != dimensions) {
+            log.info("Recreating {} for {} dimensions (was {})", INDEX, dimensions, n);
+            neo4jClient.query("DROP INDEX " + INDEX).run();
+        }
+        neo4jClient.query(CREATE_INDEX.formatted(dimensions)).run();
+    }
+
+    private static String text(String symbol, String description) {
+        boolean hasSymbol = symbol != null && !symbol.isBlank();
+        boolean hasDescription = description != null && !description.isBlank();
+        if (hasSymbol && hasDescription)
+            return symbol + ": " + description;
+        return hasSymbol ? symbol : hasDescription ? description : "";
+    }
+
+    /** FNV-1a of the model id and the embedded text, as 16 hex digits. */
+    private String hash(String text) {
+        long hash = 0xcbf29ce484222325L;
+        String key = modelId + '\n' + text;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return HexFormat.of().toHexDigits(hash);
+    }
+}
@@ -2,10 +2,15 @@ package com.ganoderma.platform.service;
 
 import com.ganoderma.platform.model.Gene;
 import com.ganoderma.platform.repository.GeneRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import lombok.RequiredArgsConstructor;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -13,6 +18,10 @@ import java.util.Optional;
 public class GeneService {
 
     private final GeneRepository geneRepository;
+    private final SearchService searchService;
+
+    @Value("${ganoderma.search.max-results:100}")
+    private int maxResults;
 
     @Transactional(readOnly = true)
     public List<Gene> findAll() {
@@ -24,9 +33,24 @@ public class GeneService {
         return geneRepository.findByGeneId(geneId);
     }
 
+    /**
+     * Genes whose symbol has every word of {@code symbol} as a whole term or
+     * a prefix, best match first; text inside a word is not matched, so
+     * "ox42" does not find "Tox42".
+     */
     @Transactional(readOnly = true)
-    public List<Gene> searchBySymbol(String symbol) {
-        return geneRepository.findBySymbolLike("*" + symbol + "*");
+    public List<Gene> searchBySymbol(String symbol, Integer limit) {
+        int max = limit == null || limit <= 0 ? maxResults : Math.min(limit, maxResults);
+        List<String> ids = searchService.search(symbol, "symbol", EnumSet.of(SearchService.Kind.GENE), max).stream()
+                .map(SearchService.Hit::id)
+                .toList();
+        // Keep the search ranking
+        Map<String, Integer> rank = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++)
+            rank.put(ids.get(i), i);
+        List<Gene> genes = geneRepository.findAllById(ids);
+        genes.sort(Comparator.comparing(g -> rank.get(g.getGeneId())));
+        return genes;
     }
 
     @Transactional(readOnly = true)
@@ -0,0 +1,411 @@
+package com.ganoderma.platform.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reusable GFF3 line reader that tokenizes records in place.
+ *
+ * Lines are scanned directly in a byte buffer: columns and attribute values are
+ * handed out as {@link CharSequence} views over that buffer instead of split
+ * arrays and per-line maps. Views are only valid until the next call to
+ * {@link #next()}; call {@code toString()} or {@link #attributeValue(String)}
+ * to keep a value. Attribute values are percent-decoded as required by GFF3.
+ * Input ends at a ##FASTA directive: the sequences after it are not read.
+ */
+public class Gff3RecordReader implements Closeable {
+
+    // GFF3 columns
+    public static final int SEQID = 0;
+    public static final int SOURCE = 1;
+    public static final int TYPE = 2;
+    public static final int START = 3;
+    public static final int END = 4;
+    public static final int SCORE = 5;
+    public static final int STRAND = 6;
+    public static final int PHASE = 7;
+    public static final int ATTRIBUTES = 8;
+
+    private static final int COLUMN_COUNT = 9;
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private byte[] buf;
+    private int limit; // Number of valid bytes in buf
+    private int pos; // Start of the next unread line in buf
+    private long bufferOffset; // Absolute stream offset of buf[0]
+    private boolean eof;
+    private boolean fasta; // ##FASTA seen; the annotation section is over
+
+    // Current line
+    private int lineStart;
+    private int lineEnd; // Exclusive, without the line terminator
+    private long lineOffset;
+    private long nextLineOffset;
+    private int columnCount;
+    private final int[] columnStart = new int[COLUMN_COUNT];
+    private final int[] columnEnd = new int[COLUMN_COUNT];
+
+    private final Slice[] columns = new Slice[COLUMN_COUNT];
+    private final Slice attributeView = new Slice();
+    private final int[] attributeRange = new int[2];
+    private byte[] decodeScratch = new byte[256];
+
+    public Gff3RecordReader(InputStream in) {
+        this(in, DEFAULT_BUFFER_SIZE, 0L);
+    }
+
+    /**
+     * @param startOffset absolute offset of the first byte of {@code in}, used
+     *                    when resuming a file part way through
+     */
+    public Gff3RecordReader(InputStream in, int bufferSize, long startOffset) {
+        this.in = in;
+        this.buf = new byte[Math.max(bufferSize, 1024)];
+        this.bufferOffset = startOffset;
+        this.nextLineOffset = startOffset;
+        for (int i = 0; i < COLUMN_COUNT; i++) {
+            columns[i] = new Slice();
+        }
+    }
+
+    /**
+     * Advances to the next line, including comments and blank lines.
+     *
+     * @return false at end of input or at a ##FASTA directive
+     */
+    public boolean next() throws IOException {
+        if (fasta)
+            return false;
+        int newline = findNewline(pos);
+        while (newline < 0 && !eof) {
+            fill();
+            newline = findNewline(pos);
+        }
+        if (newline < 0) {
+            if (pos >= limit)
+                return false;
+            newline = limit; // Last line without terminator
+        }
+
+        lineStart = pos;
+        lineEnd = newline;
+        pos = newline < limit ? newline + 1 : limit;
+        if (lineEnd > lineStart && buf[lineEnd - 1] == '\r')
+            lineEnd--;
+        lineOffset = bufferOffset + lineStart;
+        nextLineOffset = bufferOffset + pos;
+        tokenize();
+        if (isDirective() && regionEquals(lineStart, lineEnd, "##FASTA", false)) {
+            fasta = true;
+            return false;
+        }
+        return true;
+    }
+
+    private int findNewline(int from) {
+        byte[] b = buf;
+        for (int i = from; i < limit; i++) {
+            if (b[i] == '\n')
+                return i;
+        }
+        return -1;
+    }
+
+    private void fill() throws IOException {
+        // Compact the unread tail to the front, growing the buffer for very long lines
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            bufferOffset += pos;
+            pos = 0;
+        } else if (limit == buf.length) {
+            byte[] grown = new byte[buf.length * 2];
+            System.arraycopy(buf, 0, grown, 0, limit);
+            buf = grown;
+        }
+        int read = in.read(buf, limit, buf.length - limit);
+        if (read < 0) {
+            eof = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    private void tokenize() {
+        columnCount = 0;
+        if (lineEnd == lineStart || buf[lineStart] == '#')
+            return;
+        int start = lineStart;
+        for (int i = lineStart; i < lineEnd && columnCount < COLUMN_COUNT - 1; i++) {
+            if (buf[i] == '\t') {
+                columnStart[columnCount] = start;
+                columnEnd[columnCount] = i;
+                columnCount++;
+                start = i + 1;
+            }
+        }
+        columnStart[columnCount] = start;
+        columnEnd[columnCount] = lineEnd;
+        columnCount++;
+    }
+
+    /** True for a line with the nine GFF3 columns. */
+    public boolean isFeature() {
+        return columnCount == COLUMN_COUNT;
+    }
+
+    /** True for comment lines, including ## directives. */
+    public boolean isComment() {
+        return lineEnd > lineStart && buf[lineStart] == '#';
+    }
+
+    /** True for ## directive lines such as ##sequence-region or ###. */
+    public boolean isDirective() {
+        return lineEnd - lineStart >= 2 && buf[lineStart] == '#' && buf[lineStart + 1] == '#';
+    }
+
+    public int columnCount() {
+        return columnCount;
+    }
+
+    /** Raw (not percent-decoded) view of a column, valid until {@link #next()}. */
+    public CharSequence column(int index) {
+        checkColumn(index);
+        return columns[index].set(columnStart[index], columnEnd[index]);
+    }
+
+    public boolean columnEquals(int index, String value) {
+        checkColumn(index);
+        return regionEquals(columnStart[index], columnEnd[index], value, false);
+    }
+
+    public boolean columnEqualsIgnoreCase(int index, String value) {
+        checkColumn(index);
+        return regionEquals(columnStart[index], columnEnd[index], value, true);
+    }
+
+    /** Parses an integer column (start, end) without allocating. */
+    public long columnAsLong(int index) {
+        checkColumn(index);
+        int from = columnStart[index];
+        int to = columnEnd[index];
+        if (from == to)
+            throw new NumberFormatException("Empty column " + index);
+        boolean negative = buf[from] == '-';
+        if (negative)
+            from++;
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = buf[i] - '0';
+            if (digit < 0 || digit > 9)
+                throw new NumberFormatException("Invalid number in column " + index + ": " + column(index));
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /** Decoded copy of a column. */
+    public String columnValue(int index) {
+        checkColumn(index);
+        return decode(columnStart[index], columnEnd[index]);
+    }
+
+    /**
+     * Raw view of the value of a column-9 attribute, or null when absent. For
+     * multi-valued attributes (Parent=a,b) the whole comma separated list is
+     * returned.
+     */
+    public CharSequence attribute(String key) {
+        int[] range = findAttribute(key);
+        return range == null ? null : attributeView.set(range[0], range[1]);
+    }
+
+    /** Percent-decoded value of an attribute, or null when absent. */
+    public String attributeValue(String key) {
+        int[] range = findAttribute(key);
+        return range == null ? null : decode(range[0], range[1]);
+    }
+
+    /** Percent-decoded first value of a multi-valued attribute, or null when absent. */
+    public String firstAttributeValue(String key) {
+        int[] range = findAttribute(key);
+        if (range == null)
+            return null;
+        int end = range[0];
+        while (end < range[1] && buf[end] != ',')
+            end++;
+        return decode(range[0], end);
+    }
+
+    /** Raw view of the first value of a multi-valued attribute, or null when absent. */
+    public CharSequence firstAttribute(String key) {
+        int[] range = findAttribute(key);
+        if (range == null)
+            return null;
+        int end = range[0];
+        while (end < range[1] && buf[end] != ',')
+            end++;
+        return attributeView.set(range[0], end);
+    }
+
+    public boolean hasAttribute(String key) {
+        return findAttribute(key) != null;
+    }
+
+    private int[] findAttribute(String key) {
+        if (columnCount != COLUMN_COUNT)
+            return null;
+        int i = columnStart[ATTRIBUTES];
+        int end = columnEnd[ATTRIBUTES];
+        while (i < end) {
+            // Skip separators and surrounding spaces
+            while (i < end && (buf[i] == ';' || buf[i] == ' '))
+                i++;
+            int keyStart = i;
+            while (i < end && buf[i] != '=' && buf[i] != ';')
+                i++;
+            if (i >= end || buf[i] == ';')
+                continue; // Attribute without value
+            int keyEnd = i;
+            while (keyEnd > keyStart && buf[keyEnd - 1] == ' ')
+                keyEnd--;
+            int valueStart = ++i;
+            while (i < end && buf[i] != ';')
+                i++;
+            if (regionEquals(keyStart, keyEnd, key, false)) {
+                int valueEnd = i;
+                while (valueStart < valueEnd && buf[valueStart] == ' ')
+                    valueStart++;
+                while (valueEnd > valueStart && buf[valueEnd - 1] == ' ')
+                    valueEnd--;
+                attributeRange[0] = valueStart;
+                attributeRange[1] = valueEnd;
+                return attributeRange;
+            }
+        }
+        return null;
+    }
+
+    /** Copy of the current raw line, without terminator. */
+    public String line() {
+        return new String(buf, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8);
+    }
+
+    /** Absolute byte offset of the current line. */
+    public long lineOffset() {
+        return lineOffset;
+    }
+
+    /** Absolute byte offset just past the current line terminator. */
+    public long nextLineOffset() {
+        return nextLineOffset;
+    }
+
+    private boolean regionEquals(int from, int to, String value, boolean ignoreCase) {
+        int length = to - from;
+        if (length != value.length())
+            return false;
+        for (int i = 0; i < length; i++) {
+            char a = (char) (buf[from + i] & 0xff);
+            char b = value.charAt(i);
+            if (a != b && !(ignoreCase && Character.toLowerCase(a) == Character.toLowerCase(b)))
+                return false;
+        }
+        return true;
+    }
+
+    private String decode(int from, int to) {
+        int percent = -1;
+        for (int i = from; i < to; i++) {
+            if (buf[i] == '%') {
+                percent = i;
+                break;
+            }
+        }
+        if (percent < 0)
+            return new String(buf, from, to - from, StandardCharsets.UTF_8);
+
+        if (decodeScratch.length < to - from)
+            decodeScratch = new byte[Math.max(to - from, decodeScratch.length * 2)];
+        int n = 0;
+        for (int i = from; i < to; i++) {
+            byte b = buf[i];
+            if (b == '%' && i + 2 < to) {
+                int hi = Character.digit(buf[i + 1], 16);
+                int lo = Character.digit(buf[i + 2], 16);
+                if (hi >= 0 && lo >= 0) {
+                    decodeScratch[n++] = (byte) ((hi << 4) | lo);
+                    i += 2;
+                    continue;
+                }
+            }
+            decodeScratch[n++] = b;
+        }
+        return new String(decodeScratch, 0, n, StandardCharsets.UTF_8);
+    }
+
+    /** Percent-decodes a raw GFF3 value held outside of a reader, e.g. an interned ID. */
+    public static String percentDecode(byte[] bytes, int from, int to) {
+        byte[] decoded = new byte[to - from];
+        int n = 0;
+        for (int i = from; i < to; i++) {
+            byte b = bytes[i];
+            if (b == '%' && i + 2 < to) {
+                int hi = Character.digit(bytes[i + 1], 16);
+                int lo = Character.digit(bytes[i + 2], 16);
+                if (hi >= 0 && lo >= 0) {
+                    decoded[n++] = (byte) ((hi << 4) | lo);
+                    i += 2;
+                    continue;
+                }
+            }
+            decoded[n++] = b;
+        }
+        return new String(decoded, 0, n, StandardCharsets.UTF_8);
+    }
+
+    private void checkColumn(int index) {
+        if (index < 0 || index >= columnCount)
+            throw new IndexOutOfBoundsException("Column " + index + " of " + columnCount);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /** Flyweight view over a region of the current line. */
+    private final class Slice implements CharSequence {
+        private int from;
+        private int to;
+
+        private Slice set(int from, int to) {
+            this.from = from;
+            this.to = to;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return to - from;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buf[from + index] & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new Slice().set(from + start, from + end);
+        }
+
+        @Override
+        public String toString() {
+            return new String(buf, from, to - from, StandardCharsets.UTF_8);
+        }
+    }
+}
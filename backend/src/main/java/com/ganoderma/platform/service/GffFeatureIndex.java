@@ -0,0 +1,201 @@
+package com.ganoderma.platform.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Compact ID -> ordinal index for the features of one resolution scope
+ * (typically a chromosome, or the span between two ### directives).
+ *
+ * IDs are interned once into a shared byte arena and looked up through an
+ * open-addressing table of ints, so a feature costs a few array slots instead
+ * of a String, a map entry and a node object. Per-feature data (kind, parent
+ * ordinal and a numeric accumulator) lives in parallel primitive arrays.
+ */
+public class GffFeatureIndex {
+
+    public static final byte KIND_GENE = 1;
+    public static final byte KIND_MRNA = 2;
+    public static final byte KIND_ALIAS = 3; // Interned string with no feature of its own (protein IDs)
+
+    private static final int NONE = -1;
+
+    // Arena of raw ID bytes; ordinal i spans [keyOffset[i], keyOffset[i + 1])
+    private byte[] arena = new byte[64 * 1024];
+    private int arenaSize;
+    private int[] keyOffset = new int[1025];
+
+    private byte[] kind = new byte[1024];
+    private int[] parent = new int[1024];
+    private int[] link = new int[1024]; // Ordinal of an associated alias (e.g. protein_id of an mRNA)
+    private long[] accumulator = new long[1024]; // e.g. total CDS length of an mRNA
+    private int[] slotOf = new int[1024];
+    private int size;
+
+    // Open-addressing table: ordinal + 1, 0 = empty
+    private int[] table = new int[2048];
+    private int mask = table.length - 1;
+
+    public int size() {
+        return size;
+    }
+
+    /** Ordinal of {@code id}, or -1 when it has not been added. */
+    public int find(CharSequence id) {
+        int hash = hash(id);
+        for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0)
+                return NONE;
+            if (keyEquals(entry - 1, id))
+                return entry - 1;
+        }
+    }
+
+    /**
+     * Adds {@code id} or returns its existing ordinal. The kind and parent are
+     * only set when the entry is new or was previously an alias.
+     */
+    public int add(CharSequence id, byte featureKind, int parentOrdinal) {
+        int hash = hash(id);
+        int slot = hash & mask;
+        for (;; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0)
+                break;
+            if (keyEquals(entry - 1, id)) {
+                int ordinal = entry - 1;
+                if (kind[ordinal] == KIND_ALIAS && featureKind != KIND_ALIAS) {
+                    kind[ordinal] = featureKind;
+                    parent[ordinal] = parentOrdinal;
+                }
+                return ordinal;
+            }
+        }
+
+        int ordinal = size++;
+        ensureCapacity(size, id.length());
+        int offset = keyOffset[ordinal];
+        for (int i = 0; i < id.length(); i++) {
+            arena[offset + i] = (byte) id.charAt(i);
+        }
+        arenaSize = offset + id.length();
+        keyOffset[ordinal + 1] = arenaSize;
+        kind[ordinal] = featureKind;
+        parent[ordinal] = parentOrdinal;
+        link[ordinal] = NONE;
+        accumulator[ordinal] = 0;
+        table[slot] = ordinal + 1;
+        slotOf[ordinal] = slot;
+
+        if (size * 2 > table.length)
+            rehash(table.length * 2);
+        return ordinal;
+    }
+
+    public byte kind(int ordinal) {
+        return kind[ordinal];
+    }
+
+    public int parent(int ordinal) {
+        return parent[ordinal];
+    }
+
+    public int link(int ordinal) {
+        return link[ordinal];
+    }
+
+    public void setLink(int ordinal, int linkedOrdinal) {
+        link[ordinal] = linkedOrdinal;
+    }
+
+    public long accumulator(int ordinal) {
+        return accumulator[ordinal];
+    }
+
+    public void accumulate(int ordinal, long delta) {
+        accumulator[ordinal] += delta;
+    }
+
+    /** Percent-decoded ID of an ordinal; allocates the returned String only. */
+    public String id(int ordinal) {
+        int from = keyOffset[ordinal];
+        int to = keyOffset[ordinal + 1];
+        for (int i = from; i < to; i++) {
+            if (arena[i] == '%')
+                return Gff3RecordReader.percentDecode(arena, from, to);
+        }
+        return new String(arena, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    /** Empties the index, keeping the allocated capacity for the next scope. */
+    public void clear() {
+        if (size * 8 < table.length) {
+            for (int i = 0; i < size; i++) {
+                table[slotOf[i]] = 0;
+            }
+        } else {
+            Arrays.fill(table, 0);
+        }
+        size = 0;
+        arenaSize = 0;
+    }
+
+    private boolean keyEquals(int ordinal, CharSequence id) {
+        int from = keyOffset[ordinal];
+        int length = keyOffset[ordinal + 1] - from;
+        if (length != id.length())
+            return false;
+        for (int i = 0; i < length; i++) {
+            if (arena[from + i] != (byte) id.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    private static int hash(CharSequence id) {
+        // FNV-1a over the low byte of each char, matching what is stored in the arena
+        int h = 0x811c9dc5;
+        for (int i = 0; i < id.length(); i++) {
+            h ^= (byte) id.charAt(i) & 0xff;
+            h *= 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private int hashOf(int ordinal) {
+        int h = 0x811c9dc5;
+        for (int i = keyOffset[ordinal]; i < keyOffset[ordinal + 1]; i++) {
+            h ^= arena[i] & 0xff;
+            h *= 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private void ensureCapacity(int entries, int keyLength) {
+        if (entries >= kind.length) {
+            int capacity = kind.length * 2;
+            kind = Arrays.copyOf(kind, capacity);
+            parent = Arrays.copyOf(parent, capacity);
+            link = Arrays.copyOf(link, capacity);
+            accumulator = Arrays.copyOf(accumulator, capacity);
+            slotOf = Arrays.copyOf(slotOf, capacity);
+            keyOffset = Arrays.copyOf(keyOffset, capacity + 1);
+        }
+        if (arenaSize + keyLength > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaSize + keyLength));
+        }
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        mask = capacity - 1;
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            int slot = hashOf(ordinal) & mask;
+            while (table[slot] != 0)
+                slot = (slot + 1) & mask;
+            table[slot] = ordinal + 1;
+            slotOf[ordinal] = slot;
+        }
+    }
+}
@@ -0,0 +1,496 @@
+package com.ganoderma.platform.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Single-pass GFF3 ingestion of the gene -> mRNA -> CDS/exon hierarchy.
+ *
+ * Features are resolved through {@link GffFeatureIndex} within a scope that
+ * ends at each ### directive or change of seqid. Children that arrive before
+ * their parent go to a bounded {@link FeatureSpill} and are replayed when the
+ * scope ends. Genes, proteins (gene -ENCODES-> protein, length from the CDS)
+ * and sequences (assembly -COMPOSED_OF-> sequence) are written in batches
+ * through {@link GraphBatchWriter}.
+ *
+ * Whenever batches have been written and a scope ends, everything buffered is
+ * flushed and the offset of the next unread line is reported as a checkpoint.
+ * Writes are idempotent MERGEs, so resuming from the last reported offset
+ * after a crash re-applies at most one checkpoint interval.
+ *
+ * In incremental mode each batch of genes is compared with the content hashes
+ * already stored for those IDs (one read per batch) and only new or changed
+ * genes are written; proteins are only written when their length changed, and
+ * proteins a gene no longer encodes are removed when its scope ends. Pending
+ * orthogroup memberships are linked for unchanged genes too. Genes of the
+ * isolate that no longer appear in the file are deleted once the whole file
+ * has been read.
+ */
+@Slf4j
+public class GffIngestionEngine implements Closeable {
+
+    private static final int MAX_REPLAY_PASSES = 3; // gene -> mRNA -> CDS depth
+
+    // Columns that determine a gene's stored properties
+    private static final int[] HASHED_COLUMNS = { Gff3RecordReader.SEQID, Gff3RecordReader.START,
+            Gff3RecordReader.END, Gff3RecordReader.STRAND, Gff3RecordReader.ATTRIBUTES };
+
+    /** Receives the byte offset up to which all input has been committed. */
+    @FunctionalInterface
+    public interface CheckpointListener {
+        void onCheckpoint(long committedOffset);
+    }
+
+    private final GraphBatchWriter writer;
+    private final String isolateName;
+    private final int batchSize;
+    private final int spillLimit;
+    private final IngestionStats stats;
+    private final CheckpointListener checkpointListener;
+    private final boolean incremental;
+    private boolean flushedSinceCheckpoint;
+    private final GffFeatureIndex index = new GffFeatureIndex();
+    // Every (decoded) gene ID of the run, for deletions; incremental only. Not a GffFeatureIndex, which
+    // keeps one byte per char and is only exact for the raw bytes of a record
+    private final Set<String> genesInFile;
+    private FeatureSpill spill;
+
+    private String assemblyVersion = "default";
+    private final Map<String, Long> declaredLengths = new HashMap<>(); // ##sequence-region
+    private String currentSeqId;
+    private long currentSeqMaxEnd;
+
+    private final List<Map<String, Object>> geneRows;
+    private final List<Map<String, Object>> proteinRows;
+    private final List<Map<String, Object>> sequenceRows = new ArrayList<>();
+
+    public GffIngestionEngine(GraphBatchWriter writer, String isolateName, int batchSize, int spillLimit,
+            IngestionStats stats) {
+        this(writer, isolateName, batchSize, spillLimit, stats, offset -> {
+        });
+    }
+
+    public GffIngestionEngine(GraphBatchWriter writer, String isolateName, int batchSize, int spillLimit,
+            IngestionStats stats, CheckpointListener checkpointListener) {
+        this(writer, isolateName, batchSize, spillLimit, stats, checkpointListener, false);
+    }
+
+    public GffIngestionEngine(GraphBatchWriter writer, String isolateName, int batchSize, int spillLimit,
+            IngestionStats stats, CheckpointListener checkpointListener, boolean incremental) {
+        this.writer = writer;
+        this.isolateName = isolateName;
+        this.batchSize = batchSize;
+        this.spillLimit = spillLimit;
+        this.stats = stats;
+        this.checkpointListener = checkpointListener;
+        this.incremental = incremental;
+        this.genesInFile = incremental ? new HashSet<>() : null;
+        this.spill = new FeatureSpill(spillLimit);
+        this.geneRows = new ArrayList<>(batchSize);
+        this.proteinRows = new ArrayList<>(batchSize);
+    }
+
+    /** Processes the current line of {@code record}. */
+    public void accept(Gff3RecordReader record) throws IOException {
+        if (record.isDirective()) {
+            handleDirective(record);
+            return;
+        }
+        if (!record.isFeature())
+            return;
+
+        long end;
+        try {
+            end = record.columnAsLong(Gff3RecordReader.END);
+            record.columnAsLong(Gff3RecordReader.START);
+        } catch (NumberFormatException e) {
+            log.warn("Skipping GFF line with invalid coordinates: {}", record.line());
+            return;
+        }
+
+        CharSequence seqId = record.column(Gff3RecordReader.SEQID);
+        if (currentSeqId == null || !currentSeqId.contentEquals(seqId)) {
+            endSequence();
+            endScope(record.lineOffset());
+            currentSeqId = seqId.toString();
+            currentSeqMaxEnd = 0;
+        }
+        currentSeqMaxEnd = Math.max(currentSeqMaxEnd, end);
+
+        if (!resolve(record)) {
+            spill.add(record.line());
+            stats.featureSpilled();
+        }
+    }
+
+    /**
+     * Resolves everything still pending and writes the remaining batches.
+     *
+     * @param endOffset offset just past the last line read, reported as the final checkpoint
+     */
+    public void finish(long endOffset) throws IOException {
+        endSequence();
+        replaySpill();
+        emitProteins();
+        index.clear();
+        checkpoint(endOffset);
+        if (incremental)
+            deleteMissingGenes();
+    }
+
+    /**
+     * Feeds a line preceding the resume offset of a file: header directives
+     * (##genome-build, ##sequence-region) are restored, and in incremental
+     * mode gene IDs are remembered so they are not deleted at the end.
+     *
+     * @return false once the rest of the prefix is not needed
+     */
+    public boolean acceptPrefix(Gff3RecordReader record) throws IOException {
+        if (record.isDirective() && !record.line().startsWith("###"))
+            handleDirective(record);
+        if (!incremental)
+            return !record.isFeature();
+        if (record.isFeature() && record.columnEqualsIgnoreCase(Gff3RecordReader.TYPE, "gene")) {
+            String id = record.attributeValue("ID");
+            if (id != null)
+                genesInFile.add(id);
+        }
+        return true;
+    }
+
+    private void handleDirective(Gff3RecordReader record) throws IOException {
+        String line = record.line();
+        if (line.startsWith("###")) {
+            // All forward references up to here are resolved
+            endScope(record.nextLineOffset());
+        } else if (line.startsWith("##sequence-region")) {
+            String[] parts = line.trim().split("\\s+");
+            if (parts.length >= 4) {
+                try {
+                    declaredLengths.put(parts[1], Long.parseLong(parts[3]));
+                } catch (NumberFormatException e) {
+                    log.warn("Ignoring malformed directive: {}", line);
+                }
+            }
+        } else if (line.startsWith("##genome-build")) {
+            String[] parts = line.trim().split("\\s+");
+            if (parts.length >= 3)
+                assemblyVersion = parts[2];
+        }
+    }
+
+    /**
+     * Indexes a feature and links it to its parent.
+     *
+     * @return false if the parent is not known yet and the line must be spilled
+     */
+    private boolean resolve(Gff3RecordReader record) throws IOException {
+        if (record.columnEqualsIgnoreCase(Gff3RecordReader.TYPE, "gene")) {
+            Map<String, Object> row = parseGeneRecord(record);
+            if (row == null)
+                return true;
+            CharSequence id = record.attribute("ID");
+            if (id != null)
+                index.add(id, GffFeatureIndex.KIND_GENE, -1);
+            if (incremental)
+                genesInFile.add((String) row.get("id"));
+            geneRows.add(row);
+            if (geneRows.size() >= batchSize)
+                flushGenes();
+            return true;
+        }
+
+        boolean mrna = record.columnEqualsIgnoreCase(Gff3RecordReader.TYPE, "mRNA")
+                || record.columnEqualsIgnoreCase(Gff3RecordReader.TYPE, "transcript");
+        boolean cds = !mrna && record.columnEquals(Gff3RecordReader.TYPE, "CDS");
+        boolean exon = !mrna && !cds && record.columnEquals(Gff3RecordReader.TYPE, "exon");
+        if (!mrna && !cds && !exon)
+            return true; // Other feature types are not modelled
+
+        CharSequence parentId = record.firstAttribute("Parent");
+        if (parentId == null) {
+            stats.featuresOrphaned(1);
+            return true;
+        }
+        int parent = index.find(parentId);
+        if (parent < 0)
+            return false;
+
+        if (mrna) {
+            if (index.kind(parent) != GffFeatureIndex.KIND_GENE)
+                return false;
+            CharSequence id = record.attribute("ID");
+            if (id == null) {
+                stats.featuresOrphaned(1);
+                return true;
+            }
+            int transcript = index.add(id, GffFeatureIndex.KIND_MRNA, parent);
+            linkProteinId(record, transcript);
+        } else if (index.kind(parent) == GffFeatureIndex.KIND_MRNA) {
+            if (cds) {
+                long length = record.columnAsLong(Gff3RecordReader.END) - record.columnAsLong(Gff3RecordReader.START) + 1;
+                index.accumulate(parent, length);
+                linkProteinId(record, parent); // NCBI annotations carry protein_id on the CDS
+            }
+        } else if (index.kind(parent) != GffFeatureIndex.KIND_GENE) {
+            return false; // Parent is only an alias so far
+        }
+        return true;
+    }
+
+    private void linkProteinId(Gff3RecordReader record, int transcript) {
+        if (index.link(transcript) >= 0)
+            return;
+        CharSequence proteinId = record.attribute("protein_id");
+        if (proteinId != null)
+            index.setLink(transcript, index.add(proteinId, GffFeatureIndex.KIND_ALIAS, -1));
+    }
+
+    /**
+     * @param safeOffset offset of the first line that belongs to the next scope
+     */
+    private void endScope(long safeOffset) throws IOException {
+        replaySpill();
+        emitProteins();
+        index.clear();
+        if (flushedSinceCheckpoint)
+            checkpoint(safeOffset);
+    }
+
+    private void checkpoint(long offset) {
+        if (currentSeqId != null) {
+            // Record the part of the open sequence seen so far; its length only grows on merge
+            sequenceRows.add(sequenceRow());
+        }
+        flushGenes();
+        flushProteins();
+        flushSequences();
+        flushedSinceCheckpoint = false;
+        checkpointListener.onCheckpoint(offset);
+    }
+
+    private void replaySpill() throws IOException {
+        for (int pass = 0; pass < MAX_REPLAY_PASSES && !spill.isEmpty(); pass++) {
+            FeatureSpill pending = spill;
+            spill = new FeatureSpill(spillLimit);
+            try (InputStream in = pending.open(); Gff3RecordReader replay = new Gff3RecordReader(in)) {
+                while (replay.next()) {
+                    if (replay.isFeature() && !resolve(replay))
+                        spill.add(replay.line());
+                }
+            } finally {
+                pending.close();
+            }
+        }
+        if (!spill.isEmpty()) {
+            log.warn("{} features of isolate {} have no resolvable parent", spill.size(), isolateName);
+            stats.featuresOrphaned(spill.size());
+            spill.close();
+        }
+    }
+
+    private void emitProteins() {
+        if (incremental)
+            deleteStaleProteins();
+        for (int ordinal = 0; ordinal < index.size(); ordinal++) {
+            if (index.kind(ordinal) != GffFeatureIndex.KIND_MRNA || index.accumulator(ordinal) == 0)
+                continue;
+            Map<String, Object> row = new HashMap<>();
+            row.put("geneId", index.id(index.parent(ordinal)));
+            row.put("proteinId", proteinId(ordinal));
+            row.put("length", (int) (index.accumulator(ordinal) / 3));
+            proteinRows.add(row);
+            if (proteinRows.size() >= batchSize)
+                flushProteins();
+        }
+    }
+
+    private String proteinId(int transcript) {
+        int proteinAlias = index.link(transcript);
+        return index.id(proteinAlias >= 0 ? proteinAlias : transcript);
+    }
+
+    /**
+     * Every gene of the scope is complete here, so proteins stored for it
+     * that the file no longer lists under it are stale. Runs before the
+     * scope's proteins are merged, since a protein may move between genes.
+     */
+    private void deleteStaleProteins() {
+        Map<Integer, List<String>> proteinIds = new LinkedHashMap<>();
+        for (int ordinal = 0; ordinal < index.size(); ordinal++) {
+            if (index.kind(ordinal) == GffFeatureIndex.KIND_GENE)
+                proteinIds.put(ordinal, new ArrayList<>());
+        }
+        for (int ordinal = 0; ordinal < index.size(); ordinal++) {
+            if (index.kind(ordinal) == GffFeatureIndex.KIND_MRNA && index.accumulator(ordinal) > 0)
+                proteinIds.get(index.parent(ordinal)).add(proteinId(ordinal));
+        }
+        List<Map<String, Object>> rows = new ArrayList<>(Math.min(batchSize, proteinIds.size()));
+        for (Map.Entry<Integer, List<String>> gene : proteinIds.entrySet()) {
+            rows.add(Map.of("geneId", index.id(gene.getKey()), "proteinIds", gene.getValue()));
+            if (rows.size() >= batchSize) {
+                stats.proteinsDeleted(writer.deleteStaleProteins(rows));
+                rows.clear();
+            }
+        }
+        stats.proteinsDeleted(writer.deleteStaleProteins(rows));
+    }
+
+    private void endSequence() {
+        if (currentSeqId == null)
+            return;
+        sequenceRows.add(sequenceRow());
+        if (sequenceRows.size() >= batchSize)
+            flushSequences();
+        currentSeqId = null;
+    }
+
+    private Map<String, Object> sequenceRow() {
+        Map<String, Object> row = new HashMap<>();
+        // Sequence IDs are only unique within an annotation, so scope them by isolate
+        row.put("seqId", isolateName + ":" + currentSeqId);
+        row.put("length", declaredLengths.getOrDefault(currentSeqId, currentSeqMaxEnd));
+        return row;
+    }
+
+    private void flushGenes() {
+        if (geneRows.isEmpty())
+            return;
+        List<Map<String, Object>> rows = incremental ? changedGenes() : geneRows;
+        if (!rows.isEmpty()) {
+            writer.mergeGenes(isolateName, rows);
+            stats.batchWritten(rows.size());
+        }
+        geneRows.clear();
+        flushedSinceCheckpoint = true;
+    }
+
+    /** Genes of the pending batch that are new or whose content hash differs from the stored one. */
+    private List<Map<String, Object>> changedGenes() {
+        List<String> ids = new ArrayList<>(geneRows.size());
+        for (Map<String, Object> row : geneRows) {
+            ids.add((String) row.get("id"));
+        }
+        Map<String, String> storedHashes = writer.contentHashes(ids);
+
+        List<Map<String, Object>> changed = new ArrayList<>();
+        List<String> unchanged = new ArrayList<>();
+        int inserted = 0;
+        int updated = 0;
+        for (Map<String, Object> row : geneRows) {
+            String id = (String) row.get("id");
+            if (!storedHashes.containsKey(id)) {
+                inserted++;
+                changed.add(row);
+            } else if (!row.get("contentHash").equals(storedHashes.get(id))) {
+                updated++;
+                changed.add(row);
+            } else {
+                unchanged.add(id);
+            }
+        }
+        stats.genesCompared(inserted, updated, unchanged.size());
+        // An orthogroup load may have deferred memberships of genes stored since
+        writer.linkPendingMemberships(unchanged);
+        return changed;
+    }
+
+    private void flushProteins() {
+        if (proteinRows.isEmpty())
+            return;
+        flushGenes(); // ENCODES needs the gene nodes
+        if (incremental) {
+            stats.proteinsWritten((int) writer.mergeChangedProteins(proteinRows));
+        } else {
+            writer.mergeProteins(proteinRows);
+            stats.proteinsWritten(proteinRows.size());
+        }
+        proteinRows.clear();
+        flushedSinceCheckpoint = true;
+    }
+
+    private void flushSequences() {
+        if (sequenceRows.isEmpty())
+            return;
+        writer.mergeSequences(isolateName, assemblyVersion, sequenceRows);
+        stats.sequencesWritten(sequenceRows.size());
+        sequenceRows.clear();
+    }
+
+    private void deleteMissingGenes() {
+        List<String> missing = new ArrayList<>();
+        writer.forEachGeneId(isolateName, id -> {
+            if (!genesInFile.contains(id))
+                missing.add(id);
+        });
+        for (int from = 0; from < missing.size(); from += batchSize) {
+            writer.deleteGenes(missing.subList(from, Math.min(missing.size(), from + batchSize)));
+        }
+        stats.genesDeleted(missing.size());
+        if (!missing.isEmpty())
+            log.info("Deleted {} genes of isolate {} that are no longer annotated", missing.size(), isolateName);
+    }
+
+    private Map<String, Object> parseGeneRecord(Gff3RecordReader record) {
+        try {
+            Map<String, Object> row = new HashMap<>();
+            row.put("start", record.columnAsLong(Gff3RecordReader.START));
+            row.put("end", record.columnAsLong(Gff3RecordReader.END));
+            row.put("strand", record.column(Gff3RecordReader.STRAND).toString());
+
+            String id = record.attributeValue("ID");
+            row.put("id", id != null ? id : "UNKNOWN_" + System.currentTimeMillis());
+            row.put("symbol", record.attributeValue("Name"));
+            row.put("description", prepareDescription(record));
+            row.put("biotype", "protein_coding"); // Default assumption for MVP, can be refined
+            row.put("contentHash", contentHash(record));
+            return row;
+        } catch (Exception e) {
+            log.warn("Failed to parse gene line: {}", record.line(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Stable 64-bit FNV-1a hash of the raw seqid, coordinates, strand and
+     * attributes of a record, as 16 hex digits.
+     */
+    static String contentHash(Gff3RecordReader record) {
+        long hash = 0xcbf29ce484222325L;
+        for (int column : HASHED_COLUMNS) {
+            CharSequence value = record.column(column);
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            hash ^= '\t';
+            hash *= 0x100000001b3L;
+        }
+        return HexFormat.of().toHexDigits(hash);
+    }
+
+    private String prepareDescription(Gff3RecordReader record) {
+        String description = record.attributeValue("Note");
+        if (description == null)
+            description = record.attributeValue("description");
+        if (description == null)
+            description = record.attributeValue("product");
+        return description != null ? description : "";
+    }
+
+    @Override
+    public void close() throws IOException {
+        spill.close();
+    }
+}
@@ -1,16 +1,21 @@
 package com.ganoderma.platform.service;
 
+import com.ganoderma.platform.dto.IngestionReportDto;
 import com.ganoderma.platform.model.Gene;
 import com.ganoderma.platform.model.Isolate;
 import com.ganoderma.platform.repository.GeneRepository;
 import com.ganoderma.platform.repository.IsolateRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -23,10 +28,20 @@ public class GffLoaderService {
 
     private final GeneRepository geneRepository;
     private final IsolateRepository isolateRepository;
+    private final GraphBatchWriter graphBatchWriter;
+    private final IngestionInputService ingestionInputService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${ganoderma.ingestion.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${ganoderma.ingestion.spill-limit:100000}")
+    private int spillLimit;
 
     @Transactional
-    public void loadGff(String isolateName, InputStream gffStream) throws Exception {
+    public IngestionReportDto loadGff(String isolateName, InputStream gffStream) throws Exception {
         log.info("Starting GFF loading for isolate: {}", isolateName);
+        IngestionStats stats = new IngestionStats(isolateName, "legacy");
 
         // Find or Create Isolate
         Isolate isolate = isolateRepository.findByName(isolateName);
@@ -42,6 +57,7 @@ public class GffLoaderService {
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(gffStream))) {
             String line;
             while ((line = reader.readLine()) != null) {
+                stats.lineRead();
                 if (line.startsWith("#") || line.trim().isEmpty())
                     continue;
 
@@ -53,15 +69,128 @@ public class GffLoaderService {
                 if ("gene".equalsIgnoreCase(type)) {
                     Gene gene = parseGeneLine(parts);
                     if (gene != null) {
+                        gene.setIsolate(isolate);
                         genesToSave.add(gene);
                     }
                 }
-                // TODO: Handle 'mRNA', 'CDS' to link to Gene parents if needed
+                // mRNA/CDS/exon are only resolved by the streaming loader
             }
         }
 
         geneRepository.saveAll(genesToSave);
+        stats.batchWritten(genesToSave.size());
         log.info("Loaded {} genes for isolate {}", genesToSave.size(), isolateName);
+        eventPublisher.publishEvent(new DatasetChangedEvent(DatasetChangedEvent.Kind.GENES, isolateName));
+        return stats.toReport();
+    }
+
+    /**
+     * Streaming variant of {@link #loadGff}: the gene -> mRNA -> CDS/exon
+     * hierarchy is resolved in a single pass and genes, proteins and sequences
+     * are written in batches of {@code ganoderma.ingestion.batch-size} rows, each
+     * committed on its own, so neither the file nor the transaction grows with
+     * the annotation size.
+     */
+    public IngestionReportDto loadGffStreaming(String isolateName, InputStream gffStream) throws Exception {
+        return loadGffStreaming(isolateName, gffStream, false);
+    }
+
+    /**
+     * @param incremental only write genes whose content hash changed and delete
+     *                    the isolate's genes missing from the file
+     */
+    public IngestionReportDto loadGffStreaming(String isolateName, InputStream gffStream, boolean incremental)
+            throws Exception {
+        IngestionStats stats = new IngestionStats(isolateName, mode(incremental));
+        try (InputStream in = ingestionInputService.decode(gffStream)) {
+            ingest(isolateName, in, 0L, null, stats, offset -> {
+            }, incremental);
+        }
+        return logReport(stats.toReport());
+    }
+
+    public IngestionReportDto loadGffFile(String isolateName, Path file, boolean incremental) throws IOException {
+        return loadGffFile(isolateName, file, 0L, new IngestionStats(isolateName, mode(incremental)), offset -> {
+        }, incremental);
+    }
+
+    /**
+     * Streams a server-side GFF file (plain, gzip or BGZF) from
+     * {@code resumeOffset}, an offset into the uncompressed data, reporting
+     * committed byte offsets to {@code checkpointListener}. The part of the
+     * file before the offset is re-read first when resuming, so the assembly
+     * details (and in incremental mode, the genes already seen) are kept.
+     */
+    public IngestionReportDto loadGffFile(String isolateName, Path file, long resumeOffset, IngestionStats stats,
+            GffIngestionEngine.CheckpointListener checkpointListener, boolean incremental) throws IOException {
+        try (InputStream in = ingestionInputService.open(file, resumeOffset)) {
+            ingest(isolateName, in, resumeOffset, resumeOffset > 0 ? file : null, stats, checkpointListener,
+                    incremental);
+        }
+        return logReport(stats.toReport());
+    }
+
+    private void ingest(String isolateName, InputStream in, long startOffset, Path prefixSource,
+            IngestionStats stats, GffIngestionEngine.CheckpointListener checkpointListener, boolean incremental)
+            throws IOException {
+        log.info("Starting {} GFF loading for isolate: {} (batch size {}, offset {})", mode(incremental), isolateName,
+                batchSize, startOffset);
+        graphBatchWriter.mergeIsolate(isolateName);
+
+        boolean completed = false;
+        try (GffIngestionEngine engine = new GffIngestionEngine(graphBatchWriter, isolateName, batchSize, spillLimit,
+                stats, checkpointListener, incremental)) {
+            if (prefixSource != null) {
+                readPrefix(prefixSource, startOffset, engine);
+            }
+            Gff3RecordReader reader = new Gff3RecordReader(in, 64 * 1024, startOffset);
+            long position = startOffset;
+            while (reader.next()) {
+                stats.lineRead();
+                engine.accept(reader);
+                position = reader.nextLineOffset();
+                if ((stats.getLinesRead() & 0xFFF) == 0) {
+                    stats.position(position);
+                }
+            }
+            stats.position(position);
+            engine.finish(position);
+            completed = true;
+        } finally {
+            // Batches commit one by one, so a load failing partway has changed the graph too
+            if (completed || stats.hasWrites())
+                eventPublisher.publishEvent(new DatasetChangedEvent(DatasetChangedEvent.Kind.GENES, isolateName));
+        }
+    }
+
+    private void readPrefix(Path file, long endOffset, GffIngestionEngine engine) throws IOException {
+        try (InputStream in = ingestionInputService.open(file, 0L); Gff3RecordReader reader = new Gff3RecordReader(in)) {
+            while (reader.next() && reader.lineOffset() < endOffset) {
+                if (!engine.acceptPrefix(reader))
+                    break;
+            }
+        }
+    }
+
+    private static String mode(boolean incremental) {
+        return incremental ? "incremental" : "streaming";
+    }
+
+    private IngestionReportDto logReport(IngestionReportDto report) {
+        log.info("Streamed {} genes, {} proteins, {} sequences for isolate {} in {} ms ({} genes/s, peak heap {} MB)",
+                report.getGenesWritten(), report.getProteinsWritten(), report.getSequencesWritten(),
+                report.getIsolateName(), report.getElapsedMillis(), String.format("%.0f", report.getGenesPerSecond()),
+                report.getPeakHeapBytes() / (1024 * 1024));
+        if ("incremental".equals(report.getMode())) {
+            log.info("Gene diff for isolate {}: {} inserted, {} updated, {} unchanged, {} deleted",
+                    report.getIsolateName(), report.getGenesInserted(), report.getGenesUpdated(),
+                    report.getGenesUnchanged(), report.getGenesDeleted());
+        }
+        if (report.getOrphanFeatures() > 0) {
+            log.warn("{} features of isolate {} referenced a missing Parent", report.getOrphanFeatures(),
+                    report.getIsolateName());
+        }
+        return report;
     }
 
     private Gene parseGeneLine(String[] parts) {
@@ -0,0 +1,260 @@
+package com.ganoderma.platform.service;
+
+import com.ganoderma.platform.dto.GraphDto;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Level-of-detail views of the graph. Genes are collapsed into Isolate or
+ * Orthogroup super-nodes carrying gene counts, with weighted links between
+ * them, and a super-node can be expanded into its members one at a time.
+ *
+ * Views are answered from a {@link GraphAggregates} snapshot that is rebuilt
+ * at startup and after genes or orthogroups are loaded, in the same
+ * coalescing way as the expression store. Only the expansion of an
+ * orthogroup into its genes reads the graph, starting from the groupId index.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GraphAggregateService {
+
+    public enum Level {
+        ISOLATES, ORTHOGROUPS
+    }
+
+    private static final String ORTHOGROUP_GENES = """
+            MATCH (og:Orthogroup {groupId: $groupId})<-[:BELONGS_TO_OG]-(g:Gene)
+            RETURN g.geneId AS geneId, g.symbol AS symbol, g.description AS description,
+                   [(g)-[:FOUND_IN]->(i:Isolate) | i.name] AS isolates
+            ORDER BY geneId
+            LIMIT $limit
+            """;
+
+    private final Neo4jClient neo4jClient;
+
+    @Value("${ganoderma.graph.overview.limit:500}")
+    private int defaultLimit;
+
+    @Value("${ganoderma.graph.overview.max-limit:10000}")
+    private int maxLimit;
+
+    private volatile GraphAggregates aggregates = GraphAggregates.empty();
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private ExecutorService rebuilder;
+
+    @PostConstruct
+    void init() {
+        rebuilder = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "graph-aggregates");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadAtStartup() {
+        requestRebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDatasetChanged(DatasetChangedEvent event) {
+        if (event.kind() != DatasetChangedEvent.Kind.EXPRESSION)
+            requestRebuild();
+    }
+
+    public void requestRebuild() {
+        if (rebuildPending.compareAndSet(false, true))
+            rebuilder.execute(this::rebuild);
+    }
+
+    /** Incremented each time a rebuilt snapshot is published; versions the views for caching. */
+    public long version() {
+        return generation.get();
+    }
+
+    public int limit(Integer requested) {
+        if (requested == null || requested <= 0)
+            return defaultLimit;
+        return Math.min(requested, maxLimit);
+    }
+
+    /**
+     * ISOLATES: one node per isolate, linked by the number of orthogroups
+     * they share. ORTHOGROUPS: the largest orthogroups (optionally only those
+     * present in {@code isolate}) linked to isolates by gene count.
+     */
+    public Optional<GraphDto> overview(Level level, String isolate, int minGenes, int limit) {
+        GraphAggregates current = aggregates;
+        Integer only = null;
+        if (isolate != null) {
+            only = current.isolateOrdinal(isolate);
+            if (only == null)
+                return Optional.empty();
+        }
+
+        Map<String, GraphDto.NodeDto> nodes = new LinkedHashMap<>();
+        List<GraphDto.LinkDto> links = new ArrayList<>();
+        if (level == Level.ISOLATES) {
+            for (int i = 0; i < current.isolateCount(); i++) {
+                if (only == null || only == i)
+                    addIsolate(current, i, nodes);
+            }
+            for (int a = 0; a < current.isolateCount(); a++) {
+                for (int b = a + 1; b < current.isolateCount(); b++) {
+                    int shared = current.sharedOrthogroups(a, b);
+                    if (shared > 0 && (only == null || only == a || only == b)) {
+                        addIsolate(current, a, nodes);
+                        addIsolate(current, b, nodes);
+                        links.add(link(isolateId(current, a), isolateId(current, b), "SHARES_OG", shared));
+                    }
+                }
+            }
+        } else {
+            List<GraphAggregates.Orthogroup> orthogroups = only == null
+                    ? current.largestOrthogroups(minGenes, limit)
+                    : current.largestOrthogroups(only, minGenes, limit);
+            for (GraphAggregates.Orthogroup orthogroup : orthogroups) {
+                addOrthogroup(current, orthogroup, nodes, links);
+            }
+        }
+        return Optional.of(GraphDto.builder().nodes(new ArrayList<>(nodes.values())).links(links).build());
+    }
+
+    /**
+     * Members of a super-node: an isolate expands into its largest
+     * orthogroups, an orthogroup into its genes.
+     */
+    public Optional<GraphDto> expand(String nodeId, int limit) {
+        GraphAggregates current = aggregates;
+        Map<String, GraphDto.NodeDto> nodes = new LinkedHashMap<>();
+        List<GraphDto.LinkDto> links = new ArrayList<>();
+
+        if (nodeId.startsWith("ISOLATE_")) {
+            Integer isolate = current.isolateOrdinal(nodeId.substring("ISOLATE_".length()));
+            if (isolate == null)
+                return Optional.empty();
+            addIsolate(current, isolate, nodes);
+            for (GraphAggregates.Orthogroup orthogroup : current.largestOrthogroups(isolate, 0, limit)) {
+                addOrthogroup(current, orthogroup, nodes, links);
+            }
+        } else if (nodeId.startsWith("OG_")) {
+            GraphAggregates.Orthogroup orthogroup = current.orthogroup(nodeId.substring("OG_".length()));
+            if (orthogroup == null)
+                return Optional.empty();
+            GraphDto.NodeDto orthogroupNode = orthogroupNode(orthogroup);
+            nodes.put(orthogroupNode.getId(), orthogroupNode);
+
+            Map<String, Object> parameters = new HashMap<>();
+            parameters.put("groupId", orthogroup.groupId());
+            parameters.put("limit", limit);
+            for (Map<String, Object> row : neo4jClient.query(ORTHOGROUP_GENES).bindAll(parameters).fetch().all()) {
+                GraphDto.NodeDto gene = GraphStreamService.geneNode((String) row.get("geneId"),
+                        (String) row.get("symbol"), (String) row.get("description"));
+                nodes.put(gene.getId(), gene);
+                links.add(link(gene.getId(), orthogroupNode.getId(), "BELONGS_TO", null));
+                for (Object name : (List<?>) row.get("isolates")) {
+                    Integer isolate = current.isolateOrdinal((String) name);
+                    if (isolate != null) {
+                        addIsolate(current, isolate, nodes);
+                        links.add(link(gene.getId(), isolateId(current, isolate), "FOUND_IN", null));
+                    }
+                }
+            }
+        } else {
+            return Optional.empty();
+        }
+        return Optional.of(GraphDto.builder().nodes(new ArrayList<>(nodes.values())).links(links).build());
+    }
+
+    private static void addIsolate(GraphAggregates aggregates, int isolate, Map<String, GraphDto.NodeDto> nodes) {
+        String id = isolateId(aggregates, isolate);
+        if (nodes.containsKey(id))
+            return;
+        GraphDto.NodeDto node = GraphStreamService.isolateNode(aggregates.isolate(isolate));
+        int genes = aggregates.isolateGenes(isolate);
+        node.setCount(genes);
+        node.setVal(superNodeSize(25, genes));
+        node.getDetails().put("Genes", String.valueOf(genes));
+        node.getDetails().put("Orthogroups", String.valueOf(aggregates.isolateOrthogroupCount(isolate)));
+        nodes.put(id, node);
+    }
+
+    private static void addOrthogroup(GraphAggregates aggregates, GraphAggregates.Orthogroup orthogroup,
+            Map<String, GraphDto.NodeDto> nodes, List<GraphDto.LinkDto> links) {
+        GraphDto.NodeDto node = orthogroupNode(orthogroup);
+        nodes.put(node.getId(), node);
+        for (int i = 0; i < orthogroup.isolates().length; i++) {
+            int isolate = orthogroup.isolates()[i];
+            addIsolate(aggregates, isolate, nodes);
+            links.add(link(node.getId(), isolateId(aggregates, isolate), "FOUND_IN", orthogroup.isolateGenes()[i]));
+        }
+    }
+
+    private static GraphDto.NodeDto orthogroupNode(GraphAggregates.Orthogroup orthogroup) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("groupId", orthogroup.groupId());
+        properties.put("geneCount", orthogroup.geneCount() != null ? orthogroup.geneCount() : orthogroup.genes());
+        GraphDto.NodeDto node = GraphStreamService.orthogroupNode(properties);
+        node.setCount(orthogroup.genes());
+        node.setVal(superNodeSize(20, orthogroup.genes()));
+        node.getDetails().put("Loaded Genes", String.valueOf(orthogroup.genes()));
+        node.getDetails().put("Isolates", String.valueOf(orthogroup.isolates().length));
+        return node;
+    }
+
+    private static String isolateId(GraphAggregates aggregates, int isolate) {
+        return "ISOLATE_" + aggregates.isolate(isolate).get("name");
+    }
+
+    private static GraphDto.LinkDto link(String source, String target, String label, Integer weight) {
+        return GraphDto.LinkDto.builder().source(source).target(target).label(label).weight(weight).build();
+    }
+
+    // Grows with the log of the member count so large groups stay on screen
+    private static int superNodeSize(int base, int count) {
+        return base + (int) Math.round(5 * Math.log10(1 + count));
+    }
+
+    private void rebuild() {
+        rebuildPending.set(false);
+        long start = System.nanoTime();
+        try {
+            GraphAggregates loaded = neo4jClient
+                    .delegateTo(runner -> Optional.of(GraphAggregates.load(runner)))
+                    .run()
+                    .orElseThrow();
+            aggregates = loaded;
+            generation.incrementAndGet();
+            log.info("Graph aggregates loaded: {} isolates, {} orthogroups in {} ms", loaded.isolateCount(),
+                    loaded.orthogroupCount(), (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            log.warn("Could not load the graph aggregates: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.ganoderma.platform.service;
+
+import org.neo4j.driver.QueryRunner;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the isolate and orthogroup aggregates behind the
+ * level-of-detail graph: genes per isolate, genes per orthogroup and isolate,
+ * and orthogroups shared by each pair of isolates.
+ *
+ * Built by one traversal of Gene -> Orthogroup / Isolate after each load, so
+ * every zoom level is answered from arrays. Orthogroups are kept sorted by
+ * member count, largest first, both overall and per isolate.
+ */
+public final class GraphAggregates {
+
+    private static final String ISOLATES = """
+            MATCH (i:Isolate)
+            RETURN i {.name, .host, .originCountry, .collectionDate} AS isolate,
+                   COUNT { (i)<-[:FOUND_IN]-(:Gene) } AS genes
+            ORDER BY i.name
+            """;
+
+    private static final String ORTHOGROUP_PRESENCE = """
+            MATCH (og:Orthogroup)<-[:BELONGS_TO_OG]-(g:Gene)-[:FOUND_IN]->(i:Isolate)
+            RETURN og.groupId AS groupId, og.geneCount AS geneCount, i.name AS isolate, count(DISTINCT g) AS genes
+            """;
+
+    /** An orthogroup with its member genes per isolate (parallel arrays). */
+    public record Orthogroup(String groupId, Object geneCount, int genes, int[] isolates, int[] isolateGenes) {
+    }
+
+    private final List<Map<String, Object>> isolates;
+    private final int[] isolateGenes;
+    private final Map<String, Integer> isolateOrdinals;
+    private final Orthogroup[] orthogroups;
+    private final Map<String, Integer> orthogroupOrdinals;
+    private final int[][] isolateOrthogroups;
+    private final int[][] sharedOrthogroups;
+    private final long loadedAt;
+
+    private GraphAggregates(List<Map<String, Object>> isolates, int[] isolateGenes, Orthogroup[] orthogroups) {
+        this.isolates = isolates;
+        this.isolateGenes = isolateGenes;
+        this.isolateOrdinals = new HashMap<>();
+        for (int i = 0; i < isolates.size(); i++) {
+            isolateOrdinals.put((String) isolates.get(i).get("name"), i);
+        }
+
+        Arrays.sort(orthogroups, Comparator.comparingInt(Orthogroup::genes).reversed()
+                .thenComparing(Orthogroup::groupId));
+        this.orthogroups = orthogroups;
+        this.orthogroupOrdinals = new HashMap<>(orthogroups.length * 2);
+
+        int n = isolates.size();
+        int[] perIsolate = new int[n];
+        this.sharedOrthogroups = new int[n][n];
+        for (int o = 0; o < orthogroups.length; o++) {
+            orthogroupOrdinals.put(orthogroups[o].groupId(), o);
+            int[] present = orthogroups[o].isolates();
+            for (int a = 0; a < present.length; a++) {
+                perIsolate[present[a]]++;
+                for (int b = a + 1; b < present.length; b++) {
+                    sharedOrthogroups[present[a]][present[b]]++;
+                    sharedOrthogroups[present[b]][present[a]]++;
+                }
+            }
+        }
+        // Orthogroup ordinals per isolate; ascending ordinals keep the largest-first order
+        this.isolateOrthogroups = new int[n][];
+        for (int i = 0; i < n; i++) {
+            isolateOrthogroups[i] = new int[perIsolate[i]];
+            perIsolate[i] = 0;
+        }
+        for (int o = 0; o < orthogroups.length; o++) {
+            for (int i : orthogroups[o].isolates()) {
+                isolateOrthogroups[i][perIsolate[i]++] = o;
+            }
+        }
+        this.loadedAt = System.currentTimeMillis();
+    }
+
+    public static GraphAggregates empty() {
+        return new GraphAggregates(List.of(), new int[0], new Orthogroup[0]);
+    }
+
+    public static GraphAggregates load(QueryRunner runner) {
+        List<Map<String, Object>> isolates = new ArrayList<>();
+        List<Integer> genes = new ArrayList<>();
+        Map<String, Integer> ordinals = new HashMap<>();
+        Result isolateResult = runner.run(ISOLATES);
+        while (isolateResult.hasNext()) {
+            Record record = isolateResult.next();
+            Map<String, Object> isolate = record.get("isolate").asMap();
+            ordinals.put((String) isolate.get("name"), isolates.size());
+            isolates.add(isolate);
+            genes.add(record.get("genes").asInt());
+        }
+
+        // groupId -> [declared geneCount, isolate -> genes]
+        Map<String, Object> declared = new HashMap<>();
+        Map<String, Map<Integer, Integer>> presence = new HashMap<>();
+        Result presenceResult = runner.run(ORTHOGROUP_PRESENCE);
+        while (presenceResult.hasNext()) {
+            Record record = presenceResult.next();
+            Integer isolate = ordinals.get(record.get("isolate").asString());
+            if (isolate == null)
+                continue;
+            String groupId = record.get("groupId").asString();
+            declared.putIfAbsent(groupId, record.get("geneCount").asObject());
+            presence.computeIfAbsent(groupId, id -> new HashMap<>()).put(isolate, record.get("genes").asInt());
+        }
+
+        Orthogroup[] orthogroups = new Orthogroup[presence.size()];
+        int o = 0;
+        for (Map.Entry<String, Map<Integer, Integer>> entry : presence.entrySet()) {
+            int[] present = entry.getValue().keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+            int[] counts = new int[present.length];
+            int total = 0;
+            for (int i = 0; i < present.length; i++) {
+                counts[i] = entry.getValue().get(present[i]);
+                total += counts[i];
+            }
+            orthogroups[o++] = new Orthogroup(entry.getKey(), declared.get(entry.getKey()), total, present, counts);
+        }
+        return new GraphAggregates(isolates, genes.stream().mapToInt(Integer::intValue).toArray(), orthogroups);
+    }
+
+    public long loadedAt() {
+        return loadedAt;
+    }
+
+    public int isolateCount() {
+        return isolates.size();
+    }
+
+    public int orthogroupCount() {
+        return orthogroups.length;
+    }
+
+    public Map<String, Object> isolate(int isolate) {
+        return isolates.get(isolate);
+    }
+
+    public Integer isolateOrdinal(String name) {
+        return isolateOrdinals.get(name);
+    }
+
+    public int isolateGenes(int isolate) {
+        return isolateGenes[isolate];
+    }
+
+    /** Orthogroups with at least one gene in the isolate. */
+    public int isolateOrthogroupCount(int isolate) {
+        return isolateOrthogroups[isolate].length;
+    }
+
+    public int sharedOrthogroups(int a, int b) {
+        return sharedOrthogroups[a][b];
+    }
+
+    public Orthogroup orthogroup(String groupId) {
+        Integer ordinal = orthogroupOrdinals.get(groupId);
+        return ordinal != null ? orthogroups[ordinal] : null;
+    }
+
+    /** Up to {@code limit} orthogroups with at least {@code minGenes} members, largest first. */
+    public List<Orthogroup> largestOrthogroups(int minGenes, int limit) {
+        List<Orthogroup> result = new ArrayList<>(Math.min(limit, orthogroups.length));
+        for (int o = 0; o < orthogroups.length && result.size() < limit; o++) {
+            if (orthogroups[o].genes() < minGenes)
+                break;
+            result.add(orthogroups[o]);
+        }
+        return result;
+    }
+
+    /** As {@link #largestOrthogroups}, restricted to orthogroups present in one isolate. */
+    public List<Orthogroup> largestOrthogroups(int isolate, int minGenes, int limit) {
+        int[] ordinals = isolateOrthogroups[isolate];
+        List<Orthogroup> result = new ArrayList<>(Math.min(limit, ordinals.length));
+        for (int o = 0; o < ordinals.length && result.size() < limit; o++) {
+            if (orthogroups[ordinals[o]].genes() < minGenes)
+                break;
+            result.add(orthogroups[ordinals[o]]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,317 @@
+package com.ganoderma.platform.service;
+
+import lombok.RequiredArgsConstructor;
+import org.neo4j.driver.Result;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Batched UNWIND writes used by the streaming loaders. Each call is a single
+ * parameterised statement, so outside of a Spring transaction every batch is
+ * committed on its own.
+ */
+@Service
+@RequiredArgsConstructor
+public class GraphBatchWriter {
+
+    private final Neo4jClient neo4jClient;
+
+    // Links the gene g to orthogroups that listed `member` before the gene was loaded
+    private static final String LINK_PENDING_MEMBERSHIPS = """
+            OPTIONAL MATCH (pending:PendingOgMembership {memberId: member})
+            OPTIONAL MATCH (og:Orthogroup {groupId: pending.groupId})
+            FOREACH (_ IN CASE WHEN og IS NULL THEN [] ELSE [1] END | MERGE (g)-[:BELONGS_TO_OG]->(og))
+            DELETE pending
+            """;
+
+    private static final String MERGE_ISOLATE = "MERGE (i:Isolate {name: $name})";
+
+    private static final String MERGE_GENES = """
+            MATCH (i:Isolate {name: $isolate})
+            WITH i LIMIT 1
+            UNWIND $rows AS row
+            MERGE (g:Gene {geneId: row.id})
+            SET g.symbol = row.symbol,
+                g.description = row.description,
+                g.biotype = row.biotype,
+                g.start = row.start,
+                g.end = row.end,
+                g.strand = row.strand,
+                g.contentHash = row.contentHash
+            MERGE (g)-[:FOUND_IN]->(i)
+            WITH g, row.id AS member
+            """ + LINK_PENDING_MEMBERSHIPS;
+
+    private static final String MERGE_PROTEINS = """
+            UNWIND $rows AS row
+            MATCH (g:Gene {geneId: row.geneId})
+            MERGE (p:Protein {proteinId: row.proteinId})
+            SET p.length = row.length
+            MERGE (g)-[:ENCODES]->(p)
+            WITH g, row.proteinId AS member
+            """ + LINK_PENDING_MEMBERSHIPS;
+
+    // Only proteins that are new or whose length changed are written; pending
+    // memberships are linked for every row
+    private static final String MERGE_CHANGED_PROTEINS = """
+            UNWIND $rows AS row
+            MATCH (g:Gene {geneId: row.geneId})
+            OPTIONAL MATCH (g)-[:ENCODES]->(existing:Protein {proteinId: row.proteinId})
+            WITH g, row, existing IS NULL OR existing.length <> row.length AS changed
+            FOREACH (_ IN CASE WHEN changed THEN [1] ELSE [] END |
+                MERGE (p:Protein {proteinId: row.proteinId})
+                SET p.length = row.length
+                MERGE (g)-[:ENCODES]->(p))
+            WITH g, row.proteinId AS member, changed
+            """ + LINK_PENDING_MEMBERSHIPS + """
+            RETURN count(DISTINCT CASE WHEN changed THEN member END) AS written
+            """;
+
+    // Proteins a gene no longer encodes; a protein node goes once no gene encodes it
+    private static final String DELETE_STALE_PROTEINS = """
+            UNWIND $rows AS row
+            MATCH (g:Gene {geneId: row.geneId})-[e:ENCODES]->(p:Protein)
+            WHERE NOT p.proteinId IN row.proteinIds
+            DELETE e
+            WITH DISTINCT p
+            WHERE NOT (p)<-[:ENCODES]-()
+            DETACH DELETE p
+            RETURN count(p) AS deleted
+            """;
+
+    private static final String LINK_PENDING_GENES = """
+            UNWIND $ids AS member
+            MATCH (g:Gene {geneId: member})
+            WITH g, member
+            """ + LINK_PENDING_MEMBERSHIPS;
+
+    private static final String CONTENT_HASHES = """
+            UNWIND $ids AS id
+            MATCH (g:Gene {geneId: id})
+            RETURN g.geneId AS id, g.contentHash AS hash
+            """;
+
+    private static final String ISOLATE_GENE_IDS = """
+            MATCH (g:Gene)-[:FOUND_IN]->(:Isolate {name: $isolate})
+            RETURN g.geneId AS id
+            """;
+
+    private static final String DELETE_GENES = """
+            UNWIND $ids AS id
+            MATCH (g:Gene {geneId: id})
+            OPTIONAL MATCH (g)-[:ENCODES]->(p:Protein)
+            DETACH DELETE p, g
+            """;
+
+    // Members are gene IDs or, as OrthoFinder runs on proteomes, protein IDs; a
+    // group's earlier memberships are replaced, and isoforms of one gene count once
+    private static final String MERGE_ORTHOGROUPS = """
+            UNWIND $groups AS grp
+            MERGE (og:Orthogroup {groupId: grp.groupId})
+            WITH og, grp
+            OPTIONAL MATCH (og)<-[old:BELONGS_TO_OG]-(:Gene)
+            DELETE old
+            WITH DISTINCT og, grp
+            OPTIONAL MATCH (stale:PendingOgMembership {groupId: grp.groupId})
+            DELETE stale
+            WITH DISTINCT og, grp
+            UNWIND CASE WHEN size(grp.members) = 0 THEN [null] ELSE grp.members END AS member
+            OPTIONAL MATCH (g:Gene {geneId: member})
+            OPTIONAL MATCH (:Protein {proteinId: member})<-[:ENCODES]-(pg:Gene)
+            WITH og, member, coalesce(g, pg) AS gene
+            FOREACH (_ IN CASE WHEN gene IS NULL THEN [] ELSE [1] END | MERGE (gene)-[:BELONGS_TO_OG]->(og))
+            FOREACH (_ IN CASE WHEN gene IS NULL AND member IS NOT NULL THEN [1] ELSE [] END |
+                MERGE (:PendingOgMembership {memberId: member, groupId: og.groupId}))
+            WITH og, count(DISTINCT gene) AS linked, count(DISTINCT CASE WHEN gene IS NULL THEN member END) AS deferred
+            SET og.geneCount = linked + deferred
+            RETURN sum(linked) AS linked, sum(deferred) AS deferred
+            """;
+
+    private static final String MERGE_SAMPLES = """
+            UNWIND $rows AS row
+            MERGE (s:Sample {sampleId: row.sampleId})
+            SET s.replicate = coalesce(row.replicate, s.replicate)
+            MERGE (c:Condition {name: row.condition})
+            ON CREATE SET c.factor = row.factor, c.description = row.description
+            MERGE (s)-[:BELONGS_TO_CONDITION]->(c)
+            WITH s, row
+            WHERE row.isolate IS NOT NULL
+            MERGE (i:Isolate {name: row.isolate})
+            MERGE (s)-[:FROM_ISOLATE]->(i)
+            """;
+
+    private static final String MERGE_SAMPLE_IDS = """
+            UNWIND $ids AS id
+            MERGE (:Sample {sampleId: id})
+            """;
+
+    // One row per gene with parallel samples / tpm / counts lists
+    private static final String MERGE_EXPRESSION = """
+            UNWIND $rows AS row
+            MATCH (g:Gene {geneId: row.geneId})
+            UNWIND range(0, size(row.samples) - 1) AS k
+            MATCH (s:Sample {sampleId: row.samples[k]})
+            MERGE (g)-[e:EXPRESSED_IN]->(s)
+            SET e.tpm = row.tpm[k], e.counts = row.counts[k]
+            RETURN count(e) AS written
+            """;
+
+    private static final String MERGE_SEQUENCES = """
+            MATCH (i:Isolate {name: $isolate})
+            WITH i LIMIT 1
+            MERGE (i)-[:HAS_ASSEMBLY]->(a:Assembly {version: $version})
+            ON CREATE SET a.level = 'Scaffold'
+            WITH a
+            UNWIND $rows AS row
+            MERGE (s:Sequence {seqId: row.seqId})
+            SET s.length = CASE WHEN s.length IS NULL OR s.length < row.length THEN row.length ELSE s.length END,
+                s.circular = coalesce(s.circular, false)
+            MERGE (a)-[:COMPOSED_OF]->(s)
+            """;
+
+    public void mergeIsolate(String isolateName) {
+        neo4jClient.query(MERGE_ISOLATE).bind(isolateName).to("name").run();
+    }
+
+    /**
+     * Upserts a batch of genes and links them to their isolate.
+     * Rows carry the keys id, symbol, description, biotype, start, end, strand
+     * and contentHash. Orthogroup memberships deferred until the gene existed
+     * are linked here.
+     */
+    public void mergeGenes(String isolateName, List<Map<String, Object>> rows) {
+        if (rows.isEmpty())
+            return;
+        neo4jClient.query(MERGE_GENES)
+                .bind(isolateName).to("isolate")
+                .bind(rows).to("rows")
+                .run();
+    }
+
+    /** Rows carry geneId, proteinId and length (amino acids). */
+    public void mergeProteins(List<Map<String, Object>> rows) {
+        if (rows.isEmpty())
+            return;
+        neo4jClient.query(MERGE_PROTEINS).bind(rows).to("rows").run();
+    }
+
+    /** Like {@link #mergeProteins} but skips unchanged proteins; returns the number written. */
+    public long mergeChangedProteins(List<Map<String, Object>> rows) {
+        if (rows.isEmpty())
+            return 0;
+        return neo4jClient.query(MERGE_CHANGED_PROTEINS)
+                .bind(rows).to("rows")
+                .fetchAs(Long.class).one()
+                .orElse(0L);
+    }
+
+    /**
+     * Removes the ENCODES edges of genes to proteins missing from their
+     * current list, and proteins left without a gene. Rows carry geneId and
+     * proteinIds; returns the number of protein nodes deleted.
+     */
+    public long deleteStaleProteins(List<Map<String, Object>> rows) {
+        if (rows.isEmpty())
+            return 0;
+        return neo4jClient.query(DELETE_STALE_PROTEINS)
+                .bind(rows).to("rows")
+                .fetchAs(Long.class).one()
+                .orElse(0L);
+    }
+
+    /** Links orthogroup memberships deferred until these (already stored) genes existed. */
+    public void linkPendingMemberships(List<String> geneIds) {
+        if (geneIds.isEmpty())
+            return;
+        neo4jClient.query(LINK_PENDING_GENES).bind(geneIds).to("ids").run();
+    }
+
+    /** Stored content hash of each of {@code geneIds} that exists (the hash may be null). */
+    public Map<String, String> contentHashes(List<String> geneIds) {
+        Map<String, String> hashes = new HashMap<>(geneIds.size() * 2);
+        for (Map<String, Object> row : neo4jClient.query(CONTENT_HASHES).bind(geneIds).to("ids").fetch().all()) {
+            hashes.put((String) row.get("id"), (String) row.get("hash"));
+        }
+        return hashes;
+    }
+
+    /** Streams the IDs of all genes found in an isolate without materialising the result. */
+    public void forEachGeneId(String isolateName, Consumer<String> consumer) {
+        neo4jClient.delegateTo(runner -> {
+            Result result = runner.run(ISOLATE_GENE_IDS, Map.of("isolate", isolateName));
+            while (result.hasNext()) {
+                consumer.accept(result.next().get("id").asString());
+            }
+            return Optional.empty();
+        }).run();
+    }
+
+    /** Deletes genes together with the proteins they encode. */
+    public void deleteGenes(List<String> geneIds) {
+        if (geneIds.isEmpty())
+            return;
+        neo4jClient.query(DELETE_GENES).bind(geneIds).to("ids").run();
+    }
+
+    /**
+     * Upserts orthogroups and links their members, replacing the memberships
+     * earlier loads gave them. Rows carry groupId and members (list of gene or
+     * protein IDs). geneCount is the number of distinct genes linked plus the
+     * members deferred until their gene is loaded.
+     *
+     * @return the number of distinct genes linked and of members deferred
+     */
+    public long[] mergeOrthogroups(List<Map<String, Object>> groups) {
+        if (groups.isEmpty())
+            return new long[2];
+        return neo4jClient.query(MERGE_ORTHOGROUPS)
+                .bind(groups).to("groups")
+                .fetch().one()
+                .map(row -> new long[] { ((Number) row.get("linked")).longValue(),
+                        ((Number) row.get("deferred")).longValue() })
+                .orElse(new long[2]);
+    }
+
+    /** Rows carry sampleId, condition, and optionally isolate, replicate, factor, description. */
+    public void mergeSamples(List<Map<String, Object>> rows) {
+        if (rows.isEmpty())
+            return;
+        neo4jClient.query(MERGE_SAMPLES).bind(rows).to("rows").run();
+    }
+
+    public void mergeSampleIds(List<String> sampleIds) {
+        if (sampleIds.isEmpty())
+            return;
+        neo4jClient.query(MERGE_SAMPLE_IDS).bind(sampleIds).to("ids").run();
+    }
+
+    /**
+     * Upserts EXPRESSED_IN edges. Rows carry geneId and the parallel lists
+     * samples, tpm and counts; returns the number of edges written.
+     */
+    public long mergeExpression(List<Map<String, Object>> rows) {
+        if (rows.isEmpty())
+            return 0;
+        return neo4jClient.query(MERGE_EXPRESSION)
+                .bind(rows).to("rows")
+                .fetchAs(Long.class).one()
+                .orElse(0L);
+    }
+
+    /** Rows carry seqId and length; sequences are attached to the isolate's assembly. */
+    public void mergeSequences(String isolateName, String assemblyVersion, List<Map<String, Object>> rows) {
+        if (rows.isEmpty())
+            return;
+        neo4jClient.query(MERGE_SEQUENCES)
+                .bind(isolateName).to("isolate")
+                .bind(assemblyVersion).to("version")
+                .bind(rows).to("rows")
+                .run();
+    }
+}
@@ -0,0 +1,89 @@
+package com.ganoderma.platform.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Renders the {@code <Node>} elements of the {@code <GraphContext>} block
+ * given to the LLM, each with child fields and relations, and the block's
+ * header and footer. Text and attribute values are XML-escaped.
+ */
+public class GraphContextBuilder {
+
+    private final StringBuilder sb = new StringBuilder(4096);
+    private final List<Integer> starts = new ArrayList<>();
+
+    public static String empty() {
+        return "<GraphContext empty='true' />";
+    }
+
+    public static String header(int itemCount) {
+        return "<GraphContext item_count='" + itemCount + "'>\n";
+    }
+
+    /** Closes the block, noting how many items were left out. */
+    public static String footer(int truncated) {
+        return truncated > 0
+                ? "  <!-- Truncated " + truncated + " more items -->\n</GraphContext>"
+                : "</GraphContext>";
+    }
+
+    public GraphContextBuilder node(String id, String type) {
+        starts.add(sb.length());
+        sb.append("  <Node id='");
+        escape(id);
+        sb.append("' type='").append(type).append("'>\n");
+        return this;
+    }
+
+    /** A node without details, e.g. an id of unknown type. */
+    public GraphContextBuilder emptyNode(String id, String type) {
+        starts.add(sb.length());
+        sb.append("  <Node id='");
+        escape(id);
+        sb.append("' type='").append(type).append("'/>\n");
+        return this;
+    }
+
+    public GraphContextBuilder field(String name, Object value) {
+        sb.append("    <").append(name).append('>');
+        escape(String.valueOf(value));
+        sb.append("</").append(name).append(">\n");
+        return this;
+    }
+
+    public GraphContextBuilder relation(String type, String target) {
+        sb.append("    <Relation type='").append(type).append("' target='");
+        escape(target);
+        sb.append("'/>\n");
+        return this;
+    }
+
+    public GraphContextBuilder endNode() {
+        sb.append("  </Node>\n");
+        return this;
+    }
+
+    /** Each node element rendered so far, in order. */
+    public List<String> nodes() {
+        List<String> nodes = new ArrayList<>(starts.size());
+        for (int i = 0; i < starts.size(); i++) {
+            int end = i + 1 < starts.size() ? starts.get(i + 1) : sb.length();
+            nodes.add(sb.substring(starts.get(i), end));
+        }
+        return nodes;
+    }
+
+    private void escape(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '<' -> sb.append("&lt;");
+                case '>' -> sb.append("&gt;");
+                case '&' -> sb.append("&amp;");
+                case '\'' -> sb.append("&apos;");
+                default -> sb.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.ganoderma.platform.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads the entities the user is looking at (graph node ids such as
+ * ISOLATE_..., GENE_... or OG_...) for the chat prompt. Ids are grouped by
+ * prefix and all groups are fetched in one round trip, each with an UNWIND
+ * over its ids and only the fields the prompt shows.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GraphContextLoader {
+
+    public static final int MAX_ITEMS = 100;
+
+    private static final double VISIBLE_SCORE = 0.5;
+
+    private static final String CONTEXT = """
+            CALL {
+              UNWIND $isolates AS id
+              MATCH (i:Isolate {name: id})
+              RETURN 'ISOLATE' AS kind, id, {country: i.originCountry, host: i.host} AS fields
+              UNION ALL
+              UNWIND $genes AS id
+              MATCH (g:Gene {geneId: id})
+              RETURN 'GENE' AS kind, id, {symbol: g.symbol, description: g.description,
+                     isolate: head([(g)-[:FOUND_IN]->(i:Isolate) | i.name]),
+                     orthogroup: head([(g)-[:BELONGS_TO_OG]->(og:Orthogroup) | og.groupId])} AS fields
+              UNION ALL
+              UNWIND $orthogroups AS id
+              MATCH (og:Orthogroup {groupId: id})
+              RETURN 'OG' AS kind, id, {geneCount: og.geneCount} AS fields
+            }
+            RETURN kind, id, fields
+            """;
+
+    private final Neo4jClient neo4jClient;
+
+    /**
+     * The {@code <GraphContext>} block for the first {@link #MAX_ITEMS} ids,
+     * one snippet per node so the context packer can drop whole nodes.
+     */
+    public ContextPacker.Section section(List<String> contextIds) {
+        if (contextIds == null || contextIds.isEmpty())
+            return ContextPacker.Section.fixed(GraphContextBuilder.empty());
+        long start = System.nanoTime();
+        List<String> ids = contextIds.subList(0, Math.min(contextIds.size(), MAX_ITEMS));
+
+        Set<String> isolates = new LinkedHashSet<>();
+        Set<String> genes = new LinkedHashSet<>();
+        Set<String> orthogroups = new LinkedHashSet<>();
+        for (String id : ids) {
+            if (id.startsWith("ISOLATE_"))
+                isolates.add(isolateName(id));
+            else if (isGene(id))
+                genes.add(geneId(id));
+            else if (id.startsWith("OG"))
+                orthogroups.add(groupId(id));
+        }
+        Map<String, Map<String, Object>> found = load(isolates, genes, orthogroups);
+
+        GraphContextBuilder context = new GraphContextBuilder();
+        for (String id : ids) {
+            if (id.startsWith("ISOLATE_")) {
+                Map<String, Object> isolate = found.get("ISOLATE:" + isolateName(id));
+                if (isolate != null) {
+                    context.node(id, "Isolate")
+                            .field("Name", isolateName(id))
+                            .field("Country", isolate.get("country"))
+                            .field("Host", isolate.get("host"))
+                            .endNode();
+                }
+            } else if (isGene(id)) {
+                Map<String, Object> gene = found.get("GENE:" + geneId(id));
+                if (gene != null) {
+                    Object description = gene.get("description");
+                    context.node("GENE_" + geneId(id), "Gene")
+                            .field("Symbol", gene.get("symbol"))
+                            .field("Description", description != null ? description : "");
+                    if (gene.get("isolate") != null)
+                        context.relation("FOUND_IN", "ISOLATE_" + gene.get("isolate"));
+                    if (gene.get("orthogroup") != null)
+                        context.relation("BELONGS_TO", "OG_" + gene.get("orthogroup"));
+                    context.endNode();
+                }
+            } else if (id.startsWith("OG")) {
+                Map<String, Object> orthogroup = found.get("OG:" + groupId(id));
+                if (orthogroup != null) {
+                    context.node("OG_" + groupId(id), "Orthogroup")
+                            .field("GeneCount", orthogroup.get("geneCount"))
+                            .endNode();
+                }
+            } else {
+                context.emptyNode(id, "Unknown");
+            }
+        }
+        log.info("Graph context for {} ids ({} isolates, {} genes, {} orthogroups) loaded in {} ms", ids.size(),
+                isolates.size(), genes.size(), orthogroups.size(), (System.nanoTime() - start) / 1_000_000);
+        // Visible nodes carry no retrieval score; the packer ranks them by the question's words
+        List<ContextPacker.Snippet> nodes = new ArrayList<>();
+        for (String node : context.nodes())
+            nodes.add(new ContextPacker.Snippet(node, VISIBLE_SCORE));
+        int beyondLimit = contextIds.size() - ids.size();
+        if (nodes.isEmpty())
+            return ContextPacker.Section.fixed(GraphContextBuilder.header(contextIds.size())
+                    + GraphContextBuilder.footer(beyondLimit));
+        return new ContextPacker.Section(GraphContextBuilder.header(contextIds.size()), nodes,
+                omitted -> GraphContextBuilder.footer(omitted + beyondLimit));
+    }
+
+    // "kind:id" -> projected fields; the first match wins for duplicate isolate names
+    @SuppressWarnings("unchecked")
+    private Map<String, Map<String, Object>> load(Set<String> isolates, Set<String> genes, Set<String> orthogroups) {
+        Map<String, Map<String, Object>> found = new HashMap<>();
+        if (isolates.isEmpty() && genes.isEmpty() && orthogroups.isEmpty())
+            return found;
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("isolates", new ArrayList<>(isolates));
+        parameters.put("genes", new ArrayList<>(genes));
+        parameters.put("orthogroups", new ArrayList<>(orthogroups));
+        for (Map<String, Object> row : neo4jClient.query(CONTEXT).bindAll(parameters).fetch().all()) {
+            found.putIfAbsent(row.get("kind") + ":" + row.get("id"), (Map<String, Object>) row.get("fields"));
+        }
+        return found;
+    }
+
+    private static boolean isGene(String id) {
+        return id.startsWith("GENE_") || id.contains("Gbon");
+    }
+
+    private static String isolateName(String id) {
+        return id.substring("ISOLATE_".length());
+    }
+
+    private static String geneId(String id) {
+        return id.startsWith("GENE_") ? id.substring("GENE_".length()) : id;
+    }
+
+    private static String groupId(String id) {
+        return id.startsWith("OG_") ? id.substring("OG_".length()) : id;
+    }
+}
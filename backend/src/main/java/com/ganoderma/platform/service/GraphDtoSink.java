@@ -0,0 +1,42 @@
+package com.ganoderma.platform.service;
+
+import com.ganoderma.platform.dto.GraphDto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Collects the elements into a {@link GraphDto}, for producers with a bounded output. */
+public class GraphDtoSink implements GraphSink {
+
+    private final List<GraphDto.NodeDto> nodes = new ArrayList<>();
+    private final List<GraphDto.LinkDto> links = new ArrayList<>();
+    private String truncatedBy;
+
+    @Override
+    public void node(GraphDto.NodeDto node) {
+        nodes.add(node);
+    }
+
+    @Override
+    public void link(GraphDto.LinkDto link) {
+        links.add(link);
+    }
+
+    @Override
+    public void truncated(String reason) {
+        truncatedBy = reason;
+    }
+
+    @Override
+    public void end(String next) {
+    }
+
+    public GraphDto graph() {
+        return GraphDto.builder()
+                .nodes(nodes)
+                .links(links)
+                .truncated(truncatedBy != null)
+                .truncatedBy(truncatedBy)
+                .build();
+    }
+}
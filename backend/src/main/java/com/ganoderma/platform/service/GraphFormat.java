@@ -0,0 +1,46 @@
+package com.ganoderma.platform.service;
+
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.OutputStream;
+
+/** Response encodings of graph views, chosen from the Accept header. */
+public enum GraphFormat {
+
+    JSON("application/json"),
+    NDJSON("application/x-ndjson"),
+    COLUMNAR_JSON(ColumnarGraphSink.JSON_TYPE),
+    COLUMNAR(ColumnarGraphSink.BINARY_TYPE);
+
+    private final String mediaType;
+
+    GraphFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String mediaType() {
+        return mediaType;
+    }
+
+    public static GraphFormat fromAccept(String accept) {
+        if (accept == null)
+            return JSON;
+        // The +json type contains the binary one, so it is checked first
+        if (accept.contains(COLUMNAR_JSON.mediaType))
+            return COLUMNAR_JSON;
+        if (accept.contains(COLUMNAR.mediaType))
+            return COLUMNAR;
+        if (accept.contains(NDJSON.mediaType))
+            return NDJSON;
+        return JSON;
+    }
+
+    public GraphSink sink(JsonMapper jsonMapper, OutputStream out) {
+        return switch (this) {
+            case JSON -> new JsonGraphSink(jsonMapper, out);
+            case NDJSON -> new NdjsonGraphSink(jsonMapper, out);
+            case COLUMNAR_JSON -> new ColumnarGraphSink(jsonMapper, out, false);
+            case COLUMNAR -> new ColumnarGraphSink(jsonMapper, out, true);
+        };
+    }
+}
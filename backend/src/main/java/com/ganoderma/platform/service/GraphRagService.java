@@ -6,29 +6,103 @@ import com.ganoderma.platform.model.Gene;
 import com.ganoderma.platform.repository.GeneRepository;
 import com.ganoderma.platform.repository.IsolateRepository;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.messages.AssistantMessage;
 import org.springframework.ai.chat.messages.SystemMessage;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Iterator;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class GraphRagService {
 
+    // Entity names the model wraps in << >> (SYSTEM_PROMPT rule 5), as the chat client parses them
+    private static final Pattern REFERENCE = Pattern.compile("<<([^>]+)>>");
+
     private final ChatClient.Builder chatClientBuilder;
     private final GeneRepository geneRepository;
     private final IsolateRepository isolateRepository;
     private final com.ganoderma.platform.repository.OrthogroupRepository orthogroupRepository;
+    private final GraphContextLoader graphContextLoader;
+    private final SearchService searchService;
+    private final GeneEmbeddingService geneEmbeddingService;
+    private final LlmCacheService llmCache;
+    private final ContextPacker contextPacker;
+    private final IntentClassifier intentClassifier;
+    private final EntityDictionary entityDictionary;
+    private final CypherQueryService cypherQueryService;
+
+    // "parallel": keyword and intent calls run side by side; "combined": one structured call
+    @Value("${ganoderma.chat.preprocessing:parallel}")
+    private String preprocessing;
+
+    @Value("${ganoderma.chat.timeout.preprocess-seconds:20}")
+    private long preprocessTimeoutSeconds;
+
+    @Value("${ganoderma.chat.timeout.retrieval-seconds:10}")
+    private long retrievalTimeoutSeconds;
+
+    @Value("${ganoderma.chat.timeout.cypher-seconds:30}")
+    private long cypherTimeoutSeconds;
+
+    @Value("${ganoderma.chat.timeout.answer-seconds:90}")
+    private long answerTimeoutSeconds;
+
+    // Search and similarity hits offered to the context packer per question
+    @Value("${ganoderma.chat.context.candidates:40}")
+    private int contextCandidates;
+
+    // Answer tokens requested from the LLM stream ahead of the client
+    @Value("${ganoderma.chat.stream-prefetch:32}")
+    private int streamPrefetch;
+
+    private ExecutorService chatExecutor;
+
+    @PostConstruct
+    void init() {
+        chatExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("chat-", 0).factory());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        chatExecutor.shutdownNow();
+    }
 
     private static final String SYSTEM_PROMPT = """
             You are a strict bioinformatics assistant specializing in Ganoderma genomics.
@@ -48,39 +122,266 @@ public class GraphRagService {
             {context}
             """;
 
+    /**
+     * Answers a chat message. The LLM pre-processing calls and the database
+     * lookups run concurrently on virtual threads: keyword extraction and
+     * intent detection together (or as one structured call in "combined"
+     * mode; keyword extraction is skipped when {@link EntityDictionary}
+     * finds named entities, intent detection when {@link IntentClassifier}
+     * is confident), the keyword search as soon as its term is known, the visible
+     * graph context alongside them, and Cypher generation once the intent is
+     * VISUALIZATION. Each stage has a timeout after which it is cancelled and
+     * a fallback is used; nothing started here outlives the call.
+     */
     public ChatDto.Response ask(ChatDto.Request request) {
-        String userQuestion = request.getMessage();
-        String scope = request.getScope() != null ? request.getScope() : "GLOBAL";
-        String contextJson = "";
-
-        // 1. Context Retrieval Strategy (Unified)
-        // Always start with global search/knowledge
-        contextJson = retrieveContext(userQuestion);
+        long start = System.nanoTime();
+        try (Pipeline pipeline = new Pipeline()) {
+            Prompt prompt = prepare(request, pipeline);
+
+            String aiResponse = pipeline.get(pipeline.start("answer", answerTimeoutSeconds,
+                    () -> llmCache.get(LlmCacheService.Kind.ANSWER, prompt.key(),
+                            () -> chatClientBuilder.build().prompt()
+                                    .messages(prompt.messages())
+                                    .call()
+                                    .content())));
+
+            Map<String, Long> timings = pipeline.timings(start);
+            log.info("Chat answered in {} ms: {}", timings.get("total"), timings);
+            return new ChatDto.Response(aiResponse, references(aiResponse), prompt.cypherQuery(), timings);
+        } catch (TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "The language model did not answer in time");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getCause());
+        }
+    }
 
-        // Append Explicit Graph Context if available (What the user sees)
-        if (request.getContextIds() != null && !request.getContextIds().isEmpty()) {
-            String graphContext = retrieveGraphContext(request.getContextIds());
-            if (contextJson.length() + graphContext.length() < 12000) { // Simple token safety check (approx)
-                contextJson += "\n\n=== USER VISIBLE GRAPH CONTEXT ===\n(The user is currently looking at these nodes)\n"
-                        + graphContext;
+    /**
+     * Same pipeline as {@link #ask}, but the answer is streamed: the Cypher
+     * query (if any) is sent as soon as it is generated, then the answer
+     * tokens as the LLM produces them. Tokens are pulled {@code prefetch} at
+     * a time, so a slow client holds back the upstream call, and a failed
+     * write (client gone) cancels it.
+     */
+    public void askStream(ChatDto.Request request, SseChatSink sink) throws IOException {
+        long start = System.nanoTime();
+        try (Pipeline pipeline = new Pipeline()) {
+            Prompt prompt = prepare(request, pipeline);
+            if (prompt.cypherQuery() != null)
+                sink.cypher(prompt.cypherQuery());
+
+            long answerStart = System.nanoTime();
+            Long firstToken = null;
+            StringBuilder answer = new StringBuilder();
+            String cached = llmCache.lookup(LlmCacheService.Kind.ANSWER, prompt.key());
+            if (cached != null) {
+                firstToken = 0L;
+                answer.append(cached);
+                sink.token(cached);
             } else {
-                contextJson += "\n\n=== USER VISIBLE GRAPH CONTEXT ===\n(Context too large, using partial)\n"
-                        + graphContext.substring(0, 2000) + "...";
+                Flux<String> tokens = chatClientBuilder.build().prompt()
+                        .messages(prompt.messages())
+                        .stream()
+                        .content()
+                        .timeout(Duration.ofSeconds(answerTimeoutSeconds));
+                // Closing the stream cancels the upstream subscription
+                try (Stream<String> stream = tokens.toStream(streamPrefetch)) {
+                    Iterator<String> it = stream.iterator();
+                    while (it.hasNext()) {
+                        String token = it.next();
+                        if (firstToken == null)
+                            firstToken = (System.nanoTime() - answerStart) / 1_000_000;
+                        answer.append(token);
+                        sink.token(token);
+                    }
+                }
+                if (!answer.isEmpty())
+                    llmCache.put(LlmCacheService.Kind.ANSWER, prompt.key(), answer.toString());
             }
+
+            Map<String, Long> timings = pipeline.timings(start);
+            timings.remove("total");
+            if (firstToken != null)
+                timings.put("first-token", firstToken);
+            timings.put("answer", (System.nanoTime() - answerStart) / 1_000_000);
+            timings.put("total", (System.nanoTime() - start) / 1_000_000);
+            log.info("Chat streamed in {} ms: {}", timings.get("total"), timings);
+            sink.references(references(answer.toString()));
+            sink.end(timings);
         }
+    }
 
+    /**
+     * The {@code <<name>>} references of an answer resolved against the
+     * entity dictionary; names it does not know are flagged unresolved, as
+     * the model probably made them up.
+     */
+    private List<ChatDto.EntityReference> references(String answer) {
+        List<ChatDto.EntityReference> references = new ArrayList<>();
+        if (answer == null)
+            return references;
+        List<String> unresolved = new ArrayList<>();
+        Matcher matcher = REFERENCE.matcher(answer);
+        while (matcher.find()) {
+            String name = matcher.group(1).strip();
+            List<EntityDictionary.Match> matches = entityDictionary.resolve(name);
+            if (matches.isEmpty())
+                unresolved.add(name);
+            references.add(ChatDto.EntityReference.builder()
+                    .name(name)
+                    .start(matcher.start())
+                    .end(matcher.end())
+                    .type(matches.isEmpty() ? null : matches.get(0).kind().name())
+                    .ids(matches.stream().map(EntityDictionary.Match::contextId).filter(Objects::nonNull).distinct()
+                            .toList())
+                    .resolved(!matches.isEmpty())
+                    .build());
+        }
+        if (!unresolved.isEmpty())
+            log.info("Chat answer names {} unknown entities: {}", unresolved.size(), unresolved);
+        return references;
+    }
+
+    /** The messages for the final answer and the Cypher query generated on the way. */
+    private record Prompt(List<Message> messages, String cypherQuery) {
+
+        /** The whole prompt, as the answer cache key. */
+        String key() {
+            return conversationKey(messages, "");
+        }
+    }
+
+    private Prompt prepare(ChatDto.Request request, Pipeline pipeline) {
+        String userQuestion = request.getMessage();
+        String scope = request.getScope() != null ? request.getScope() : "GLOBAL";
+        boolean global = "GLOBAL".equals(scope);
+        List<String> contextIds = request.getContextIds();
+        boolean hasGraphContext = contextIds != null && !contextIds.isEmpty();
+
+        // Build Message History EARLY (Used for both Cypher Gen and Final Answer)
+        List<Message> history = buildHistory(request.getHistory());
+
+        // 1. Pre-processing: search term and intent depend only on the question.
+        // Entities named in the question replace the keyword LLM call, and a
+        // confident local intent prediction saves the intent LLM call.
+        List<EntityDictionary.Match> entities = entityDictionary.find(userQuestion);
+        String entityTerm = entities.isEmpty() ? null
+                : String.join(", ", entities.stream().map(EntityDictionary.Match::name).distinct().toList());
+        IntentClassifier.Prediction localIntent = global ? intentClassifier.classify(userQuestion) : null;
+        boolean intentKnown = localIntent != null && localIntent.confident();
+        Stage<Preprocessing> combined = null;
+        Stage<String> keywords = null;
+        Stage<String> intent = null;
+        if ("combined".equals(preprocessing) && !intentKnown) {
+            combined = pipeline.start("preprocess", preprocessTimeoutSeconds, () -> preprocess(userQuestion));
+        } else {
+            if (entityTerm == null)
+                keywords = pipeline.start("keywords", preprocessTimeoutSeconds, () -> extractSearchTerm(userQuestion));
+            if (global && !intentKnown)
+                intent = pipeline.start("intent", preprocessTimeoutSeconds, () -> detectIntent(userQuestion));
+        }
+        Preprocessing fallback = new Preprocessing(userQuestion, "QA");
+
+        // 2. Context retrieval (Unified): global search as soon as the term is known,
+        // and what the user sees in the meantime
+        Stage<Preprocessing> preprocessed = combined;
+        Stage<String> searchTerm = keywords;
+        Stage<ContextPacker.Section> retrieval = pipeline.start("retrieval",
+                preprocessTimeoutSeconds + retrievalTimeoutSeconds,
+                () -> entityTerm != null ? retrieveContext(userQuestion, entityTerm, entities)
+                        : retrieveContext(userQuestion, preprocessed != null
+                                ? pipeline.join(preprocessed, fallback).keywords()
+                                : pipeline.join(searchTerm, userQuestion), List.of()));
+        // Orthogroups named in the question, with their genes and isolates
+        List<String> mentionedGroups = entities.stream()
+                .filter(e -> e.kind() == EntityDictionary.Kind.ORTHOGROUP)
+                .map(EntityDictionary.Match::contextId)
+                .toList();
+        Stage<ContextPacker.Section> mentionedContext = mentionedGroups.isEmpty() ? null
+                : pipeline.start("entity-graph", retrievalTimeoutSeconds,
+                        () -> graphContextLoader.section(mentionedGroups));
+        Stage<ContextPacker.Section> graphContext = hasGraphContext
+                ? pipeline.start("graph-context", retrievalTimeoutSeconds, () -> retrieveGraphContext(contextIds))
+                : null;
         // Special specific Entity focus override if needed, but usually GraphContext
         // covers it if the node is visible.
-        if (request.getEntityId() != null && (request.getContextIds() == null || request.getContextIds().isEmpty())) {
-            String entityCtx = retrieveEntityContext(request.getEntityId());
-            contextJson += "\n\n=== FOCUSED ENTITY ===\n" + entityCtx;
+        Stage<String> entityContext = request.getEntityId() != null && !hasGraphContext
+                ? pipeline.start("entity-context", retrievalTimeoutSeconds,
+                        () -> retrieveEntityContext(request.getEntityId()))
+                : null;
+
+        // 3. Intent Detection & Cypher Generation (Only for GLOBAL scope)
+        String cypherQuery = null;
+        if (global) {
+            String detected = intentKnown ? localIntent.intent()
+                    : combined != null ? pipeline.join(combined, fallback).intent()
+                    : pipeline.join(intent, "QA");
+            if ("VISUALIZATION".equals(detected)) {
+                // Pass history to allow refinement
+                cypherQuery = pipeline.join(pipeline.start("cypher", cypherTimeoutSeconds,
+                        () -> generateCypher(userQuestion, history, entities)), null);
+            }
+        }
+
+        List<ContextPacker.Section> sections = new ArrayList<>();
+        sections.add(pipeline.join(retrieval, ContextPacker.Section.fixed("")));
+        if (mentionedContext != null) {
+            ContextPacker.Section mentioned = pipeline.join(mentionedContext, ContextPacker.Section.fixed(""));
+            sections.add(new ContextPacker.Section("\n\n=== ORTHOGROUPS MENTIONED ===\n" + mentioned.header(),
+                    mentioned.snippets(), mentioned.footer()));
+        }
+        // Append Explicit Graph Context if available (What the user sees)
+        if (graphContext != null) {
+            ContextPacker.Section visible = pipeline.join(graphContext,
+                    ContextPacker.Section.fixed(GraphContextBuilder.empty()));
+            sections.add(new ContextPacker.Section(
+                    "\n\n=== USER VISIBLE GRAPH CONTEXT ===\n(The user is currently looking at these nodes)\n"
+                            + visible.header(),
+                    visible.snippets(), visible.footer()));
+        }
+        if (entityContext != null) {
+            sections.add(ContextPacker.Section.fixed("\n\n=== FOCUSED ENTITY ===\n"
+                    + pipeline.join(entityContext, "Entity not found or unknown type.")));
+        }
+        if (cypherQuery != null) {
+            sections.add(ContextPacker.Section.fixed("\n[SYSTEM: A Cypher query has been generated to update the graph. Briefly explain to the user what data is being visualized based on their request. Do not mention technical Cypher details, just the biological data.]"));
+        }
+
+        // Whole snippets, most relevant first, within what the model window leaves after
+        // the instructions, history, question and answer
+        String systemPrompt = SYSTEM_PROMPT.replace("{scope}", scope);
+        int reserved = contextPacker.count(systemPrompt) + contextPacker.count(userQuestion);
+        for (Message message : history)
+            reserved += contextPacker.count(message.getText());
+        String terms = userQuestion + " " + (entityTerm != null ? entityTerm
+                : preprocessed != null ? pipeline.join(preprocessed, fallback).keywords()
+                : pipeline.join(searchTerm, userQuestion));
+        ContextPacker.Packed context = contextPacker.pack(sections, terms, reserved);
+        log.info("Chat context: {} snippets kept, {} dropped, {} tokens (budget {})", context.kept(),
+                context.dropped(), context.tokens(), context.budget());
+
+        // 4. Build Final Messages for Chat Response (Combine System + History + User)
+        List<Message> chatMessages = new ArrayList<>();
+        chatMessages
+                .add(new SystemMessage(systemPrompt.replace("{context}", context.text())));
+        chatMessages.addAll(history);
+        chatMessages.add(new UserMessage(userQuestion));
+        return new Prompt(chatMessages, cypherQuery);
+    }
+
+    private static String conversationKey(List<Message> history, String question) {
+        StringBuilder key = new StringBuilder();
+        if (history != null) {
+            for (Message message : history)
+                key.append(message.getMessageType()).append(": ").append(message.getText()).append('\n');
         }
+        return key.append(question).toString();
+    }
 
-        // 2. Build Message History EARLY (Used for both Cypher Gen and Final Answer)
+    private static List<Message> buildHistory(List<ChatDto.MessageDto> messages) {
         List<Message> history = new ArrayList<>();
 
-        if (request.getHistory() != null) {
-            for (ChatDto.MessageDto msg : request.getHistory()) {
+        if (messages != null) {
+            for (ChatDto.MessageDto msg : messages) {
                 if ("user".equalsIgnoreCase(msg.getRole())) {
                     // Prevent consecutive user messages
                     if (!history.isEmpty() && history.get(history.size() - 1) instanceof UserMessage) {
@@ -104,112 +405,80 @@ public class GraphRagService {
         if (!history.isEmpty() && history.get(history.size() - 1) instanceof UserMessage) {
             history.remove(history.size() - 1);
         }
+        return history;
+    }
 
-        // 3. Intent Detection & Cypher Generation (Only for GLOBAL scope)
-        String cypherQuery = null;
-        String finalContextJson = contextJson != null ? contextJson : "";
-        String updatedContext = finalContextJson;
+    private record Stage<T>(String name, Future<T> future, long deadline) {
+    }
 
-        if ("GLOBAL".equals(scope)) {
-            String intent = detectIntent(userQuestion);
-            if ("VISUALIZATION".equals(intent)) {
-                // Pass history to allow refinement
-                cypherQuery = generateCypher(userQuestion, history);
-                if (cypherQuery != null) {
-                    updatedContext += "\n[SYSTEM: A Cypher query has been generated to update the graph. Briefly explain to the user what data is being visualized based on their request. Do not mention technical Cypher details, just the biological data.]";
+    /** The concurrent stages of one ask() call, with their durations; closing cancels any still running. */
+    private final class Pipeline implements AutoCloseable {
+
+        private final Map<String, Long> durations = new ConcurrentHashMap<>();
+        private final List<Stage<?>> stages = new ArrayList<>();
+
+        <T> Stage<T> start(String name, long timeoutSeconds, Callable<T> task) {
+            Future<T> future = chatExecutor.submit(() -> {
+                long start = System.nanoTime();
+                try {
+                    return task.call();
+                } finally {
+                    durations.put(name, (System.nanoTime() - start) / 1_000_000);
                 }
-            }
+            });
+            Stage<T> stage = new Stage<>(name, future, System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds));
+            stages.add(stage);
+            return stage;
         }
 
-        final String activeContext = updatedContext;
-
-        // 4. Build Final Messages for Chat Response (Combine System + History + User)
-        List<Message> chatMessages = new ArrayList<>();
-        chatMessages
-                .add(new SystemMessage(SYSTEM_PROMPT.replace("{context}", activeContext).replace("{scope}", scope)));
-        chatMessages.addAll(history);
-        chatMessages.add(new UserMessage(userQuestion));
+        /** The stage's result; past its deadline the stage is cancelled. */
+        <T> T get(Stage<T> stage) throws ExecutionException, TimeoutException {
+            try {
+                return stage.future().get(Math.max(0, stage.deadline() - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                stage.future().cancel(true);
+                log.warn("Chat stage '{}' timed out", stage.name());
+                throw e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Chat request interrupted");
+            }
+        }
 
-        ChatClient chatClient = chatClientBuilder.build();
-        String aiResponse = chatClient.prompt()
-                .messages(chatMessages)
-                .call()
-                .content();
+        /** Like {@link #get} but falls back to {@code fallback} when the stage fails or times out. */
+        <T> T join(Stage<T> stage, T fallback) {
+            try {
+                return get(stage);
+            } catch (TimeoutException e) {
+                return fallback;
+            } catch (ExecutionException e) {
+                log.warn("Chat stage '{}' failed: {}", stage.name(), e.getCause().getMessage());
+                return fallback;
+            }
+        }
 
-        if (cypherQuery != null) {
-            // System instruction handles the explanation now
+        /** Stage durations in start order, plus the total since {@code start}. */
+        Map<String, Long> timings(long start) {
+            Map<String, Long> timings = new LinkedHashMap<>();
+            for (Stage<?> stage : stages) {
+                Long duration = durations.get(stage.name());
+                if (duration != null)
+                    timings.put(stage.name(), duration);
+            }
+            timings.put("total", (System.nanoTime() - start) / 1_000_000);
+            return timings;
         }
 
-        return new ChatDto.Response(aiResponse, request.getEntityId(), cypherQuery);
+        @Override
+        public void close() {
+            for (Stage<?> stage : stages)
+                stage.future().cancel(true);
+        }
     }
 
-    private String retrieveGraphContext(List<String> contextIds) {
+    private ContextPacker.Section retrieveGraphContext(List<String> contextIds) {
         log.info("Retrieving Graph Context for {} IDs", contextIds != null ? contextIds.size() : 0);
-        if (contextIds == null || contextIds.isEmpty())
-            return "<GraphContext empty='true' />";
-
-        StringBuilder sb = new StringBuilder("<GraphContext item_count='" + contextIds.size() + "'>\n");
-        int count = 0;
-        int maxItems = 100;
-
-        for (String id : contextIds) {
-            if (count >= maxItems) {
-                sb.append("  <!-- Truncated " + (contextIds.size() - count) + " more items -->\n");
-                break;
-            }
-
-            if (id.startsWith("ISOLATE_")) {
-                String name = id.substring("ISOLATE_".length());
-                Isolate iso = isolateRepository.findByName(name);
-                if (iso != null) {
-                    sb.append(String.format("  <Node id='%s' type='Isolate'>\n", id));
-                    sb.append(String.format("    <Name>%s</Name>\n", iso.getName()));
-                    sb.append(String.format("    <Country>%s</Country>\n", iso.getOriginCountry()));
-                    sb.append(String.format("    <Host>%s</Host>\n", iso.getHost()));
-                    sb.append("  </Node>\n");
-                }
-                count++;
-            } else if (id.startsWith("GENE_") || id.contains("Gbon")) {
-                String geneId = id.startsWith("GENE_") ? id.substring("GENE_".length()) : id;
-                Optional<Gene> geneOpt = geneRepository.findByGeneId(geneId);
-                if (geneOpt.isPresent()) {
-                    Gene g = geneOpt.get();
-                    String fullId = "GENE_" + g.getGeneId();
-                    sb.append(String.format("  <Node id='%s' type='Gene'>\n", fullId));
-                    sb.append(String.format("    <Symbol>%s</Symbol>\n", g.getSymbol()));
-                    sb.append(String.format("    <Description>%s</Description>\n",
-                            g.getDescription() != null ? g.getDescription().replace("<", "&lt;").replace(">", "&gt;")
-                                    : ""));
-
-                    // Topology / Relationships
-                    if (g.getIsolate() != null) {
-                        sb.append(String.format("    <Relation type='FOUND_IN' target='ISOLATE_%s'/>\n",
-                                g.getIsolate().getName()));
-                    }
-                    if (g.getOrthogroup() != null) {
-                        sb.append(String.format("    <Relation type='BELONGS_TO' target='OG_%s'/>\n",
-                                g.getOrthogroup().getGroupId()));
-                    }
-                    sb.append("  </Node>\n");
-                }
-                count++;
-            } else if (id.startsWith("OG_") || id.startsWith("OG")) {
-                String ogId = id.startsWith("OG_") ? id.substring("OG_".length()) : id;
-                Optional<com.ganoderma.platform.model.Orthogroup> ogOpt = orthogroupRepository.findById(ogId);
-                if (ogOpt.isPresent()) {
-                    String fullId = "OG_" + ogOpt.get().getGroupId();
-                    sb.append(String.format("  <Node id='%s' type='Orthogroup'>\n", fullId));
-                    sb.append(String.format("    <GeneCount>%d</GeneCount>\n", ogOpt.get().getGeneCount()));
-                    sb.append("  </Node>\n");
-                }
-                count++;
-            } else {
-                sb.append(String.format("  <Node id='%s' type='Unknown'/>\n", id));
-                count++;
-            }
-        }
-        sb.append("</GraphContext>");
-        return sb.toString();
+        return graphContextLoader.section(contextIds);
     }
 
     private String retrieveEntityContext(String entityId) {
@@ -263,12 +532,12 @@ public class GraphRagService {
             """;
 
     private String extractSearchTerm(String question) {
-        ChatClient chatClient = chatClientBuilder.build();
-        String term = chatClient.prompt()
+        String term = llmCache.get(LlmCacheService.Kind.KEYWORDS, question, () -> chatClientBuilder.build()
+                .prompt()
                 .system(KEYWORD_EXTRACTION_PROMPT)
                 .user(question)
                 .call()
-                .content();
+                .content());
         return term != null ? term.trim() : question; // Fallback to original if LLM fails
     }
 
@@ -293,72 +562,103 @@ public class GraphRagService {
                 isolateCount, geneCount, ogCount);
     }
 
-    private String retrieveContext(String question) {
-        // Use AI to intelligently extract the search term
-        String searchTerm = extractSearchTerm(question).trim();
+    /**
+     * Search results for {@code searchTerm}, or with {@code entities} one
+     * search per entity named in the question (genes by symbol, isolates by
+     * name, host or country), plus genes semantically close to the question.
+     * One snippet per entity for the context packer to choose from: search
+     * hits scored relative to the best hit of their search (the best scoring
+     * 1), similar genes by their cosine similarity.
+     */
+    private ContextPacker.Section retrieveContext(String question, String searchTerm,
+            List<EntityDictionary.Match> entities) {
+        searchTerm = searchTerm.trim();
 
         // 0. Special Case: General Database Stats
         if ("DATABASE_STATS".equalsIgnoreCase(searchTerm) || searchTerm.toLowerCase().contains("database")) {
-            return getDatabaseSummary();
+            return ContextPacker.Section.fixed(getDatabaseSummary());
         }
 
-        StringBuilder sb = new StringBuilder("Search Results for '" + searchTerm + "':\n");
-        int count = 0;
-        int maxItems = 20;
-
-        // 1. Search Isolates (Host, Country, Name)
-        if (searchTerm.length() > 2) { // Avoid searching for 1-2 char terms which might match too many things
-            List<Isolate> isolates = new ArrayList<>();
-            isolates.addAll(isolateRepository.findByNameContainingIgnoreCase(searchTerm));
-            isolates.addAll(isolateRepository.findByHostContainingIgnoreCase(searchTerm));
-            isolates.addAll(isolateRepository.findByOriginCountryContainingIgnoreCase(searchTerm));
-
-            for (Isolate iso : isolates) {
-                if (count >= maxItems)
-                    break;
-                sb.append(String.format("- Isolate: %s (Host: %s, Country: %s)\n",
-                        iso.getName(), iso.getHost(), iso.getOriginCountry()));
-                count++;
+        List<ContextPacker.Snippet> snippets = new ArrayList<>();
+
+        // 1. Search Isolates (Host, Country, Name) and Genes (Symbol, Description)
+        Set<String> listedGenes = new HashSet<>();
+        Set<String> listedIsolates = new HashSet<>();
+        if (!entities.isEmpty()) {
+            Set<String> searched = new HashSet<>();
+            for (EntityDictionary.Match entity : entities) {
+                // Genes by symbol (all genes sharing it), the others by stored name
+                String term = entity.kind() == EntityDictionary.Kind.GENE ? entity.name() : entity.value();
+                Set<SearchService.Kind> kinds = switch (entity.kind()) {
+                    case GENE -> EnumSet.of(SearchService.Kind.GENE);
+                    case ISOLATE, HOST, COUNTRY -> EnumSet.of(SearchService.Kind.ISOLATE);
+                    case ORTHOGROUP -> EnumSet.noneOf(SearchService.Kind.class);
+                };
+                if (!kinds.isEmpty() && searched.add(kinds + term.toLowerCase()))
+                    addHits(snippets, searchService.search(term, kinds, contextCandidates), listedGenes,
+                            listedIsolates);
             }
+        } else if (searchTerm.length() > 2) { // Avoid searching for 1-2 char terms which might match too many things
+            addHits(snippets, searchService.search(searchTerm, EnumSet.allOf(SearchService.Kind.class),
+                    contextCandidates), listedGenes, listedIsolates);
+        }
 
-            // 2. Search Genes (Symbol, Description)
-            if (count < maxItems) {
-                List<Gene> genes = new ArrayList<>();
-                genes.addAll(geneRepository.findBySymbolContainingIgnoreCase(searchTerm));
-                genes.addAll(geneRepository.findByDescriptionContainingIgnoreCase(searchTerm));
-
-                for (Gene g : genes) {
-                    if (count >= maxItems)
-                        break;
-                    sb.append(String.format("- Gene: %s (Desc: %s)\n", g.getSymbol(), g.getDescription()));
-
-                    // Enrich with Relationships
-                    if (g.getIsolate() != null) {
-                        sb.append(String.format("    -> Found In Isolate: <<%s>> (Country: %s)\n",
-                                g.getIsolate().getName(), g.getIsolate().getOriginCountry()));
+        // 2. Genes semantically close to the question, for wording the keywords miss
+        if (geneEmbeddingService.isEnabled()) {
+            try {
+                for (SearchService.Hit hit : geneEmbeddingService
+                        .findSimilarGenes(geneEmbeddingService.embed(question), contextCandidates)) {
+                    if (listedGenes.add(hit.id())) {
+                        StringBuilder sb = new StringBuilder();
+                        appendGene(sb, hit);
+                        snippets.add(new ContextPacker.Snippet(sb.toString(), hit.score()));
                     }
-                    if (g.getOrthogroup() != null) {
-                        sb.append(String.format("    -> Part of Orthogroup: <<OG_%s>>\n",
-                                g.getOrthogroup().getGroupId()));
-                    }
-
-                    count++;
                 }
+            } catch (Exception e) {
+                log.warn("Similar gene lookup failed: {}", e.getMessage());
             }
         }
 
-        // 3. Fallback: Append Database Summary if search yielded poor results OR just
-        // as context
-        if (count == 0) {
-            sb.append("\n(No specific entities found matching '" + searchTerm
-                    + "'. However, here is the general database context below:)\n");
-            sb.append(getDatabaseSummary());
-        } else {
-            // Even if found, maybe useful?
-            // sb.append(getDatabaseSummary()); // Optional, might be noise
+        String header = "Search Results for '" + searchTerm + "':\n";
+        // 3. Fallback: Append Database Summary if search yielded poor results
+        if (snippets.isEmpty()) {
+            return ContextPacker.Section.fixed(header + "\n(No specific entities found matching '" + searchTerm
+                    + "'. However, here is the general database context below:)\n" + getDatabaseSummary());
         }
+        return new ContextPacker.Section(header, snippets, omitted -> "");
+    }
 
-        return sb.toString();
+    private static void addHits(List<ContextPacker.Snippet> snippets, List<SearchService.Hit> hits,
+            Set<String> listedGenes, Set<String> listedIsolates) {
+        // Lucene scores are unbounded; relative to the best hit they fall in [0, 1]
+        double best = hits.isEmpty() ? 1 : hits.get(0).score();
+        for (SearchService.Hit hit : hits) {
+            StringBuilder sb = new StringBuilder();
+            if (hit.kind() == SearchService.Kind.ISOLATE) {
+                if (!listedIsolates.add(hit.id()))
+                    continue;
+                sb.append(String.format("- Isolate: %s (Host: %s, Country: %s)\n",
+                        hit.name(), hit.host(), hit.country()));
+            } else {
+                if (!listedGenes.add(hit.id()))
+                    continue;
+                appendGene(sb, hit);
+            }
+            snippets.add(new ContextPacker.Snippet(sb.toString(), best > 0 ? hit.score() / best : 0));
+        }
+    }
+
+    private static void appendGene(StringBuilder sb, SearchService.Hit gene) {
+        sb.append(String.format("- Gene: %s (Desc: %s)\n", gene.name(), gene.description()));
+
+        // Enrich with Relationships
+        if (gene.isolate() != null) {
+            sb.append(String.format("    -> Found In Isolate: <<%s>> (Country: %s)\n",
+                    gene.isolate(), gene.country()));
+        }
+        if (gene.orthogroup() != null) {
+            sb.append(String.format("    -> Part of Orthogroup: <<OG_%s>>\n", gene.orthogroup()));
+        }
     }
 
     private static final String CYPHER_GEN_SYSTEM_PROMPT = """
@@ -410,20 +710,75 @@ public class GraphRagService {
             """;
 
     private String detectIntent(String userRequest) {
-        ChatClient chatClient = chatClientBuilder.build();
-        String result = chatClient.prompt()
+        String result = llmCache.get(LlmCacheService.Kind.INTENT, userRequest, () -> chatClientBuilder.build()
+                .prompt()
                 .system(INTENT_DETECTION_PROMPT)
                 .user(userRequest)
                 .call()
-                .content();
+                .content());
         return result != null ? result.trim() : "QA";
     }
 
+    /** Search term and intent of a question, from a single structured LLM call. */
+    record Preprocessing(String keywords, String intent) {
+    }
+
+    private static final String PREPROCESSING_PROMPT = """
+            You analyse a user's question about a biological database in two ways at once.
+
+            TASK 1 - "keywords":
+            """ + KEYWORD_EXTRACTION_PROMPT + """
+
+            TASK 2 - "intent":
+            """ + INTENT_DETECTION_PROMPT + """
+
+            Answer with both results in the requested format.
+            """;
+
+    private Preprocessing preprocess(String userQuestion) {
+        // Shares the caches of the separate keyword and intent calls
+        String cachedKeywords = llmCache.lookup(LlmCacheService.Kind.KEYWORDS, userQuestion);
+        String cachedIntent = llmCache.lookup(LlmCacheService.Kind.INTENT, userQuestion);
+        if (cachedKeywords != null && cachedIntent != null)
+            return new Preprocessing(cachedKeywords.trim(), cachedIntent.trim());
+
+        ChatClient chatClient = chatClientBuilder.build();
+        Preprocessing result = chatClient.prompt()
+                .system(PREPROCESSING_PROMPT)
+                .user(userQuestion)
+                .call()
+                .entity(Preprocessing.class);
+        if (result != null && result.keywords() != null && !result.keywords().isBlank())
+            llmCache.put(LlmCacheService.Kind.KEYWORDS, userQuestion, result.keywords());
+        if (result != null && result.intent() != null)
+            llmCache.put(LlmCacheService.Kind.INTENT, userQuestion, result.intent());
+        // Fallback to original question / QA for anything the LLM left out
+        String keywords = result != null && result.keywords() != null && !result.keywords().isBlank()
+                ? result.keywords().trim()
+                : userQuestion;
+        String intent = result != null && result.intent() != null ? result.intent().trim() : "QA";
+        return new Preprocessing(keywords, intent);
+    }
+
     /***
      * Generates a Cypher query from natural language.
      */
     public String generateCypher(String userRequest, List<Message> history) {
-        ChatClient chatClient = chatClientBuilder.build();
+        return generateCypher(userRequest, history, entityDictionary.find(userRequest));
+    }
+
+    /**
+     * A templated query when the request opens the conversation and is one
+     * {@link CypherTemplates} covers, otherwise the LLM's; null when the query does not pass
+     * {@link CypherQueryService#validate}.
+     */
+    private String generateCypher(String userRequest, List<Message> history, List<EntityDictionary.Match> entities) {
+        boolean followUp = history != null && !history.isEmpty();
+        String template = cypherQueryService.template(userRequest, entities, followUp);
+        if (template != null && cypherQueryService.validate(template)) {
+            log.info("Templated Cypher: {}", template);
+            return template;
+        }
 
         List<Message> messages = new ArrayList<>();
         messages.add(new SystemMessage(CYPHER_GEN_SYSTEM_PROMPT));
@@ -432,10 +787,12 @@ public class GraphRagService {
         }
         messages.add(new UserMessage(userRequest));
 
-        String cypher = chatClient.prompt()
-                .messages(messages)
-                .call()
-                .content();
+        // Refinements depend on the conversation, so it is part of the cache key
+        String cypher = llmCache.get(LlmCacheService.Kind.CYPHER, conversationKey(history, userRequest),
+                () -> chatClientBuilder.build().prompt()
+                        .messages(messages)
+                        .call()
+                        .content());
 
         if (cypher == null)
             return null;
@@ -448,7 +805,11 @@ public class GraphRagService {
         }
 
         cypher = cypher.trim();
-        System.out.println("AI Generated Cypher: " + cypher);
+        if (!cypherQueryService.validate(cypher)) {
+            log.warn("Discarded AI generated Cypher: {}", cypher);
+            return null;
+        }
+        log.info("AI Generated Cypher: {}", cypher);
         return cypher;
     }
 
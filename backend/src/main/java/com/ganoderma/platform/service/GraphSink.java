@@ -0,0 +1,43 @@
+package com.ganoderma.platform.service;
+
+import com.ganoderma.platform.dto.GraphDto;
+
+import java.io.IOException;
+
+/**
+ * Receives graph elements as they are read from a cursor, so responses can
+ * be written without holding the whole graph in memory.
+ */
+public interface GraphSink {
+
+    void node(GraphDto.NodeDto node) throws IOException;
+
+    void link(GraphDto.LinkDto link) throws IOException;
+
+    /**
+     * Called before {@link #end} when the producer stopped early, e.g. on a
+     * node budget or timeout. Sinks that cannot report it ignore it.
+     */
+    default void truncated(String reason) throws IOException {
+    }
+
+    /**
+     * Called once after the last element.
+     *
+     * @param next continuation token of the next page, or null when there is none
+     */
+    void end(String next) throws IOException;
+
+    /** Writes a whole {@link GraphDto} into {@code sink}. */
+    static void write(GraphDto graph, GraphSink sink) throws IOException {
+        for (GraphDto.NodeDto node : graph.getNodes()) {
+            sink.node(node);
+        }
+        for (GraphDto.LinkDto link : graph.getLinks()) {
+            sink.link(link);
+        }
+        if (graph.getTruncatedBy() != null)
+            sink.truncated(graph.getTruncatedBy());
+        sink.end(null);
+    }
+}
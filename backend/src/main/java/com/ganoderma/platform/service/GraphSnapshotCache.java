@@ -0,0 +1,175 @@
+package com.ganoderma.platform.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialized graph views kept gzip-compressed in memory, keyed by view and
+ * tagged with the dataset version they were rendered from.
+ *
+ * A view is rendered once per version: concurrent requests for a missing or
+ * outdated entry wait for the single rendering started by the first of them.
+ * Entries are evicted least recently used first once their compressed size
+ * exceeds {@code ganoderma.graph.cache.max-bytes}.
+ */
+@Service
+@Slf4j
+public class GraphSnapshotCache {
+
+    // Distinguishes versions of this process from those of an earlier run
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    @Value("${ganoderma.graph.cache.max-bytes:268435456}")
+    private long maxBytes;
+
+    /** Writes a view; returns false if there is nothing to show (not cached). */
+    @FunctionalInterface
+    public interface Renderer {
+        boolean render(OutputStream out) throws IOException;
+    }
+
+    public record Snapshot(String etag, String contentType, byte[] gzip, long size) {
+
+        public void writeTo(OutputStream out, boolean compressed) throws IOException {
+            if (compressed) {
+                out.write(gzip);
+            } else {
+                try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+                    in.transferTo(out);
+                }
+            }
+        }
+    }
+
+    private static final class Entry {
+        final long version;
+        final CompletableFuture<Optional<Snapshot>> snapshot = new CompletableFuture<>();
+        final AtomicBoolean claimed = new AtomicBoolean();
+        volatile long lastAccess = System.nanoTime();
+
+        Entry(long version) {
+            this.version = version;
+        }
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /** ETag of {@code key} at {@code version}, known without rendering. */
+    public String etag(String key, long version) {
+        return "\"" + epoch + "-" + version + "-" + Integer.toHexString(key.hashCode()) + "\"";
+    }
+
+    public Optional<Snapshot> get(String key, long version, String contentType, Renderer renderer)
+            throws IOException {
+        Entry entry = entries.compute(key,
+                (k, existing) -> existing != null && existing.version >= version ? existing : new Entry(version));
+        if (entry.claimed.compareAndSet(false, true)) {
+            Optional<Snapshot> snapshot;
+            try {
+                snapshot = render(key, entry.version, contentType, renderer);
+            } catch (IOException | RuntimeException e) {
+                entries.remove(key, entry);
+                entry.snapshot.completeExceptionally(e);
+                throw e;
+            }
+            if (snapshot.isEmpty())
+                entries.remove(key, entry);
+            entry.snapshot.complete(snapshot);
+            evict();
+            return snapshot;
+        }
+        entry.lastAccess = System.nanoTime();
+        try {
+            return entry.snapshot.join();
+        } catch (CompletionException e) {
+            // The rendering this request waited for failed
+            if (e.getCause() instanceof IOException io)
+                throw io;
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : e;
+        }
+    }
+
+    private Optional<Snapshot> render(String key, long version, String contentType, Renderer renderer)
+            throws IOException {
+        long start = System.nanoTime();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        CountingOutputStream counter;
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer, 64 * 1024)) {
+            counter = new CountingOutputStream(gzip);
+            if (!renderer.render(counter))
+                return Optional.empty();
+        }
+        Snapshot snapshot = new Snapshot(etag(key, version), contentType, buffer.toByteArray(), counter.count);
+        log.debug("Rendered {} at version {}: {} bytes, {} gzipped, in {} ms", key, version, snapshot.size(),
+                snapshot.gzip().length, (System.nanoTime() - start) / 1_000_000);
+        return Optional.of(snapshot);
+    }
+
+    private void evict() {
+        long total = 0;
+        for (Entry entry : entries.values()) {
+            total += compressedSize(entry);
+        }
+        if (total <= maxBytes)
+            return;
+        List<Map.Entry<String, Entry>> oldestFirst = entries.entrySet().stream()
+                .filter(e -> e.getValue().snapshot.isDone())
+                .sorted(Comparator.comparingLong(e -> e.getValue().lastAccess))
+                .toList();
+        for (Map.Entry<String, Entry> oldest : oldestFirst) {
+            if (total <= maxBytes)
+                break;
+            if (entries.remove(oldest.getKey(), oldest.getValue()))
+                total -= compressedSize(oldest.getValue());
+        }
+    }
+
+    private static long compressedSize(Entry entry) {
+        if (!entry.snapshot.isDone() || entry.snapshot.isCompletedExceptionally())
+            return 0;
+        return entry.snapshot.join().map(snapshot -> (long) snapshot.gzip().length).orElse(0L);
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private final OutputStream out;
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+}
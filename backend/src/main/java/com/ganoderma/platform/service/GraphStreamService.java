@@ -0,0 +1,222 @@
+package com.ganoderma.platform.service;
+
+import com.ganoderma.platform.dto.GraphDto;
+import lombok.RequiredArgsConstructor;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Pages through the Gene / Isolate / Orthogroup graph in geneId order and
+ * streams each page from a driver cursor into a {@link GraphSink}.
+ *
+ * A page holds up to {@code limit} genes with their FOUND_IN and
+ * BELONGS_TO_OG links; the isolate and orthogroup nodes they point to are
+ * emitted once per page (clients merge nodes by id). The continuation token
+ * is the last geneId of the page, so paging stays stable while data is added.
+ */
+@Service
+@RequiredArgsConstructor
+public class GraphStreamService {
+
+    private final Neo4jClient neo4jClient;
+
+    @Value("${ganoderma.graph.page-size:5000}")
+    private int defaultPageSize;
+
+    @Value("${ganoderma.graph.max-page-size:50000}")
+    private int maxPageSize;
+
+    /** Optional filters of a graph page; null fields match everything. */
+    public record Filter(String isolate, String country, String ogPrefix) {
+    }
+
+    private static final String ISOLATES = """
+            MATCH (i:Isolate)
+            WHERE ($isolate IS NULL OR i.name = $isolate)
+              AND ($country IS NULL OR i.originCountry = $country)
+            RETURN i {.name, .host, .originCountry, .collectionDate} AS isolate
+            ORDER BY i.name
+            """;
+
+    // Pattern comprehensions instead of OPTIONAL MATCH + collect keep the gene scan streaming in index order
+    private static final String GENES = """
+            MATCH (g:Gene)
+            WHERE g.geneId > $after
+            WITH g,
+                 [(g)-[:FOUND_IN]->(i:Isolate) | i {.name, .host, .originCountry, .collectionDate}] AS isolates,
+                 [(g)-[:BELONGS_TO_OG]->(og:Orthogroup) | og {.groupId, .geneCount}] AS orthogroups
+            WHERE ($isolate IS NULL OR any(i IN isolates WHERE i.name = $isolate))
+              AND ($country IS NULL OR any(i IN isolates WHERE i.originCountry = $country))
+              AND ($ogPrefix IS NULL OR any(og IN orthogroups WHERE og.groupId STARTS WITH $ogPrefix))
+            RETURN g.geneId AS geneId, g.symbol AS symbol, g.description AS description, isolates, orthogroups
+            ORDER BY g.geneId
+            LIMIT $limit
+            """;
+
+    public int pageSize(Integer requested) {
+        if (requested == null || requested <= 0)
+            return defaultPageSize;
+        return Math.min(requested, maxPageSize);
+    }
+
+    /**
+     * Streams one page into {@code sink}. The first page (null token) also
+     * carries every isolate matching the filter, including isolates without
+     * genes.
+     *
+     * @throws IllegalArgumentException if the continuation token is invalid, see {@link #isValidToken}
+     */
+    public void streamPage(Filter filter, String continuationToken, int limit, GraphSink sink) throws IOException {
+        String after = continuationToken != null ? decodeToken(continuationToken) : "";
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("isolate", filter.isolate());
+        parameters.put("country", filter.country());
+        parameters.put("ogPrefix", filter.ogPrefix());
+        parameters.put("after", after);
+        parameters.put("limit", limit);
+
+        Set<String> emitted = new HashSet<>();
+        String[] lastGeneId = new String[1];
+        int[] genes = new int[1];
+        try {
+            neo4jClient.delegateTo(runner -> {
+                if (continuationToken == null) {
+                    Result isolates = runner.run(ISOLATES, parameters);
+                    while (isolates.hasNext()) {
+                        emit(isolateNode(isolates.next().get("isolate").asMap()), emitted, sink);
+                    }
+                }
+                Result result = runner.run(GENES, parameters);
+                while (result.hasNext()) {
+                    Record record = result.next();
+                    writeGene(record, emitted, sink);
+                    lastGeneId[0] = record.get("geneId").asString();
+                    genes[0]++;
+                }
+                return Optional.empty();
+            }).run();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        sink.end(genes[0] == limit ? encodeToken(lastGeneId[0]) : null);
+    }
+
+    private void writeGene(Record record, Set<String> emitted, GraphSink sink) {
+        String geneId = record.get("geneId").asString();
+        String symbol = stringOrNull(record.get("symbol"));
+        GraphDto.NodeDto geneNode = geneNode(geneId, symbol, stringOrNull(record.get("description")));
+        String nodeId = geneNode.getId();
+        emit(geneNode, emitted, sink);
+
+        for (Map<String, Object> isolate : record.get("isolates").asList(org.neo4j.driver.Value::asMap)) {
+            GraphDto.NodeDto isolateNode = isolateNode(isolate);
+            emit(isolateNode, emitted, sink);
+            link(sink, nodeId, isolateNode.getId(), "FOUND_IN");
+        }
+        for (Map<String, Object> orthogroup : record.get("orthogroups").asList(org.neo4j.driver.Value::asMap)) {
+            GraphDto.NodeDto orthogroupNode = orthogroupNode(orthogroup);
+            emit(orthogroupNode, emitted, sink);
+            link(sink, nodeId, orthogroupNode.getId(), "BELONGS_TO");
+        }
+    }
+
+    public static GraphDto.NodeDto geneNode(String geneId, String symbol, String description) {
+        Map<String, String> details = new HashMap<>();
+        details.put("Symbol", symbol);
+        return GraphDto.NodeDto.builder()
+                .id("GENE_" + geneId)
+                .name(symbol != null ? symbol : geneId)
+                .type("Gene")
+                .val(15)
+                .description(description)
+                .details(details)
+                .build();
+    }
+
+    public static GraphDto.NodeDto isolateNode(Map<String, Object> isolate) {
+        String name = (String) isolate.get("name");
+        Map<String, String> details = new HashMap<>();
+        details.put("Host", (String) isolate.get("host"));
+        details.put("Country", (String) isolate.get("originCountry"));
+        details.put("Date", (String) isolate.get("collectionDate"));
+        return GraphDto.NodeDto.builder()
+                .id("ISOLATE_" + name)
+                .name(name)
+                .type("Isolate")
+                .val(25)
+                .description("Isolate from " + isolate.get("originCountry"))
+                .details(details)
+                .build();
+    }
+
+    public static GraphDto.NodeDto orthogroupNode(Map<String, Object> orthogroup) {
+        String groupId = (String) orthogroup.get("groupId");
+        Object geneCount = orthogroup.get("geneCount");
+        Map<String, String> details = new HashMap<>();
+        details.put("Gene Count", String.valueOf(geneCount));
+        return GraphDto.NodeDto.builder()
+                .id("OG_" + groupId)
+                .name(groupId)
+                .type("Orthogroup")
+                .val(20)
+                .description("Orthologous Group with " + geneCount + " genes")
+                .details(details)
+                .build();
+    }
+
+    private static void emit(GraphDto.NodeDto node, Set<String> emitted, GraphSink sink) {
+        if (!emitted.add(node.getId()))
+            return;
+        try {
+            sink.node(node);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void link(GraphSink sink, String source, String target, String label) {
+        try {
+            sink.link(GraphDto.LinkDto.builder().source(source).target(target).label(label).build());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String stringOrNull(org.neo4j.driver.Value value) {
+        return value.isNull() ? null : value.asString();
+    }
+
+    public boolean isValidToken(String token) {
+        try {
+            decodeToken(token);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static String encodeToken(String geneId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(geneId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeToken(String token) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid continuation token");
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.ganoderma.platform.service;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Deterministic local stand-in for a real embedding model: words and their
+ * character trigrams are hashed into a fixed number of signed buckets and the
+ * vector is L2-normalised. Texts sharing words or word fragments end up
+ * close, which is enough for offline runs and tests without an API key.
+ */
+public class HashingEmbeddingModel implements EmbeddingModel {
+
+    private static final float TRIGRAM_WEIGHT = 0.5f;
+
+    private final int dimensions;
+
+    public HashingEmbeddingModel(int dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<String> texts = request.getInstructions();
+        List<Embedding> embeddings = new ArrayList<>(texts.size());
+        for (int i = 0; i < texts.size(); i++) {
+            embeddings.add(new Embedding(embed(texts.get(i)), i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getText());
+    }
+
+    @Override
+    public float[] embed(String text) {
+        float[] vector = new float[dimensions];
+        if (text == null)
+            return vector;
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty())
+                continue;
+            add(vector, word, 0, word.length(), 1f);
+            String padded = "^" + word + "$";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                add(vector, padded, i, i + 3, TRIGRAM_WEIGHT);
+            }
+        }
+        double norm = 0;
+        for (float v : vector)
+            norm += v * v;
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < vector.length; i++)
+                vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    private void add(float[] vector, String text, int from, int to, float weight) {
+        // FNV-1a, then the low bits pick the bucket and the top bit the sign
+        long hash = 0xcbf29ce484222325L;
+        for (int i = from; i < to; i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        int bucket = (int) ((hash >>> 1) % dimensions);
+        vector[bucket] += hash < 0 ? -weight : weight;
+    }
+}
@@ -0,0 +1,146 @@
+package com.ganoderma.platform.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Opens ingestion inputs, whether uploaded or on the server, choosing the
+ * fastest reader for their format: plain files are memory-mapped, gzip is
+ * inflated on a pipeline thread ahead of the parser, and BGZF blocks are
+ * inflated in parallel across cores. Offsets are always positions in the
+ * uncompressed data.
+ */
+@Service
+public class IngestionInputService {
+
+    public enum Compression {
+        PLAIN, GZIP, BGZF
+    }
+
+    private static final int HEADER_PROBE = 18;
+    private static final int IO_BUFFER = 1024 * 1024;
+
+    @Value("${ganoderma.ingestion.input-dir:${user.dir}}")
+    private String inputDirectory;
+
+    @Value("${ganoderma.ingestion.work-dir:${java.io.tmpdir}/ganoderma-ingestion}")
+    private String workDir;
+
+    @Value("${ganoderma.ingestion.inflater-threads:0}")
+    private int inflaterThreads;
+
+    private Path inputDir;
+    private int readAhead;
+    private ExecutorService inflaters;
+
+    @PostConstruct
+    void init() {
+        inputDir = Paths.get(inputDirectory).toAbsolutePath().normalize();
+        int threads = inflaterThreads > 0 ? inflaterThreads : Runtime.getRuntime().availableProcessors();
+        readAhead = threads * 4;
+        AtomicInteger threadCount = new AtomicInteger();
+        inflaters = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "bgzf-inflater-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        inflaters.shutdownNow();
+    }
+
+    /**
+     * Resolves a server-side path against {@code ganoderma.ingestion.input-dir},
+     * refusing paths that escape it.
+     */
+    public Path resolveServerPath(String path) throws IOException {
+        Path resolved = inputDir.resolve(path).toAbsolutePath().normalize();
+        if (!resolved.startsWith(inputDir))
+            throw new IllegalArgumentException("Path is outside of the ingestion input directory: " + path);
+        if (!Files.isRegularFile(resolved))
+            throw new FileNotFoundException(path);
+        return resolved;
+    }
+
+    /**
+     * Copies an upload to {@code ganoderma.ingestion.work-dir} for loaders that
+     * read their input more than once. The caller deletes the copy.
+     */
+    public Path stage(MultipartFile upload) throws IOException {
+        Path dir = Paths.get(workDir);
+        Files.createDirectories(dir);
+        Path target = Files.createTempFile(dir, "upload-", ".tmp");
+        try (InputStream in = upload.getInputStream()) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return target;
+    }
+
+    public Compression detect(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] header = in.readNBytes(HEADER_PROBE);
+            return detect(header, header.length);
+        }
+    }
+
+    /** Opens {@code file} positioned at {@code offset} bytes of uncompressed data. */
+    public InputStream open(Path file, long offset) throws IOException {
+        InputStream in = switch (detect(file)) {
+            case PLAIN -> new MappedFileInputStream(file, offset);
+            case GZIP -> gzip(Files.newInputStream(file));
+            case BGZF -> bgzf(Files.newInputStream(file));
+        };
+        if (offset > 0 && !(in instanceof MappedFileInputStream)) {
+            in.skipNBytes(offset);
+        }
+        return in;
+    }
+
+    /** Wraps an uploaded stream, decompressing it if it is gzip or BGZF. */
+    public InputStream decode(InputStream upload) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(upload, IO_BUFFER);
+        in.mark(HEADER_PROBE);
+        byte[] header = in.readNBytes(HEADER_PROBE);
+        in.reset();
+        return switch (detect(header, header.length)) {
+            case PLAIN -> in;
+            case GZIP -> gzip(in);
+            case BGZF -> bgzf(in);
+        };
+    }
+
+    public InputStream bgzf(InputStream compressed) {
+        return new BgzfParallelInputStream(new BufferedInputStream(compressed, IO_BUFFER), inflaters, readAhead);
+    }
+
+    public InputStream gzip(InputStream compressed) throws IOException {
+        return new PipelinedInputStream(new GZIPInputStream(new BufferedInputStream(compressed, IO_BUFFER), 64 * 1024),
+                256 * 1024, 8, "gzip-inflater");
+    }
+
+    private static Compression detect(byte[] header, int length) {
+        if (BgzfParallelInputStream.isBgzf(header, length))
+            return Compression.BGZF;
+        if (length >= 2 && (header[0] & 0xff) == 0x1f && (header[1] & 0xff) == 0x8b)
+            return Compression.GZIP;
+        return Compression.PLAIN;
+    }
+}
@@ -0,0 +1,267 @@
+package com.ganoderma.platform.service;
+
+import com.ganoderma.platform.dto.IngestionJobDto;
+import com.ganoderma.platform.dto.IngestionReportDto;
+import com.ganoderma.platform.model.IngestionJob;
+import com.ganoderma.platform.repository.IngestionJobRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs GFF ingestion as background jobs.
+ *
+ * Uploads are copied to {@code ganoderma.ingestion.work-dir} and processed on
+ * a bounded pool of {@code ganoderma.ingestion.jobs.concurrency} threads, so
+ * several isolates can load at once without taking request threads or more
+ * than that many database connections. Each checkpoint stores the committed
+ * byte offset on the job node; jobs interrupted by a restart are resumed from
+ * there at startup, and failed jobs can be resumed on request. The report of
+ * a completed job is kept on its node.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IngestionJobService {
+
+    private final GffLoaderService gffLoaderService;
+    private final IngestionJobRepository jobRepository;
+    private final IngestionInputService ingestionInputService;
+    private final JsonMapper jsonMapper;
+
+    @Value("${ganoderma.ingestion.work-dir:${java.io.tmpdir}/ganoderma-ingestion}")
+    private String workDir;
+
+    @Value("${ganoderma.ingestion.jobs.concurrency:2}")
+    private int concurrency;
+
+    @Value("${ganoderma.ingestion.jobs.queue-capacity:32}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    // Live progress of jobs running in this process
+    private record RunningJob(IngestionStats stats, long startOffset, long linesBefore, long genesBefore) {
+    }
+
+    private final Map<String, RunningJob> running = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void startExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "ingestion-" + threadCount.incrementAndGet());
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    void stopExecutor() {
+        // Running jobs are interrupted and resume from their last checkpoint on restart
+        executor.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedJobs() {
+        try {
+            for (IngestionJob job : jobRepository.findByStatusIn(
+                    EnumSet.of(IngestionJob.Status.QUEUED, IngestionJob.Status.RUNNING))) {
+                log.info("Resuming ingestion job {} from offset {}", job.getJobId(), job.getCommittedOffset());
+                schedule(job);
+            }
+        } catch (Exception e) {
+            log.warn("Could not resume ingestion jobs: {}", e.getMessage());
+        }
+    }
+
+    public IngestionJobDto submit(String isolateName, MultipartFile file, boolean incremental) throws IOException {
+        String jobId = UUID.randomUUID().toString();
+        Path dir = Paths.get(workDir);
+        Files.createDirectories(dir);
+        Path target = dir.resolve(jobId + ".upload"); // Compression is detected from content
+        try (InputStream in = file.getInputStream()) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return submit(jobId, isolateName, target, true, incremental);
+    }
+
+    /** Queues a job for a file already on the server (plain, .gz or bgzip). */
+    public IngestionJobDto submitPath(String isolateName, String path, boolean incremental) throws IOException {
+        Path file = ingestionInputService.resolveServerPath(path);
+        return submit(UUID.randomUUID().toString(), isolateName, file, false, incremental);
+    }
+
+    private IngestionJobDto submit(String jobId, String isolateName, Path file, boolean uploaded, boolean incremental)
+            throws IOException {
+        IngestionJob job = new IngestionJob();
+        job.setJobId(jobId);
+        job.setIsolateName(isolateName);
+        job.setFilePath(file.toString());
+        job.setUploaded(uploaded);
+        job.setIncremental(incremental);
+        // Offsets are in uncompressed bytes, so the total (and ETA) is only known for plain files
+        boolean plain = ingestionInputService.detect(file) == IngestionInputService.Compression.PLAIN;
+        job.setFileSize(plain ? Files.size(file) : null);
+        job.setStatus(IngestionJob.Status.QUEUED);
+        job.setCommittedOffset(0L);
+        job.setLinesParsed(0L);
+        job.setGenesWritten(0L);
+        job.setCreatedAt(Instant.now().toString());
+        jobRepository.save(job);
+
+        schedule(job);
+        return toDto(job);
+    }
+
+    public Optional<IngestionJobDto> resume(String jobId) {
+        return jobRepository.findById(jobId).map(job -> {
+            if (job.getStatus() == IngestionJob.Status.FAILED) {
+                job.setStatus(IngestionJob.Status.QUEUED);
+                job.setError(null);
+                jobRepository.save(job);
+                schedule(job);
+            }
+            return toDto(job);
+        });
+    }
+
+    public Optional<IngestionJobDto> status(String jobId) {
+        return jobRepository.findById(jobId).map(this::toDto);
+    }
+
+    public List<IngestionJobDto> list() {
+        return jobRepository.findAll().stream().map(this::toDto).toList();
+    }
+
+    private void schedule(IngestionJob job) {
+        try {
+            executor.execute(() -> run(job.getJobId()));
+        } catch (RejectedExecutionException e) {
+            job.setStatus(IngestionJob.Status.FAILED);
+            job.setError("Ingestion queue is full, resume the job later");
+            jobRepository.save(job);
+        }
+    }
+
+    private void run(String jobId) {
+        IngestionJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null)
+            return;
+
+        boolean incremental = Boolean.TRUE.equals(job.getIncremental());
+        IngestionStats stats = new IngestionStats(job.getIsolateName(), incremental ? "incremental" : "streaming");
+        long resumeOffset = job.getCommittedOffset() != null ? job.getCommittedOffset() : 0L;
+        long linesBefore = job.getLinesParsed() != null ? job.getLinesParsed() : 0L;
+        long genesBefore = job.getGenesWritten() != null ? job.getGenesWritten() : 0L;
+        stats.position(resumeOffset);
+        if (running.putIfAbsent(jobId, new RunningJob(stats, resumeOffset, linesBefore, genesBefore)) != null)
+            return; // Already running in this process
+
+        job.setStatus(IngestionJob.Status.RUNNING);
+        jobRepository.save(job);
+        try {
+            IngestionReportDto report = gffLoaderService.loadGffFile(job.getIsolateName(),
+                    Paths.get(job.getFilePath()), resumeOffset, stats, offset -> {
+                        job.setCommittedOffset(offset);
+                        job.setLinesParsed(linesBefore + stats.getLinesRead());
+                        job.setGenesWritten(genesBefore + stats.getGenesWritten());
+                        jobRepository.save(job);
+                    }, incremental);
+            job.setStatus(IngestionJob.Status.COMPLETED);
+            job.setFinishedAt(Instant.now().toString());
+            job.setReport(jsonMapper.writeValueAsString(report));
+            if (Boolean.TRUE.equals(job.getUploaded())) {
+                Files.deleteIfExists(Paths.get(job.getFilePath()));
+            }
+        } catch (Exception e) {
+            if (executor.isShutdown()) {
+                // Interrupted by shutdown: stay RUNNING so the job resumes at next startup
+                log.info("Ingestion job {} interrupted at offset {}", jobId, job.getCommittedOffset());
+                return;
+            }
+            log.error("Ingestion job {} failed at offset {}", jobId, job.getCommittedOffset(), e);
+            job.setStatus(IngestionJob.Status.FAILED);
+            job.setError(e.getMessage());
+        } finally {
+            running.remove(jobId);
+        }
+        jobRepository.save(job);
+    }
+
+    private IngestionJobDto toDto(IngestionJob job) {
+        long totalBytes = job.getFileSize() != null ? job.getFileSize() : 0L;
+        long committed = job.getCommittedOffset() != null ? job.getCommittedOffset() : 0L;
+        IngestionJobDto.IngestionJobDtoBuilder dto = IngestionJobDto.builder()
+                .jobId(job.getJobId())
+                .isolateName(job.getIsolateName())
+                .status(job.getStatus() != null ? job.getStatus().name() : null)
+                .incremental(Boolean.TRUE.equals(job.getIncremental()))
+                .linesParsed(job.getLinesParsed() != null ? job.getLinesParsed() : 0L)
+                .genesWritten(job.getGenesWritten() != null ? job.getGenesWritten() : 0L)
+                .bytesProcessed(committed)
+                .totalBytes(totalBytes)
+                .committedOffset(committed)
+                .error(job.getError())
+                .report(report(job));
+
+        RunningJob live = running.get(job.getJobId());
+        if (live != null) {
+            // Live figures; throughput and ETA cover the current run only
+            IngestionStats stats = live.stats();
+            long position = stats.getPosition();
+            double elapsedSeconds = stats.elapsedNanos() / 1e9;
+            long bytesThisRun = position - live.startOffset();
+            dto.linesParsed(live.linesBefore() + stats.getLinesRead())
+                    .genesWritten(live.genesBefore() + stats.getGenesWritten())
+                    .bytesProcessed(position)
+                    .genesPerSecond(stats.genesPerSecond());
+            if (totalBytes > 0 && bytesThisRun > 0 && elapsedSeconds > 0) {
+                double bytesPerSecond = bytesThisRun / elapsedSeconds;
+                dto.etaSeconds((long) Math.ceil(Math.max(0, totalBytes - position) / bytesPerSecond));
+            }
+        } else if (job.getStatus() == IngestionJob.Status.COMPLETED) {
+            dto.etaSeconds(0L);
+        }
+        return dto.build();
+    }
+
+    private IngestionReportDto report(IngestionJob job) {
+        if (job.getReport() == null)
+            return null;
+        try {
+            return jsonMapper.readValue(job.getReport(), IngestionReportDto.class);
+        } catch (JacksonException e) {
+            log.warn("Unreadable report of ingestion job {}: {}", job.getJobId(), e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.ganoderma.platform.service;
+
+import com.ganoderma.platform.dto.IngestionReportDto;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.List;
+
+/**
+ * Collects the throughput and peak heap figures reported by an ingestion run.
+ * Peak heap is the largest heap use sampled after each write of the run; the
+ * JVM-wide pool peaks are left alone, as concurrent runs share them. The heap
+ * is shared too, so a sample includes what concurrent runs hold at the time.
+ *
+ * Counters are written by the ingesting thread only; the ones read by job
+ * status requests are volatile.
+ */
+public class IngestionStats {
+
+    private final String isolateName;
+    private final String mode;
+    private final long startNanos;
+    private final List<MemoryPoolMXBean> heapPools;
+
+    private volatile long linesRead;
+    private volatile long genesWritten;
+    private volatile long position; // Byte offset reached in the input
+    private long batches;
+    private long proteinsWritten;
+    private long sequencesWritten;
+    private long spilledFeatures;
+    private long orphanFeatures;
+    // Incremental mode diff
+    private long genesInserted;
+    private long genesUpdated;
+    private long genesUnchanged;
+    private long genesDeleted;
+    private long proteinsDeleted;
+    private long peakHeap;
+
+    public IngestionStats(String isolateName, String mode) {
+        this.isolateName = isolateName;
+        this.mode = mode;
+        this.heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP && pool.isValid())
+                .toList();
+        this.startNanos = System.nanoTime();
+    }
+
+    public void position(long offset) {
+        position = offset;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    /** Genes written per second since the run started. */
+    public double genesPerSecond() {
+        long elapsedNanos = Math.max(1, System.nanoTime() - startNanos);
+        return genesWritten * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    public long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    public void lineRead() {
+        linesRead++;
+    }
+
+    public void batchWritten(int genes) {
+        genesWritten += genes;
+        batches++;
+        sampleHeap();
+    }
+
+    public void proteinsWritten(int proteins) {
+        proteinsWritten += proteins;
+        sampleHeap();
+    }
+
+    public void sequencesWritten(int sequences) {
+        sequencesWritten += sequences;
+        sampleHeap();
+    }
+
+    private void sampleHeap() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            used += pool.getUsage() != null ? pool.getUsage().getUsed() : 0;
+        }
+        peakHeap = Math.max(peakHeap, used);
+    }
+
+    public void featureSpilled() {
+        spilledFeatures++;
+    }
+
+    public void featuresOrphaned(long features) {
+        orphanFeatures += features;
+    }
+
+    public void genesCompared(int inserted, int updated, int unchanged) {
+        genesInserted += inserted;
+        genesUpdated += updated;
+        genesUnchanged += unchanged;
+    }
+
+    public void genesDeleted(long genes) {
+        genesDeleted += genes;
+    }
+
+    public void proteinsDeleted(long proteins) {
+        proteinsDeleted += proteins;
+    }
+
+    public long getLinesRead() {
+        return linesRead;
+    }
+
+    public long getGenesWritten() {
+        return genesWritten;
+    }
+
+    /** Whether any batch (genes, proteins, sequences or deletions) has been committed. */
+    public boolean hasWrites() {
+        return batches > 0 || proteinsWritten > 0 || sequencesWritten > 0 || genesDeleted > 0
+                || proteinsDeleted > 0;
+    }
+
+    public IngestionReportDto toReport() {
+        long elapsedNanos = Math.max(1, System.nanoTime() - startNanos);
+        sampleHeap();
+        return IngestionReportDto.builder()
+                .isolateName(isolateName)
+                .mode(mode)
+                .linesRead(linesRead)
+                .genesWritten(genesWritten)
+                .batches(batches)
+                .proteinsWritten(proteinsWritten)
+                .sequencesWritten(sequencesWritten)
+                .spilledFeatures(spilledFeatures)
+                .orphanFeatures(orphanFeatures)
+                .genesInserted(genesInserted)
+                .genesUpdated(genesUpdated)
+                .genesUnchanged(genesUnchanged)
+                .genesDeleted(genesDeleted)
+                .proteinsDeleted(proteinsDeleted)
+                .elapsedMillis(elapsedNanos / 1_000_000)
+                .genesPerSecond(genesWritten * 1_000_000_000.0 / elapsedNanos)
+                .peakHeapBytes(peakHeap)
+                .build();
+    }
+}
@@ -0,0 +1,226 @@
+package com.ganoderma.platform.service;
+
+import com.ganoderma.platform.dto.ChatDto;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides between VISUALIZATION and QA without an LLM call when it can.
+ *
+ * Messages (English or French) are reduced to words, word pairs, the first
+ * word and rule cues (visualisation verbs, question words, a question mark);
+ * a logistic regression over these features is trained at startup on the
+ * "train" rows of the labelled corpus and checked against its "test" rows.
+ * Predictions below the confidence threshold are left to the LLM.
+ */
+@Service
+@Slf4j
+public class IntentClassifier {
+
+    public static final String VISUALIZATION = "VISUALIZATION";
+    public static final String QA = "QA";
+
+    // Accents are stripped before matching, so "montre" also covers "montré"
+    private static final Set<String> VIZ_CUES = Set.of("show", "display", "plot", "visualize", "visualise",
+            "visualization", "focus", "draw", "highlight", "zoom", "render", "map", "graph", "view", "see",
+            "filter", "add", "only", "affiche", "afficher", "montre", "montrer", "visualiser", "dessine",
+            "trace", "zoome", "voir", "graphe", "filtre", "ajoute", "seulement", "uniquement", "represente",
+            "apercu", "overview");
+    private static final Set<String> QA_CUES = Set.of("what", "why", "how", "which", "who", "where", "when",
+            "explain", "describe", "tell", "does", "is", "are", "summarize", "quoi", "pourquoi", "comment",
+            "combien", "quel", "quelle", "quels", "quelles", "qui", "ou", "quand", "explique", "decris",
+            "parle", "resume", "est");
+
+    /** Intent and probability of the likelier class; {@code confident} when it reaches the threshold. */
+    public record Prediction(String intent, double confidence, boolean confident) {
+    }
+
+    private record Example(boolean visualization, boolean test, String text) {
+    }
+
+    @Value("${ganoderma.chat.intent.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ganoderma.chat.intent.threshold:0.85}")
+    private double threshold;
+
+    @Value("${ganoderma.chat.intent.corpus:classpath:intent/intent-corpus.tsv}")
+    private Resource corpus;
+
+    @Value("${ganoderma.chat.intent.epochs:300}")
+    private int epochs;
+
+    private final Map<String, Integer> vocabulary = new HashMap<>();
+    private double[] weights = new double[0];
+    private double bias;
+    private double testAccuracy;
+    private double testCoverage;
+
+    private final LongAdder local = new LongAdder();
+    private final LongAdder fallback = new LongAdder();
+
+    @PostConstruct
+    void init() {
+        if (!enabled)
+            return;
+        List<Example> examples = load();
+        List<Example> train = examples.stream().filter(e -> !e.test()).toList();
+        List<Example> test = examples.stream().filter(Example::test).toList();
+        train(train);
+
+        // Accuracy on all held-out rows, coverage = share confident enough to skip the LLM
+        int correct = 0;
+        int confident = 0;
+        for (Example example : test) {
+            Prediction prediction = predict(example.text());
+            if (VISUALIZATION.equals(prediction.intent()) == example.visualization())
+                correct++;
+            if (prediction.confident())
+                confident++;
+        }
+        testAccuracy = test.isEmpty() ? 0 : (double) correct / test.size();
+        testCoverage = test.isEmpty() ? 0 : (double) confident / test.size();
+        log.info("Intent classifier trained on {} messages ({} features): test accuracy {}%, {}% above threshold {}",
+                train.size(), vocabulary.size(), Math.round(testAccuracy * 100), Math.round(testCoverage * 100),
+                threshold);
+    }
+
+    /**
+     * The local prediction for {@code message}, counted as a local answer
+     * when confident and as an LLM fallback otherwise.
+     */
+    public Prediction classify(String message) {
+        if (!enabled || weights.length == 0) {
+            fallback.increment();
+            return new Prediction(QA, 0, false);
+        }
+        Prediction prediction = predict(message);
+        (prediction.confident() ? local : fallback).increment();
+        return prediction;
+    }
+
+    public ChatDto.IntentStats stats() {
+        long localCount = local.sum();
+        long fallbackCount = fallback.sum();
+        long total = localCount + fallbackCount;
+        return ChatDto.IntentStats.builder()
+                .enabled(enabled)
+                .threshold(threshold)
+                .local(localCount)
+                .fallback(fallbackCount)
+                .fallbackRate(total > 0 ? (double) fallbackCount / total : 0)
+                .testAccuracy(testAccuracy)
+                .testCoverage(testCoverage)
+                .build();
+    }
+
+    private Prediction predict(String message) {
+        double z = bias;
+        for (String feature : features(message)) {
+            Integer index = vocabulary.get(feature);
+            if (index != null)
+                z += weights[index];
+        }
+        double p = 1 / (1 + Math.exp(-z));
+        double confidence = Math.max(p, 1 - p);
+        return new Prediction(p >= 0.5 ? VISUALIZATION : QA, confidence, confidence >= threshold);
+    }
+
+    // Full-batch gradient descent on the log loss with L2 regularisation; the corpus is small
+    private void train(List<Example> examples) {
+        List<int[]> rows = new ArrayList<>(examples.size());
+        for (Example example : examples) {
+            rows.add(features(example.text()).stream()
+                    .mapToInt(f -> vocabulary.computeIfAbsent(f, k -> vocabulary.size()))
+                    .toArray());
+        }
+        double[] w = new double[vocabulary.size()];
+        double b = 0;
+        double rate = 0.5;
+        double lambda = 1e-3;
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            double[] gradient = new double[w.length];
+            double gradientBias = 0;
+            for (int i = 0; i < rows.size(); i++) {
+                int[] row = rows.get(i);
+                double z = b;
+                for (int index : row)
+                    z += w[index];
+                double error = 1 / (1 + Math.exp(-z)) - (examples.get(i).visualization() ? 1 : 0);
+                for (int index : row)
+                    gradient[index] += error;
+                gradientBias += error;
+            }
+            for (int j = 0; j < w.length; j++)
+                w[j] -= rate * (gradient[j] / rows.size() + lambda * w[j]);
+            b -= rate * gradientBias / rows.size();
+        }
+        weights = w;
+        bias = b;
+    }
+
+    static Set<String> features(String message) {
+        String text = Normalizer.normalize(message.toLowerCase(Locale.ROOT), Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "");
+        List<String> words = new ArrayList<>();
+        for (String word : text.split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty())
+                words.add(word);
+        }
+        Set<String> features = new LinkedHashSet<>();
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+            features.add("w:" + word);
+            if (i + 1 < words.size())
+                features.add("b:" + word + " " + words.get(i + 1));
+            if (VIZ_CUES.contains(word))
+                features.add("cue:viz");
+            if (QA_CUES.contains(word))
+                features.add("cue:qa");
+        }
+        if (!words.isEmpty())
+            features.add("first:" + words.get(0));
+        if (text.contains("?"))
+            features.add("cue:qmark");
+        return features;
+    }
+
+    // label <TAB> train|test <TAB> message, '#' starts a comment
+    private List<Example> load() {
+        List<Example> examples = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(corpus.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#"))
+                    continue;
+                String[] columns = line.split("\t", 3);
+                if (columns.length < 3)
+                    continue;
+                examples.add(new Example(VISUALIZATION.equals(columns[0].trim()), "test".equals(columns[1].trim()),
+                        columns[2]));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read intent corpus " + corpus, e);
+        }
+        return examples;
+    }
+}
@@ -0,0 +1,67 @@
+package com.ganoderma.platform.service;
+
+import com.ganoderma.platform.dto.GraphDto;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes a {@link GraphDto} document ({"nodes": [...], "links": [...],
+ * "next": ...}) incrementally, with "truncated" and "truncatedBy" when the
+ * producer stopped early. Nodes go straight to the output; links are
+ * held until the nodes array is closed, so memory is bounded by the links of
+ * one page.
+ */
+public class JsonGraphSink implements GraphSink {
+
+    private final JsonGenerator generator;
+    private final List<GraphDto.LinkDto> links = new ArrayList<>();
+    private String truncatedBy;
+
+    public JsonGraphSink(JsonMapper jsonMapper, OutputStream out) {
+        this.generator = jsonMapper.createGenerator(out);
+        generator.writeStartObject();
+        generator.writeName("nodes");
+        generator.writeStartArray();
+    }
+
+    @Override
+    public void node(GraphDto.NodeDto node) {
+        generator.writePOJO(node);
+    }
+
+    @Override
+    public void link(GraphDto.LinkDto link) {
+        links.add(link);
+    }
+
+    @Override
+    public void truncated(String reason) {
+        truncatedBy = reason;
+    }
+
+    @Override
+    public void end(String next) {
+        generator.writeEndArray();
+        generator.writeName("links");
+        generator.writeStartArray();
+        for (GraphDto.LinkDto link : links) {
+            generator.writePOJO(link);
+        }
+        generator.writeEndArray();
+        generator.writeName("next");
+        if (next != null)
+            generator.writeString(next);
+        else
+            generator.writeNull();
+        if (truncatedBy != null) {
+            generator.writeBooleanProperty("truncated", true);
+            generator.writeStringProperty("truncatedBy", truncatedBy);
+        }
+        generator.writeEndObject();
+        generator.close();
+    }
+}
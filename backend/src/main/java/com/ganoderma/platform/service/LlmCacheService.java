@@ -0,0 +1,90 @@
+package com.ganoderma.platform.service;
+
+import com.ganoderma.platform.dto.ChatDto;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * One {@link LlmResponseCache} per kind of LLM call made by the chat. Keys
+ * include the dataset version and all caches are emptied when a load
+ * changes the dataset, so no reply computed from older data is reused.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LlmCacheService {
+
+    public enum Kind {
+        KEYWORDS, INTENT, CYPHER, ANSWER
+    }
+
+    private final DatasetVersionService datasetVersionService;
+    private final GeneEmbeddingService geneEmbeddingService;
+
+    @Value("${ganoderma.chat.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ganoderma.chat.cache.max-entries:1000}")
+    private int maxEntries;
+
+    @Value("${ganoderma.chat.cache.ttl-minutes:60}")
+    private long ttlMinutes;
+
+    // 0 disables paraphrase lookups; only worth enabling with a real embedding model
+    @Value("${ganoderma.chat.cache.similarity-threshold:0}")
+    private double similarityThreshold;
+
+    private final Map<Kind, LlmResponseCache> caches = new EnumMap<>(Kind.class);
+
+    @PostConstruct
+    void init() {
+        for (Kind kind : Kind.values()) {
+            // Answers depend on the whole prompt, so they are only reused for the exact same one
+            double threshold = kind == Kind.ANSWER ? 0 : similarityThreshold;
+            caches.put(kind, new LlmResponseCache(kind.name().toLowerCase(), maxEntries, ttlMinutes * 60_000,
+                    threshold, geneEmbeddingService::embed));
+        }
+    }
+
+    /** The cached reply to {@code prompt}, or the result of {@code call} (cached unless null). */
+    public String get(Kind kind, String prompt, Supplier<String> call) {
+        String cached = lookup(kind, prompt);
+        if (cached != null)
+            return cached;
+        String value = call.get();
+        put(kind, prompt, value);
+        return value;
+    }
+
+    public String lookup(Kind kind, String prompt) {
+        return enabled ? caches.get(kind).get(prompt, datasetVersionService.current()) : null;
+    }
+
+    public void put(Kind kind, String prompt, String value) {
+        if (enabled)
+            caches.get(kind).put(prompt, datasetVersionService.current(), value);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDatasetChanged(DatasetChangedEvent event) {
+        caches.values().forEach(LlmResponseCache::clear);
+        log.debug("LLM caches cleared after {} change from {}", event.kind(), event.source());
+    }
+
+    public List<ChatDto.CacheStats> stats() {
+        List<ChatDto.CacheStats> stats = new ArrayList<>();
+        for (LlmResponseCache cache : caches.values())
+            stats.add(cache.stats());
+        return stats;
+    }
+}
@@ -0,0 +1,151 @@
+package com.ganoderma.platform.service;
+
+import com.ganoderma.platform.dto.ChatDto;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * LLM replies for one kind of call, keyed by the normalised prompt and the
+ * dataset version. Entries expire after {@code ttlMillis} and the least
+ * recently used ones are evicted beyond {@code maxEntries}.
+ *
+ * With a {@code similarityThreshold} above 0 and an embedder, a miss on the
+ * exact prompt falls back to the cached prompt of the same version whose
+ * embedding is closest, if its cosine similarity reaches the threshold, so
+ * paraphrases of a question share a reply.
+ */
+public class LlmResponseCache {
+
+    private record Entry(String value, long version, float[] vector, long expiresAt) {
+    }
+
+    private final String name;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final double similarityThreshold;
+    private final Function<String, float[]> embedder;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder similarHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public LlmResponseCache(String name, int maxEntries, long ttlMillis, double similarityThreshold,
+            Function<String, float[]> embedder) {
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.similarityThreshold = embedder != null ? similarityThreshold : 0;
+        this.embedder = embedder;
+    }
+
+    /** The cached reply to {@code prompt} (or a close paraphrase), or null. */
+    public String get(String prompt, long version) {
+        String key = key(prompt, version);
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt() > now) {
+                hits.increment();
+                return entry.value();
+            }
+            if (entry != null)
+                entries.remove(key);
+            if (similarityThreshold <= 0 || entries.isEmpty()) {
+                misses.increment();
+                return null;
+            }
+        }
+
+        // Embed outside the lock; the model may be a remote call
+        float[] vector = embedder.apply(normalize(prompt));
+        synchronized (this) {
+            Entry best = null;
+            double bestScore = similarityThreshold;
+            for (Entry entry : entries.values()) {
+                if (entry.version() != version || entry.vector() == null || entry.expiresAt() <= now)
+                    continue;
+                double score = cosine(vector, entry.vector());
+                if (score >= bestScore) {
+                    best = entry;
+                    bestScore = score;
+                }
+            }
+            if (best == null) {
+                misses.increment();
+                return null;
+            }
+            similarHits.increment();
+            return best.value();
+        }
+    }
+
+    public void put(String prompt, long version, String value) {
+        if (value == null)
+            return;
+        float[] vector = similarityThreshold > 0 ? embedder.apply(normalize(prompt)) : null;
+        Entry entry = new Entry(value, version, vector, System.currentTimeMillis() + ttlMillis);
+        synchronized (this) {
+            entries.put(key(prompt, version), entry);
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (entries.size() > maxEntries && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized ChatDto.CacheStats stats() {
+        long hitCount = hits.sum() + similarHits.sum();
+        long lookups = hitCount + misses.sum();
+        return ChatDto.CacheStats.builder()
+                .name(name)
+                .entries(entries.size())
+                .hits(hits.sum())
+                .similarHits(similarHits.sum())
+                .misses(misses.sum())
+                .evictions(evictions.sum())
+                .hitRate(lookups == 0 ? 0 : (double) hitCount / lookups)
+                .build();
+    }
+
+    private static String key(String prompt, long version) {
+        return version + ":" + normalize(prompt);
+    }
+
+    /** Lower case, single spaces, no surrounding punctuation: "Show me  toxins?" -> "show me toxins". */
+    static String normalize(String prompt) {
+        String text = prompt.toLowerCase(Locale.ROOT).replaceAll("\\s+", " ").trim();
+        int start = 0;
+        int end = text.length();
+        while (start < end && !Character.isLetterOrDigit(text.charAt(start)))
+            start++;
+        while (end > start && !Character.isLetterOrDigit(text.charAt(end - 1)))
+            end--;
+        return text.substring(start, end);
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        if (a.length != b.length)
+            return 0;
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return normA == 0 || normB == 0 ? 0 : dot / Math.sqrt(normA * normB);
+    }
+}
@@ -0,0 +1,82 @@
+package com.ganoderma.platform.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a plain file through read-only memory mappings of its FileChannel.
+ * Files larger than one window are mapped window by window, so offsets past
+ * 2 GB work and the address space used stays bounded.
+ */
+public class MappedFileInputStream extends InputStream {
+
+    private static final long WINDOW_SIZE = 256L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private long windowStart;
+    private MappedByteBuffer window;
+
+    public MappedFileInputStream(Path file, long offset) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+        map(Math.min(offset, size));
+    }
+
+    private void map(long position) throws IOException {
+        windowStart = position;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, size - position));
+    }
+
+    private boolean ensureAvailable() throws IOException {
+        if (window.hasRemaining())
+            return true;
+        long next = windowStart + window.capacity();
+        if (next >= size)
+            return false;
+        map(next);
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return ensureAvailable() ? window.get() & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0)
+            return 0;
+        if (!ensureAvailable())
+            return -1;
+        int n = Math.min(len, window.remaining());
+        window.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long position = windowStart + window.position();
+        long target = Math.min(size, position + Math.max(0, n));
+        if (target - windowStart < window.capacity()) {
+            window.position((int) (target - windowStart));
+        } else {
+            map(target);
+        }
+        return target - position;
+    }
+
+    @Override
+    public int available() {
+        return window.remaining();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,62 @@
+package com.ganoderma.platform.service;
+
+import com.ganoderma.platform.dto.GraphDto;
+import tools.jackson.databind.SequenceWriter;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes one JSON object per line: {"node": {...}}, {"link": {...}} and a
+ * final {"page": {"next": ..., "nodes": n, "links": m}}, which also carries
+ * "truncatedBy" when the producer stopped early.
+ */
+public class NdjsonGraphSink implements GraphSink {
+
+    private final OutputStream out;
+    private final SequenceWriter writer;
+    private long nodes;
+    private long links;
+    private String truncatedBy;
+
+    public NdjsonGraphSink(JsonMapper jsonMapper, OutputStream out) {
+        this.out = out;
+        this.writer = jsonMapper.writer().withRootValueSeparator("\n").writeValues(out);
+    }
+
+    @Override
+    public void node(GraphDto.NodeDto node) {
+        writer.write(Map.of("node", node));
+        nodes++;
+    }
+
+    @Override
+    public void link(GraphDto.LinkDto link) {
+        writer.write(Map.of("link", link));
+        links++;
+    }
+
+    @Override
+    public void truncated(String reason) {
+        truncatedBy = reason;
+    }
+
+    @Override
+    public void end(String next) throws IOException {
+        Map<String, Object> page = new HashMap<>();
+        page.put("next", next);
+        page.put("nodes", nodes);
+        page.put("links", links);
+        if (truncatedBy != null) {
+            page.put("truncated", true);
+            page.put("truncatedBy", truncatedBy);
+        }
+        writer.write(Map.of("page", page));
+        writer.flush();
+        out.write('\n');
+        out.flush();
+    }
+}
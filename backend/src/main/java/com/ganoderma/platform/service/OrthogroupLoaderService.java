@@ -0,0 +1,287 @@
+package com.ganoderma.platform.service;
+
+import com.ganoderma.platform.dto.OrthogroupReportDto;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.neo4j.driver.exceptions.RetryableException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Streams OrthoFinder results into the graph.
+ *
+ * Each row of {@code Orthogroups.tsv} (orthogroup, then one column of
+ * comma separated gene IDs per species) becomes an Orthogroup, and every ID
+ * is linked with BELONGS_TO_OG to the Gene with that geneId, or to the Gene
+ * encoding the Protein with that proteinId; the memberships of a group loaded
+ * before are replaced. geneCount counts distinct genes, so isoforms of one
+ * gene count once. IDs matching neither are kept as PendingOgMembership nodes,
+ * which {@link GraphBatchWriter#mergeGenes} and
+ * {@link GraphBatchWriter#mergeProteins} turn into links when the gene arrives.
+ *
+ * Batches are written by {@code ganoderma.ingestion.orthogroups.writer-threads}
+ * threads in parallel. They never split an orthogroup, but two batches can
+ * still lock the same Gene: isoforms of one gene may sit in different
+ * orthogroups. A batch failing with a transient error (lock timeout,
+ * deadlock) is retried after a backoff, its last attempt alone while the
+ * other writers wait. On any other failure the batches still queued are
+ * cancelled before the load fails.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrthogroupLoaderService {
+
+    private final GraphBatchWriter graphBatchWriter;
+    private final IngestionInputService ingestionInputService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${ganoderma.ingestion.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${ganoderma.ingestion.orthogroups.writer-threads:4}")
+    private int writerThreads;
+
+    @Value("${ganoderma.ingestion.orthogroups.write-attempts:5}")
+    private int writeAttempts;
+
+    @Value("${ganoderma.ingestion.orthogroups.retry-backoff-millis:200}")
+    private long retryBackoffMillis;
+
+    private ExecutorService writers;
+    // Writers share the read lock; a batch on its last attempt takes the write lock and runs alone
+    private final ReadWriteLock exclusive = new ReentrantReadWriteLock();
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        writers = Executors.newFixedThreadPool(writerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "orthogroup-writer-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        writers.shutdownNow();
+    }
+
+    /**
+     * @param orthogroups Orthogroups.tsv (plain or gzip)
+     * @param geneCounts  optional Orthogroups.GeneCount.tsv, checked against the IDs on each row
+     */
+    public OrthogroupReportDto load(InputStream orthogroups, InputStream geneCounts) throws IOException {
+        long startNanos = System.nanoTime();
+        Map<String, Integer> expectedCounts = geneCounts != null ? readGeneCounts(geneCounts) : Map.of();
+
+        long groups = 0;
+        long memberships = 0;
+        long mismatches = 0;
+        long batches = 0;
+        long[] written = new long[2]; // linked, deferred
+        ArrayDeque<Future<long[]>> inFlight = new ArrayDeque<>();
+        AtomicLong committed = new AtomicLong();
+
+        List<Map<String, Object>> batch = new ArrayList<>();
+        int batchMembers = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(ingestionInputService.decode(orthogroups), StandardCharsets.UTF_8), 1024 * 1024)) {
+            String header = reader.readLine();
+            if (header == null || !header.startsWith("Orthogroup"))
+                throw new IllegalArgumentException("Not an OrthoFinder Orthogroups.tsv file");
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty())
+                    continue;
+                int tab = line.indexOf('\t');
+                String groupId = tab < 0 ? line : line.substring(0, tab);
+                List<String> members = tab < 0 ? List.of() : parseMembers(line, tab + 1);
+
+                Integer expected = expectedCounts.get(groupId);
+                if (expected != null && expected != members.size())
+                    mismatches++;
+
+                Map<String, Object> row = new HashMap<>();
+                row.put("groupId", groupId);
+                row.put("members", members);
+                batch.add(row);
+                groups++;
+                memberships += members.size();
+                batchMembers += members.size() + 1;
+
+                if (batchMembers >= batchSize) {
+                    submit(batch, inFlight, written, committed);
+                    batches++;
+                    batch = new ArrayList<>();
+                    batchMembers = 0;
+                }
+            }
+            if (!batch.isEmpty()) {
+                submit(batch, inFlight, written, committed);
+                batches++;
+            }
+            while (!inFlight.isEmpty()) {
+                collect(inFlight.poll(), written);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Batches still queued or running would keep writing after the load has failed
+            inFlight.forEach(future -> future.cancel(true));
+            if (committed.get() > 0)
+                eventPublisher.publishEvent(new DatasetChangedEvent(DatasetChangedEvent.Kind.ORTHOGROUPS,
+                        "Orthogroups.tsv (failed)"));
+            throw e;
+        }
+
+        long elapsedNanos = Math.max(1, System.nanoTime() - startNanos);
+        OrthogroupReportDto report = OrthogroupReportDto.builder()
+                .orthogroups(groups)
+                .memberships(memberships)
+                .linked(written[0])
+                .deferred(written[1])
+                .geneCountMismatches(mismatches)
+                .batches(batches)
+                .elapsedMillis(elapsedNanos / 1_000_000)
+                .membershipsPerSecond(memberships * 1_000_000_000.0 / elapsedNanos)
+                .build();
+        log.info("Loaded {} orthogroups, {} memberships ({} linked, {} deferred) in {} ms", groups, memberships,
+                report.getLinked(), report.getDeferred(), report.getElapsedMillis());
+        if (mismatches > 0)
+            log.warn("{} orthogroups differ from Orthogroups.GeneCount.tsv", mismatches);
+        eventPublisher.publishEvent(new DatasetChangedEvent(DatasetChangedEvent.Kind.ORTHOGROUPS, "Orthogroups.tsv"));
+        return report;
+    }
+
+    private void submit(List<Map<String, Object>> batch, ArrayDeque<Future<long[]>> inFlight, long[] written,
+            AtomicLong committed) throws IOException {
+        // Bound the parsed batches waiting for a writer
+        while (inFlight.size() >= writerThreads * 2) {
+            collect(inFlight.poll(), written);
+        }
+        inFlight.add(writers.submit(() -> {
+            long[] counts = write(batch);
+            committed.incrementAndGet();
+            return counts;
+        }));
+    }
+
+    private long[] write(List<Map<String, Object>> batch) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            boolean last = attempt >= writeAttempts;
+            Lock lock = last ? exclusive.writeLock() : exclusive.readLock();
+            lock.lockInterruptibly();
+            try {
+                return graphBatchWriter.mergeOrthogroups(batch);
+            } catch (RuntimeException e) {
+                if (last || !isTransient(e))
+                    throw e;
+                log.debug("Retrying orthogroup batch after transient failure ({}/{}): {}", attempt, writeAttempts,
+                        e.getMessage());
+            } finally {
+                lock.unlock();
+            }
+            // Exponential backoff with jitter, so the conflicting batches do not collide again
+            long backoff = retryBackoffMillis << Math.min(attempt - 1, 6);
+            Thread.sleep(backoff + ThreadLocalRandom.current().nextLong(backoff + 1));
+        }
+    }
+
+    // Lock timeouts and deadlocks, whether translated by Neo4jClient or not
+    private static boolean isTransient(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientDataAccessException || cause instanceof RetryableException)
+                return true;
+        }
+        return false;
+    }
+
+    private static void collect(Future<long[]> future, long[] written) throws IOException {
+        try {
+            long[] counts = future.get();
+            written[0] += counts[0];
+            written[1] += counts[1];
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing orthogroups", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to write orthogroup batch: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /** Splits the species columns of a row ("a, b\tc\t") into gene IDs. */
+    private static List<String> parseMembers(String line, int from) {
+        List<String> members = new ArrayList<>();
+        int start = from;
+        for (int i = from; i <= line.length(); i++) {
+            char c = i < line.length() ? line.charAt(i) : '\t';
+            if (c == ',' || c == '\t') {
+                int s = start;
+                int e = i;
+                while (s < e && line.charAt(s) == ' ')
+                    s++;
+                while (e > s && line.charAt(e - 1) == ' ')
+                    e--;
+                if (e > s)
+                    members.add(line.substring(s, e));
+                start = i + 1;
+            }
+        }
+        return members;
+    }
+
+    /** Reads the Total column of Orthogroups.GeneCount.tsv. */
+    private Map<String, Integer> readGeneCounts(InputStream geneCounts) throws IOException {
+        Map<String, Integer> counts = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(ingestionInputService.decode(geneCounts), StandardCharsets.UTF_8))) {
+            String header = reader.readLine();
+            if (header == null)
+                return counts;
+            String[] columns = header.split("\t");
+            int total = columns.length - 1;
+            while (total > 0 && !"Total".equals(columns[total]))
+                total--;
+            if (total == 0)
+                throw new IllegalArgumentException("Orthogroups.GeneCount.tsv has no Total column");
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t");
+                if (parts.length > total) {
+                    try {
+                        counts.put(parts[0], Integer.parseInt(parts[total].trim()));
+                    } catch (NumberFormatException e) {
+                        log.warn("Ignoring malformed gene count line: {}", line);
+                    }
+                }
+            }
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,109 @@
+package com.ganoderma.platform.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads a source stream on a dedicated thread, a few chunks ahead of the
+ * consumer. Used to run gzip inflation concurrently with GFF parsing instead
+ * of on the parsing thread.
+ */
+public class PipelinedInputStream extends InputStream {
+
+    private static final byte[] END = new byte[0];
+
+    private final BlockingQueue<byte[]> chunks;
+    private final Thread producer;
+    private volatile IOException failure;
+
+    private byte[] current = new byte[0];
+    private int position;
+    private boolean finished;
+
+    public PipelinedInputStream(InputStream source, int chunkSize, int depth, String threadName) {
+        this.chunks = new ArrayBlockingQueue<>(depth);
+        this.producer = new Thread(() -> produce(source, chunkSize), threadName);
+        this.producer.setDaemon(true);
+        this.producer.start();
+    }
+
+    private void produce(InputStream source, int chunkSize) {
+        try (InputStream in = source) {
+            while (true) {
+                byte[] chunk = new byte[chunkSize];
+                int n = in.readNBytes(chunk, 0, chunkSize);
+                if (n > 0)
+                    chunks.put(n == chunkSize ? chunk : Arrays.copyOf(chunk, n));
+                if (n < chunkSize)
+                    break;
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            return; // Consumer closed the stream
+        }
+        try {
+            chunks.put(END);
+        } catch (InterruptedException ignored) {
+            // Consumer closed the stream
+        }
+    }
+
+    private boolean ensureAvailable() throws IOException {
+        while (position >= current.length) {
+            if (finished)
+                return false;
+            try {
+                current = chunks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for input");
+            }
+            position = 0;
+            if (current == END) {
+                finished = true;
+                if (failure != null)
+                    throw failure;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return ensureAvailable() ? current[position++] & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0)
+            return 0;
+        if (!ensureAvailable())
+            return -1;
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && ensureAvailable()) {
+            int step = (int) Math.min(n - skipped, current.length - position);
+            position += step;
+            skipped += step;
+        }
+        return skipped;
+    }
+
+    @Override
+    public void close() {
+        producer.interrupt();
+    }
+}
@@ -0,0 +1,130 @@
+package com.ganoderma.platform.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keyword search over genes (symbol, description) and isolates (name, host,
+ * country) backed by the full-text indexes created by Neo4jSchemaInitializer.
+ * Both indexes are queried in one statement with the limit pushed into the
+ * index call, and the hits are merged by Lucene score.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SearchService {
+
+    public enum Kind { GENE, ISOLATE }
+
+    private static final String ISOLATES = """
+              CALL db.index.fulltext.queryNodes('isolate_search', $query, {limit: $limit}) YIELD node, score
+              RETURN 'ISOLATE' AS kind, node.name AS id, node.name AS name, null AS description,
+                     node.host AS host, node.originCountry AS country, null AS isolate, null AS orthogroup, score
+            """;
+
+    private static final String GENES = """
+              CALL db.index.fulltext.queryNodes('gene_search', $query, {limit: $limit}) YIELD node, score
+              WITH node, score, head([(node)-[:FOUND_IN]->(i:Isolate) | i]) AS i
+              RETURN 'GENE' AS kind, node.geneId AS id, node.symbol AS name, node.description AS description,
+                     null AS host, i.originCountry AS country, i.name AS isolate,
+                     head([(node)-[:BELONGS_TO_OG]->(og:Orthogroup) | og.groupId]) AS orthogroup, score
+            """;
+
+    private static final String RESULT = """
+            }
+            RETURN kind, id, name, description, host, country, isolate, orthogroup, score
+            ORDER BY score DESC
+            LIMIT $limit
+            """;
+
+    // Lucene query syntax characters, escaped in user input
+    private static final String SPECIAL = "+-&|!(){}[]^\"~*?:\\/";
+
+    /**
+     * One search result. Genes carry their symbol as {@code name} and the
+     * isolate they were found in; isolates only fill name, host and country.
+     */
+    public record Hit(Kind kind, String id, String name, String description, String host, String country,
+            String isolate, String orthogroup, double score) {
+    }
+
+    private final Neo4jClient neo4jClient;
+
+    /** Best {@code limit} matches of {@code term} among {@code kinds}, highest score first. */
+    public List<Hit> search(String term, Set<Kind> kinds, int limit) {
+        return search(term, null, kinds, limit);
+    }
+
+    /** As {@link #search(String, Set, int)}, matching only {@code field} (e.g. "symbol") when not null. */
+    public List<Hit> search(String term, String field, Set<Kind> kinds, int limit) {
+        String query = luceneQuery(term, field);
+        if (query.isEmpty() || kinds.isEmpty() || limit <= 0)
+            return List.of();
+
+        long start = System.nanoTime();
+        List<Hit> hits = new ArrayList<>();
+        for (Map<String, Object> row : neo4jClient.query(cypher(kinds))
+                .bindAll(Map.of("query", query, "limit", limit))
+                .fetch().all()) {
+            hits.add(new Hit(
+                    Kind.valueOf((String) row.get("kind")),
+                    (String) row.get("id"),
+                    (String) row.get("name"),
+                    (String) row.get("description"),
+                    (String) row.get("host"),
+                    (String) row.get("country"),
+                    (String) row.get("isolate"),
+                    (String) row.get("orthogroup"),
+                    ((Number) row.get("score")).doubleValue()));
+        }
+        log.debug("Search '{}' ({}) returned {} hits in {} ms", term, query, hits.size(),
+                (System.nanoTime() - start) / 1_000_000);
+        return hits;
+    }
+
+    /** The search statement over the indexes of {@code kinds}; parameters are $query and $limit. */
+    public static String cypher(Set<Kind> kinds) {
+        List<String> branches = new ArrayList<>();
+        if (kinds.contains(Kind.ISOLATE))
+            branches.add(ISOLATES);
+        if (kinds.contains(Kind.GENE))
+            branches.add(GENES);
+        return "CALL {\n" + String.join("  UNION ALL\n", branches) + RESULT;
+    }
+
+    /**
+     * Turns free text into a Lucene query requiring every word, each as an
+     * exact term or a prefix, so "guineensis" also finds "guineensis-like"
+     * and exact matches rank first. Returns "" when nothing is searchable.
+     */
+    public static String luceneQuery(String term) {
+        return luceneQuery(term, null);
+    }
+
+    /** As {@link #luceneQuery(String)}, each word restricted to {@code field} when not null. */
+    public static String luceneQuery(String term, String field) {
+        if (term == null)
+            return "";
+        List<String> clauses = new ArrayList<>();
+        for (String word : term.trim().toLowerCase(Locale.ROOT).split("\\s+")) {
+            StringBuilder escaped = new StringBuilder(word.length() + 4);
+            for (int i = 0; i < word.length(); i++) {
+                char c = word.charAt(i);
+                if (SPECIAL.indexOf(c) >= 0)
+                    escaped.append('\\');
+                escaped.append(c);
+            }
+            if (!escaped.isEmpty())
+                clauses.add((field != null ? field + ":(" : "(") + escaped + " OR " + escaped + "*)");
+        }
+        return String.join(" AND ", clauses);
+    }
+}
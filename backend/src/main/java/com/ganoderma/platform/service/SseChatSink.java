@@ -0,0 +1,55 @@
+package com.ganoderma.platform.service;
+
+import com.ganoderma.platform.dto.ChatDto;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a chat answer as Server-Sent Events: an optional "cypher" event
+ * with the generated graph query, "token" events with the answer text as it
+ * is generated, "references" with its resolved {@code <<name>>} spans, then
+ * "end" with the stage timings (or "error").
+ */
+public class SseChatSink {
+
+    private final JsonMapper jsonMapper;
+    private final OutputStream out;
+
+    public SseChatSink(JsonMapper jsonMapper, OutputStream out) {
+        this.jsonMapper = jsonMapper;
+        this.out = out;
+    }
+
+    public void cypher(String query) throws IOException {
+        event("cypher", Map.of("query", query));
+    }
+
+    public void token(String text) throws IOException {
+        event("token", Map.of("text", text));
+    }
+
+    public void references(List<ChatDto.EntityReference> references) throws IOException {
+        event("references", Map.of("references", references));
+    }
+
+    public void end(Map<String, Long> timings) throws IOException {
+        event("end", Map.of("timings", timings));
+    }
+
+    public void error(String message) throws IOException {
+        event("error", Map.of("message", message != null ? message : "Chat failed"));
+    }
+
+    private void event(String name, Object data) throws IOException {
+        // JSON has no raw newlines, so the payload always fits one data line
+        out.write(("event: " + name + "\ndata: ").getBytes(StandardCharsets.UTF_8));
+        out.write(jsonMapper.writeValueAsBytes(data));
+        out.write("\n\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+}
@@ -0,0 +1,92 @@
+package com.ganoderma.platform.service;
+
+import com.ganoderma.platform.dto.GraphDto;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the graph as Server-Sent Events: a "graph" event with
+ * {"nodes": [...], "links": [...]} every {@code batchSize} elements, so
+ * clients can draw a partial graph while the query runs, then an "end"
+ * event with the totals and the truncation flag (or an "error" event).
+ */
+public class SseGraphSink implements GraphSink {
+
+    private final JsonMapper jsonMapper;
+    private final OutputStream out;
+    private final int batchSize;
+    private final List<GraphDto.NodeDto> nodes = new ArrayList<>();
+    private final List<GraphDto.LinkDto> links = new ArrayList<>();
+    private long nodeCount;
+    private long linkCount;
+    private String truncatedBy;
+
+    public SseGraphSink(JsonMapper jsonMapper, OutputStream out, int batchSize) {
+        this.jsonMapper = jsonMapper;
+        this.out = out;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void node(GraphDto.NodeDto node) throws IOException {
+        nodes.add(node);
+        nodeCount++;
+        flushIfFull();
+    }
+
+    @Override
+    public void link(GraphDto.LinkDto link) throws IOException {
+        links.add(link);
+        linkCount++;
+        flushIfFull();
+    }
+
+    @Override
+    public void truncated(String reason) {
+        truncatedBy = reason;
+    }
+
+    @Override
+    public void end(String next) throws IOException {
+        flushBatch();
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("nodes", nodeCount);
+        summary.put("links", linkCount);
+        summary.put("truncated", truncatedBy != null);
+        summary.put("truncatedBy", truncatedBy);
+        event("end", summary);
+    }
+
+    public void error(String message) throws IOException {
+        flushBatch();
+        event("error", Map.of("message", message != null ? message : "Query failed"));
+    }
+
+    private void flushIfFull() throws IOException {
+        if (nodes.size() + links.size() >= batchSize)
+            flushBatch();
+    }
+
+    private void flushBatch() throws IOException {
+        if (nodes.isEmpty() && links.isEmpty())
+            return;
+        event("graph", GraphDto.builder().nodes(nodes).links(links).build());
+        nodes.clear();
+        links.clear();
+    }
+
+    private void event(String name, Object data) throws IOException {
+        // JSON has no raw newlines, so the payload always fits one data line
+        out.write(("event: " + name + "\ndata: ").getBytes(StandardCharsets.UTF_8));
+        out.write(jsonMapper.writeValueAsBytes(data));
+        out.write("\n\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+}
@@ -0,0 +1,166 @@
+package com.ganoderma.platform.service;
+
+import com.ganoderma.platform.dto.GraphDto;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColumnarGraphSinkTest {
+
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+
+    private static GraphDto.NodeDto node(String id, String type, String name, String description, Integer count,
+            Map<String, String> details) {
+        return GraphDto.NodeDto.builder()
+                .id(id)
+                .type(type)
+                .name(name)
+                .val(type.equals("Gene") ? 15 : 25)
+                .description(description)
+                .count(count)
+                .details(new HashMap<>(details))
+                .build();
+    }
+
+    private static GraphDto.LinkDto link(String source, String target, String label, Integer weight) {
+        return GraphDto.LinkDto.builder().source(source).target(target).label(label).weight(weight).build();
+    }
+
+    private static GraphDto sample() {
+        return GraphDto.builder()
+                .nodes(List.of(
+                        node("GENE_g1", "Gene", "Tox42", "Toxin-like protein", null, Map.of(
+                                "geneId", "g1", "start", "1200", "score", "0.75", "pseudo", "false",
+                                "chromosome", "007")),
+                        node("GENE_g2", "Gene", null, null, null, Map.of(
+                                "geneId", "g2", "start", "-35", "score", "1.0E-5", "pseudo", "true")),
+                        node("ISOLATE_MAL5", "Isolate", "G. boninense MAL5", null, null, Map.of(
+                                "host", "Elaeis guineensis", "originCountry", "Côte d'Ivoire")),
+                        node("OG_OG0001", "Orthogroup", "OG0001", null, 12, Map.of())))
+                .links(List.of(
+                        link("GENE_g1", "ISOLATE_MAL5", "FOUND_IN", null),
+                        link("GENE_g2", "ISOLATE_MAL5", "FOUND_IN", null),
+                        link("GENE_g1", "OG_OG0001", "BELONGS_TO_OG", 3),
+                        // Endpoint outside the graph
+                        link("GENE_g2", "OG_OG0099", "BELONGS_TO_OG", 0)))
+                .build();
+    }
+
+    private byte[] write(GraphDto graph, boolean binary, String next) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ColumnarGraphSink sink = new ColumnarGraphSink(jsonMapper, out, binary);
+        for (GraphDto.NodeDto node : graph.getNodes())
+            sink.node(node);
+        for (GraphDto.LinkDto link : graph.getLinks())
+            sink.link(link);
+        if (graph.getTruncatedBy() != null)
+            sink.truncated(graph.getTruncatedBy());
+        sink.end(next);
+        return out.toByteArray();
+    }
+
+    @Test
+    void binaryRoundTripIsLossless() throws IOException {
+        GraphDto graph = sample();
+        GraphDto decoded = ColumnarGraphSink.read(new ByteArrayInputStream(write(graph, true, "page-2")));
+
+        assertEquals(graph.getNodes(), decoded.getNodes());
+        assertEquals(graph.getLinks(), decoded.getLinks());
+        assertNull(decoded.getTruncated());
+        assertNull(decoded.getTruncatedBy());
+    }
+
+    @Test
+    void binaryRoundTripKeepsTruncation() throws IOException {
+        GraphDto graph = sample();
+        graph.setTruncatedBy(CypherGraphService.MAX_NODES);
+        GraphDto decoded = ColumnarGraphSink.read(new ByteArrayInputStream(write(graph, true, null)));
+
+        assertEquals(Boolean.TRUE, decoded.getTruncated());
+        assertEquals(CypherGraphService.MAX_NODES, decoded.getTruncatedBy());
+    }
+
+    @Test
+    void linksMayArriveBeforeTheirNodesAndNodesAreDeduplicated() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ColumnarGraphSink sink = new ColumnarGraphSink(jsonMapper, out, true);
+        sink.link(link("GENE_g1", "OG_OG0001", "BELONGS_TO_OG", null));
+        GraphDto.NodeDto gene = node("GENE_g1", "Gene", "Tox42", null, null, Map.of());
+        sink.node(gene);
+        sink.node(gene);
+        sink.node(node("OG_OG0001", "Orthogroup", "OG0001", null, null, Map.of()));
+        sink.end(null);
+
+        GraphDto decoded = ColumnarGraphSink.read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(2, decoded.getNodes().size());
+        assertEquals(List.of(link("GENE_g1", "OG_OG0001", "BELONGS_TO_OG", null)), decoded.getLinks());
+    }
+
+    @Test
+    void emptyGraphRoundTrips() throws IOException {
+        GraphDto decoded = ColumnarGraphSink.read(new ByteArrayInputStream(
+                write(GraphDto.builder().nodes(List.of()).links(List.of()).build(), true, null)));
+        assertTrue(decoded.getNodes().isEmpty());
+        assertTrue(decoded.getLinks().isEmpty());
+    }
+
+    @Test
+    void readRejectsOtherData() {
+        assertThrows(IOException.class,
+                () -> ColumnarGraphSink.read(new ByteArrayInputStream("{\"nodes\":[]}".getBytes())));
+    }
+
+    @Test
+    void propertyTypesAreInferredOnlyWhenTheTextSurvives() {
+        assertEquals(ColumnarGraphSink.LONG, ColumnarGraphSink.inferType(List.of("1200", "-35")));
+        assertEquals(ColumnarGraphSink.DOUBLE, ColumnarGraphSink.inferType(List.of("0.75", "1.0E-5")));
+        assertEquals(ColumnarGraphSink.BOOLEAN, ColumnarGraphSink.inferType(List.of("true", "false")));
+        // "007" and "1" would not come back as written
+        assertEquals(ColumnarGraphSink.STRING, ColumnarGraphSink.inferType(List.of("007")));
+        assertEquals(ColumnarGraphSink.STRING, ColumnarGraphSink.inferType(List.of("0.5", "1")));
+        assertEquals(ColumnarGraphSink.STRING, ColumnarGraphSink.inferType(List.of("true", "yes")));
+        assertEquals(ColumnarGraphSink.STRING, ColumnarGraphSink.inferType(List.of()));
+    }
+
+    @Test
+    void jsonVariantHoldsTheSameColumns() throws IOException {
+        GraphDto graph = sample();
+        graph.setTruncatedBy(CypherGraphService.TIMEOUT);
+        JsonNode json = jsonMapper.readTree(write(graph, false, "page-2"));
+
+        assertEquals(ColumnarGraphSink.VERSION, json.get("version").asInt());
+        assertEquals(List.of("Gene", "Isolate", "Orthogroup"), strings(json.get("types")));
+        assertEquals(List.of("FOUND_IN", "BELONGS_TO_OG"), strings(json.get("labels")));
+        assertEquals(List.of("OG_OG0099"), strings(json.get("refs")));
+
+        JsonNode nodes = json.get("nodes");
+        assertEquals(4, nodes.get("id").size());
+        assertEquals(-1, nodes.get("description").get(1).asInt());
+        assertEquals(12, nodes.get("count").get(3).asInt());
+
+        JsonNode links = json.get("links");
+        assertEquals(4, links.get("source").size());
+        // Endpoints outside the graph are -(ref index + 1)
+        assertEquals(-1, links.get("target").get(3).asInt());
+        assertEquals(3, links.get("weight").get(2).asInt());
+
+        assertEquals("page-2", json.get("next").asString());
+        assertEquals(CypherGraphService.TIMEOUT, json.get("truncatedBy").asString());
+    }
+
+    private static List<String> strings(JsonNode array) {
+        return array.valueStream().map(JsonNode::asString).toList();
+    }
+}
@@ -0,0 +1,36 @@
+package com.ganoderma.platform.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CypherQueryServiceTest {
+
+    @Test
+    void shapeIgnoresLiteralsAndWhitespace() {
+        String shape = CypherQueryService.shape(
+                "MATCH (n:Gene2)-[*1..3]->(m) WHERE n.x = 'C\\'d' AND n.y > 0.5\n  RETURN n LIMIT 500");
+        assertEquals("MATCH (n:Gene2)-[*1..3]->(m) WHERE n.x = ?s AND n.y > ?n RETURN n LIMIT ?n", shape);
+        assertEquals(CypherQueryService.shape("MATCH (i:Isolate) WHERE i.originCountry = 'Malaysia' RETURN i"),
+                CypherQueryService.shape("MATCH (i:Isolate)   WHERE i.originCountry = \"Cameroon\" RETURN i"));
+    }
+
+    @Test
+    void followUpsAreNeverTemplated() {
+        CypherQueryService service = new CypherQueryService(null);
+        ReflectionTestUtils.setField(service, "templatesEnabled", true);
+        String request = "from Malaysia";
+        List<EntityDictionary.Match> entities = List.of(
+                new EntityDictionary.Match(EntityDictionary.Kind.COUNTRY, "Malaysia", "Malaysia", 5, 13));
+
+        assertNotNull(service.template(request, entities, false));
+        assertNull(service.template(request, entities, true));
+        assertEquals(1, service.stats().getTemplated());
+        assertEquals(1, service.stats().getGenerated());
+    }
+}
@@ -0,0 +1,95 @@
+package com.ganoderma.platform.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CypherTemplatesTest {
+
+    private static final String PATH = "MATCH p = (i:Isolate)<-[:FOUND_IN]-(g:Gene)-[:BELONGS_TO_OG]->(og:Orthogroup)";
+
+    private static EntityDictionary.Match match(String request, EntityDictionary.Kind kind, String name,
+            String value) {
+        int start = request.indexOf(name);
+        return new EntityDictionary.Match(kind, name, value, start, start + name.length());
+    }
+
+    @Test
+    void countryAndGeneFamily() {
+        String request = "Show me all toxins from Malaysia";
+        assertEquals(PATH + " WHERE i.originCountry = 'Malaysia' AND g.symbol STARTS WITH 'Tox' RETURN p LIMIT 500",
+                CypherTemplates.match(request,
+                        List.of(match(request, EntityDictionary.Kind.COUNTRY, "Malaysia", "Malaysia"))));
+    }
+
+    @Test
+    void frenchRequestWithIsolateShortNameAndSeveralFamilies() {
+        String request = "Affiche les effecteurs et les régulateurs de MAL5";
+        assertEquals(PATH + " WHERE i.name = 'G. boninense MAL5'"
+                        + " AND (g.symbol STARTS WITH 'Eff' OR g.symbol STARTS WITH 'Reg') RETURN p LIMIT 500",
+                CypherTemplates.match(request,
+                        List.of(match(request, EntityDictionary.Kind.ISOLATE, "MAL5", "G. boninense MAL5"))));
+    }
+
+    @Test
+    void severalValuesOfOneKindBecomeAnInList() {
+        String request = "Show the orthogroups OG0001 and OG0002";
+        assertEquals(PATH + " WHERE og.groupId IN ['OG0001', 'OG0002'] RETURN p LIMIT 500",
+                CypherTemplates.match(request, List.of(
+                        match(request, EntityDictionary.Kind.ORTHOGROUP, "OG0001", "OG0001"),
+                        match(request, EntityDictionary.Kind.ORTHOGROUP, "OG0002", "OG0002"))));
+    }
+
+    @Test
+    void genesAreFilteredBySymbolAndHostsByStoredValue() {
+        String request = "Display Tox42 in Elaeis guineensis";
+        // The dictionary reports at most a few ids per symbol; the filter must cover every gene with it
+        assertEquals(PATH + " WHERE g.symbol = 'Tox42' AND i.host = 'Elaeis guineensis' RETURN p LIMIT 500",
+                CypherTemplates.match(request, List.of(
+                        match(request, EntityDictionary.Kind.GENE, "Tox42", "gbon_001"),
+                        match(request, EntityDictionary.Kind.GENE, "Tox42", "gbon_002"),
+                        match(request, EntityDictionary.Kind.HOST, "Elaeis guineensis", "Elaeis guineensis"))));
+    }
+
+    @Test
+    void geneIdsAreFilteredById() {
+        String request = "Show gbon_001 and Tox42";
+        assertEquals(PATH + " WHERE (g.symbol = 'Tox42' OR g.geneId = 'gbon_001') RETURN p LIMIT 500",
+                CypherTemplates.match(request, List.of(
+                        match(request, EntityDictionary.Kind.GENE, "gbon_001", "gbon_001"),
+                        match(request, EntityDictionary.Kind.GENE, "Tox42", "gbon_007"))));
+    }
+
+    @Test
+    void valuesAreEscapedAsLiterals() {
+        String request = "Show isolates from Côte d'Ivoire";
+        assertEquals(PATH + " WHERE i.originCountry = 'Côte d\\'Ivoire' RETURN p LIMIT 500",
+                CypherTemplates.match(request,
+                        List.of(match(request, EntityDictionary.Kind.COUNTRY, "Côte d'Ivoire", "Côte d'Ivoire"))));
+        assertEquals("'a\\\\b'", CypherTemplates.literal("a\\b"));
+    }
+
+    @Test
+    void overviewIsASample() {
+        assertEquals(PATH + " RETURN p LIMIT 50", CypherTemplates.match("Give me an overview of the graph", List.of()));
+        assertEquals(PATH + " RETURN p LIMIT 50", CypherTemplates.match("Montre-moi un aperçu", List.of()));
+    }
+
+    @Test
+    void requestsWithoutFiltersAreLeftToTheLlm() {
+        assertNull(CypherTemplates.match("Show me the graph", List.of()));
+    }
+
+    @Test
+    void requestsWithOtherWordsAreLeftToTheLlm() {
+        String request = "Show me genes with high expression in Malaysia";
+        assertNull(CypherTemplates.match(request,
+                List.of(match(request, EntityDictionary.Kind.COUNTRY, "Malaysia", "Malaysia"))));
+        assertNull(CypherTemplates.match("Show only toxins", List.of()));
+        // Transporters are not among the families the prompt describes
+        assertNull(CypherTemplates.match("Show transporters", List.of()));
+    }
+}
@@ -0,0 +1,147 @@
+package com.ganoderma.platform.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EntityAutomatonTest {
+
+    private record Found(int start, int end, int kind, String value) {
+    }
+
+    private static List<Found> find(EntityAutomaton automaton, String text) {
+        List<Found> found = new ArrayList<>();
+        automaton.find(EntityAutomaton.fold(text),
+                (start, end, kind, value) -> found.add(new Found(start, end, kind, value)));
+        return found;
+    }
+
+    @Test
+    void foldKeepsOffsetsAndDropsCaseAccentsAndPunctuation() {
+        assertArrayEquals("cote d ivoire ".toCharArray(), EntityAutomaton.fold("Côte d'Ivoire?"));
+        assertArrayEquals("tox42  g  boninense".toCharArray(), EntityAutomaton.fold("TOX42, G. boninense"));
+    }
+
+    @Test
+    void findsPatternsOnWordBoundariesOnly() {
+        EntityAutomaton automaton = EntityAutomaton.builder()
+                .add("Tox42", 0)
+                .build();
+
+        assertEquals(List.of(new Found(5, 10, 0, null)), find(automaton, "Show tox42, please"));
+        assertEquals(List.of(), find(automaton, "Show Tox421"));
+        assertEquals(List.of(), find(automaton, "Show xTox42"));
+        assertEquals(List.of(new Found(0, 5, 0, null)), find(automaton, "TOX42"));
+    }
+
+    @Test
+    void matchesFoldedTextAndReportsOriginalOffsets() {
+        EntityAutomaton automaton = EntityAutomaton.builder()
+                .add("Côte d'Ivoire", 4, "Côte d'Ivoire")
+                .build();
+
+        String text = "Isolates from COTE D IVOIRE.";
+        List<Found> found = find(automaton, text);
+        assertEquals(List.of(new Found(14, 27, 4, "Côte d'Ivoire")), found);
+        assertEquals("COTE D IVOIRE", text.substring(found.get(0).start(), found.get(0).end()));
+    }
+
+    @Test
+    void reportsOverlappingAndNestedPatterns() {
+        EntityAutomaton automaton = EntityAutomaton.builder()
+                .add("G. boninense MAL5", 1, "G. boninense MAL5")
+                .add("MAL5", 1, "G. boninense MAL5")
+                .add("boninense", 3)
+                .build();
+
+        Set<Found> found = new HashSet<>(find(automaton, "genes of G. boninense MAL5"));
+        assertEquals(Set.of(
+                new Found(9, 26, 1, "G. boninense MAL5"),
+                new Found(22, 26, 1, "G. boninense MAL5"),
+                new Found(12, 21, 3, null)), found);
+    }
+
+    @Test
+    void keepsOneEntryPerValueAndEveryDistinctValue() {
+        EntityAutomaton automaton = EntityAutomaton.builder()
+                .add("Tox1", 0, "gene1")
+                .add("Tox1", 0, "gene1")
+                .add("Tox1", 0, "gene2")
+                .add("   ", 0, "blank")
+                .build();
+
+        assertEquals(2, automaton.size());
+        Set<Found> found = new HashSet<>(find(automaton, "tox1"));
+        assertEquals(Set.of(new Found(0, 4, 0, "gene1"), new Found(0, 4, 0, "gene2")), found);
+    }
+
+    @Test
+    void emptyAutomatonFindsNothing() {
+        EntityAutomaton automaton = EntityAutomaton.builder().build();
+        assertEquals(0, automaton.size());
+        assertEquals(List.of(), find(automaton, "anything at all"));
+    }
+
+    // Fail links: every pattern occurrence must be found, as a naive scan finds them
+    @Test
+    void agreesWithNaiveSearchOnRandomPatterns() {
+        Random random = new Random(42);
+        List<String> patterns = new ArrayList<>();
+        EntityAutomaton.Builder builder = EntityAutomaton.builder();
+        for (int i = 0; i < 300; i++) {
+            String pattern = randomWords(random, 1 + random.nextInt(2));
+            patterns.add(pattern);
+            builder.add(pattern, i % 5, "p" + i);
+        }
+        EntityAutomaton automaton = builder.build();
+
+        for (int round = 0; round < 200; round++) {
+            String text = randomWords(random, 1 + random.nextInt(12));
+            Set<Found> expected = new HashSet<>();
+            for (int p = 0; p < patterns.size(); p++) {
+                String pattern = patterns.get(p);
+                for (int start = text.indexOf(pattern); start >= 0; start = text.indexOf(pattern, start + 1)) {
+                    int end = start + pattern.length();
+                    if ((start == 0 || text.charAt(start - 1) == ' ')
+                            && (end == text.length() || text.charAt(end) == ' '))
+                        expected.add(new Found(start, end, p % 5, "p" + p));
+                }
+            }
+            List<Found> found = find(automaton, text);
+            assertEquals(expected, new HashSet<>(found), text);
+            assertEquals(expected.size(), found.size(), "duplicate matches in " + text);
+        }
+    }
+
+    @Test
+    void findsOneIdAmongManySimilarOnes() {
+        EntityAutomaton.Builder builder = EntityAutomaton.builder();
+        for (int i = 0; i < 10_000; i++)
+            builder.add("GBON_" + i, 0);
+        EntityAutomaton automaton = builder.build();
+        assertEquals(10_000, automaton.size());
+        assertTrue(automaton.bytes() > 0);
+        assertEquals(List.of(new Found(5, 14, 0, null)), find(automaton, "show gbon_1234 and gbon_99999"));
+    }
+
+    // Short words over a small alphabet, so patterns share prefixes and suffixes
+    private static String randomWords(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int w = 0; w < count; w++) {
+            if (w > 0)
+                text.append(' ');
+            int length = 1 + random.nextInt(3);
+            for (int i = 0; i < length; i++)
+                text.append((char) ('a' + random.nextInt(3)));
+        }
+        return text.toString();
+    }
+}
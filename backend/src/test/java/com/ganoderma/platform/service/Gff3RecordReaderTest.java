@@ -0,0 +1,118 @@
+package com.ganoderma.platform.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Gff3RecordReaderTest {
+
+    private static Gff3RecordReader reader(String gff, int bufferSize) {
+        return new Gff3RecordReader(new ByteArrayInputStream(gff.getBytes(StandardCharsets.UTF_8)), bufferSize, 0L);
+    }
+
+    private static List<String> lines(String gff, int bufferSize) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (Gff3RecordReader reader = reader(gff, bufferSize)) {
+            while (reader.next())
+                lines.add(reader.line());
+        }
+        return lines;
+    }
+
+    @Test
+    void tokenizesColumnsAndAttributesInPlace() throws IOException {
+        try (Gff3RecordReader reader = reader(
+                "chr1\tsrc\tgene\t100\t900\t.\t-\t.\tID=g1; Name = Tox42 ;Parent=a,b;flag\n", 1024)) {
+            assertTrue(reader.next());
+            assertTrue(reader.isFeature());
+            assertEquals("chr1", reader.column(Gff3RecordReader.SEQID).toString());
+            assertTrue(reader.columnEqualsIgnoreCase(Gff3RecordReader.TYPE, "GENE"));
+            assertFalse(reader.columnEquals(Gff3RecordReader.TYPE, "Gene"));
+            assertEquals(100, reader.columnAsLong(Gff3RecordReader.START));
+            assertEquals("g1", reader.attributeValue("ID"));
+            assertEquals("Tox42", reader.attributeValue("Name"));
+            assertEquals("a,b", reader.attributeValue("Parent"));
+            assertEquals("a", reader.firstAttribute("Parent").toString());
+            assertFalse(reader.hasAttribute("flag")); // No value
+            assertNull(reader.attribute("Note"));
+            assertThrows(NumberFormatException.class, () -> reader.columnAsLong(Gff3RecordReader.SCORE));
+        }
+    }
+
+    @Test
+    void attributeValuesArePercentDecoded() throws IOException {
+        try (Gff3RecordReader reader = reader(
+                "chr1\tsrc\tgene\t1\t9\t.\t+\t.\tID=g%3B1;Note=C%C3%B4te d%27Ivoire%2C 5%25;Bad=%zz%4\n", 1024)) {
+            assertTrue(reader.next());
+            assertEquals("g;1", reader.attributeValue("ID"));
+            assertEquals("g%3B1", reader.attribute("ID").toString()); // Raw view
+            assertEquals("Côte d'Ivoire, 5%", reader.attributeValue("Note"));
+            assertEquals("%zz%4", reader.attributeValue("Bad")); // Malformed escapes are kept as written
+            byte[] raw = "a%C3%A9b".getBytes(StandardCharsets.US_ASCII);
+            assertEquals("aéb", Gff3RecordReader.percentDecode(raw, 0, raw.length));
+        }
+    }
+
+    @Test
+    void crlfAndMissingFinalTerminatorAreHandled() throws IOException {
+        assertEquals(List.of("##gff-version 3", "", "chr1\tsrc\tgene\t1\t9\t.\t+\t.\tID=g1"),
+                lines("##gff-version 3\r\n\r\nchr1\tsrc\tgene\t1\t9\t.\t+\t.\tID=g1\r\n", 1024));
+        assertEquals(List.of("# a", "# b"), lines("# a\n# b", 1024));
+
+        try (Gff3RecordReader reader = reader("chr1\tsrc\tgene\t1\t9\t.\t+\t.\tID=g1\r\n", 1024)) {
+            assertTrue(reader.next());
+            assertEquals("g1", reader.attributeValue("ID")); // No trailing \r
+        }
+    }
+
+    @Test
+    void offsetsCountTerminatorsAndTheStartOffset() throws IOException {
+        String gff = "##gff-version 3\r\nchr1\tsrc\tgene\t1\t9\t.\t+\t.\tID=g1\n";
+        try (Gff3RecordReader reader = new Gff3RecordReader(
+                new ByteArrayInputStream(gff.getBytes(StandardCharsets.UTF_8)), 1024, 1000L)) {
+            assertTrue(reader.next());
+            assertTrue(reader.isDirective());
+            assertEquals(1000, reader.lineOffset());
+            assertEquals(1017, reader.nextLineOffset());
+            assertTrue(reader.next());
+            assertEquals(1017, reader.lineOffset());
+            assertEquals(1000 + gff.length(), reader.nextLineOffset());
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    void linesLongerThanTheBufferAreRead() throws IOException {
+        StringBuilder gff = new StringBuilder();
+        for (int i = 0; i < 50; i++)
+            gff.append("chr1\tsrc\tgene\t1\t9\t.\t+\t.\tID=g").append(i).append(";Note=").append("x".repeat(i * 97))
+                    .append('\n');
+        List<String> expected = List.of(gff.toString().split("\n"));
+        assertEquals(expected, lines(gff.toString(), 1024));
+        assertEquals(expected, lines(gff.toString(), 64 * 1024));
+    }
+
+    @Test
+    void readingStopsAtTheFastaSection() throws IOException {
+        String gff = "##gff-version 3\nchr1\tsrc\tgene\t1\t9\t.\t+\t.\tID=g1\n##FASTA\n>chr1\tdescription\nACGT\n";
+        assertEquals(List.of("##gff-version 3", "chr1\tsrc\tgene\t1\t9\t.\t+\t.\tID=g1"), lines(gff, 1024));
+
+        try (Gff3RecordReader reader = reader(gff, 1024)) {
+            while (reader.next()) {
+            }
+            assertFalse(reader.next());
+        }
+        // Only the directive itself ends the annotations
+        assertEquals(List.of("##FASTA-like", "# ##FASTA"), lines("##FASTA-like\n# ##FASTA\n", 1024));
+    }
+}
@@ -0,0 +1,108 @@
+package com.ganoderma.platform.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GffFeatureIndexTest {
+
+    @Test
+    void addReturnsTheExistingOrdinalAndKeepsItsFields() {
+        GffFeatureIndex index = new GffFeatureIndex();
+        int gene = index.add("g1", GffFeatureIndex.KIND_GENE, -1);
+        int mrna = index.add("t1", GffFeatureIndex.KIND_MRNA, gene);
+        index.accumulate(mrna, 300);
+        index.accumulate(mrna, 150);
+
+        assertEquals(mrna, index.add("t1", GffFeatureIndex.KIND_GENE, -1));
+        assertEquals(GffFeatureIndex.KIND_MRNA, index.kind(mrna));
+        assertEquals(gene, index.parent(mrna));
+        assertEquals(450, index.accumulator(mrna));
+        assertEquals(-1, index.link(mrna));
+        assertEquals(2, index.size());
+        assertEquals(-1, index.find("t2"));
+    }
+
+    @Test
+    void anAliasBecomesAFeatureWhenItIsDeclared() {
+        GffFeatureIndex index = new GffFeatureIndex();
+        int alias = index.add("p1", GffFeatureIndex.KIND_ALIAS, -1);
+        int gene = index.add("g1", GffFeatureIndex.KIND_GENE, -1);
+
+        assertEquals(alias, index.add("p1", GffFeatureIndex.KIND_MRNA, gene));
+        assertEquals(GffFeatureIndex.KIND_MRNA, index.kind(alias));
+        assertEquals(gene, index.parent(alias));
+    }
+
+    @Test
+    void idsArePercentDecodedOnTheWayOut() {
+        GffFeatureIndex index = new GffFeatureIndex();
+        // Views over raw record bytes: one char per byte
+        String raw = new String("gène%3B1".getBytes(StandardCharsets.UTF_8),
+                StandardCharsets.ISO_8859_1);
+        int ordinal = index.add(raw, GffFeatureIndex.KIND_GENE, -1);
+        assertEquals("gène;1", index.id(ordinal));
+        assertEquals(ordinal, index.find(raw));
+    }
+
+    @Test
+    void growsPastItsInitialCapacityAndFindsEveryId() {
+        GffFeatureIndex index = new GffFeatureIndex();
+        int count = 100_000; // Initial capacity is 1024 entries and a 64 KB arena
+        for (int i = 0; i < count; i++) {
+            String id = "gene-" + i + "-" + "x".repeat(i % 40);
+            assertEquals(i, index.add(id, GffFeatureIndex.KIND_GENE, i - 1));
+        }
+        assertEquals(count, index.size());
+        for (int i = 0; i < count; i++) {
+            String id = "gene-" + i + "-" + "x".repeat(i % 40);
+            assertEquals(i, index.find(id));
+            assertEquals(id, index.id(i));
+            assertEquals(i - 1, index.parent(i));
+        }
+    }
+
+    @Test
+    void collidingHashesAreToldApartByKey() {
+        GffFeatureIndex index = new GffFeatureIndex();
+        // Random short ids over a tiny alphabet: many share a probe sequence in the table
+        Random random = new Random(7);
+        Map<String, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder id = new StringBuilder();
+            for (int c = 1 + random.nextInt(6); c > 0; c--)
+                id.append((char) ('a' + random.nextInt(2)));
+            int ordinal = index.add(id, GffFeatureIndex.KIND_ALIAS, -1);
+            Integer previous = expected.putIfAbsent(id.toString(), ordinal);
+            if (previous != null)
+                assertEquals(previous, ordinal);
+        }
+        assertEquals(expected.size(), index.size());
+        expected.forEach((id, ordinal) -> assertEquals(ordinal, index.find(id)));
+        assertEquals(-1, index.find("aaaaaaa"));
+    }
+
+    @Test
+    void clearEmptiesTheIndexForTheNextScope() {
+        GffFeatureIndex index = new GffFeatureIndex();
+        for (int i = 0; i < 5000; i++)
+            index.add("a" + i, GffFeatureIndex.KIND_GENE, -1);
+        index.clear();
+        assertEquals(0, index.size());
+        assertEquals(-1, index.find("a1"));
+
+        // Few entries: only their own slots are reset
+        index.add("b1", GffFeatureIndex.KIND_GENE, -1);
+        index.add("b2", GffFeatureIndex.KIND_GENE, -1);
+        index.clear();
+        assertEquals(-1, index.find("b1"));
+        assertEquals(0, index.add("b2", GffFeatureIndex.KIND_MRNA, -1));
+        assertEquals(GffFeatureIndex.KIND_MRNA, index.kind(0));
+        assertEquals("b2", index.id(0));
+    }
+}
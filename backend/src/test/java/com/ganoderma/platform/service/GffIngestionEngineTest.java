@@ -0,0 +1,177 @@
+package com.ganoderma.platform.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GffIngestionEngineTest {
+
+    private static final String HEADER = "##gff-version 3\n";
+
+    private static String gene(String id, long end) {
+        return "chr1\tsrc\tgene\t1\t" + end + "\t.\t+\t.\tID=" + id + ";Name=" + id.toUpperCase() + "\n";
+    }
+
+    private static String transcript(String id, String gene, long cdsEnd, String proteinId) {
+        return "chr1\tsrc\tmRNA\t1\t" + cdsEnd + "\t.\t+\t.\tID=" + id + ";Parent=" + gene + "\n"
+                + "chr1\tsrc\tCDS\t1\t" + cdsEnd + "\t.\t+\t0\tParent=" + id + ";protein_id=" + proteinId + "\n";
+    }
+
+    /** The genes, their content hashes and ENCODES edges of one isolate, as the statements would leave them. */
+    private static final class InMemoryWriter extends GraphBatchWriter {
+        final Map<String, String> hashes = new TreeMap<>();
+        final Map<String, Set<String>> encodes = new TreeMap<>();
+        final List<String> pendingLinked = new ArrayList<>();
+
+        InMemoryWriter() {
+            super(null);
+        }
+
+        @Override
+        public void mergeGenes(String isolateName, List<Map<String, Object>> rows) {
+            for (Map<String, Object> row : rows)
+                hashes.put((String) row.get("id"), (String) row.get("contentHash"));
+        }
+
+        @Override
+        public void mergeProteins(List<Map<String, Object>> rows) {
+            mergeChangedProteins(rows);
+        }
+
+        @Override
+        public long mergeChangedProteins(List<Map<String, Object>> rows) {
+            for (Map<String, Object> row : rows)
+                encodes.computeIfAbsent((String) row.get("geneId"), k -> new TreeSet<>())
+                        .add((String) row.get("proteinId"));
+            return rows.size();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public long deleteStaleProteins(List<Map<String, Object>> rows) {
+            for (Map<String, Object> row : rows) {
+                Set<String> stored = encodes.get((String) row.get("geneId"));
+                if (stored != null)
+                    stored.retainAll((List<String>) row.get("proteinIds"));
+            }
+            return 0;
+        }
+
+        @Override
+        public void linkPendingMemberships(List<String> geneIds) {
+            pendingLinked.addAll(geneIds);
+        }
+
+        @Override
+        public Map<String, String> contentHashes(List<String> geneIds) {
+            Map<String, String> stored = new HashMap<>();
+            for (String id : geneIds) {
+                if (hashes.containsKey(id))
+                    stored.put(id, hashes.get(id));
+            }
+            return stored;
+        }
+
+        @Override
+        public void forEachGeneId(String isolateName, Consumer<String> consumer) {
+            new HashSet<>(hashes.keySet()).forEach(consumer);
+        }
+
+        @Override
+        public void deleteGenes(List<String> geneIds) {
+            for (String id : geneIds) {
+                hashes.remove(id);
+                encodes.remove(id);
+            }
+        }
+
+        @Override
+        public void mergeSequences(String isolateName, String assemblyVersion, List<Map<String, Object>> rows) {
+        }
+    }
+
+    private static IngestionStats ingest(InMemoryWriter writer, String gff, boolean incremental)
+            throws IOException {
+        IngestionStats stats = new IngestionStats("MAL5", incremental ? "incremental" : "streaming");
+        try (GffIngestionEngine engine = new GffIngestionEngine(writer, "MAL5", 2, 100, stats, offset -> {
+        }, incremental);
+                Gff3RecordReader reader = new Gff3RecordReader(
+                        new ByteArrayInputStream(gff.getBytes(StandardCharsets.UTF_8)))) {
+            while (reader.next())
+                engine.accept(reader);
+            engine.finish(reader.nextLineOffset());
+        }
+        return stats;
+    }
+
+    @Test
+    void incrementalRunDropsProteinsNoLongerAnnotated() throws IOException {
+        InMemoryWriter writer = new InMemoryWriter();
+        ingest(writer, HEADER + gene("g1", 900) + transcript("t1", "g1", 300, "P1") + transcript("t2", "g1", 150, "P2")
+                + gene("g2", 900) + transcript("t3", "g2", 90, "P3"), false);
+        assertEquals(Map.of("g1", Set.of("P1", "P2"), "g2", Set.of("P3")), writer.encodes);
+
+        // g1 is unchanged but lost t2; g2 lost its only coding transcript
+        ingest(writer, HEADER + gene("g1", 900) + transcript("t1", "g1", 300, "P1") + gene("g2", 900), true);
+        assertEquals(Map.of("g1", Set.of("P1"), "g2", Set.of()), writer.encodes);
+    }
+
+    @Test
+    void incrementalRunMovesAProteinBetweenGenes() throws IOException {
+        InMemoryWriter writer = new InMemoryWriter();
+        ingest(writer, HEADER + gene("g1", 900) + transcript("t1", "g1", 300, "P1") + gene("g2", 900), false);
+
+        ingest(writer, HEADER + gene("g1", 900) + gene("g2", 900) + transcript("t1", "g2", 300, "P1"), true);
+        assertEquals(Map.of("g1", Set.of(), "g2", Set.of("P1")), writer.encodes);
+    }
+
+    @Test
+    void unchangedGenesStillLinkPendingMemberships() throws IOException {
+        InMemoryWriter writer = new InMemoryWriter();
+        String gff = HEADER + gene("g1", 900) + gene("g2", 900) + gene("g3", 900);
+        ingest(writer, gff, false);
+        String g2 = writer.hashes.get("g2");
+
+        IngestionStats stats = ingest(writer, gff.replace("ID=g3;Name=G3", "ID=g3;Name=G3b"), true);
+        assertEquals(List.of("g1", "g2"), writer.pendingLinked);
+        assertEquals(g2, writer.hashes.get("g2"));
+        assertEquals(1, stats.toReport().getGenesUpdated());
+        assertEquals(2, stats.toReport().getGenesUnchanged());
+    }
+
+    @Test
+    void nonLatinGeneIdsAreKeptApart() throws IOException {
+        InMemoryWriter writer = new InMemoryWriter();
+        ingest(writer, HEADER + gene("g\u0141", 900) + gene("g\u0241", 900) + gene("g%C5%81x", 900), false);
+        assertEquals(Set.of("g\u0141", "g\u0241", "g\u0141x"), writer.hashes.keySet());
+
+        // Ł and Ɂ share their low byte, so one byte per char would take the second for the first
+        IngestionStats stats = ingest(writer, HEADER + gene("g\u0141", 900) + gene("g%C5%81x", 900), true);
+        assertEquals(Set.of("g\u0141", "g\u0141x"), writer.hashes.keySet());
+        assertEquals(1, stats.toReport().getGenesDeleted());
+    }
+
+    @Test
+    void incrementalRunDeletesGenesMissingFromTheFile() throws IOException {
+        InMemoryWriter writer = new InMemoryWriter();
+        ingest(writer, HEADER + gene("g1", 900) + transcript("t1", "g1", 300, "P1") + gene("g2", 900), false);
+
+        IngestionStats stats = ingest(writer, HEADER + gene("g2", 900), true);
+        assertEquals(Set.of("g2"), writer.hashes.keySet());
+        assertEquals(Set.of(), writer.encodes.keySet());
+        assertEquals(1, stats.toReport().getGenesDeleted());
+    }
+}
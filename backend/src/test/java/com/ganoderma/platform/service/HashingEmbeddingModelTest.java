@@ -0,0 +1,80 @@
+package com.ganoderma.platform.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashingEmbeddingModelTest {
+
+    private final HashingEmbeddingModel model = new HashingEmbeddingModel(384);
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0;
+        for (int i = 0; i < a.length; i++)
+            dot += a[i] * b[i];
+        return dot; // Both are unit vectors
+    }
+
+    private static double norm(float[] vector) {
+        double sum = 0;
+        for (float v : vector)
+            sum += v * v;
+        return Math.sqrt(sum);
+    }
+
+    @Test
+    void embeddingsAreDeterministic() {
+        String text = "Tox42: Toxin-like secreted protein";
+        assertArrayEquals(model.embed(text), model.embed(text));
+        assertArrayEquals(model.embed(text), new HashingEmbeddingModel(384).embed(text));
+        // Case and punctuation do not count
+        assertArrayEquals(model.embed(text), model.embed("TOX42 toxin like, secreted PROTEIN"));
+    }
+
+    @Test
+    void vectorsHaveTheConfiguredDimensionsAndUnitLength() {
+        for (String text : List.of("a", "Cytochrome P450 monooxygenase", "Côte d'Ivoire", "x".repeat(5000))) {
+            float[] vector = model.embed(text);
+            assertEquals(384, vector.length);
+            assertEquals(1.0, norm(vector), 1e-5, text);
+        }
+        assertEquals(64, new HashingEmbeddingModel(64).dimensions());
+    }
+
+    @Test
+    void emptyTextGivesTheZeroVector() {
+        assertEquals(0.0, norm(model.embed("")));
+        assertEquals(0.0, norm(model.embed(" ;, ")));
+        assertEquals(0.0, norm(model.embed((String) null)));
+    }
+
+    @Test
+    void sharedWordsScoreCloserThanUnrelatedText() {
+        float[] query = model.embed("secreted toxin effector");
+        double related = cosine(query, model.embed("Tox42: putative secreted toxin"));
+        double fragment = cosine(query, model.embed("toxins"));
+        double unrelated = cosine(query, model.embed("ribosomal protein L7"));
+
+        assertTrue(related > unrelated, related + " vs " + unrelated);
+        // Trigrams bring word variants closer too
+        assertTrue(fragment > unrelated, fragment + " vs " + unrelated);
+        assertEquals(1.0, cosine(query, query), 1e-5);
+    }
+
+    @Test
+    void batchCallsKeepTheOrderOfTheTexts() {
+        List<String> texts = List.of("laccase", "chitinase", "");
+        EmbeddingResponse response = model.call(new EmbeddingRequest(texts, null));
+        assertEquals(3, response.getResults().size());
+        for (int i = 0; i < texts.size(); i++) {
+            assertEquals(i, response.getResults().get(i).getIndex());
+            assertArrayEquals(model.embed(texts.get(i)), response.getResults().get(i).getOutput());
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.ganoderma.platform.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IngestionInputServiceTest {
+
+    private static final int BLOCK = 64 * 1024 - 256; // bgzip's default input per block
+
+    @TempDir
+    Path dir;
+
+    private IngestionInputService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new IngestionInputService();
+        ReflectionTestUtils.setField(service, "inputDirectory", dir.toString());
+        ReflectionTestUtils.setField(service, "workDir", dir.resolve("work").toString());
+        ReflectionTestUtils.setField(service, "inflaterThreads", 3);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    // Several BGZF blocks' worth of GFF-like lines
+    private static byte[] sample() {
+        StringBuilder text = new StringBuilder("##gff-version 3\n");
+        for (int i = 0; text.length() < 5 * BLOCK + 123; i++)
+            text.append("chr1\tsrc\tgene\t").append(i * 10 + 1).append('\t').append(i * 10 + 9)
+                    .append("\t.\t+\t.\tID=g").append(i).append('\n');
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    /** As bgzip writes it: one gzip member with a BC extra field per block, then the empty EOF block. */
+    private static byte[] bgzf(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int from = 0; from < data.length; from += BLOCK)
+            out.writeBytes(bgzfBlock(data, from, Math.min(BLOCK, data.length - from)));
+        out.writeBytes(bgzfBlock(data, 0, 0));
+        return out.toByteArray();
+    }
+
+    private static byte[] bgzfBlock(byte[] data, int from, int length) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(data, from, length);
+        deflater.finish();
+        byte[] compressed = new byte[length + 1024];
+        int compressedLength = 0;
+        while (!deflater.finished())
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        deflater.end();
+
+        CRC32 crc = new CRC32();
+        crc.update(data, from, length);
+        int blockSize = 18 + compressedLength + 8;
+        ByteArrayOutputStream block = new ByteArrayOutputStream(blockSize);
+        block.writeBytes(new byte[] { 0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff, 6, 0, 'B', 'C', 2, 0,
+                (byte) (blockSize - 1), (byte) ((blockSize - 1) >> 8) });
+        block.write(compressed, 0, compressedLength);
+        writeInt(block, (int) crc.getValue());
+        writeInt(block, length);
+        return block.toByteArray();
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        for (int shift = 0; shift < 32; shift += 8)
+            out.write(value >>> shift);
+    }
+
+    private Path write(String name, byte[] content) throws IOException {
+        return Files.write(dir.resolve(name), content);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try (in) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    void detectsBgzfApartFromPlainGzip() throws IOException {
+        byte[] data = sample();
+        assertEquals(IngestionInputService.Compression.PLAIN, service.detect(write("a.gff", data)));
+        assertEquals(IngestionInputService.Compression.GZIP, service.detect(write("a.gff.gz", gzip(data))));
+        assertEquals(IngestionInputService.Compression.BGZF, service.detect(write("b.gff.gz", bgzf(data))));
+        // Too short to hold a gzip header
+        assertEquals(IngestionInputService.Compression.PLAIN, service.detect(write("c.gff", new byte[] { 0x1f })));
+        assertEquals(IngestionInputService.Compression.PLAIN, service.detect(write("empty.gff", new byte[0])));
+    }
+
+    @Test
+    void everyFormatReadsBackTheSameBytes() throws IOException {
+        byte[] data = sample();
+        for (byte[] content : new byte[][] { data, gzip(data), bgzf(data) }) {
+            Path file = write("input", content);
+            assertArrayEquals(data, readAll(service.open(file, 0)));
+            assertArrayEquals(data, readAll(service.decode(new ByteArrayInputStream(content))));
+        }
+    }
+
+    @Test
+    void openSkipsToAnUncompressedOffset() throws IOException {
+        byte[] data = sample();
+        // Inside the third BGZF block
+        int offset = 2 * BLOCK + 77;
+        byte[] tail = Arrays.copyOfRange(data, offset, data.length);
+        for (byte[] content : new byte[][] { data, gzip(data), bgzf(data) }) {
+            assertArrayEquals(tail, readAll(service.open(write("input", content), offset)));
+        }
+    }
+
+    @Test
+    void bgzfBlocksComeBackInOrderWithLittleReadAhead() throws IOException {
+        byte[] data = sample();
+        ExecutorService inflaters = Executors.newFixedThreadPool(4);
+        try (InputStream in = new BgzfParallelInputStream(new ByteArrayInputStream(bgzf(data)), inflaters, 1)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            int b;
+            // Single bytes across block boundaries, then bulk reads
+            for (int i = 0; i < BLOCK + 10 && (b = in.read()) >= 0; i++)
+                out.write(b);
+            out.writeBytes(in.readAllBytes());
+            assertArrayEquals(data, out.toByteArray());
+            assertEquals(-1, in.read());
+        } finally {
+            inflaters.shutdownNow();
+        }
+    }
+
+    @Test
+    void bgzfCrcMismatchFailsTheRead() throws IOException {
+        byte[] data = sample();
+        byte[] first = bgzfBlock(data, 0, BLOCK);
+        byte[] corrupt = bgzf(data);
+        corrupt[first.length - 8] ^= 0x01; // CRC32 of the first block
+        IOException e = assertThrows(IOException.class,
+                () -> readAll(service.decode(new ByteArrayInputStream(corrupt))));
+        assertTrue(e.getMessage().contains("CRC"), e.getMessage());
+    }
+
+    @Test
+    void gzipCrcMismatchFailsTheReadThroughThePipeline() throws IOException {
+        byte[] corrupt = gzip(sample());
+        corrupt[corrupt.length - 8] ^= 0x01; // CRC32 in the trailer
+        assertThrows(IOException.class, () -> readAll(service.decode(new ByteArrayInputStream(corrupt))));
+    }
+
+    @Test
+    void truncatedBgzfFailsTheRead() throws IOException {
+        byte[] content = bgzf(sample());
+        byte[] truncated = Arrays.copyOf(content, content.length / 2);
+        assertThrows(EOFException.class, () -> readAll(service.decode(new ByteArrayInputStream(truncated))));
+    }
+
+    @Test
+    void serverPathsMustStayInTheInputDirectory() throws IOException {
+        Path file = write("in.gff", sample());
+        assertEquals(file.toAbsolutePath().normalize(), service.resolveServerPath("in.gff"));
+        assertThrows(IllegalArgumentException.class, () -> service.resolveServerPath("../outside.gff"));
+        assertThrows(IOException.class, () -> service.resolveServerPath("missing.gff"));
+        assertFalse(Files.exists(dir.resolve("work")));
+    }
+}
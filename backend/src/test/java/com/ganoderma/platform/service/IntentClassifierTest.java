@@ -0,0 +1,115 @@
+package com.ganoderma.platform.service;
+
+import com.ganoderma.platform.dto.ChatDto;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Accuracy regression for the intent classifier: trained on the "train" rows
+ * of intent-corpus.tsv, scored on its "test" rows. Raise the bounds when the
+ * corpus or the features improve, never lower them to make a change pass.
+ */
+class IntentClassifierTest {
+
+    private static final String CORPUS = "intent/intent-corpus.tsv";
+    private static final double THRESHOLD = 0.85;
+
+    // Share of held-out rows classified correctly, confident or not
+    private static final double MIN_ACCURACY = 0.90;
+    // Share of held-out rows decided without the LLM
+    private static final double MIN_COVERAGE = 0.70;
+    // Share of those confident decisions that are correct
+    private static final double MIN_CONFIDENT_ACCURACY = 0.97;
+
+    private record Row(String label, String text) {
+    }
+
+    private static IntentClassifier classifier;
+    private static List<Row> testRows;
+
+    @BeforeAll
+    static void train() throws IOException {
+        classifier = new IntentClassifier();
+        ReflectionTestUtils.setField(classifier, "enabled", true);
+        ReflectionTestUtils.setField(classifier, "threshold", THRESHOLD);
+        ReflectionTestUtils.setField(classifier, "corpus", new ClassPathResource(CORPUS));
+        ReflectionTestUtils.setField(classifier, "epochs", 300);
+        classifier.init();
+
+        testRows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ClassPathResource(CORPUS).getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] columns = line.split("\t", 3);
+                if (!line.startsWith("#") && columns.length == 3 && "test".equals(columns[1].trim()))
+                    testRows.add(new Row(columns[0].trim(), columns[2]));
+            }
+        }
+    }
+
+    @Test
+    void corpusHasHeldOutRowsOfBothIntents() {
+        assertTrue(testRows.stream().anyMatch(row -> IntentClassifier.VISUALIZATION.equals(row.label())));
+        assertTrue(testRows.stream().anyMatch(row -> IntentClassifier.QA.equals(row.label())));
+    }
+
+    @Test
+    void heldOutAccuracy() {
+        long correct = testRows.stream()
+                .filter(row -> row.label().equals(classifier.classify(row.text()).intent()))
+                .count();
+        double accuracy = (double) correct / testRows.size();
+        assertTrue(accuracy >= MIN_ACCURACY, "accuracy " + accuracy + " < " + MIN_ACCURACY);
+    }
+
+    @Test
+    void heldOutConfidentCoverageAndAccuracy() {
+        int confident = 0;
+        int confidentCorrect = 0;
+        for (Row row : testRows) {
+            IntentClassifier.Prediction prediction = classifier.classify(row.text());
+            if (prediction.confident()) {
+                confident++;
+                if (row.label().equals(prediction.intent()))
+                    confidentCorrect++;
+            }
+        }
+        double coverage = (double) confident / testRows.size();
+        double confidentAccuracy = confident > 0 ? (double) confidentCorrect / confident : 0;
+        assertTrue(coverage >= MIN_COVERAGE, "coverage " + coverage + " < " + MIN_COVERAGE);
+        assertTrue(confidentAccuracy >= MIN_CONFIDENT_ACCURACY,
+                "confident accuracy " + confidentAccuracy + " < " + MIN_CONFIDENT_ACCURACY);
+    }
+
+    @Test
+    void statsReportTheHeldOutScores() {
+        ChatDto.IntentStats stats = classifier.stats();
+        assertTrue(stats.isEnabled());
+        assertEquals(THRESHOLD, stats.getThreshold());
+        assertTrue(stats.getTestAccuracy() >= MIN_ACCURACY);
+        assertTrue(stats.getTestCoverage() >= MIN_COVERAGE);
+    }
+
+    @Test
+    void disabledClassifierLeavesEveryMessageToTheLlm() {
+        IntentClassifier disabled = new IntentClassifier();
+        ReflectionTestUtils.setField(disabled, "enabled", false);
+        disabled.init();
+        assertFalse(disabled.classify("Show me all toxins").confident());
+        assertEquals(1, disabled.stats().getFallback());
+    }
+}
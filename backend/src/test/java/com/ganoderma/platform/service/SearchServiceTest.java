@@ -0,0 +1,61 @@
+package com.ganoderma.platform.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchServiceTest {
+
+    @Test
+    void everyWordIsRequiredAsTermOrPrefix() {
+        assertEquals("(tox42 OR tox42*)", SearchService.luceneQuery("Tox42"));
+        assertEquals("(oil OR oil*) AND (palm OR palm*)", SearchService.luceneQuery("  Oil   PALM "));
+    }
+
+    @Test
+    void symbolSearchIsRestrictedToTheSymbolField() {
+        assertEquals("symbol:(tox42 OR tox42*)", SearchService.luceneQuery("Tox42", "symbol"));
+        assertEquals("symbol:(cyp OR cyp*) AND symbol:(51 OR 51*)", SearchService.luceneQuery("CYP 51", "symbol"));
+        assertEquals("symbol:(pf00067\\:p450 OR pf00067\\:p450*)", SearchService.luceneQuery("PF00067:p450", "symbol"));
+        assertEquals("", SearchService.luceneQuery(" ", "symbol"));
+    }
+
+    @Test
+    void nothingSearchableGivesAnEmptyQuery() {
+        assertEquals("", SearchService.luceneQuery(null));
+        assertEquals("", SearchService.luceneQuery(""));
+        assertEquals("", SearchService.luceneQuery(" \t "));
+    }
+
+    @Test
+    void luceneSyntaxIsEscaped() {
+        assertEquals("(pf00067\\:p450 OR pf00067\\:p450*)", SearchService.luceneQuery("PF00067:p450"));
+        assertEquals("(\\(tox\\) OR \\(tox\\)*)", SearchService.luceneQuery("(tox)"));
+        assertEquals("(a\\/b\\-c OR a\\/b\\-c*) AND (\\*\\? OR \\*\\?*)", SearchService.luceneQuery("a/b-c *?"));
+        assertEquals("(\\\"x\\\" OR \\\"x\\\"*)", SearchService.luceneQuery("\"x\""));
+        assertEquals("(\\&\\&\\|\\| OR \\&\\&\\|\\|*)", SearchService.luceneQuery("&&||"));
+    }
+
+    @Test
+    void accentsAndApostrophesAreKept() {
+        assertEquals("(côte OR côte*) AND (d'ivoire OR d'ivoire*)", SearchService.luceneQuery("Côte d'Ivoire"));
+    }
+
+    @Test
+    void statementQueriesOnlyTheRequestedIndexes() {
+        String genes = SearchService.cypher(EnumSet.of(SearchService.Kind.GENE));
+        assertTrue(genes.contains("'gene_search'"));
+        assertFalse(genes.contains("'isolate_search'"));
+        assertFalse(genes.contains("UNION"));
+
+        String both = SearchService.cypher(EnumSet.allOf(SearchService.Kind.class));
+        assertTrue(both.contains("'gene_search'"));
+        assertTrue(both.contains("'isolate_search'"));
+        assertTrue(both.contains("UNION ALL"));
+        assertTrue(both.contains("LIMIT $limit"));
+    }
+}
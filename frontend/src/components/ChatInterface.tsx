@@ -3,9 +3,20 @@ import { Send, Bot, User, Sparkles, Trash2, Minus, Maximize2, Network, Play, X,
 import ReactMarkdown from 'react-markdown';
 import Levenshtein from 'fast-levenshtein';
 
+// A <<name>> of an answer, resolved by the backend (ChatDto.EntityReference)
+interface EntityReference {
+    name: string;
+    start: number; // Span of "<<name>>" in the answer
+    end: number;
+    type: string | null; // GENE, ISOLATE, ORTHOGROUP, HOST or COUNTRY
+    ids: string[]; // Logical ids (GENE_, ISOLATE_, OG_)
+    resolved: boolean;
+}
+
 interface Message {
     role: 'user' | 'assistant';
     content: string;
+    references?: EntityReference[];
 }
 
 // Minimal Node type for fuzzy matching
@@ -13,6 +24,7 @@ export interface ReferenceNode {
     id: string;
     name: string;
     type: string;
+    logicalId?: string;
 }
 
 interface ChatInterfaceProps {
@@ -231,7 +243,7 @@ export function ChatInterface({
                 // Let's assume if we are refining, we want a new cypher.
             }
 
-            setMessages(prev => [...prev, { role: 'assistant', content: data.answer }]);
+            setMessages(prev => [...prev, { role: 'assistant', content: data.answer, references: data.contextUsed ?? undefined }]);
         } catch (error) {
             console.error('Error:', error);
             setMessages(prev => [...prev, { role: 'assistant', content: '⚠️ Erreur de connexion à la base de connaissances. Vérifiez que le Backend fonctionne.' }]);
@@ -272,7 +284,18 @@ export function ChatInterface({
 
     // --- Reference Link Handling ---
 
-    const handleReferenceClick = (refName: string) => {
+    const handleReferenceClick = (refName: string, reference?: EntityReference) => {
+        // 0. Resolved by the backend: select the node by logical id
+        if (reference) {
+            const node = visibleNodes?.find(n => n.logicalId && reference.ids.includes(n.logicalId));
+            if (node) {
+                onSelectNode?.(node.id);
+            } else {
+                setMissingNode({ name: refName });
+            }
+            return;
+        }
+
         // 1. Fuzzy Search in visibleNodes
         if (!visibleNodes || visibleNodes.length === 0) {
             // No graph data? Just propose load
@@ -317,7 +340,16 @@ export function ChatInterface({
         }
     };
 
-    const getIconForEntity = (name: string) => {
+    const getIconForEntity = (name: string, reference?: EntityReference) => {
+        // 0. Type resolved by the backend
+        switch (reference?.type) {
+            case 'GENE': return <Dna size={10} className="inline text-neo-primary" />;
+            case 'ISOLATE': return <Microscope size={10} className="inline text-neo-primary" />;
+            case 'ORTHOGROUP': return <Network size={10} className="inline text-neo-primary" />;
+            case 'HOST':
+            case 'COUNTRY': return <Tag size={10} className="inline text-neo-primary" />;
+        }
+
         // 1. Try to find in visible nodes to get strict type
         const normalizedName = name.toLowerCase();
         const node = visibleNodes?.find(n => n.name.toLowerCase() === normalizedName);
@@ -340,8 +372,9 @@ export function ChatInterface({
         return <Tag size={10} className="inline text-neo-primary" />;
     };
 
-    const renderMessageContent = (content: string) => {
+    const renderMessageContent = (content: string, references?: EntityReference[]) => {
         const parts = [];
+        const referenceAt = new Map((references ?? []).map(r => [r.start, r]));
         let lastIndex = 0;
         let match;
 
@@ -360,14 +393,29 @@ export function ChatInterface({
 
             // The Reference
             const refName = match[1];
+            const reference = referenceAt.get(match.index);
+            if (reference && !reference.resolved) {
+                // Not in the dataset: likely made up by the model
+                parts.push(
+                    <span
+                        key={`ref-${match.index}`}
+                        className="px-1 mx-0.5 border border-dashed border-neo-black/40 rounded text-xs line-through opacity-70"
+                        title="Introuvable dans la base"
+                    >
+                        {refName}
+                    </span>
+                );
+                lastIndex = regex.lastIndex;
+                continue;
+            }
             parts.push(
                 <button
                     key={`ref-${match.index}`}
-                    onClick={() => handleReferenceClick(refName)}
+                    onClick={() => handleReferenceClick(refName, reference)}
                     className="inline-flex items-center gap-1 px-1 py-0.5 mx-0.5 bg-neo-accent/30 text-neo-black border border-neo-black/20 rounded hover:bg-neo-accent hover:border-neo-black transition-all text-xs font-bold cursor-pointer align-baseline"
                     title="Cliquez pour voir dans le graphe"
                 >
-                    {getIconForEntity(refName)}
+                    {getIconForEntity(refName, reference)}
                     {refName}
                 </button>
             );
@@ -458,7 +506,7 @@ export function ChatInterface({
                                 ? 'bg-neo-white text-neo-black'
                                 : 'bg-neo-black text-neo-white'}`}>
                             {msg.role === 'assistant' ? (
-                                renderMessageContent(msg.content)
+                                renderMessageContent(msg.content, msg.references)
                             ) : (
                                 <div className="prose prose-xs max-w-none">
                                     <ReactMarkdown>{msg.content}</ReactMarkdown>
@@ -199,7 +199,8 @@ export function GraphViz({ initialData, onExecuteQuery }: GraphVizProps) {
         return visibleData.nodes.map(node => ({
             id: node.id,
             name: node.name,
-            type: node.type
+            type: node.type,
+            logicalId: node?.details?.logicalId || (node.id as string)
         }));
     }, [visibleData.nodes]);
 
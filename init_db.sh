@@ -7,3 +7,6 @@ echo "Seeding Neo4j database..."
 cat scripts/seed.cypher | docker exec -i ganoderma-neo4j cypher-shell -u neo4j -p password
 
 echo "Database seeded successfully!"
+
+# Let a running backend drop its cached graph views (ignored if it is not up)
+curl -s -X POST http://localhost:8080/api/graph/refresh > /dev/null || true